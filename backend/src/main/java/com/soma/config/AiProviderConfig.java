@@ -0,0 +1,82 @@
+package com.soma.config;
+
+import com.soma.service.BatchingChatProvider;
+import com.soma.service.ChatKnowledgeBase;
+import com.soma.service.ConcurrencyLimitedChatProvider;
+import com.soma.service.HashingTipEmbedder;
+import com.soma.service.LocalStubChatProvider;
+import com.soma.service.TipEmbedder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AiProviderConfig {
+    
+    @Value("${soma.ai.provider.name:local-stub}")
+    private String providerName;
+    
+    @Value("${soma.ai.provider.max-concurrent:16}")
+    private int maxConcurrent;
+    
+    @Value("${soma.ai.provider.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+    
+    @Value("${soma.ai.provider.batch.max-size:16}")
+    private int maxBatchSize;
+    
+    @Value("${soma.ai.provider.batch.max-wait-ms:10}")
+    private long maxBatchWaitMs;
+    
+    @Value("${soma.ai.provider.stub.first-token-latency-ms:0}")
+    private long stubFirstTokenLatencyMs;
+    
+    @Value("${soma.ai.provider.stub.token-latency-ms:0}")
+    private long stubTokenLatencyMs;
+    
+    @Value("${soma.ai.retrieval.embedder:hashing}")
+    private String embedderName;
+    
+    @Value("${soma.ai.retrieval.dimensions:256}")
+    private int embeddingDimensions;
+    
+    @Value("${soma.ai.stream.threads:32}")
+    private int streamThreads;
+    
+    @Bean
+    public ConcurrencyLimitedChatProvider chatProvider(ChatKnowledgeBase knowledgeBase) {
+        return switch (providerName) {
+            case "local-stub" -> new ConcurrencyLimitedChatProvider(
+                    new LocalStubChatProvider(knowledgeBase, stubFirstTokenLatencyMs, stubTokenLatencyMs),
+                    maxConcurrent, acquireTimeoutMs);
+            default -> throw new IllegalArgumentException("Unknown chat provider: " + providerName);
+        };
+    }
+    
+    @Bean
+    @Primary
+    public BatchingChatProvider batchingChatProvider(ConcurrencyLimitedChatProvider chatProvider) {
+        // One batch thread per provider slot; further batches wait in the concurrency limiter
+        return new BatchingChatProvider(chatProvider, maxBatchSize, maxBatchWaitMs, maxConcurrent);
+    }
+    
+    @Bean
+    public TipEmbedder tipEmbedder() {
+        return switch (embedderName) {
+            case "hashing" -> new HashingTipEmbedder(embeddingDimensions);
+            default -> throw new IllegalArgumentException("Unknown tip embedder: " + embedderName);
+        };
+    }
+    
+    @Bean
+    public ThreadPoolTaskExecutor chatStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamThreads);
+        executor.setMaxPoolSize(streamThreads);
+        executor.setQueueCapacity(streamThreads * 4);
+        executor.setThreadNamePrefix("chat-stream-");
+        return executor;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.soma.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class DashboardConfig {
+    
+    @Value("${soma.dashboard.threads:32}")
+    private int dashboardThreads;
+    
+    /**
+     * Runs the sections of dashboard requests. Sections block on the database and on upstream
+     * calls, so the pool is sized for concurrent requests rather than cores; a section rejected
+     * by a full queue is reported as failed instead of running on the request thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dashboardThreads);
+        executor.setMaxPoolSize(dashboardThreads);
+        executor.setQueueCapacity(dashboardThreads * 16);
+        executor.setThreadNamePrefix("dashboard-");
+        return executor;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.soma.config;
+
+import com.soma.util.UpstreamHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class EarthDataConfig {
+    
+    @Value("${soma.earthdata.fetch.threads:32}")
+    private int fetchThreads;
+    
+    @Value("${soma.earthdata.batch.threads:8}")
+    private int batchThreads;
+    
+    @Value("${soma.earthdata.prefetch.threads:4}")
+    private int prefetchThreads;
+    
+    @Value("${soma.upstream.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+    
+    @Value("${soma.upstream.http.attempt-timeout-ms:1200}")
+    private long attemptTimeoutMs;
+    
+    @Value("${soma.upstream.http.request-timeout-ms:2000}")
+    private long requestTimeoutMs;
+    
+    @Value("${soma.upstream.http.hedging.enabled:true}")
+    private boolean hedgingEnabled;
+    
+    @Value("${soma.upstream.http.hedging.min-delay-ms:150}")
+    private long minHedgeDelayMs;
+    
+    @Value("${soma.upstream.http.circuit.failure-threshold:5}")
+    private int circuitFailureThreshold;
+    
+    @Value("${soma.upstream.http.circuit.open-seconds:30}")
+    private long circuitOpenSeconds;
+    
+    @Bean
+    public ThreadPoolTaskExecutor earthDataExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(fetchThreads);
+        executor.setMaxPoolSize(fetchThreads);
+        executor.setQueueCapacity(fetchThreads * 16);
+        executor.setThreadNamePrefix("earthdata-");
+        return executor;
+    }
+    
+    /**
+     * Runs batch tile groups. Kept apart from the fetch pool, whose threads the groups wait on;
+     * when every batch thread is busy, the streaming request computes the group itself.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor earthDataBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchThreads);
+        executor.setMaxPoolSize(batchThreads);
+        executor.setQueueCapacity(batchThreads * 64);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("earthdata-batch-");
+        return executor;
+    }
+    
+    /**
+     * Runs field prefetches; small, since prefetching is background work and its pace is set by
+     * the per-run field limit rather than by thread count.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor fieldPrefetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(prefetchThreads);
+        executor.setMaxPoolSize(prefetchThreads);
+        executor.setThreadNamePrefix("field-prefetch-");
+        return executor;
+    }
+    
+    /**
+     * Shared client for NASA and other upstream data sources; its connection pool and circuit
+     * breakers are per host.
+     */
+    @Bean
+    public UpstreamHttpClient upstreamHttpClient() {
+        return new UpstreamHttpClient(
+                Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(attemptTimeoutMs),
+                Duration.ofMillis(requestTimeoutMs),
+                hedgingEnabled,
+                Duration.ofMillis(minHedgeDelayMs),
+                circuitFailureThreshold,
+                Duration.ofSeconds(circuitOpenSeconds));
+    }
+}
\ No newline at end of file
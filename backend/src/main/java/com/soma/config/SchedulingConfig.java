@@ -0,0 +1,29 @@
+package com.soma.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    
+    @Value("${soma.scheduling.pool-size:8}")
+    private int poolSize;
+    
+    /**
+     * Runs the scheduled jobs. The default scheduler has a single thread, on which a long season
+     * or irrigation run, with its surplus chunks run on the calling thread, would hold up the
+     * short jobs such as the tip popularity flush and the knowledge base reload. With at least a
+     * thread per job, a long job only delays its own next run.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.soma.config;
+
+import com.soma.service.Geocoder;
+import com.soma.service.LocalStubGeocoder;
+import com.soma.service.LocalStubWeatherProvider;
+import com.soma.service.WeatherProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class WeatherConfig {
+    
+    @Value("${soma.weather.provider.name:local-stub}")
+    private String providerName;
+    
+    @Value("${soma.weather.provider.stub.grid-degrees:0.1}")
+    private double stubGridDegrees;
+    
+    @Value("${soma.weather.provider.stub.update-minutes:10}")
+    private long stubUpdateMinutes;
+    
+    @Value("${soma.weather.geocoder.name:local-stub}")
+    private String geocoderName;
+    
+    @Value("${soma.weather.refresh-threads:4}")
+    private int refreshThreads;
+    
+    @Value("${soma.weather.season.threads:4}")
+    private int seasonThreads;
+    
+    @Value("${soma.weather.irrigation.threads:4}")
+    private int irrigationThreads;
+    
+    @Bean
+    public WeatherProvider weatherProvider() {
+        return switch (providerName) {
+            case "local-stub" -> new LocalStubWeatherProvider(stubGridDegrees, Duration.ofMinutes(stubUpdateMinutes));
+            default -> throw new IllegalArgumentException("Unknown weather provider: " + providerName);
+        };
+    }
+    
+    @Bean
+    public Geocoder geocoder() {
+        return switch (geocoderName) {
+            case "local-stub" -> new LocalStubGeocoder();
+            default -> throw new IllegalArgumentException("Unknown geocoder: " + geocoderName);
+        };
+    }
+    
+    /**
+     * Runs background refreshes of stale weather; lookups never wait on it.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor weatherRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(refreshThreads);
+        executor.setMaxPoolSize(refreshThreads);
+        executor.setQueueCapacity(refreshThreads * 64);
+        executor.setThreadNamePrefix("weather-refresh-");
+        return executor;
+    }
+    
+    /**
+     * Runs the chunks of the daily season run; a run queues all its chunks at once, so surplus
+     * chunks run on the job's own scheduling thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor fieldSeasonExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(seasonThreads);
+        executor.setMaxPoolSize(seasonThreads);
+        executor.setQueueCapacity(seasonThreads * 64);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("field-season-");
+        return executor;
+    }
+    
+    /**
+     * Runs the chunks of an irrigation planning run, surplus chunks on the calling thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor irrigationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(irrigationThreads);
+        executor.setMaxPoolSize(irrigationThreads);
+        executor.setQueueCapacity(irrigationThreads * 64);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("irrigation-");
+        return executor;
+    }
+}
\ No newline at end of file
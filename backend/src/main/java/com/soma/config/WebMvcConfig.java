@@ -0,0 +1,38 @@
+package com.soma.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    
+    @Value("${soma.web.async.threads:16}")
+    private int asyncThreads;
+    
+    /**
+     * Writes streamed response bodies, such as EarthData batches. Spring Boot only provides its
+     * own executor for this when the context has no other, and without one each stream would get
+     * a new thread. When every thread is busy, the stream is written on the request thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncThreads);
+        executor.setMaxPoolSize(asyncThreads);
+        executor.setQueueCapacity(asyncThreads * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+    
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
\ No newline at end of file
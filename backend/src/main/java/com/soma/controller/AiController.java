@@ -3,13 +3,20 @@ package com.soma.controller;
 import com.soma.dto.AiChatRequestDto;
 import com.soma.dto.AiChatResponseDto;
 import com.soma.service.AiChatService;
-import com.soma.service.SustainabilityMetricsService;
+import com.soma.service.BatchingChatProvider;
+import com.soma.service.ChatKnowledgeBase;
+import com.soma.service.ConcurrencyLimitedChatProvider;
+import com.soma.service.TipRecommendationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -20,19 +27,71 @@ import java.util.Map;
 public class AiController {
     
     private final AiChatService aiChatService;
-    private final SustainabilityMetricsService metricsService;
+    private final ConcurrencyLimitedChatProvider chatProvider;
+    private final BatchingChatProvider batchingChatProvider;
+    private final ChatKnowledgeBase knowledgeBase;
+    private final TipRecommendationService recommendationService;
     
     @PostMapping("/chat")
     @Operation(summary = "Chat with AI assistant")
-    public ResponseEntity<AiChatResponseDto> chat(@Valid @RequestBody AiChatRequestDto request) {
-        AiChatResponseDto response = aiChatService.getChatResponse(request);
+    public ResponseEntity<AiChatResponseDto> chat(
+            Authentication authentication,
+            @Valid @RequestBody AiChatRequestDto request
+    ) {
+        AiChatResponseDto response = aiChatService.getChatResponse(request, authentication.getName());
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Chat with AI assistant, streaming the answer token by token")
+    public SseEmitter chatStream(Authentication authentication, @Valid @RequestBody AiChatRequestDto request) {
+        return aiChatService.streamChatResponse(request, authentication.getName());
+    }
+    
+    @DeleteMapping("/chat/sessions/{sessionId}")
+    @Operation(summary = "Forget a chat conversation")
+    public ResponseEntity<Void> clearConversation(Authentication authentication, @PathVariable String sessionId) {
+        aiChatService.clearConversation(authentication.getName(), sessionId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @GetMapping("/chat/conversations/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get chat conversation memory statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getConversationStats() {
+        Map<String, Object> stats = aiChatService.getConversationStats();
+        return ResponseEntity.ok(stats);
+    }
+    
+    @GetMapping("/chat/provider/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get chat provider concurrency and batching statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getChatProviderStats() {
+        Map<String, Object> stats = chatProvider.getStats();
+        stats.put("batching", batchingChatProvider.getStats());
+        return ResponseEntity.ok(stats);
+    }
+    
+    @GetMapping("/chat/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get chat response cache statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getChatCacheStats() {
+        Map<String, Object> stats = aiChatService.getCacheStats();
+        return ResponseEntity.ok(stats);
+    }
+    
+    @GetMapping("/chat/knowledge-base")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get the loaded chat knowledge base version (Admin only)")
+    public ResponseEntity<Map<String, Object>> getKnowledgeBase() {
+        Map<String, Object> stats = knowledgeBase.getStats();
+        return ResponseEntity.ok(stats);
+    }
+    
     @GetMapping("/recommendations")
-    @Operation(summary = "Get AI recommendations based on user metrics")
+    @Operation(summary = "Get tip recommendations based on user metrics")
     public ResponseEntity<Map<String, Object>> getRecommendations(@RequestParam Long userId) {
-        Map<String, Object> recommendations = metricsService.getUserMetricsSummary(userId);
+        Map<String, Object> recommendations = recommendationService.getRecommendations(userId);
         return ResponseEntity.ok(recommendations);
     }
 }
\ No newline at end of file
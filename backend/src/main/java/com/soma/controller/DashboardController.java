@@ -0,0 +1,37 @@
+package com.soma.controller;
+
+import com.soma.dto.DashboardDto;
+import com.soma.service.DashboardService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/dashboard")
+@RequiredArgsConstructor
+@Tag(name = "Dashboard", description = "Everything the client shows on launch in one request")
+public class DashboardController {
+    
+    private final DashboardService dashboardService;
+    
+    @GetMapping
+    @Operation(summary = "Profile, metrics, weather, EarthData and tips at once; sections past their deadline are left out")
+    public ResponseEntity<DashboardDto> getDashboard(Authentication authentication,
+                                                     @RequestParam double lat,
+                                                     @RequestParam double lon) {
+        return ResponseEntity.ok(dashboardService.getDashboard(authentication.getName(), lat, lon));
+    }
+    
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Dashboard request, partial response and per-section timeout statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(dashboardService.getStats());
+    }
+}
\ No newline at end of file
@@ -1,13 +1,23 @@
 package com.soma.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.soma.dto.EarthDataBatchRequest;
 import com.soma.dto.EarthDataResponse;
+import com.soma.service.EarthDataBatchService;
 import com.soma.service.EarthDataService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/nasa")
 @CrossOrigin(origins = "*")
@@ -18,6 +28,12 @@ public class EarthDataController {
     @Autowired
     private EarthDataService earthDataService;
     
+    @Autowired
+    private EarthDataBatchService earthDataBatchService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping("/earthdata")
     public ResponseEntity<EarthDataResponse> getEarthData(
             @RequestParam Double lat,
@@ -35,13 +51,46 @@ public class EarthDataController {
             
             logger.info("Successfully processed EarthData request for coordinates: lat={}, lon={}", lat, lon);
             return ResponseEntity.ok(response);
-            
+        
         } catch (Exception e) {
             logger.error("Error processing EarthData request for coordinates: lat={}, lon={}", lat, lon, e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    /**
+     * Streams one JSON line per point as soon as its grid cell is computed. The plan's point, cell
+     * and tile counts are returned as headers before the first line.
+     */
+    @PostMapping(value = "/earthdata/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getEarthDataBatch(@RequestBody EarthDataBatchRequest request) {
+        EarthDataBatchService.Plan plan = earthDataBatchService.plan(request);
+        
+        logger.info("Received EarthData batch request: {} points in {} cells on {} tiles",
+                plan.pointCount(), plan.cellCount(), plan.tileCount());
+        StreamingResponseBody body = out -> earthDataBatchService.stream(plan, response -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(response));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .header("X-EarthData-Points", String.valueOf(plan.pointCount()))
+                .header("X-EarthData-Cells", String.valueOf(plan.cellCount()))
+                .header("X-EarthData-Tiles", String.valueOf(plan.tileCount()))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    @GetMapping("/earthdata/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(earthDataService.getCacheStats());
+    }
+    
     @GetMapping("/earthdata/health")
     public ResponseEntity<String> healthCheck() {
         return ResponseEntity.ok("NASA EarthData service is running");
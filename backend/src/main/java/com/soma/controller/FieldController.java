@@ -0,0 +1,161 @@
+package com.soma.controller;
+
+import com.soma.dto.EarthDataResponse;
+import com.soma.dto.FarmFieldDto;
+import com.soma.dto.IrrigationPlanDto;
+import com.soma.dto.NearbyFarmDto;
+import com.soma.dto.SeasonToDateDto;
+import com.soma.model.FarmField;
+import com.soma.model.FieldObservation;
+import com.soma.service.FarmFieldService;
+import com.soma.service.FieldPrefetchScheduler;
+import com.soma.service.FieldSeasonService;
+import com.soma.service.IrrigationScheduleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/fields")
+@RequiredArgsConstructor
+@Tag(name = "Farm Fields", description = "Registered field locations and their EarthData history")
+public class FieldController {
+    
+    private final FarmFieldService fieldService;
+    private final FieldPrefetchScheduler prefetchScheduler;
+    private final FieldSeasonService seasonService;
+    private final IrrigationScheduleService irrigationService;
+    
+    @PostMapping
+    @Operation(summary = "Register a field location for EarthData prefetching")
+    public ResponseEntity<FarmField> registerField(Authentication authentication,
+                                                   @Valid @RequestBody FarmFieldDto fieldDto) {
+        FarmField field = fieldService.registerField(authentication.getName(), fieldDto);
+        return ResponseEntity.ok(field);
+    }
+    
+    @GetMapping
+    @Operation(summary = "List the user's registered fields")
+    public ResponseEntity<List<FarmField>> getFields(Authentication authentication) {
+        List<FarmField> fields = fieldService.getFields(authentication.getName());
+        return ResponseEntity.ok(fields);
+    }
+    
+    @DeleteMapping("/{fieldId}")
+    @Operation(summary = "Remove a field and its stored history")
+    public ResponseEntity<Void> deleteField(Authentication authentication, @PathVariable Long fieldId) {
+        fieldService.deleteField(authentication.getName(), fieldId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @GetMapping("/{fieldId}/earthdata")
+    @Operation(summary = "Current EarthData for a field, from the prefetched store")
+    public ResponseEntity<EarthDataResponse> getLatest(Authentication authentication, @PathVariable Long fieldId) {
+        EarthDataResponse response = fieldService.getLatest(authentication.getName(), fieldId);
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/{fieldId}/earthdata/history")
+    @Operation(summary = "NDVI, LST and ET time series for a field (defaults to the last year)")
+    public ResponseEntity<List<FieldObservation>> getHistory(
+            Authentication authentication,
+            @PathVariable Long fieldId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusYears(1);
+        List<FieldObservation> history = fieldService.getHistory(authentication.getName(), fieldId, start, end);
+        return ResponseEntity.ok(history);
+    }
+    
+    @GetMapping("/{fieldId}/season")
+    @Operation(summary = "Season-to-date growing degree days and soil water balance for a field")
+    public ResponseEntity<SeasonToDateDto> getSeasonToDate(Authentication authentication, @PathVariable Long fieldId) {
+        SeasonToDateDto season = fieldService.getSeasonToDate(authentication.getName(), fieldId);
+        return ResponseEntity.ok(season);
+    }
+    
+    @GetMapping("/{fieldId}/irrigation")
+    @Operation(summary = "Multi-day irrigation plan for a field, from the precomputed store")
+    public ResponseEntity<IrrigationPlanDto> getIrrigationPlan(Authentication authentication,
+                                                               @PathVariable Long fieldId) {
+        IrrigationPlanDto plan = fieldService.getIrrigationPlan(authentication.getName(), fieldId);
+        return ResponseEntity.ok(plan);
+    }
+    
+    @GetMapping("/within")
+    @Operation(summary = "The user's fields within a distance of a point, nearest first")
+    public ResponseEntity<List<FarmField>> getFieldsWithin(Authentication authentication,
+                                                           @RequestParam double lat,
+                                                           @RequestParam double lon,
+                                                           @RequestParam double radiusKm) {
+        return ResponseEntity.ok(fieldService.getFieldsWithin(authentication.getName(), lat, lon, radiusKm));
+    }
+    
+    @GetMapping("/bbox")
+    @Operation(summary = "The user's fields inside a bounding box")
+    public ResponseEntity<List<FarmField>> getFieldsInBox(Authentication authentication,
+                                                          @RequestParam double south,
+                                                          @RequestParam double west,
+                                                          @RequestParam double north,
+                                                          @RequestParam double east) {
+        return ResponseEntity.ok(fieldService.getFieldsInBox(authentication.getName(), south, west, north, east));
+    }
+    
+    @GetMapping("/farms/nearest")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "The farms nearest to a point, with each farm's nearest field (Admin only)")
+    public ResponseEntity<List<NearbyFarmDto>> getNearestFarms(@RequestParam double lat,
+                                                               @RequestParam double lon,
+                                                               @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(fieldService.getNearestFarms(lat, lon, limit));
+    }
+    
+    @GetMapping("/prefetch/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Field prefetch scheduler statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getPrefetchStats() {
+        return ResponseEntity.ok(prefetchScheduler.getStats());
+    }
+    
+    @PostMapping("/season/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Accumulate a day (default today, UTC) for all fields now (Admin only)")
+    public ResponseEntity<Map<String, Object>> runSeason(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate day = date != null ? date : LocalDate.now(ZoneOffset.UTC);
+        return ResponseEntity.ok(seasonService.run(day));
+    }
+    
+    @GetMapping("/season/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Season accumulator statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getSeasonStats() {
+        return ResponseEntity.ok(seasonService.getStats());
+    }
+    
+    @PostMapping("/irrigation/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Plan irrigation now for all fields whose inputs changed (Admin only)")
+    public ResponseEntity<Map<String, Object>> runIrrigation() {
+        return ResponseEntity.ok(irrigationService.run(LocalDate.now(ZoneOffset.UTC)));
+    }
+    
+    @GetMapping("/irrigation/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Irrigation scheduler statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getIrrigationStats() {
+        return ResponseEntity.ok(irrigationService.getStats());
+    }
+}
\ No newline at end of file
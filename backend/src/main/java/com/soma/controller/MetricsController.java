@@ -1,7 +1,9 @@
 package com.soma.controller;
 
+import com.soma.dto.HeatmapDto;
 import com.soma.dto.SustainabilityMetricsDto;
 import com.soma.model.SustainabilityMetrics;
+import com.soma.service.SustainabilityHeatmapService;
 import com.soma.service.SustainabilityMetricsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -20,6 +22,7 @@ import java.util.Map;
 public class MetricsController {
     
     private final SustainabilityMetricsService metricsService;
+    private final SustainabilityHeatmapService heatmapService;
     
     @PostMapping("/submit")
     @Operation(summary = "Submit sustainability metrics")
@@ -42,6 +45,16 @@ public class MetricsController {
         return ResponseEntity.ok(summary);
     }
     
+    @GetMapping("/heatmap")
+    @Operation(summary = "Average carbon and water usage per geohash cell inside a map viewport")
+    public ResponseEntity<HeatmapDto> getHeatmap(@RequestParam double south,
+                                                 @RequestParam double west,
+                                                 @RequestParam double north,
+                                                 @RequestParam double east,
+                                                 @RequestParam(required = false) Integer precision) {
+        return ResponseEntity.ok(heatmapService.getHeatmap(south, west, north, east, precision));
+    }
+    
     @GetMapping("/summary/user/{userId}")
     @Operation(summary = "Get user-specific metrics summary")
     public ResponseEntity<Map<String, Object>> getUserMetricsSummary(@PathVariable Long userId) {
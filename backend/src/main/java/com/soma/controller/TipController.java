@@ -1,7 +1,9 @@
 package com.soma.controller;
 
+import com.soma.dto.PopularTipDto;
 import com.soma.dto.TipDto;
 import com.soma.model.Tip;
+import com.soma.service.TipPopularityService;
 import com.soma.service.TipService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -20,6 +22,7 @@ import java.util.List;
 public class TipController {
     
     private final TipService tipService;
+    private final TipPopularityService tipPopularityService;
     
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -36,13 +39,28 @@ public class TipController {
         return ResponseEntity.ok(tips);
     }
     
+    @GetMapping("/popular")
+    @Operation(summary = "Get the most popular tips by views and likes")
+    public ResponseEntity<List<PopularTipDto>> getPopularTips(@RequestParam(defaultValue = "10") int limit) {
+        List<PopularTipDto> tips = tipPopularityService.getPopularTips(limit);
+        return ResponseEntity.ok(tips);
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Get tip by ID")
     public ResponseEntity<Tip> getTipById(@PathVariable Long id) {
         Tip tip = tipService.getTipById(id);
+        tipPopularityService.recordView(id);
         return ResponseEntity.ok(tip);
     }
     
+    @PostMapping("/{id}/like")
+    @Operation(summary = "Like a tip")
+    public ResponseEntity<Void> likeTip(@PathVariable Long id) {
+        tipPopularityService.recordLike(id);
+        return ResponseEntity.noContent().build();
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Update tip (Admin only)")
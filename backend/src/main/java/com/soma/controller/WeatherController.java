@@ -1,10 +1,13 @@
 package com.soma.controller;
 
+import com.soma.dto.CurrentWeatherDto;
+import com.soma.dto.ForecastDto;
 import com.soma.service.WeatherService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -19,8 +22,24 @@ public class WeatherController {
     
     @GetMapping("/current")
     @Operation(summary = "Get current weather for a location")
-    public ResponseEntity<Map<String, Object>> getCurrentWeather(@RequestParam String location) {
-        Map<String, Object> weather = weatherService.getCurrentWeather(location);
+    public ResponseEntity<CurrentWeatherDto> getCurrentWeather(@RequestParam String location) {
+        CurrentWeatherDto weather = weatherService.getCurrentWeather(location);
         return ResponseEntity.ok(weather);
     }
+    
+    @GetMapping("/forecast")
+    @Operation(summary = "Get the hourly forecast for a location from the latest forecast run")
+    public ResponseEntity<ForecastDto> getForecast(@RequestParam String location,
+                                                   @RequestParam(defaultValue = "24") int hours) {
+        ForecastDto forecast = weatherService.getForecast(location, hours);
+        return ResponseEntity.ok(forecast);
+    }
+    
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get weather cache freshness statistics (Admin only)")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = weatherService.getCacheStats();
+        return ResponseEntity.ok(stats);
+    }
 }
\ No newline at end of file
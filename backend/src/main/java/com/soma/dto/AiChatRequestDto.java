@@ -8,4 +8,10 @@ public class AiChatRequestDto {
     
     @NotBlank(message = "Question is required")
     private String question;
+    
+    // Skips the response cache, e.g. when the user asks to regenerate an answer
+    private Boolean bypassCache;
+    
+    // Conversation to continue; follow-up questions are answered in its context
+    private String sessionId;
 }
\ No newline at end of file
@@ -3,9 +3,12 @@ package com.soma.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 public class AiChatResponseDto {
     private String response;
     private String timestamp;
+    private List<TipCitationDto> citations;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Current weather at the grid point a location resolves to, with how old the reading is.
+ */
+@Data
+@AllArgsConstructor
+public class CurrentWeatherDto {
+    private String location;
+    private double latitude;
+    private double longitude;
+    private double temperature;
+    private int humidity;
+    private double precipitation;
+    private double windSpeed;
+    private String condition;
+    private int uvIndex;
+    private int visibility;
+    private int soilMoisture;
+    private int growingDegreeDays;
+    private String recommendation;
+    private String freshness;
+    private long ageSeconds;
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.soma.dto;
+
+import com.soma.model.Tip;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the client shows on launch, in one response. A section that missed its deadline or
+ * failed is null, and {@code sections} says which: {@code ok}, {@code timeout} or {@code error}.
+ */
+@Data
+@AllArgsConstructor
+public class DashboardDto {
+    private UserProfileDto profile;
+    private Map<String, Object> metrics;
+    private CurrentWeatherDto weather;
+    private EarthDataResponse earthData;
+    private List<Tip> tips;
+    private Map<String, String> sections;
+    private boolean complete;
+    private long elapsedMs;
+}
\ No newline at end of file
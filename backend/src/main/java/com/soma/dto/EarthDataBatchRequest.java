@@ -0,0 +1,42 @@
+package com.soma.dto;
+
+import java.util.List;
+
+public class EarthDataBatchRequest {
+    
+    private List<EarthDataRequest> points;
+    private List<EarthDataRequest> polygon; // field boundary, sampled on a grid of spacingMeters
+    private Double spacingMeters;
+    
+    // Constructors
+    public EarthDataBatchRequest() {}
+    
+    public EarthDataBatchRequest(List<EarthDataRequest> points) {
+        this.points = points;
+    }
+    
+    // Getters and Setters
+    public List<EarthDataRequest> getPoints() {
+        return points;
+    }
+    
+    public void setPoints(List<EarthDataRequest> points) {
+        this.points = points;
+    }
+    
+    public List<EarthDataRequest> getPolygon() {
+        return polygon;
+    }
+    
+    public void setPolygon(List<EarthDataRequest> polygon) {
+        this.polygon = polygon;
+    }
+    
+    public Double getSpacingMeters() {
+        return spacingMeters;
+    }
+    
+    public void setSpacingMeters(Double spacingMeters) {
+        this.spacingMeters = spacingMeters;
+    }
+}
\ No newline at end of file
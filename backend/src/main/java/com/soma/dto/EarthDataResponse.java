@@ -1,6 +1,7 @@
 package com.soma.dto;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public class EarthDataResponse {
     
@@ -14,6 +15,9 @@ public class EarthDataResponse {
     private String droughtRisk;
     private LocalDateTime timestamp;
     private String dataSource;
+    private Map<String, String> sources; // field name -> where its value came from
+    private String freshness; // "stale" if any value was served from cache while being refreshed
+    private Long dataAgeSeconds; // age of the oldest value
     
     // Constructors
     public EarthDataResponse() {}
@@ -109,6 +113,30 @@ public class EarthDataResponse {
         this.dataSource = dataSource;
     }
     
+    public Map<String, String> getSources() {
+        return sources;
+    }
+    
+    public void setSources(Map<String, String> sources) {
+        this.sources = sources;
+    }
+    
+    public String getFreshness() {
+        return freshness;
+    }
+    
+    public void setFreshness(String freshness) {
+        this.freshness = freshness;
+    }
+    
+    public Long getDataAgeSeconds() {
+        return dataAgeSeconds;
+    }
+    
+    public void setDataAgeSeconds(Long dataAgeSeconds) {
+        this.dataAgeSeconds = dataAgeSeconds;
+    }
+    
     // Helper methods for status calculation
     private String calculateVegetationStatus(Double ndvi) {
         if (ndvi == null) return "Unknown";
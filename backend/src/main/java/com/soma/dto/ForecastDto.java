@@ -0,0 +1,21 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hourly forecast for a location from the latest gridded forecast run, interpolated to the
+ * location's coordinates.
+ */
+@Data
+@AllArgsConstructor
+public class ForecastDto {
+    private String location;
+    private double latitude;
+    private double longitude;
+    private LocalDateTime runTime;
+    private List<ForecastHourDto> hours;
+}
\ No newline at end of file
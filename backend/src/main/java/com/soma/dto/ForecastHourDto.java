@@ -0,0 +1,22 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Forecast conditions for one hour, in UTC.
+ */
+@Data
+@AllArgsConstructor
+public class ForecastHourDto {
+    private LocalDateTime time;
+    private double temperature;
+    private double humidity;
+    private double precipitation;
+    private double windSpeed;
+    private double cloudCover;
+    private double uvIndex;
+    private String condition;
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class HeatmapCellDto {
+    private String geohash;
+    private double latitude; // cell centre
+    private double longitude;
+    private int farms;
+    private long records;
+    private Double averageCarbonUsage;
+    private Double averageWaterUsage;
+}
@@ -0,0 +1,13 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class HeatmapDto {
+    private int precision;
+    private List<HeatmapCellDto> cells;
+}
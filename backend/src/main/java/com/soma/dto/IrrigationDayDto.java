@@ -0,0 +1,20 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * One day of an irrigation plan. Rainfall is taken as zero on days past the forecast run.
+ */
+@Data
+@AllArgsConstructor
+public class IrrigationDayDto {
+    private LocalDate date;
+    private boolean forecast;
+    private double rainfallMm;
+    private double evapotranspirationMm;
+    private double irrigationMm;
+    private double soilWaterMm;
+}
\ No newline at end of file
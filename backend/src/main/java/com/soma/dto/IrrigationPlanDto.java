@@ -0,0 +1,27 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A field's irrigation plan for the coming days, from its soil water at the start of the first
+ * day, forecast rainfall and evapotranspiration. Irrigation is planned when the soil would fall
+ * below the threshold.
+ */
+@Data
+@AllArgsConstructor
+public class IrrigationPlanDto {
+    private Long fieldId;
+    private LocalDate startDate;
+    private LocalDateTime computedAt;
+    private double soilWaterMm;
+    private double soilCapacityMm;
+    private double thresholdMm;
+    private int forecastDays;
+    private double totalIrrigationMm;
+    private List<IrrigationDayDto> days;
+}
\ No newline at end of file
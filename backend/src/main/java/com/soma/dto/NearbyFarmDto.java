@@ -0,0 +1,18 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A farm, identified by its owner, and the farm's field nearest to the queried point.
+ */
+@Data
+@AllArgsConstructor
+public class NearbyFarmDto {
+    private Long userId;
+    private Long fieldId;
+    private String fieldName;
+    private Double latitude;
+    private Double longitude;
+    private double distanceKm;
+}
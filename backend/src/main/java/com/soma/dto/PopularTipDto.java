@@ -0,0 +1,14 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PopularTipDto {
+    private Long id;
+    private String title;
+    private long views;
+    private long likes;
+    private double score;
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * A field's growing degree days and soil water balance from the start of its season through the
+ * last day the daily run accumulated.
+ */
+@Data
+@AllArgsConstructor
+public class SeasonToDateDto {
+    private Long fieldId;
+    private LocalDate seasonStart;
+    private LocalDate throughDate;
+    private double growingDegreeDays;
+    private double rainfallMm;
+    private double evapotranspirationMm;
+    private double soilWaterMm;
+    private double soilMoisturePercent;
+}
\ No newline at end of file
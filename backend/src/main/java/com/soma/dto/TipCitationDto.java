@@ -0,0 +1,12 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TipCitationDto {
+    private Long tipId;
+    private String title;
+    private double score;
+}
\ No newline at end of file
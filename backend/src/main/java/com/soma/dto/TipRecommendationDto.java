@@ -0,0 +1,13 @@
+package com.soma.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TipRecommendationDto {
+    private Long tipId;
+    private String title;
+    private double score;
+    private String reason;
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.soma.event;
+
+/**
+ * Published by {@link com.soma.service.FarmFieldService} when a field is registered or removed,
+ * so in-memory views of field locations stay in step with the database.
+ */
+public record FieldChangedEvent(Long fieldId, Long userId, Type type) {
+    
+    public enum Type {
+        CREATED, DELETED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.soma.event;
+
+import com.soma.model.SustainabilityMetrics;
+
+import java.time.LocalDate;
+
+/**
+ * Published by {@link com.soma.service.SustainabilityMetricsService} after a metrics record is
+ * saved, so per-user and per-region aggregates can be maintained incrementally.
+ */
+public record MetricsSubmittedEvent(SustainabilityMetrics metrics) {
+    
+    public Long userId() {
+        return metrics.getUserId();
+    }
+    
+    public Double carbonUsage() {
+        return metrics.getCarbonUsage();
+    }
+    
+    public Double waterUsage() {
+        return metrics.getWaterUsage();
+    }
+    
+    public LocalDate date() {
+        return metrics.getDate();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.soma.event;
+
+/**
+ * Published by {@link com.soma.service.TipService} whenever the tip catalog changes,
+ * so in-memory views of the catalog can update incrementally instead of re-reading it.
+ */
+public record TipChangedEvent(Long tipId, Type type) {
+    
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.soma.exception;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.soma.exception;
+
+public class ProviderBusyException extends RuntimeException {
+    public ProviderBusyException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
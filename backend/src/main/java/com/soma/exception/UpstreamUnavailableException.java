@@ -0,0 +1,7 @@
+package com.soma.exception;
+
+public class UpstreamUnavailableException extends RuntimeException {
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
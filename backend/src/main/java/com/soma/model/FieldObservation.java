@@ -0,0 +1,50 @@
+package com.soma.model;
+
+import com.soma.service.EarthDataProduct;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One product's value for a registered field in one composite period; together a field's rows
+ * form its NDVI, LST and ET time series.
+ */
+@Entity
+@Table(name = "field_observations", uniqueConstraints = @UniqueConstraint(
+        name = "uk_field_observation", columnNames = {"field_id", "product", "composite_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldObservation {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "field_id", nullable = false)
+    private Long fieldId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private EarthDataProduct product;
+    
+    @Column(name = "composite_date", nullable = false)
+    private LocalDate compositeDate;
+    
+    @Column(name = "observed_value", nullable = false)
+    private Double value;
+    
+    @Column(nullable = false)
+    private String source;
+    
+    // Model values are kept until a satellite value for the composite replaces them
+    @Column(nullable = false)
+    private boolean fallback;
+    
+    @Column(name = "fetched_at")
+    private LocalDateTime fetchedAt = LocalDateTime.now();
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.soma.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "tip_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TipStats {
+    
+    @Id
+    @Column(name = "tip_id")
+    private Long tipId;
+    
+    @Column(name = "view_count", nullable = false)
+    private long viewCount;
+    
+    @Column(name = "like_count", nullable = false)
+    private long likeCount;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    
+    public TipStats(Long tipId) {
+        this.tipId = tipId;
+    }
+    
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
\ No newline at end of file
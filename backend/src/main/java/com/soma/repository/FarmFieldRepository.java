@@ -0,0 +1,56 @@
+package com.soma.repository;
+
+import com.soma.model.FarmField;
+import com.soma.service.EarthDataProduct;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FarmFieldRepository extends JpaRepository<FarmField, Long> {
+    
+    List<FarmField> findByUserIdOrderByCreatedAtAsc(Long userId);
+    
+    Optional<FarmField> findByIdAndUserId(Long id, Long userId);
+    
+    @Query("SELECT f.id AS id, f.latitude AS latitude, f.longitude AS longitude FROM FarmField f ORDER BY f.id")
+    List<FieldLocation> findAllLocations();
+    
+    /**
+     * Fields with no observation of the product for the composite yet, or only a model value
+     * fetched before the retry cutoff, whose minute in the spread window has come; least recently
+     * prefetched first. A field's minute is the low 16 bits of its id times 40503, scaled from
+     * 65536 to the window's minutes; it has come when that hash times the window's minutes is
+     * below the limit, (minute of day + 1) x 65536.
+     */
+    @Query("SELECT f FROM FarmField f WHERE MOD(f.id * 40503, 65536) * :spreadMinutes < :spreadLimit " +
+           "AND NOT EXISTS (SELECT o FROM FieldObservation o " +
+           "WHERE o.fieldId = f.id AND o.product = :product AND o.compositeDate = :composite " +
+           "AND (o.fallback = false OR o.fetchedAt > :retryAfter)) " +
+           "ORDER BY f.lastPrefetchedAt ASC NULLS FIRST, f.id ASC")
+    List<FarmField> findDue(
+        @Param("product") EarthDataProduct product,
+        @Param("composite") LocalDate composite,
+        @Param("retryAfter") LocalDateTime retryAfter,
+        @Param("spreadMinutes") long spreadMinutes,
+        @Param("spreadLimit") long spreadLimit,
+        Pageable pageable
+    );
+    
+    /**
+     * Records a prefetch without loading the field. Returns 0 if the field no longer exists.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FarmField f SET f.lastPrefetchedAt = :prefetchedAt WHERE f.id = :id")
+    int markPrefetched(@Param("id") Long id, @Param("prefetchedAt") LocalDateTime prefetchedAt);
+}
\ No newline at end of file
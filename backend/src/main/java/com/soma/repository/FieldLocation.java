@@ -0,0 +1,10 @@
+package com.soma.repository;
+
+/**
+ * A field's id and coordinates, for batch jobs that need nothing else.
+ */
+public interface FieldLocation {
+    Long getId();
+    Double getLatitude();
+    Double getLongitude();
+}
\ No newline at end of file
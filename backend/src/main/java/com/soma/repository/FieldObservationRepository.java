@@ -0,0 +1,27 @@
+package com.soma.repository;
+
+import com.soma.model.FieldObservation;
+import com.soma.service.EarthDataProduct;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FieldObservationRepository extends JpaRepository<FieldObservation, Long> {
+    
+    List<FieldObservation> findByFieldIdAndCompositeDateBetweenOrderByCompositeDateAsc(
+        Long fieldId, LocalDate from, LocalDate to);
+    
+    Optional<FieldObservation> findByFieldIdAndProductAndCompositeDate(
+        Long fieldId, EarthDataProduct product, LocalDate compositeDate);
+    
+    Optional<FieldObservation> findFirstByFieldIdAndProductOrderByCompositeDateDesc(
+        Long fieldId, EarthDataProduct product);
+    
+    @Transactional
+    void deleteByFieldId(Long fieldId);
+}
\ No newline at end of file
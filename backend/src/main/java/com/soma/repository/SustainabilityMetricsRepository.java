@@ -16,8 +16,8 @@ public interface SustainabilityMetricsRepository extends JpaRepository<Sustainab
     
     @Query("SELECT sm FROM SustainabilityMetrics sm WHERE sm.userId = :userId AND sm.date BETWEEN :startDate AND :endDate ORDER BY sm.date DESC")
     List<SustainabilityMetrics> findByUserIdAndDateBetween(
-        @Param("userId") Long userId, 
-        @Param("startDate") LocalDate startDate, 
+        @Param("userId") Long userId,
+        @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate
     );
     
@@ -26,4 +26,16 @@ public interface SustainabilityMetricsRepository extends JpaRepository<Sustainab
     
     @Query("SELECT AVG(sm.waterUsage) FROM SustainabilityMetrics sm WHERE sm.userId = :userId")
     Double getAverageWaterUsageByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT sm.userId AS userId, COUNT(sm) AS recordCount, SUM(sm.carbonUsage) AS carbonSum, COUNT(sm.carbonUsage) AS carbonCount, " +
+           "SUM(sm.waterUsage) AS waterSum, COUNT(sm.waterUsage) AS waterCount " +
+           "FROM SustainabilityMetrics sm GROUP BY sm.userId")
+    List<UserMetricsAggregate> summarizeByUser();
+    
+    /**
+     * Each user's latest record by date, the last saved one among records of the same date.
+     */
+    @Query("SELECT sm FROM SustainabilityMetrics sm WHERE sm.id IN (SELECT MAX(l.id) FROM SustainabilityMetrics l " +
+           "WHERE l.date = (SELECT MAX(d.date) FROM SustainabilityMetrics d WHERE d.userId = l.userId) GROUP BY l.userId)")
+    List<SustainabilityMetrics> findLatestByUser();
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.soma.repository;
+
+import com.soma.model.TipStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TipStatsRepository extends JpaRepository<TipStats, Long> {
+}
\ No newline at end of file
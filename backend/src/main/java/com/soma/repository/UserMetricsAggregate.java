@@ -0,0 +1,13 @@
+package com.soma.repository;
+
+/**
+ * Per-user totals over all submitted sustainability metrics.
+ */
+public interface UserMetricsAggregate {
+    Long getUserId();
+    Long getRecordCount();
+    Double getCarbonSum();
+    Long getCarbonCount();
+    Double getWaterSum();
+    Long getWaterCount();
+}
\ No newline at end of file
@@ -2,61 +2,219 @@ package com.soma.service;
 
 import com.soma.dto.AiChatRequestDto;
 import com.soma.dto.AiChatResponseDto;
+import com.soma.dto.TipCitationDto;
+import com.soma.exception.ProviderBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class AiChatService {
     
-    private final Map<String, String> responses = new HashMap<>();
-    private final Random random = new Random();
+    private static final Logger logger = LoggerFactory.getLogger(AiChatService.class);
     
-    public AiChatService() {
-        initializeResponses();
+    private final ChatProvider chatProvider;
+    private final ChatKnowledgeBase knowledgeBase;
+    private final ChatResponseCache responseCache;
+    private final TipRetrievalService tipRetrievalService;
+    private final ConversationStore conversationStore;
+    private final Executor streamExecutor;
+    
+    @Value("${soma.ai.stream.timeout-ms:60000}")
+    private long streamTimeoutMs = 60000;
+    
+    public AiChatService(ChatProvider chatProvider, ChatKnowledgeBase knowledgeBase, ChatResponseCache responseCache,
+                         TipRetrievalService tipRetrievalService, ConversationStore conversationStore,
+                         @Qualifier("chatStreamExecutor") Executor streamExecutor) {
+        this.chatProvider = chatProvider;
+        this.knowledgeBase = knowledgeBase;
+        this.responseCache = responseCache;
+        this.tipRetrievalService = tipRetrievalService;
+        this.conversationStore = conversationStore;
+        this.streamExecutor = streamExecutor;
     }
     
     public AiChatResponseDto getChatResponse(AiChatRequestDto request) {
+        return getChatResponse(request, null);
+    }
+    
+    /**
+     * Answers the question in the context of the conversation named by the request's session, if
+     * it names one. Only a follow-up is answered, cached and coalesced with its conversation; a
+     * self-contained question shares the answer every other user gets.
+     */
+    public AiChatResponseDto getChatResponse(AiChatRequestDto request, String username) {
         String question = request.getQuestion().toLowerCase();
-        String response = findBestResponse(question);
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        String sessionKey = sessionKey(username, request.getSessionId());
+        Context context = context(question, sessionKey);
+        ChatAnswer answer = Boolean.TRUE.equals(request.getBypassCache())
+                ? responseCache.bypass(() -> answer(question, context))
+                : responseCache.get(question, context.history().topics(), () -> answer(question, context));
+        remember(sessionKey, question, answer);
         
-        return new AiChatResponseDto(response, timestamp);
+        return new AiChatResponseDto(answer.text(), currentTimestamp(), answer.citations());
+    }
+    
+    /**
+     * Streams the answer as server-sent events: one {@code token} event per generated token, then
+     * a {@code done} event carrying the timestamp and cited tips. Cached answers are sent as a
+     * single token.
+     */
+    public SseEmitter streamChatResponse(AiChatRequestDto request) {
+        return streamChatResponse(request, null);
+    }
+    
+    public SseEmitter streamChatResponse(AiChatRequestDto request, String username) {
+        String question = request.getQuestion().toLowerCase();
+        String sessionKey = sessionKey(username, request.getSessionId());
+        boolean useCache = !Boolean.TRUE.equals(request.getBypassCache());
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        
+        try {
+            streamExecutor.execute(() -> stream(emitter, question, sessionKey, useCache));
+        } catch (RejectedExecutionException e) {
+            // Every stream thread is busy and the queue is full: answer 503 before the stream opens
+            throw new ProviderBusyException("Too many chat streams in progress, please retry shortly");
+        }
+        return emitter;
     }
     
-    private String findBestResponse(String question) {
-        // Check for keyword matches
-        for (Map.Entry<String, String> entry : responses.entrySet()) {
-            if (question.contains(entry.getKey())) {
-                return entry.getValue();
+    private void stream(SseEmitter emitter, String question, String sessionKey, boolean useCache) {
+        try {
+            Context context = context(question, sessionKey);
+            Conversation history = context.history();
+            Optional<ChatAnswer> cached = useCache
+                    ? responseCache.getIfPresent(question, history.topics())
+                    : Optional.empty();
+            ChatAnswer answer;
+            if (cached.isPresent()) {
+                answer = cached.get();
+                sendToken(emitter, answer.text());
+            } else {
+                List<TipCitationDto> tips = retrieve(question, context);
+                String text = chatProvider.stream(new ChatPrompt(question, tips, history),
+                        token -> sendToken(emitter, token));
+                answer = new ChatAnswer(text, tips);
+                if (useCache) {
+                    responseCache.put(question, history.topics(), answer);
+                }
             }
+            remember(sessionKey, question, answer);
+            emitter.send(SseEmitter.event().name("done")
+                    .data(Map.of("timestamp", currentTimestamp(), "citations", answer.citations()),
+                            MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (UncheckedIOException e) {
+            logger.debug("Chat stream client disconnected", e);
+            emitter.completeWithError(e.getCause());
+        } catch (Exception e) {
+            logger.warn("Chat stream failed", e);
+            try {
+                emitter.send(SseEmitter.event().name("error").data(e.getMessage()));
+            } catch (IOException ignored) {
+                // Client already gone
+            }
+            emitter.completeWithError(e);
         }
-        
-        // Default responses if no keyword match
-        String[] defaultResponses = {
-            "Based on current agricultural best practices, I recommend focusing on soil health and water conservation for sustainable farming.",
-            "For optimal crop yield, consider implementing precision agriculture techniques and monitoring soil moisture levels regularly.",
-            "Sustainable farming practices include crop rotation, cover cropping, and reduced tillage to maintain soil health.",
-            "To improve your farm's sustainability, focus on reducing chemical inputs and increasing organic matter in your soil."
-        };
-        
-        return defaultResponses[random.nextInt(defaultResponses.length)];
-    }
-    
-    private void initializeResponses() {
-        responses.put("soil", "For optimal soil health, I recommend regular soil testing, adding organic compost, and implementing cover crops during off-seasons. This will improve soil structure and nutrient retention.");
-        responses.put("water", "Water conservation is crucial for sustainable farming. Consider drip irrigation systems, mulching, and rainwater harvesting to optimize water usage and reduce waste.");
-        responses.put("carbon", "To reduce your carbon footprint, focus on no-till farming, cover crops, agroforestry, and reducing synthetic fertilizer use. These practices sequester carbon while improving soil health.");
-        responses.put("crop rotation", "Crop rotation is essential for breaking pest cycles and maintaining soil fertility. Rotate between nitrogen-fixing legumes and nutrient-demanding crops for best results.");
-        responses.put("pest", "Integrated Pest Management (IPM) combines biological, cultural, and chemical controls. Use beneficial insects, crop rotation, and targeted pesticide application only when necessary.");
-        responses.put("fertilizer", "Reduce synthetic fertilizer use by implementing precision agriculture, using organic compost, and planting nitrogen-fixing cover crops. Soil testing will help optimize application rates.");
-        responses.put("yield", "To improve crop yields sustainably, focus on soil health, proper irrigation, crop selection suited to your climate, and integrated nutrient management.");
-        responses.put("organic", "Transitioning to organic farming requires 3-year certification period. Focus on building soil health, using approved inputs, and implementing natural pest control methods.");
-        responses.put("climate", "Climate-smart agriculture includes drought-resistant varieties, improved water management, carbon sequestration practices, and diversified cropping systems.");
-        responses.put("regenerative", "Regenerative agriculture practices include no-till farming, diverse cover crops, integrated livestock grazing, and reducing external inputs to restore ecosystem health.");
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        return responseCache.getStats();
+    }
+    
+    public Map<String, Object> getConversationStats() {
+        return conversationStore.getStats();
+    }
+    
+    public void clearConversation(String username, String sessionId) {
+        String sessionKey = sessionKey(username, sessionId);
+        if (sessionKey != null) {
+            conversationStore.clear(sessionKey);
+        }
+    }
+    
+    /**
+     * The conversation a question is answered in: the session's history if the question is a
+     * follow-up, with no topic or tip of its own, and no history otherwise, so that self-contained
+     * questions keep their shared cache and coalescing keys. Tips retrieved to decide are kept for
+     * the answer.
+     */
+    private Context context(String question, String sessionKey) {
+        if (sessionKey == null) {
+            return new Context(Conversation.EMPTY, null);
+        }
+        Conversation history = conversationStore.get(sessionKey);
+        if (history.isEmpty() || knowledgeBase.match(question).isPresent()) {
+            return new Context(Conversation.EMPTY, null);
+        }
+        List<TipCitationDto> tips = tipRetrievalService.retrieve(question);
+        return new Context(tips.isEmpty() ? history : Conversation.EMPTY, tips);
+    }
+    
+    private ChatAnswer answer(String question, Context context) {
+        List<TipCitationDto> tips = retrieve(question, context);
+        return new ChatAnswer(chatProvider.complete(new ChatPrompt(question, tips, context.history())), tips);
+    }
+    
+    private List<TipCitationDto> retrieve(String question, Context context) {
+        Conversation history = context.history();
+        List<TipCitationDto> tips = context.questionTips() != null
+                ? context.questionTips()
+                : tipRetrievalService.retrieve(question);
+        if (tips.isEmpty() && !history.isEmpty()) {
+            // A follow-up like "and for corn?" is searched together with what was asked before
+            tips = tipRetrievalService.retrieve(history.topics() + " " + question);
+        }
+        return tips;
+    }
+    
+    private void remember(String sessionKey, String question, ChatAnswer answer) {
+        if (sessionKey != null) {
+            conversationStore.append(sessionKey, question, answer.text());
+        }
+    }
+    
+    /**
+     * Sessions are scoped to their user, so one user cannot continue another's conversation. A
+     * request without a session has no conversation.
+     */
+    private static String sessionKey(String username, String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return null;
+        }
+        return username == null ? sessionId : username + "/" + sessionId;
+    }
+    
+    private static void sendToken(SseEmitter emitter, String token) {
+        try {
+            emitter.send(SseEmitter.event().name("token").data(token, MediaType.TEXT_PLAIN));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static String currentTimestamp() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+    
+    /**
+     * A question's conversation, and the tips retrieved for the question alone if choosing the
+     * conversation took a retrieval; null if it did not, and the answer retrieves them on a miss.
+     */
+    private record Context(Conversation history, List<TipCitationDto> questionTips) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.soma.service;
+
+import com.soma.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Cuts upstream calls under bursts of questions. Identical prompts in flight at the same time
+ * share one answer, and distinct prompts arriving within {@code maxWaitMs} of each other are sent
+ * to the provider as one batch of up to {@code maxBatchSize}. Streaming calls are passed through,
+ * since their tokens go to a single client.
+ */
+public class BatchingChatProvider implements ChatProvider, AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchingChatProvider.class);
+    
+    private final ChatProvider delegate;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final SingleFlight<ChatPrompt, String> singleFlight = new SingleFlight<>();
+    private final BlockingQueue<PendingPrompt> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService batchExecutor;
+    private final Thread dispatcher;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedPrompts = new LongAdder();
+    private volatile boolean running = true;
+    
+    public BatchingChatProvider(ChatProvider delegate, int maxBatchSize, long maxWaitMs, int batchThreads) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(batchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "chat-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, "chat-batch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+    
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+    
+    @Override
+    public String complete(ChatPrompt prompt) {
+        CompletableFuture<String> answer = singleFlight.execute(prompt, () -> enqueue(prompt));
+        try {
+            return answer.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+    
+    @Override
+    public String stream(ChatPrompt prompt, Consumer<String> onToken) {
+        return delegate.stream(prompt, onToken);
+    }
+    
+    @Override
+    public List<String> completeBatch(List<ChatPrompt> prompts) {
+        return delegate.completeBatch(prompts);
+    }
+    
+    public Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long promptCount = batchedPrompts.sum();
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        stats.put("requestCount", singleFlight.calls() + singleFlight.shared());
+        stats.put("coalescedCount", singleFlight.shared());
+        stats.put("batchCount", batchCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) promptCount / batchCount);
+        stats.put("queued", queue.size());
+        return stats;
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        batchExecutor.shutdown();
+        List<PendingPrompt> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        fail(pending, shuttingDown());
+    }
+    
+    private CompletableFuture<String> enqueue(ChatPrompt prompt) {
+        if (!running) {
+            throw shuttingDown();
+        }
+        PendingPrompt pending = new PendingPrompt(prompt, new CompletableFuture<>());
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            // close() drained the queue before this prompt was added
+            pending.answer().completeExceptionally(shuttingDown());
+        }
+        return pending.answer();
+    }
+    
+    /**
+     * Collects prompts until the batch is full or {@code maxWaitNanos} has passed since the first
+     * one arrived, then hands the batch to the executor and starts the next.
+     */
+    private void dispatchLoop() {
+        while (running) {
+            List<PendingPrompt> batch = new ArrayList<>(maxBatchSize);
+            try {
+                PendingPrompt first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingPrompt next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batchExecutor.execute(() -> send(batch));
+            } catch (InterruptedException e) {
+                // Interrupted by close(), perhaps while collecting a batch
+                Thread.currentThread().interrupt();
+                fail(batch, shuttingDown());
+                return;
+            } catch (RejectedExecutionException e) {
+                fail(batch, running ? e : shuttingDown());
+            } catch (Throwable e) {
+                logger.error("Chat batch dispatcher failed", e);
+                fail(batch, e);
+            }
+        }
+    }
+    
+    private void send(List<PendingPrompt> batch) {
+        batches.increment();
+        batchedPrompts.add(batch.size());
+        try {
+            List<String> answers = delegate.completeBatch(batch.stream().map(PendingPrompt::prompt).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).answer().complete(answers.get(i));
+            }
+        } catch (Throwable e) {
+            logger.warn("Chat batch of {} prompts failed", batch.size(), e);
+            fail(batch, e);
+        }
+    }
+    
+    /**
+     * Fails the prompts not yet answered, so no caller waits on a batch that will never be sent.
+     */
+    private static void fail(List<PendingPrompt> batch, Throwable cause) {
+        batch.forEach(pending -> pending.answer().completeExceptionally(cause));
+    }
+    
+    private static IllegalStateException shuttingDown() {
+        return new IllegalStateException("Chat provider is shutting down");
+    }
+    
+    private record PendingPrompt(ChatPrompt prompt, CompletableFuture<String> answer) {
+    }
+}
\ No newline at end of file
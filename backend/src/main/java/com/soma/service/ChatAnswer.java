@@ -0,0 +1,11 @@
+package com.soma.service;
+
+import com.soma.dto.TipCitationDto;
+
+import java.util.List;
+
+/**
+ * A generated answer together with the catalog tips it cites.
+ */
+public record ChatAnswer(String text, List<TipCitationDto> citations) {
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.soma.service;
+
+import com.soma.util.KeywordMatcher;
+import com.soma.util.KnowledgeBaseFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Curated topic answers used by the local chat provider. Questions are matched against topic
+ * keywords in one pass; the most specific topic wins.
+ *
+ * <p>Content comes from a memory-mapped {@link KnowledgeBaseFile} when
+ * {@code soma.ai.knowledge-base.path} is set, falling back to the built-in answers otherwise. The
+ * file is polled for changes and a new version is swapped in atomically: requests keep reading
+ * the snapshot they started with and never wait on a reload.
+ */
+@Component
+public class ChatKnowledgeBase {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatKnowledgeBase.class);
+    
+    private static final List<KnowledgeBaseFile.Topic> BUILT_IN_TOPICS = List.of(
+            new KnowledgeBaseFile.Topic("soil", "For optimal soil health, I recommend regular soil testing, adding organic compost, and implementing cover crops during off-seasons. This will improve soil structure and nutrient retention.", 0),
+            new KnowledgeBaseFile.Topic("water", "Water conservation is crucial for sustainable farming. Consider drip irrigation systems, mulching, and rainwater harvesting to optimize water usage and reduce waste.", 0),
+            new KnowledgeBaseFile.Topic("carbon", "To reduce your carbon footprint, focus on no-till farming, cover crops, agroforestry, and reducing synthetic fertilizer use. These practices sequester carbon while improving soil health.", 0),
+            new KnowledgeBaseFile.Topic("crop rotation", "Crop rotation is essential for breaking pest cycles and maintaining soil fertility. Rotate between nitrogen-fixing legumes and nutrient-demanding crops for best results.", 0),
+            new KnowledgeBaseFile.Topic("pest", "Integrated Pest Management (IPM) combines biological, cultural, and chemical controls. Use beneficial insects, crop rotation, and targeted pesticide application only when necessary.", 0),
+            new KnowledgeBaseFile.Topic("fertilizer", "Reduce synthetic fertilizer use by implementing precision agriculture, using organic compost, and planting nitrogen-fixing cover crops. Soil testing will help optimize application rates.", 0),
+            new KnowledgeBaseFile.Topic("yield", "To improve crop yields sustainably, focus on soil health, proper irrigation, crop selection suited to your climate, and integrated nutrient management.", 0),
+            new KnowledgeBaseFile.Topic("organic", "Transitioning to organic farming requires 3-year certification period. Focus on building soil health, using approved inputs, and implementing natural pest control methods.", 0),
+            new KnowledgeBaseFile.Topic("climate", "Climate-smart agriculture includes drought-resistant varieties, improved water management, carbon sequestration practices, and diversified cropping systems.", 0),
+            new KnowledgeBaseFile.Topic("regenerative", "Regenerative agriculture practices include no-till farming, diverse cover crops, integrated livestock grazing, and reducing external inputs to restore ecosystem health.", 0)
+    );
+    
+    // Default responses if no keyword match
+    private static final List<String> BUILT_IN_DEFAULTS = List.of(
+            "Based on current agricultural best practices, I recommend focusing on soil health and water conservation for sustainable farming.",
+            "For optimal crop yield, consider implementing precision agriculture techniques and monitoring soil moisture levels regularly.",
+            "Sustainable farming practices include crop rotation, cover cropping, and reduced tillage to maintain soil health.",
+            "To improve your farm's sustainability, focus on reducing chemical inputs and increasing organic matter in your soil."
+    );
+    
+    private final Path path;
+    private final ChatResponseCache responseCache;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    
+    public ChatKnowledgeBase() {
+        this("", null);
+    }
+    
+    @Autowired
+    public ChatKnowledgeBase(@Value("${soma.ai.knowledge-base.path:}") String path, ChatResponseCache responseCache) {
+        this.path = path.isBlank() ? null : Path.of(path);
+        this.responseCache = responseCache;
+        this.snapshot.set(builtIn());
+        reloadIfChanged();
+    }
+    
+    public String answer(String question) {
+        Snapshot current = snapshot.get();
+        return match(current, question)
+                .orElseGet(() -> current.file().defaultAnswer(
+                        Math.floorMod(question.hashCode(), current.file().defaultCount())));
+    }
+    
+    /**
+     * Returns the answer for the most specific topic mentioned in the text, if any.
+     */
+    public Optional<String> match(String text) {
+        return match(snapshot.get(), text);
+    }
+    
+    /**
+     * Swaps in the configured file if it changed since it was last loaded. A file that cannot be
+     * read leaves the current content in place.
+     */
+    @Scheduled(fixedDelayString = "${soma.ai.knowledge-base.poll-interval-ms:5000}")
+    public synchronized void reloadIfChanged() {
+        if (path == null) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            Snapshot current = snapshot.get();
+            if (current.isVersion(attributes)) {
+                return;
+            }
+            KnowledgeBaseFile file = KnowledgeBaseFile.open(path);
+            snapshot.set(new Snapshot(file, index(file), path.toString(), attributes.lastModifiedTime().toMillis(),
+                    attributes.size(), attributes.fileKey(), LocalDateTime.now()));
+            if (responseCache != null) {
+                // Cached answers were composed from the previous content
+                responseCache.invalidateAll();
+            }
+            logger.info("Loaded chat knowledge base {} ({} topics, {} bytes)", path, file.topicCount(), file.sizeBytes());
+        } catch (NoSuchFileException e) {
+            logger.warn("Chat knowledge base {} not found, keeping current content", path);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to load chat knowledge base {}, keeping current content", path, e);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("source", current.source());
+        stats.put("topics", current.file().topicCount());
+        stats.put("defaultAnswers", current.file().defaultCount());
+        stats.put("sizeBytes", current.file().sizeBytes());
+        stats.put("loadedAt", current.loadedAt().toString());
+        return stats;
+    }
+    
+    private static Optional<String> match(Snapshot snapshot, String text) {
+        // One pass over the text finds every topic keyword; the most specific topic wins
+        return snapshot.matcher().findBest(text).map(match -> snapshot.file().answer(match.payload()));
+    }
+    
+    private static Snapshot builtIn() {
+        KnowledgeBaseFile file = KnowledgeBaseFile.wrap(KnowledgeBaseFile.encode(BUILT_IN_TOPICS, BUILT_IN_DEFAULTS));
+        return new Snapshot(file, index(file), "built-in", 0, 0, null, LocalDateTime.now());
+    }
+    
+    /**
+     * Builds the keyword automaton over topic numbers; answers stay in the file until matched.
+     */
+    private static KeywordMatcher<Integer> index(KnowledgeBaseFile file) {
+        KeywordMatcher.Builder<Integer> topics = KeywordMatcher.builder();
+        for (int i = 0; i < file.topicCount(); i++) {
+            topics.add(file.keyword(i), i, file.priority(i));
+        }
+        return topics.build();
+    }
+    
+    private record Snapshot(KnowledgeBaseFile file, KeywordMatcher<Integer> matcher, String source,
+                            long lastModified, long size, Object fileKey, LocalDateTime loadedAt) {
+        
+        boolean isVersion(BasicFileAttributes attributes) {
+            // The file key changes when a new version is moved into place, even within one mtime tick
+            return lastModified == attributes.lastModifiedTime().toMillis()
+                    && size == attributes.size()
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+}
\ No newline at end of file
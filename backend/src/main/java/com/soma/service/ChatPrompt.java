@@ -0,0 +1,21 @@
+package com.soma.service;
+
+import com.soma.dto.TipCitationDto;
+
+import java.util.List;
+
+/**
+ * What a {@link ChatProvider} is asked to answer: the user's question, the catalog tips retrieved
+ * for it, which the answer should draw on and cite, and the conversation so far, against which
+ * follow-up questions are interpreted.
+ */
+public record ChatPrompt(String question, List<TipCitationDto> tips, Conversation history) {
+    
+    public ChatPrompt(String question, List<TipCitationDto> tips) {
+        this(question, tips, Conversation.EMPTY);
+    }
+    
+    public static ChatPrompt of(String question) {
+        return new ChatPrompt(question, List.of());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.soma.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A backend that answers farmers' questions, e.g. a hosted language model or the local stub.
+ */
+public interface ChatProvider {
+    
+    String name();
+    
+    /**
+     * Returns the complete answer once it is fully generated.
+     */
+    String complete(ChatPrompt prompt);
+    
+    /**
+     * Hands each token to the consumer as soon as it is generated and returns the full answer.
+     * An exception thrown by the consumer (e.g. the client disconnected) aborts generation.
+     */
+    String stream(ChatPrompt prompt, Consumer<String> onToken);
+    
+    /**
+     * Answers several prompts at once, returning the answers in prompt order. Providers with a
+     * batch API should override this; the default answers the prompts one by one.
+     */
+    default List<String> completeBatch(List<ChatPrompt> prompts) {
+        return prompts.stream().map(this::complete).toList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.soma.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches chat answers by normalized question, so "How to save water?" and "how to save water"
+ * share one entry. Bounded by a W-TinyLFU policy with a TTL, and concurrent misses for the same
+ * question wait on a single in-flight computation instead of each calling the model. Answers to
+ * follow-up questions are keyed by the conversation context as well as the question.
+ */
+@Component
+public class ChatResponseCache {
+    
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "and", "or", "of", "to", "in", "on", "for", "with", "at", "by",
+            "is", "are", "am", "be", "do", "does", "did", "can", "could", "should", "would", "will",
+            "i", "me", "my", "we", "our", "you", "your", "it", "its", "this", "that",
+            "how", "what", "which", "please", "tell", "about");
+    
+    private final AsyncCache<String, ChatAnswer> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+    
+    public ChatResponseCache(
+            @Value("${soma.ai.cache.max-entries:10000}") long maxEntries,
+            @Value("${soma.ai.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+    }
+    
+    /**
+     * Returns the cached answer for the question, computing it on the calling thread on a miss.
+     * A failed computation is not cached and is rethrown to every caller waiting on it.
+     */
+    public ChatAnswer get(String question, Supplier<ChatAnswer> loader) {
+        return get(question, "", loader);
+    }
+    
+    /**
+     * Like {@link #get(String, Supplier)}, for a question asked in the given conversation context.
+     */
+    public ChatAnswer get(String question, String context, Supplier<ChatAnswer> loader) {
+        String key = key(question, context);
+        CompletableFuture<ChatAnswer> pending = new CompletableFuture<>();
+        CompletableFuture<ChatAnswer> existing = cache.asMap().putIfAbsent(key, pending);
+        
+        if (existing != null) {
+            if (existing.isDone()) {
+                hits.increment();
+            } else {
+                coalesced.increment();
+            }
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        misses.increment();
+        try {
+            ChatAnswer answer = loader.get();
+            pending.complete(answer);
+            return answer;
+        } catch (Throwable e) {
+            // Waiters see the failure and the entry goes, so the next caller retries; an Error
+            // must not leave them waiting on a future that never completes
+            pending.completeExceptionally(e);
+            cache.asMap().remove(key, pending);
+            throw e;
+        }
+    }
+    
+    /**
+     * Returns the cached answer if one is already complete, without waiting on in-flight work.
+     */
+    public Optional<ChatAnswer> getIfPresent(String question) {
+        return getIfPresent(question, "");
+    }
+    
+    public Optional<ChatAnswer> getIfPresent(String question, String context) {
+        CompletableFuture<ChatAnswer> existing = cache.getIfPresent(key(question, context));
+        if (existing != null && existing.isDone() && !existing.isCompletedExceptionally()) {
+            hits.increment();
+            return Optional.of(existing.join());
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+    
+    public void put(String question, ChatAnswer answer) {
+        put(question, "", answer);
+    }
+    
+    public void put(String question, String context, ChatAnswer answer) {
+        cache.put(key(question, context), CompletableFuture.completedFuture(answer));
+    }
+    
+    /**
+     * Computes the answer without reading or populating the cache.
+     */
+    public ChatAnswer bypass(Supplier<ChatAnswer> loader) {
+        bypasses.increment();
+        return loader.get();
+    }
+    
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+    
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long coalescedCount = coalesced.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + coalescedCount + missCount;
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.synchronous().estimatedSize());
+        stats.put("hitCount", hitCount);
+        stats.put("coalescedCount", coalescedCount);
+        stats.put("missCount", missCount);
+        stats.put("bypassCount", bypasses.sum());
+        stats.put("evictionCount", cache.synchronous().stats().evictionCount());
+        // Coalesced lookups never reached the model, so they count towards the hit ratio
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) (hitCount + coalescedCount) / lookups);
+        return stats;
+    }
+    
+    private static String key(String question, String context) {
+        // normalize() never emits NUL, so a context cannot collide with a plain question
+        return context.isEmpty() ? normalize(question) : normalize(question) + '\0' + normalize(context);
+    }
+    
+    /**
+     * Folds case, punctuation, whitespace and stopwords so trivially different phrasings of
+     * one question share a cache key. Falls back to the folded text if only stopwords remain.
+     */
+    static String normalize(String question) {
+        String[] words = question.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        StringBuilder key = new StringBuilder();
+        StringBuilder folded = new StringBuilder();
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            folded.append(folded.isEmpty() ? "" : " ").append(word);
+            if (!STOPWORDS.contains(word)) {
+                key.append(key.isEmpty() ? "" : " ").append(word);
+            }
+        }
+        return key.isEmpty() ? folded.toString() : key.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.soma.service;
+
+import com.soma.exception.ProviderBusyException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Caps the number of calls in flight to a provider. Callers wait up to the acquire timeout for a
+ * slot and are then rejected with {@link ProviderBusyException}, so a slow upstream sheds load
+ * instead of tying up every request thread. Streaming calls hold their slot until the last token,
+ * and a batch takes a single slot.
+ */
+public class ConcurrencyLimitedChatProvider implements ChatProvider {
+    
+    private final ChatProvider delegate;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final LongAdder rejected = new LongAdder();
+    
+    public ConcurrencyLimitedChatProvider(ChatProvider delegate, int maxConcurrent, long acquireTimeoutMs) {
+        this.delegate = delegate;
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+    
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+    
+    @Override
+    public String complete(ChatPrompt prompt) {
+        acquire();
+        try {
+            return delegate.complete(prompt);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    @Override
+    public String stream(ChatPrompt prompt, Consumer<String> onToken) {
+        acquire();
+        try {
+            return delegate.stream(prompt, onToken);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    @Override
+    public List<String> completeBatch(List<ChatPrompt> prompts) {
+        acquire();
+        try {
+            return delegate.completeBatch(prompts);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("provider", delegate.name());
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("inFlight", maxConcurrent - permits.availablePermits());
+        stats.put("queued", permits.getQueueLength());
+        stats.put("rejectedCount", rejected.sum());
+        return stats;
+    }
+    
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new ProviderBusyException("Chat provider " + delegate.name() + " is at capacity, please retry shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProviderBusyException("Interrupted while waiting for chat provider " + delegate.name());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.soma.service;
+
+import java.util.List;
+
+/**
+ * A session's chat history as handed to a {@link ChatProvider}: a keyword summary of turns that
+ * were compacted away, followed by the most recent turns, oldest first.
+ */
+public record Conversation(String summary, List<Turn> turns) {
+    
+    public static final Conversation EMPTY = new Conversation("", List.of());
+    
+    public record Turn(String question, String answer) {
+    }
+    
+    public boolean isEmpty() {
+        return summary.isEmpty() && turns.isEmpty();
+    }
+    
+    /**
+     * The summary and the questions asked so far, which is what a follow-up's answer depends on.
+     */
+    public String topics() {
+        StringBuilder topics = new StringBuilder(summary);
+        for (Turn turn : turns) {
+            topics.append(topics.isEmpty() ? "" : " ").append(turn.question());
+        }
+        return topics.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,208 @@
+package com.soma.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-session chat memory under a fixed heap budget. Each session is held as one length-prefixed
+ * UTF-8 byte array rather than an object graph. When a session outgrows its byte budget, its
+ * oldest turns are folded into a keyword summary; idle sessions expire, and the least valuable
+ * sessions are evicted once the store reaches its total byte budget.
+ */
+@Component
+public class ConversationStore {
+    
+    // Approximate cache node, key and array header cost not counted by the encoded length
+    static final int ENTRY_OVERHEAD_BYTES = 128;
+    
+    // Room for the length prefixes of a truncated turn
+    private static final int PREFIX_BYTES = 6;
+    
+    private final Cache<String, byte[]> sessions;
+    private final int maxSessionBytes;
+    private final int maxSummaryBytes;
+    private final long maxTotalBytes;
+    private final LongAdder compactions = new LongAdder();
+    
+    public ConversationStore(
+            @Value("${soma.ai.conversation.max-session-bytes:2048}") int maxSessionBytes,
+            @Value("${soma.ai.conversation.max-total-bytes:268435456}") long maxTotalBytes,
+            @Value("${soma.ai.conversation.idle-minutes:30}") long idleMinutes) {
+        if (maxSessionBytes < 256) {
+            throw new IllegalArgumentException("Conversation budget must be at least 256 bytes per session");
+        }
+        this.maxSessionBytes = maxSessionBytes;
+        this.maxSummaryBytes = maxSessionBytes / 4;
+        this.maxTotalBytes = maxTotalBytes;
+        this.sessions = Caffeine.newBuilder()
+                .maximumWeight(maxTotalBytes)
+                .weigher((String key, byte[] encoded) -> encoded.length + 2 * key.length() + ENTRY_OVERHEAD_BYTES)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .recordStats()
+                .build();
+    }
+    
+    public Conversation get(String sessionKey) {
+        byte[] encoded = sessions.getIfPresent(sessionKey);
+        return encoded == null ? Conversation.EMPTY : decode(encoded);
+    }
+    
+    /**
+     * Appends a turn to the session, compacting older turns if the session exceeds its budget.
+     */
+    public void append(String sessionKey, String question, String answer) {
+        sessions.asMap().compute(sessionKey, (key, encoded) -> {
+            Conversation conversation = encoded == null ? Conversation.EMPTY : decode(encoded);
+            List<Conversation.Turn> turns = new ArrayList<>(conversation.turns());
+            turns.add(new Conversation.Turn(question, answer));
+            return compact(conversation.summary(), turns);
+        });
+    }
+    
+    public void clear(String sessionKey) {
+        sessions.invalidate(sessionKey);
+    }
+    
+    public Map<String, Object> getStats() {
+        // Weights are settled by the cache's async maintenance; apply pending writes first
+        sessions.cleanUp();
+        long sessionCount = sessions.estimatedSize();
+        long usedBytes = sessions.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessionCount);
+        stats.put("usedBytes", usedBytes);
+        stats.put("maxTotalBytes", maxTotalBytes);
+        stats.put("maxSessionBytes", maxSessionBytes);
+        stats.put("averageSessionBytes", sessionCount == 0 ? 0 : usedBytes / sessionCount);
+        stats.put("utilization", maxTotalBytes == 0 ? 0.0 : (double) usedBytes / maxTotalBytes);
+        stats.put("compactionCount", compactions.sum());
+        stats.put("evictionCount", sessions.stats().evictionCount());
+        return stats;
+    }
+    
+    private byte[] compact(String summary, List<Conversation.Turn> turns) {
+        byte[] encoded = encode(summary, turns);
+        while (encoded.length > maxSessionBytes && turns.size() > 1) {
+            summary = summarize(summary, turns.remove(0).question());
+            compactions.increment();
+            encoded = encode(summary, turns);
+        }
+        if (encoded.length > maxSessionBytes) {
+            // A single turn larger than the budget: keep the question and as much of the answer as fits
+            Conversation.Turn turn = turns.get(0);
+            int budget = maxSessionBytes - utf8Length(summary) - PREFIX_BYTES;
+            String question = truncate(turn.question(), budget / 2);
+            String answer = truncate(turn.answer(), budget - utf8Length(question));
+            encoded = encode(summary, List.of(new Conversation.Turn(question, answer)));
+        }
+        return encoded;
+    }
+    
+    /**
+     * Adds the question's content words to the summary, most recent last, dropping the oldest
+     * words once the summary exceeds its share of the session budget.
+     */
+    private String summarize(String summary, String question) {
+        Set<String> words = new LinkedHashSet<>();
+        if (!summary.isEmpty()) {
+            words.addAll(Arrays.asList(summary.split(" ")));
+        }
+        for (String word : ChatResponseCache.normalize(question).split(" ")) {
+            if (!word.isEmpty()) {
+                words.remove(word);
+                words.add(word);
+            }
+        }
+        
+        List<String> kept = new ArrayList<>(words);
+        String result = String.join(" ", kept);
+        while (utf8Length(result) > maxSummaryBytes && !kept.isEmpty()) {
+            kept.remove(0);
+            result = String.join(" ", kept);
+        }
+        return result;
+    }
+    
+    static byte[] encode(String summary, List<Conversation.Turn> turns) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeString(out, summary);
+        for (Conversation.Turn turn : turns) {
+            writeString(out, turn.question());
+            writeString(out, turn.answer());
+        }
+        return out.toByteArray();
+    }
+    
+    static Conversation decode(byte[] encoded) {
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        String summary = readString(in);
+        List<Conversation.Turn> turns = new ArrayList<>();
+        while (in.hasRemaining()) {
+            turns.add(new Conversation.Turn(readString(in), readString(in)));
+        }
+        return new Conversation(summary, List.copyOf(turns));
+    }
+    
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Unsigned LEB128 length prefix: one byte for anything under 128 bytes
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(bytes, 0, bytes.length);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+    
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+    
+    private static String truncate(String value, int maxBytes) {
+        if (maxBytes <= 0) {
+            return "";
+        }
+        int end = Math.min(value.length(), maxBytes);
+        while (end > 0 && utf8Length(value.substring(0, end)) > maxBytes) {
+            end--;
+        }
+        // Never split a surrogate pair
+        if (end > 0 && Character.isHighSurrogate(value.charAt(end - 1))) {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+}
\ No newline at end of file
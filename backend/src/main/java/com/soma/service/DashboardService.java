@@ -0,0 +1,173 @@
+package com.soma.service;
+
+import com.soma.dto.CurrentWeatherDto;
+import com.soma.dto.DashboardDto;
+import com.soma.dto.EarthDataResponse;
+import com.soma.dto.UserProfileDto;
+import com.soma.exception.InvalidRequestException;
+import com.soma.model.Tip;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Builds the launch dashboard from the profile, metrics, weather, EarthData and tips services in
+ * one request. All sections start at once on the dashboard executor and each has its own deadline
+ * from the start of the request, so the response takes as long as the slowest section or its
+ * deadline, not the sum of them. A section that misses its deadline or fails is left out and
+ * marked in the response; a late section keeps running and still warms the caches behind it.
+ */
+@Service
+public class DashboardService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+    
+    static final String PROFILE = "profile";
+    static final String METRICS = "metrics";
+    static final String WEATHER = "weather";
+    static final String EARTH_DATA = "earthData";
+    static final String TIPS = "tips";
+    static final String OK = "ok";
+    static final String TIMEOUT = "timeout";
+    static final String ERROR = "error";
+    
+    @Value("${soma.dashboard.profile-deadline-ms:500}")
+    private long profileDeadlineMs = 500;
+    
+    @Value("${soma.dashboard.metrics-deadline-ms:1000}")
+    private long metricsDeadlineMs = 1000;
+    
+    @Value("${soma.dashboard.weather-deadline-ms:1500}")
+    private long weatherDeadlineMs = 1500;
+    
+    @Value("${soma.dashboard.earthdata-deadline-ms:3000}")
+    private long earthDataDeadlineMs = 3000;
+    
+    @Value("${soma.dashboard.tips-deadline-ms:1000}")
+    private long tipsDeadlineMs = 1000;
+    
+    private final UserService userService;
+    private final SustainabilityMetricsService metricsService;
+    private final WeatherService weatherService;
+    private final EarthDataService earthDataService;
+    private final TipService tipService;
+    private final Executor dashboardExecutor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder partialResponses = new LongAdder();
+    private final Map<String, LongAdder> timeouts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    
+    public DashboardService(UserService userService,
+                            SustainabilityMetricsService metricsService,
+                            WeatherService weatherService,
+                            EarthDataService earthDataService,
+                            TipService tipService,
+                            @Qualifier("dashboardExecutor") Executor dashboardExecutor) {
+        this.userService = userService;
+        this.metricsService = metricsService;
+        this.weatherService = weatherService;
+        this.earthDataService = earthDataService;
+        this.tipService = tipService;
+        this.dashboardExecutor = dashboardExecutor;
+    }
+    
+    /**
+     * The user's dashboard with weather and EarthData at the point.
+     */
+    public DashboardDto getDashboard(String email, double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new InvalidRequestException("Coordinates out of range: " + latitude + ", " + longitude);
+        }
+        long started = System.nanoTime();
+        requests.increment();
+        
+        CompletableFuture<UserProfileDto> profile = start(profileDeadlineMs, () -> userService.getUserProfile(email));
+        // Looks the user up itself rather than waiting for the profile section
+        CompletableFuture<Map<String, Object>> metrics = start(metricsDeadlineMs,
+                () -> metricsService.getUserMetricsSummary(userService.getUserProfile(email).getId()));
+        CompletableFuture<CurrentWeatherDto> weather = start(weatherDeadlineMs,
+                () -> weatherService.getCurrentWeather(latitude, longitude));
+        CompletableFuture<EarthDataResponse> earthData = start(earthDataDeadlineMs,
+                () -> earthDataService.getEarthData(latitude, longitude));
+        CompletableFuture<List<Tip>> tips = start(tipsDeadlineMs, tipService::getAllTips);
+        
+        // Every section completes by its own deadline, so waiting on them in turn adds nothing
+        Map<String, String> sections = new LinkedHashMap<>();
+        UserProfileDto profileSection = await(PROFILE, profile, sections);
+        Map<String, Object> metricsSection = await(METRICS, metrics, sections);
+        CurrentWeatherDto weatherSection = await(WEATHER, weather, sections);
+        EarthDataResponse earthDataSection = await(EARTH_DATA, earthData, sections);
+        List<Tip> tipsSection = await(TIPS, tips, sections);
+        boolean complete = sections.values().stream().allMatch(OK::equals);
+        if (!complete) {
+            partialResponses.increment();
+        }
+        return new DashboardDto(profileSection, metricsSection, weatherSection, earthDataSection, tipsSection,
+                sections, complete, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> deadlines = new HashMap<>();
+        deadlines.put(PROFILE, profileDeadlineMs);
+        deadlines.put(METRICS, metricsDeadlineMs);
+        deadlines.put(WEATHER, weatherDeadlineMs);
+        deadlines.put(EARTH_DATA, earthDataDeadlineMs);
+        deadlines.put(TIPS, tipsDeadlineMs);
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requests", requests.sum());
+        stats.put("partialResponses", partialResponses.sum());
+        stats.put("timeouts", counts(timeouts));
+        stats.put("errors", counts(errors));
+        stats.put("deadlinesMs", deadlines);
+        return stats;
+    }
+    
+    private <T> CompletableFuture<T> start(long deadlineMs, Supplier<T> section) {
+        try {
+            return CompletableFuture.supplyAsync(section, dashboardExecutor).orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private <T> T await(String name, CompletableFuture<T> section, Map<String, String> sections) {
+        try {
+            T value = section.join();
+            sections.put(name, OK);
+            return value;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                logger.warn("Dashboard section {} missed its deadline", name);
+                sections.put(name, TIMEOUT);
+                timeouts.computeIfAbsent(name, key -> new LongAdder()).increment();
+            } else {
+                logger.warn("Dashboard section {} failed", name, e.getCause());
+                sections.put(name, ERROR);
+                errors.computeIfAbsent(name, key -> new LongAdder()).increment();
+            }
+            return null;
+        }
+    }
+    
+    private static Map<String, Long> counts(Map<String, LongAdder> counters) {
+        Map<String, Long> counts = new HashMap<>();
+        counters.forEach((name, counter) -> counts.put(name, counter.sum()));
+        return counts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.soma.service;
+
+import com.soma.dto.EarthDataBatchRequest;
+import com.soma.dto.EarthDataRequest;
+import com.soma.dto.EarthDataResponse;
+import com.soma.exception.InvalidRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Answers EarthData for many points at once. Points are grouped by the NDVI grid cell they fall
+ * in, and cells by the GIBS tile that holds them; each cell is computed once and each tile group
+ * runs as one task, so a tile is downloaded once and its remaining cells are served from the
+ * decoded-tile cache. Cost grows with distinct tiles and cells rather than with points.
+ */
+@Service
+public class EarthDataBatchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EarthDataBatchService.class);
+    
+    private static final double METERS_PER_DEGREE = 111320.0;
+    static final String UNAVAILABLE_SOURCE = "unavailable";
+    
+    private final EarthDataService earthDataService;
+    private final GibsNdviClient gibsNdviClient;
+    private final Executor batchExecutor;
+    
+    @Value("${soma.earthdata.batch.max-points:5000}")
+    private int maxPoints = 5000;
+    
+    @Value("${soma.earthdata.batch.default-spacing-meters:250}")
+    private double defaultSpacingMeters = 250;
+    
+    @Value("${soma.earthdata.batch.stall-timeout-ms:30000}")
+    private long stallTimeoutMs = 30000;
+    
+    public EarthDataBatchService(EarthDataService earthDataService, GibsNdviClient gibsNdviClient,
+                                 @Qualifier("earthDataBatchExecutor") Executor batchExecutor) {
+        this.earthDataService = earthDataService;
+        this.gibsNdviClient = gibsNdviClient;
+        this.batchExecutor = batchExecutor;
+    }
+    
+    /**
+     * The points of one grid cell, answered with a single lookup at the first of them.
+     */
+    public record CellPoints(long cell, List<EarthDataRequest> points) {
+    }
+    
+    public record Plan(List<List<CellPoints>> tileGroups, int pointCount, int cellCount) {
+        
+        public int tileCount() {
+            return tileGroups.size();
+        }
+    }
+    
+    /**
+     * Resolves the request to points and groups them by tile and cell.
+     *
+     * @throws InvalidRequestException if the request has no points, a malformed polygon, or
+     *                                  more points than allowed
+     */
+    public Plan plan(EarthDataBatchRequest request) {
+        List<EarthDataRequest> points = new ArrayList<>();
+        if (request.getPoints() != null) {
+            points.addAll(request.getPoints());
+        }
+        if (request.getPolygon() != null) {
+            double spacing = request.getSpacingMeters() != null ? request.getSpacingMeters() : defaultSpacingMeters;
+            points.addAll(samplePolygon(request.getPolygon(), spacing, maxPoints - points.size()));
+        }
+        if (points.isEmpty()) {
+            throw new InvalidRequestException("Batch needs points or a polygon");
+        }
+        if (points.size() > maxPoints) {
+            throw new InvalidRequestException("Batch has " + points.size() + " points, the limit is " + maxPoints);
+        }
+        
+        LocalDate composite = EarthDataProduct.NDVI.latestComposite(LocalDate.now(ZoneOffset.UTC));
+        Map<GibsNdviClient.TileKey, Map<Long, List<EarthDataRequest>>> tiles = new LinkedHashMap<>();
+        for (EarthDataRequest point : points) {
+            if (!isValid(point)) {
+                throw new InvalidRequestException("Invalid coordinates: " + point.getLat() + ", " + point.getLon());
+            }
+            tiles.computeIfAbsent(gibsNdviClient.tileKey(point.getLat(), point.getLon(), composite),
+                            tile -> new LinkedHashMap<>())
+                    .computeIfAbsent(EarthDataProduct.NDVI.cell(point.getLat(), point.getLon()), cell -> new ArrayList<>())
+                    .add(point);
+        }
+        
+        List<List<CellPoints>> tileGroups = new ArrayList<>(tiles.size());
+        int cellCount = 0;
+        for (Map<Long, List<EarthDataRequest>> cells : tiles.values()) {
+            List<CellPoints> group = new ArrayList<>(cells.size());
+            cells.forEach((cell, cellPoints) -> group.add(new CellPoints(cell, cellPoints)));
+            tileGroups.add(group);
+            cellCount += group.size();
+        }
+        return new Plan(tileGroups, points.size(), cellCount);
+    }
+    
+    /**
+     * Computes the plan's tile groups in parallel and hands each point's result to the sink, on
+     * the calling thread, as soon as its cell is done. A cell that fails is streamed with its
+     * points marked unavailable; if no cell completes for the stall timeout, streaming stops.
+     *
+     * <p>However streaming ends, including by the sink throwing when the client has gone, groups
+     * still queued are cancelled and groups under way stop before their next cell. A cell already
+     * being computed is left to finish, since other requests may share its computation.
+     */
+    public void stream(Plan plan, Consumer<EarthDataResponse> sink) {
+        long start = System.nanoTime();
+        BlockingQueue<List<EarthDataResponse>> completed = new LinkedBlockingQueue<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        List<FutureTask<Void>> tasks = new ArrayList<>(plan.tileCount());
+        try {
+            for (List<CellPoints> group : plan.tileGroups()) {
+                FutureTask<Void> task = new FutureTask<>(() -> {
+                    for (CellPoints cell : group) {
+                        if (abandoned.get()) {
+                            return;
+                        }
+                        try {
+                            completed.add(answer(cell));
+                        } catch (RuntimeException e) {
+                            logger.warn("EarthData batch cell {} failed, streaming its points as unavailable",
+                                    cell.cell(), e);
+                            completed.add(unavailable(cell));
+                        }
+                    }
+                }, null);
+                tasks.add(task);
+                batchExecutor.execute(task);
+            }
+            
+            drain(plan, completed, sink);
+        } finally {
+            abandoned.set(true);
+            tasks.forEach(task -> task.cancel(false));
+        }
+        logger.info("EarthData batch of {} points answered from {} cells on {} tiles in {} ms",
+                plan.pointCount(), plan.cellCount(), plan.tileCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    private void drain(Plan plan, BlockingQueue<List<EarthDataResponse>> completed, Consumer<EarthDataResponse> sink) {
+        try {
+            for (int i = 0; i < plan.cellCount(); i++) {
+                List<EarthDataResponse> responses = completed.poll(stallTimeoutMs, TimeUnit.MILLISECONDS);
+                if (responses == null) {
+                    throw new IllegalStateException("EarthData batch stalled after " + i + " of "
+                            + plan.cellCount() + " cells");
+                }
+                responses.forEach(sink);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while streaming EarthData batch", e);
+        }
+    }
+    
+    private List<EarthDataResponse> answer(CellPoints cell) {
+        EarthDataRequest first = cell.points().get(0);
+        EarthDataResponse shared = earthDataService.getEarthData(first.getLat(), first.getLon());
+        List<EarthDataResponse> responses = new ArrayList<>(cell.points().size());
+        for (EarthDataRequest point : cell.points()) {
+            responses.add(EarthDataService.forPoint(shared, point.getLat(), point.getLon()));
+        }
+        return responses;
+    }
+    
+    private static List<EarthDataResponse> unavailable(CellPoints cell) {
+        List<EarthDataResponse> responses = new ArrayList<>(cell.points().size());
+        for (EarthDataRequest point : cell.points()) {
+            EarthDataResponse response = new EarthDataResponse(point.getLat(), point.getLon());
+            response.setDataSource(UNAVAILABLE_SOURCE);
+            responses.add(response);
+        }
+        return responses;
+    }
+    
+    /**
+     * Samples a grid of the given spacing inside the polygon (even-odd rule), always including
+     * at least the polygon's first vertex so a field smaller than the spacing still gets a point.
+     * Spacing finer than an NDVI cell is widened to one cell, as closer samples would share a
+     * lookup anyway.
+     *
+     * @throws InvalidRequestException if the grid over the polygon's bounding box, or the
+     *                                  samples inside the polygon, would exceed the limit
+     */
+    static List<EarthDataRequest> samplePolygon(List<EarthDataRequest> polygon, double spacingMeters, int maxSamples) {
+        if (polygon.size() < 3 || polygon.stream().anyMatch(vertex -> !isValid(vertex))) {
+            throw new InvalidRequestException("Polygon needs at least three valid vertices");
+        }
+        if (!(spacingMeters > 0)) {
+            throw new InvalidRequestException("Spacing must be positive");
+        }
+        double spacing = Math.max(spacingMeters, EarthDataProduct.NDVI.cellSizeMeters());
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (EarthDataRequest vertex : polygon) {
+            minLat = Math.min(minLat, vertex.getLat());
+            maxLat = Math.max(maxLat, vertex.getLat());
+            minLon = Math.min(minLon, vertex.getLon());
+            maxLon = Math.max(maxLon, vertex.getLon());
+        }
+        
+        double latStep = spacing / METERS_PER_DEGREE;
+        double lonStep = spacing / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians((minLat + maxLat) / 2))));
+        // Reject before looping, so a huge polygon costs nothing
+        double estimated = Math.ceil((maxLat - minLat) / latStep) * Math.ceil((maxLon - minLon) / lonStep);
+        if (estimated > maxSamples) {
+            throw new InvalidRequestException("Polygon would be sampled at about " + (long) estimated
+                    + " points at " + Math.round(spacing) + " m spacing, the limit is " + maxSamples);
+        }
+        List<EarthDataRequest> samples = new ArrayList<>();
+        for (double lat = minLat + latStep / 2; lat < maxLat; lat += latStep) {
+            for (double lon = minLon + lonStep / 2; lon < maxLon; lon += lonStep) {
+                if (contains(polygon, lat, lon)) {
+                    samples.add(new EarthDataRequest(lat, lon));
+                    if (samples.size() > maxSamples) {
+                        throw new InvalidRequestException("Polygon has more than " + maxSamples + " sample points");
+                    }
+                }
+            }
+        }
+        if (samples.isEmpty()) {
+            samples.add(new EarthDataRequest(polygon.get(0).getLat(), polygon.get(0).getLon()));
+        }
+        return samples;
+    }
+    
+    private static boolean contains(List<EarthDataRequest> polygon, double lat, double lon) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            double latI = polygon.get(i).getLat(), lonI = polygon.get(i).getLon();
+            double latJ = polygon.get(j).getLat(), lonJ = polygon.get(j).getLon();
+            if ((latI > lat) != (latJ > lat) && lon < (lonJ - lonI) * (lat - latI) / (latJ - latI) + lonI) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+    
+    private static boolean isValid(EarthDataRequest point) {
+        return point != null && point.getLat() != null && point.getLon() != null
+                && Math.abs(point.getLat()) <= 90 && Math.abs(point.getLon()) <= 180;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.soma.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.soma.util.MappedCellTable;
+import com.soma.util.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caches EarthData field values by (product, MODIS grid cell, composite date), so every request
+ * in one cell shares a value until the product's next composite is published. Bounded in memory
+ * by entry count; an optional disk tier of memory-mapped cell tables, one per product and
+ * composite, keeps satellite values across restarts and memory evictions.
+ *
+ * <p>Values are served stale rather than waited for: a fallback value past the fallback TTL, and
+ * in the first lookups after a composite rolls over the previous composite's value, are returned
+ * at once, marked stale, while a single background refresh per key loads the current value. The
+ * max-stale setting bounds how old such a value may get before lookups wait for upstream again.
+ */
+@Component
+public class EarthDataCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EarthDataCache.class);
+    
+    public record Key(EarthDataProduct product, long cell, LocalDate composite) {
+    }
+    
+    private final AsyncCache<Key, EarthDataValue> cache;
+    private final Duration fallbackTtl;
+    private final Executor refreshExecutor;
+    private final SingleFlight<Key, EarthDataValue> refreshes = new SingleFlight<>();
+    private final Path diskDirectory;
+    private final int diskCellsPerComposite;
+    private final Map<String, MappedCellTable> diskTables = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    
+    public EarthDataCache(
+            @Value("${soma.earthdata.cache.max-entries:100000}") long maxEntries,
+            @Value("${soma.earthdata.cache.fallback-ttl-minutes:30}") long fallbackTtlMinutes,
+            @Value("${soma.earthdata.cache.max-stale-minutes:360}") long maxStaleMinutes,
+            @Value("${soma.earthdata.cache.disk.enabled:false}") boolean diskEnabled,
+            @Value("${soma.earthdata.cache.disk.directory:./data/earthdata-cache}") String diskDirectory,
+            @Value("${soma.earthdata.cache.disk.cells-per-composite:1048576}") int diskCellsPerComposite,
+            @Qualifier("earthDataExecutor") Executor refreshExecutor) {
+        this.diskDirectory = diskEnabled ? Path.of(diskDirectory) : null;
+        this.diskCellsPerComposite = diskCellsPerComposite;
+        this.fallbackTtl = Duration.ofMinutes(fallbackTtlMinutes);
+        this.refreshExecutor = refreshExecutor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new CompositeExpiry(fallbackTtl, Duration.ofMinutes(maxStaleMinutes)))
+                .recordStats()
+                .buildAsync();
+    }
+    
+    public static Key key(EarthDataProduct product, double latitude, double longitude) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        return new Key(product, product.cell(latitude, longitude), product.latestComposite(today));
+    }
+    
+    /**
+     * Returns the cached value for the point's cell, loading it on the calling thread on a miss.
+     * Concurrent misses for one cell wait on a single load; a failed load is not cached. A value
+     * due for refresh is returned stale while the loader runs on the refresh executor.
+     */
+    public EarthDataValue get(EarthDataProduct product, double latitude, double longitude,
+                              Supplier<EarthDataValue> loader) {
+        Key key = key(product, latitude, longitude);
+        EarthDataValue cached = completed(key);
+        if (cached != null && cached.fallback() && cached.age().compareTo(fallbackTtl) >= 0) {
+            return serveStale(key, cached, loader);
+        }
+        if (cached == null) {
+            EarthDataValue previous = completed(new Key(product, key.cell(), product.previousComposite(key.composite())));
+            if (previous != null) {
+                return serveStale(key, previous, loader);
+            }
+        }
+        
+        CompletableFuture<EarthDataValue> pending = new CompletableFuture<>();
+        CompletableFuture<EarthDataValue> existing = cache.asMap().putIfAbsent(key, pending);
+        if (existing != null) {
+            hits.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        misses.increment();
+        try {
+            EarthDataValue value = load(key, loader);
+            pending.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or the entry would stay pending and every later lookup of the cell would wait on it
+            cache.asMap().remove(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * The value cached for the point's cell, current or from the previous composite, without
+     * loading or refreshing anything; null if there is none.
+     */
+    public EarthDataValue peek(EarthDataProduct product, double latitude, double longitude) {
+        Key key = key(product, latitude, longitude);
+        EarthDataValue cached = completed(key);
+        return cached != null ? cached
+                : completed(new Key(product, key.cell(), product.previousComposite(key.composite())));
+    }
+    
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long diskHitCount = diskHits.sum();
+        long staleHitCount = staleHits.sum();
+        long lookups = hitCount + staleHitCount + missCount;
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", cache.synchronous().estimatedSize());
+        stats.put("hitCount", hitCount);
+        stats.put("staleHitCount", staleHitCount);
+        stats.put("refreshCount", refreshes.calls());
+        stats.put("refreshFailureCount", refreshFailures.sum());
+        stats.put("diskHitCount", diskHitCount);
+        stats.put("missCount", missCount);
+        stats.put("upstreamCallCount", upstreamCalls.sum());
+        stats.put("fallbackCount", fallbacks.sum());
+        stats.put("evictionCount", cache.synchronous().stats().evictionCount());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) (hitCount + staleHitCount + diskHitCount) / lookups);
+        stats.put("diskEnabled", diskDirectory != null);
+        stats.put("diskCells", diskTables.values().stream().mapToLong(MappedCellTable::size).sum());
+        return stats;
+    }
+    
+    @PreDestroy
+    public void closeDiskTables() {
+        synchronized (diskTables) {
+            diskTables.values().forEach(MappedCellTable::close);
+            diskTables.clear();
+        }
+    }
+    
+    private EarthDataValue load(Key key, Supplier<EarthDataValue> loader) {
+        EarthDataValue value = readDisk(key);
+        if (value != null) {
+            diskHits.increment();
+            return value;
+        }
+        upstreamCalls.increment();
+        value = loader.get();
+        if (value.fallback()) {
+            fallbacks.increment();
+        } else {
+            writeDisk(key, value);
+        }
+        return value;
+    }
+    
+    /**
+     * The key's value if it has finished loading; lookups that would wait on a load return null.
+     */
+    private EarthDataValue completed(Key key) {
+        CompletableFuture<EarthDataValue> future = cache.getIfPresent(key);
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+    
+    private EarthDataValue serveStale(Key key, EarthDataValue stale, Supplier<EarthDataValue> loader) {
+        staleHits.increment();
+        refreshes.execute(key, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                EarthDataValue value = load(key, loader);
+                cache.put(key, CompletableFuture.completedFuture(value));
+                return value;
+            } catch (RuntimeException e) {
+                refreshFailures.increment();
+                logger.warn("Background refresh of {} failed, serving the stale value", key, e);
+                throw e;
+            }
+        }, refreshExecutor));
+        return stale.asStale();
+    }
+    
+    private EarthDataValue readDisk(Key key) {
+        MappedCellTable table = diskTable(key);
+        if (table == null) {
+            return null;
+        }
+        OptionalDouble value = table.get(key.cell());
+        return value.isPresent() ? new EarthDataValue(value.getAsDouble(), key.product().satelliteSource(), false) : null;
+    }
+    
+    private void writeDisk(Key key, EarthDataValue value) {
+        MappedCellTable table = diskTable(key);
+        if (table != null && !table.put(key.cell(), value.value())) {
+            logger.warn("EarthData disk cache for {} {} is full", key.product(), key.composite());
+        }
+    }
+    
+    /**
+     * Opens the table for the key's product and composite, deleting tables of the product's older
+     * composites, which no request will ask for again. Opening holds the table map's lock rather
+     * than running in computeIfAbsent, since deleting older tables also removes them from the map.
+     */
+    private MappedCellTable diskTable(Key key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        String name = key.product().shortName() + "-" + key.composite() + ".cells";
+        MappedCellTable table = diskTables.get(name);
+        if (table != null) {
+            return table;
+        }
+        synchronized (diskTables) {
+            table = diskTables.get(name);
+            if (table == null) {
+                try {
+                    Files.createDirectories(diskDirectory);
+                    deleteOlderTables(key);
+                    table = MappedCellTable.open(diskDirectory.resolve(name), diskCellsPerComposite);
+                    diskTables.put(name, table);
+                } catch (IOException e) {
+                    logger.warn("EarthData disk cache unavailable for {}", name, e);
+                    return null;
+                }
+            }
+            return table;
+        }
+    }
+    
+    private void deleteOlderTables(Key key) throws IOException {
+        String prefix = key.product().shortName() + "-";
+        String current = prefix + key.composite() + ".cells";
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                // ISO dates sort chronologically, so older composites compare lower
+                if (name.startsWith(prefix) && name.endsWith(".cells") && name.compareTo(current) < 0) {
+                    // Evicted and closed before its file goes, so no lookup reads or writes it afterwards
+                    MappedCellTable table = diskTables.remove(name);
+                    if (table != null) {
+                        table.close();
+                    }
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Satellite values live until the product's next composite is due, fallback values for the
+     * fallback TTL, and both for up to max-stale longer, in which they are only served stale.
+     */
+    private record CompositeExpiry(Duration fallbackTtl, Duration maxStale) implements Expiry<Key, EarthDataValue> {
+        
+        @Override
+        public long expireAfterCreate(Key key, EarthDataValue value, long currentTime) {
+            ZonedDateTime refresh = key.product().nextRefresh(key.composite()).atStartOfDay(ZoneOffset.UTC);
+            long untilRefresh = Math.max(0, Duration.between(ZonedDateTime.now(ZoneOffset.UTC), refresh).toNanos());
+            long untilExpired = value.fallback() ? Math.min(untilRefresh, fallbackTtl.toNanos()) : untilRefresh;
+            return untilExpired + maxStale.toNanos();
+        }
+        
+        @Override
+        public long expireAfterUpdate(Key key, EarthDataValue value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(Key key, EarthDataValue value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
\ No newline at end of file
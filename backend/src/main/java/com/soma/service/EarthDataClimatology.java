@@ -0,0 +1,147 @@
+package com.soma.service;
+
+import com.soma.util.ClimatologyRaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Monthly NDVI, land surface temperature and evapotranspiration baselines for the agricultural
+ * model, generated from the model's climate zones and seasons into an in-memory
+ * {@link ClimatologyRaster}. With a file path configured it is read from that memory-mapped file
+ * instead, generated and written there once if missing, so later starts only map it; a file
+ * converted from real long-term means can replace it.
+ */
+@Component
+public class EarthDataClimatology {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EarthDataClimatology.class);
+    
+    static final int NDVI = 0;
+    static final int LAND_SURFACE_TEMPERATURE = 1;
+    static final int EVAPOTRANSPIRATION = 2;
+    
+    // NDVI in 1e-4, degrees Celsius in 0.01 and mm/day in 0.001 all fit 16 bits with room to spare
+    private static final double[] SCALES = {0.0001, 0.01, 0.001};
+    private static final double[] OFFSETS = {0, 0, 0};
+    
+    private final ClimatologyRaster raster;
+    private final String source;
+    
+    public EarthDataClimatology(
+            @Value("${soma.earthdata.climatology.path:}") String path,
+            @Value("${soma.earthdata.climatology.cell-degrees:0.5}") double cellDegrees) {
+        ClimatologyRaster loaded = null;
+        String loadedFrom = "generated in memory";
+        if (path != null && !path.isBlank()) {
+            Path file = Path.of(path);
+            try {
+                if (Files.notExists(file)) {
+                    logger.info("Generating EarthData climatology at {} degrees into {}", cellDegrees, file);
+                    Files.createDirectories(file.toAbsolutePath().getParent());
+                    ClimatologyRaster.write(file, generate(cellDegrees));
+                }
+                loaded = ClimatologyRaster.open(file);
+                if (loaded.bands() < 3) {
+                    throw new IllegalArgumentException("Expected NDVI, LST and ET bands, found " + loaded.bands());
+                }
+                loadedFrom = file.toString();
+            } catch (IOException | IllegalArgumentException e) {
+                logger.error("Failed to load EarthData climatology {}, using one generated in memory", file, e);
+                loaded = null;
+            }
+        }
+        this.raster = loaded != null ? loaded : ClimatologyRaster.wrap(generate(cellDegrees));
+        this.source = loadedFrom;
+    }
+    
+    public double ndvi(double latitude, double longitude, int month) {
+        return value(NDVI, month, latitude, longitude);
+    }
+    
+    public double landSurfaceTemperature(double latitude, double longitude, int month) {
+        return value(LAND_SURFACE_TEMPERATURE, month, latitude, longitude);
+    }
+    
+    public double evapotranspiration(double latitude, double longitude, int month) {
+        return value(EVAPOTRANSPIRATION, month, latitude, longitude);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("source", source);
+        stats.put("columns", raster.columns());
+        stats.put("rows", raster.rows());
+        stats.put("sizeBytes", raster.sizeBytes());
+        return stats;
+    }
+    
+    private double value(int band, int month, double latitude, double longitude) {
+        double value = raster.value(band, month, latitude, longitude);
+        // Converted files may leave cells out; the model covers them
+        return Double.isNaN(value) ? baseline(band, month, latitude) : value;
+    }
+    
+    static byte[] generate(double cellDegrees) {
+        return ClimatologyRaster.encode(cellDegrees, SCALES, OFFSETS,
+                (band, month, latitude, longitude) -> baseline(band, month, latitude));
+    }
+    
+    /**
+     * The agricultural model's expected value for a band: NDVI by climate zone and growing
+     * season, temperature falling with latitude and swinging with the season, and ET from the
+     * NDVI and temperature of the same place and month.
+     */
+    static double baseline(int band, int month, double latitude) {
+        switch (band) {
+            case NDVI:
+                return ndviBaseline(month, latitude);
+            case LAND_SURFACE_TEMPERATURE:
+                return lstBaseline(month, latitude);
+            case EVAPOTRANSPIRATION:
+                double et = lstBaseline(month, latitude) * 0.15 + ndviBaseline(month, latitude) * 4;
+                return Math.max(0.5, Math.min(8.0, et)); // Reasonable ET range
+            default:
+                throw new IllegalArgumentException("Unknown climatology band " + band);
+        }
+    }
+    
+    private static double ndviBaseline(int month, double latitude) {
+        double baseNDVI;
+        if (Math.abs(latitude) < 23.5) { // Tropical
+            baseNDVI = 0.75;
+        } else if (Math.abs(latitude) < 50) { // Temperate
+            baseNDVI = 0.6;
+        } else { // Arctic/Antarctic
+            baseNDVI = 0.25;
+        }
+        
+        // Growing season is April-September in the north and October-March in the south
+        boolean northernGrowingSeason = month >= 4 && month <= 9;
+        boolean growing = latitude > 0 ? northernGrowingSeason : !northernGrowingSeason;
+        baseNDVI *= growing ? 1.2 : 0.7;
+        
+        return Math.min(0.95, Math.max(0.0, baseNDVI));
+    }
+    
+    private static double lstBaseline(int month, double latitude) {
+        double baseTemp = 30 - (Math.abs(latitude) * 0.6); // Decreases with latitude
+        
+        boolean northernSummer = month >= 6 && month <= 8;
+        boolean northernWinter = month == 12 || month <= 2;
+        if (latitude > 0 ? northernSummer : northernWinter) {
+            baseTemp += 8;
+        } else if (latitude > 0 ? northernWinter : northernSummer) {
+            baseTemp -= 8;
+        }
+        
+        return Math.round(baseTemp * 10.0) / 10.0; // Round to 1 decimal
+    }
+}
\ No newline at end of file
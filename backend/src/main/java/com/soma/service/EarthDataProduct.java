@@ -0,0 +1,99 @@
+package com.soma.service;
+
+import java.time.LocalDate;
+
+/**
+ * The MODIS products behind each EarthData field, with the geometry of their sinusoidal grid and
+ * their compositing cadence. Values are constant within one grid cell and composite period, which
+ * is what makes them cacheable.
+ */
+public enum EarthDataProduct {
+    
+    NDVI("MOD13Q1", 4800, 16),
+    LAND_SURFACE_TEMPERATURE("MOD11A2", 1200, 8),
+    EVAPOTRANSPIRATION("MOD16A2", 2400, 8);
+    
+    // Sinusoidal projection constants of the MODIS land grid
+    private static final double EARTH_RADIUS_M = 6371007.181;
+    private static final double TILE_SIZE_M = 1111950.5197665233;
+    private static final double GRID_MIN_X = -20015109.355798;
+    private static final double GRID_MAX_Y = 10007554.677899;
+    private static final int HORIZONTAL_TILES = 36;
+    
+    private final String shortName;
+    private final int cellsPerTile;
+    private final int compositeDays;
+    private final double cellSizeM;
+    
+    EarthDataProduct(String shortName, int cellsPerTile, int compositeDays) {
+        this.shortName = shortName;
+        this.cellsPerTile = cellsPerTile;
+        this.compositeDays = compositeDays;
+        this.cellSizeM = TILE_SIZE_M / cellsPerTile;
+    }
+    
+    public String shortName() {
+        return shortName;
+    }
+    
+    public String satelliteSource() {
+        return "NASA MODIS " + shortName + " Satellite Data";
+    }
+    
+    public int compositeDays() {
+        return compositeDays;
+    }
+    
+    public double cellSizeMeters() {
+        return cellSizeM;
+    }
+    
+    /**
+     * Returns the global row-major index of the grid cell containing the point, so every point in
+     * one ~250 m (NDVI), ~500 m (ET) or ~1 km (LST) cell shares a key.
+     */
+    public long cell(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double x = EARTH_RADIUS_M * Math.toRadians(longitude) * Math.cos(phi);
+        double y = EARTH_RADIUS_M * phi;
+        long columns = (long) HORIZONTAL_TILES * cellsPerTile;
+        long column = Math.min(columns - 1, Math.max(0, (long) Math.floor((x - GRID_MIN_X) / cellSizeM)));
+        long row = Math.max(0, (long) Math.floor((GRID_MAX_Y - y) / cellSizeM));
+        return row * columns + column;
+    }
+    
+    /**
+     * First day of the composite period containing the date. Periods restart on January 1st, so
+     * the last period of a year is shorter.
+     */
+    public LocalDate compositeStart(LocalDate date) {
+        int period = (date.getDayOfYear() - 1) / compositeDays;
+        return date.withDayOfYear(period * compositeDays + 1);
+    }
+    
+    /**
+     * The most recent composite whose period has fully elapsed by the given day.
+     */
+    public LocalDate latestComposite(LocalDate today) {
+        return compositeStart(today.minusDays(compositeDays));
+    }
+    
+    /**
+     * The composite published before the given one.
+     */
+    public LocalDate previousComposite(LocalDate composite) {
+        return compositeStart(composite.minusDays(1));
+    }
+    
+    /**
+     * The day on which {@link #latestComposite} moves past the given composite, i.e. when values
+     * cached for it should be refreshed.
+     */
+    public LocalDate nextRefresh(LocalDate composite) {
+        LocalDate next = composite.plusDays(compositeDays);
+        if (next.getYear() != composite.getYear()) {
+            next = next.withDayOfYear(1);
+        }
+        return next.plusDays(compositeDays);
+    }
+}
\ No newline at end of file
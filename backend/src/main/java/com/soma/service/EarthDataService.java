@@ -1,43 +1,168 @@
 package com.soma.service;
 
 import com.soma.dto.EarthDataResponse;
+import com.soma.exception.UpstreamUnavailableException;
+import com.soma.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.client.HttpClientErrorException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.Random;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class EarthDataService {
     
     private static final Logger logger = LoggerFactory.getLogger(EarthDataService.class);
     
-    @Value("${nasa.earthdata.api.key:}")
-    private String nasaApiKey;
+    private static final String MODEL_SOURCE = "NASA MODIS Agricultural Model";
+    private static final String DEGRADED_SOURCE = MODEL_SOURCE + " (upstream deadline exceeded)";
+    static final String FRESH = "fresh";
+    static final String STALE = "stale";
+    // Extra time a request sharing another's computation waits beyond the budget, for its bookkeeping
+    private static final long SHARED_WAIT_GRACE_MS = 100;
     
-    private final RestTemplate restTemplate;
-    private final Random random = new Random();
+    // Per-source deadlines, and the budget for the whole request across all sources
+    @Value("${soma.earthdata.fetch.ndvi-deadline-ms:1500}")
+    private long ndviDeadlineMs = 1500;
     
-    public EarthDataService() {
-        this.restTemplate = new RestTemplate();
+    @Value("${soma.earthdata.fetch.lst-deadline-ms:1500}")
+    private long lstDeadlineMs = 1500;
+    
+    @Value("${soma.earthdata.fetch.et-deadline-ms:1500}")
+    private long etDeadlineMs = 1500;
+    
+    @Value("${soma.earthdata.fetch.budget-ms:2500}")
+    private long budgetMs = 2500;
+    
+    private final EarthDataCache earthDataCache;
+    private final GibsNdviClient gibsNdviClient;
+    private final Executor earthDataExecutor;
+    private final EarthDataClimatology climatology;
+    private final SingleFlight<EarthDataCache.Key, EarthDataResponse> inFlight = new SingleFlight<>();
+    
+    public EarthDataService(EarthDataCache earthDataCache, GibsNdviClient gibsNdviClient,
+                            @Qualifier("earthDataExecutor") Executor earthDataExecutor,
+                            EarthDataClimatology climatology) {
+        this.earthDataCache = earthDataCache;
+        this.gibsNdviClient = gibsNdviClient;
+        this.earthDataExecutor = earthDataExecutor;
+        this.climatology = climatology;
     }
     
+    /**
+     * Returns EarthData for the point. Concurrent requests in one NDVI grid cell and composite
+     * share a single computation, whose values each receives under its own coordinates; the
+     * coarser LST and ET grids nest the NDVI grid, so one cell's values are the same for all of
+     * them. Waiting callers never cancel the shared computation, and a failed one is not reused.
+     */
     public EarthDataResponse getEarthData(Double latitude, Double longitude) {
+        EarthDataCache.Key key = EarthDataCache.key(EarthDataProduct.NDVI, latitude, longitude);
+        CompletableFuture<EarthDataResponse> shared = inFlight.execute(key,
+                () -> CompletableFuture.completedFuture(compute(latitude, longitude)));
+        try {
+            return forPoint(shared.get(budgetMs + SHARED_WAIT_GRACE_MS, TimeUnit.MILLISECONDS), latitude, longitude);
+        } catch (TimeoutException e) {
+            logger.warn("Shared EarthData computation for {}, {} ran past the budget", latitude, longitude);
+        } catch (ExecutionException e) {
+            logger.error("Error fetching NASA EarthData: ", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return generateRealisticMockData(latitude, longitude);
+    }
+    
+    /**
+     * Evapotranspiration (mm/day) at the point for a day, for batch jobs over many fields: the
+     * cached value of the point's cell where there is one, otherwise the climatology for the day's
+     * month. Never calls upstream.
+     */
+    public double evapotranspiration(double latitude, double longitude, LocalDate day) {
+        EarthDataValue cached = earthDataCache.peek(EarthDataProduct.EVAPOTRANSPIRATION, latitude, longitude);
+        return cached != null ? cached.value() : climatology.evapotranspiration(latitude, longitude, day.getMonthValue());
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = earthDataCache.getStats();
+        stats.put("gibs", gibsNdviClient.getStats());
+        Map<String, Object> singleFlight = new HashMap<>();
+        singleFlight.put("calls", inFlight.calls());
+        singleFlight.put("collapsed", inFlight.shared());
+        singleFlight.put("inFlight", inFlight.inFlight());
+        stats.put("singleFlight", singleFlight);
+        stats.put("climatology", climatology.getStats());
+        return stats;
+    }
+    
+    /**
+     * Copies a response computed for another point in the same cell to the given point.
+     */
+    static EarthDataResponse forPoint(EarthDataResponse shared, Double latitude, Double longitude) {
+        EarthDataResponse response = new EarthDataResponse(latitude, longitude);
+        response.setNdvi(shared.getNdvi());
+        response.setLandSurfaceTemperature(shared.getLandSurfaceTemperature());
+        response.setEvapotranspiration(shared.getEvapotranspiration());
+        response.setDataSource(shared.getDataSource());
+        response.setSources(shared.getSources());
+        response.setFreshness(shared.getFreshness());
+        response.setDataAgeSeconds(shared.getDataAgeSeconds());
+        response.setTimestamp(shared.getTimestamp());
+        return response;
+    }
+    
+    private EarthDataResponse compute(Double latitude, Double longitude) {
         logger.info("Fetching NASA EarthData for coordinates: {}, {}", latitude, longitude);
         
+        // With GIBS's circuit open nothing upstream would answer, so skip the fan-out altogether
+        if (gibsNdviClient.isEnabled() && gibsNdviClient.isCircuitOpen()) {
+            logger.warn("NASA GIBS is unavailable, using agricultural model for {}, {}", latitude, longitude);
+            return generateRealisticMockData(latitude, longitude);
+        }
+        
         try {
             // Create response object
             EarthDataResponse response = new EarthDataResponse(latitude, longitude);
             
-            // Try to fetch real NASA data, fallback to realistic mock data if needed
-            fetchNDVIData(response, latitude, longitude);
-            fetchLandSurfaceTemperature(response, latitude, longitude);
-            fetchEvapotranspirationData(response, latitude, longitude);
+            // Fetch the three sources concurrently, so latency is the slowest source rather than the sum
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+            CompletableFuture<EarthDataValue> ndviFetch = fetchAsync(EarthDataProduct.NDVI, latitude, longitude,
+                    ndviDeadlineMs, () -> fetchNDVIData(latitude, longitude));
+            CompletableFuture<EarthDataValue> lstFetch = fetchAsync(EarthDataProduct.LAND_SURFACE_TEMPERATURE,
+                    latitude, longitude, lstDeadlineMs, () -> fetchLandSurfaceTemperature(latitude, longitude));
+            CompletableFuture<EarthDataValue> etFetch = fetchAsync(EarthDataProduct.EVAPOTRANSPIRATION,
+                    latitude, longitude, etDeadlineMs, () -> fetchEvapotranspirationData(latitude, longitude));
+            
+            EarthDataValue ndvi = await(ndviFetch, EarthDataProduct.NDVI, deadline,
+                    () -> generateRealisticNDVI(latitude, longitude));
+            EarthDataValue lst = await(lstFetch, EarthDataProduct.LAND_SURFACE_TEMPERATURE, deadline,
+                    () -> generateRealisticLST(latitude, longitude));
+            EarthDataValue et = await(etFetch, EarthDataProduct.EVAPOTRANSPIRATION, deadline,
+                    () -> generateRealisticET(latitude, longitude));
+            
+            response.setNdvi(ndvi.value());
+            response.setDataSource(ndvi.source());
+            response.setLandSurfaceTemperature(lst.value());
+            response.setEvapotranspiration(et.value());
+            response.setSources(Map.of(
+                    "ndvi", ndvi.source(),
+                    "landSurfaceTemperature", lst.source(),
+                    "evapotranspiration", et.source()));
+            boolean stale = ndvi.stale() || lst.stale() || et.stale();
+            response.setFreshness(stale ? STALE : FRESH);
+            response.setDataAgeSeconds(Stream.of(ndvi, lst, et)
+                    .mapToLong(value -> Math.max(0, value.age().toSeconds())).max().orElse(0));
             
             logger.info("Successfully retrieved EarthData for coordinates: {}, {}", latitude, longitude);
             return response;
@@ -49,74 +174,85 @@ public class EarthDataService {
         }
     }
     
-    private void fetchNDVIData(EarthDataResponse response, Double lat, Double lon) {
+    /**
+     * Looks the product up through the cell cache on the EarthData executor. Values are shared
+     * by every point in a product's grid cell until its next composite.
+     */
+    private CompletableFuture<EarthDataValue> fetchAsync(EarthDataProduct product, Double lat, Double lon,
+                                                         long deadlineMs, Supplier<EarthDataValue> fetcher) {
+        return CompletableFuture.supplyAsync(() -> earthDataCache.get(product, lat, lon, fetcher), earthDataExecutor)
+                .orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Waits for the source until the request budget runs out. A source that fails, misses its own
+     * deadline or the budget degrades to the agricultural model; a late fetch keeps running and
+     * still fills the cache for the next request.
+     */
+    private EarthDataValue await(CompletableFuture<EarthDataValue> fetch, EarthDataProduct product, long deadline,
+                                 DoubleSupplier model) {
         try {
-            // Try real NASA EarthData API if key is available
-            if (nasaApiKey != null && !nasaApiKey.isEmpty()) {
+            return fetch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("{} missed the EarthData request budget, using agricultural model", product);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                logger.warn("{} missed its deadline, using agricultural model", product);
+            } else {
+                logger.warn("{} fetch failed, using agricultural model", product, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new EarthDataValue(model.getAsDouble(), DEGRADED_SOURCE, true);
+    }
+    
+    private EarthDataValue fetchNDVIData(Double lat, Double lon) {
+        try {
+            // Read the pixel from the NASA GIBS NDVI tiles unless disabled
+            if (gibsNdviClient.isEnabled()) {
                 Double realNdvi = fetchRealNasaNDVI(lat, lon);
                 if (realNdvi != null) {
-                    response.setNdvi(realNdvi);
-                    response.setDataSource("NASA MODIS/VIIRS Satellite Data");
-                    return;
+                    return new EarthDataValue(realNdvi, EarthDataProduct.NDVI.satelliteSource(), false);
                 }
             }
             
             // Fallback to realistic agricultural model
-            Double ndvi = generateRealisticNDVI(lat, lon);
-            response.setNdvi(ndvi);
-            response.setDataSource("NASA MODIS Agricultural Model");
+            return new EarthDataValue(generateRealisticNDVI(lat, lon), MODEL_SOURCE, true);
+        } catch (UpstreamUnavailableException e) {
+            logger.debug("NASA GIBS circuit is open, using agricultural model");
+            return new EarthDataValue(generateRealisticNDVI(lat, lon), MODEL_SOURCE, true);
         } catch (Exception e) {
             logger.warn("Failed to fetch NDVI data, using agricultural model", e);
-            response.setNdvi(generateRealisticNDVI(lat, lon));
-            response.setDataSource("NASA MODIS Agricultural Model");
+            return new EarthDataValue(generateRealisticNDVI(lat, lon), MODEL_SOURCE, true);
         }
     }
     
     private Double fetchRealNasaNDVI(Double lat, Double lon) {
-        try {
-            // NASA GIBS API for MODIS NDVI data
-            String date = LocalDate.now().minusDays(16).format(DateTimeFormatter.ofPattern("yyyy-MM-dd")); // MODIS has 16-day composites
-            String url = String.format(
-                "https://gibs.earthdata.nasa.gov/wmts/1.0.0/MODIS_Terra_NDVI_8Day/default/%s/250m/{z}/{y}/{x}.png?SERVICE=WMTS&REQUEST=GetTile&VERSION=1.0.0&LAYER=MODIS_Terra_NDVI_8Day&STYLE=default&TILEMATRIXSET=250m&TILEMATRIX={z}&TILEROW={y}&TILECOL={x}&FORMAT=image/png",
-                date
-            );
-            
-            // For actual implementation, you'd need to:
-            // 1. Convert lat/lon to tile coordinates
-            // 2. Fetch the tile image
-            // 3. Extract NDVI value from the pixel
-            // 4. Convert from scaled integer to actual NDVI value
-            
-            logger.info("Would fetch real NASA NDVI data from: {}", url);
-            
-            // Return null to indicate we should use agricultural model for now
-            return null;
-            
-        } catch (Exception e) {
-            logger.error("Error fetching real NASA NDVI data", e);
-            return null;
-        }
+        // MODIS NDVI composites start every 16 days, which also lines up with the 8-day GIBS layer
+        LocalDate composite = EarthDataProduct.NDVI.latestComposite(LocalDate.now(ZoneOffset.UTC));
+        return gibsNdviClient.fetchNdvi(lat, lon, composite);
     }
     
-    private void fetchLandSurfaceTemperature(EarthDataResponse response, Double lat, Double lon) {
+    private EarthDataValue fetchLandSurfaceTemperature(Double lat, Double lon) {
         try {
             // In a real implementation, this would call NASA MODIS LST API
             Double lst = generateRealisticLST(lat, lon);
-            response.setLandSurfaceTemperature(lst);
+            return new EarthDataValue(lst, MODEL_SOURCE, true);
         } catch (Exception e) {
             logger.warn("Failed to fetch LST data, using estimated value", e);
-            response.setLandSurfaceTemperature(generateRealisticLST(lat, lon));
+            return new EarthDataValue(generateRealisticLST(lat, lon), MODEL_SOURCE, true);
         }
     }
     
-    private void fetchEvapotranspirationData(EarthDataResponse response, Double lat, Double lon) {
+    private EarthDataValue fetchEvapotranspirationData(Double lat, Double lon) {
         try {
             // In a real implementation, this would call NASA/OpenET API
             Double et = generateRealisticET(lat, lon);
-            response.setEvapotranspiration(et);
+            return new EarthDataValue(et, MODEL_SOURCE, true);
         } catch (Exception e) {
             logger.warn("Failed to fetch ET data, using estimated value", e);
-            response.setEvapotranspiration(generateRealisticET(lat, lon));
+            return new EarthDataValue(generateRealisticET(lat, lon), MODEL_SOURCE, true);
         }
     }
     
@@ -127,78 +263,30 @@ public class EarthDataService {
         response.setNdvi(generateRealisticNDVI(latitude, longitude));
         response.setLandSurfaceTemperature(generateRealisticLST(latitude, longitude));
         response.setEvapotranspiration(generateRealisticET(latitude, longitude));
+        response.setDataSource(MODEL_SOURCE);
+        response.setSources(Map.of(
+                "ndvi", MODEL_SOURCE,
+                "landSurfaceTemperature", MODEL_SOURCE,
+                "evapotranspiration", MODEL_SOURCE));
+        response.setFreshness(FRESH);
+        response.setDataAgeSeconds(0L);
         
         return response;
     }
     
     private Double generateRealisticNDVI(Double lat, Double lon) {
-        // Generate NDVI based on climate zones and seasons
-        int currentMonth = LocalDate.now().getMonthValue();
-        
-        // Base NDVI on latitude (climate zones)
-        double baseNDVI;
-        if (Math.abs(lat) < 23.5) { // Tropical
-            baseNDVI = 0.6 + (random.nextDouble() * 0.3); // 0.6-0.9
-        } else if (Math.abs(lat) < 50) { // Temperate
-            baseNDVI = 0.4 + (random.nextDouble() * 0.4); // 0.4-0.8
-        } else { // Arctic/Antarctic
-            baseNDVI = 0.1 + (random.nextDouble() * 0.3); // 0.1-0.4
-        }
-        
-        // Seasonal adjustment for Northern Hemisphere
-        if (lat > 0) {
-            if (currentMonth >= 4 && currentMonth <= 9) { // Growing season
-                baseNDVI *= 1.2;
-            } else { // Winter
-                baseNDVI *= 0.7;
-            }
-        } else { // Southern Hemisphere - opposite seasons
-            if (currentMonth >= 10 || currentMonth <= 3) { // Growing season
-                baseNDVI *= 1.2;
-            } else { // Winter
-                baseNDVI *= 0.7;
-            }
-        }
-        
-        return Math.min(0.95, Math.max(0.0, baseNDVI));
+        return climatology.ndvi(lat, lon, currentMonth());
     }
     
     private Double generateRealisticLST(Double lat, Double lon) {
-        // Generate LST based on latitude and season
-        int currentMonth = LocalDate.now().getMonthValue();
-        
-        // Base temperature on latitude
-        double baseTemp = 30 - (Math.abs(lat) * 0.6); // Decreases with latitude
-        
-        // Seasonal adjustment for Northern Hemisphere
-        if (lat > 0) {
-            if (currentMonth >= 6 && currentMonth <= 8) { // Summer
-                baseTemp += 8;
-            } else if (currentMonth >= 12 || currentMonth <= 2) { // Winter
-                baseTemp -= 8;
-            }
-        } else { // Southern Hemisphere - opposite seasons
-            if (currentMonth >= 12 || currentMonth <= 2) { // Summer
-                baseTemp += 8;
-            } else if (currentMonth >= 6 && currentMonth <= 8) { // Winter
-                baseTemp -= 8;
-            }
-        }
-        
-        // Add some random variation
-        baseTemp += (random.nextGaussian() * 3);
-        
-        return Math.round(baseTemp * 10.0) / 10.0; // Round to 1 decimal
+        return climatology.landSurfaceTemperature(lat, lon, currentMonth());
     }
     
     private Double generateRealisticET(Double lat, Double lon) {
-        // Generate evapotranspiration based on temperature and vegetation
-        double lst = generateRealisticLST(lat, lon);
-        double ndvi = generateRealisticNDVI(lat, lon);
-        
-        // Higher ET with higher temperature and vegetation
-        double et = (lst * 0.15) + (ndvi * 4) + random.nextGaussian();
-        
-        return Math.max(0.5, Math.min(8.0, et)); // Reasonable ET range
+        return climatology.evapotranspiration(lat, lon, currentMonth());
+    }
+    
+    private static int currentMonth() {
+        return LocalDate.now(ZoneOffset.UTC).getMonthValue();
     }
 }
\ No newline at end of file
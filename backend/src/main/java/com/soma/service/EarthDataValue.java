@@ -0,0 +1,24 @@
+package com.soma.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * One EarthData field value and where it came from. Fallback values come from the agricultural
+ * model rather than satellite data and are cached only briefly, so upstream is retried soon.
+ * Stale values are served from the cache while a refresh runs in the background.
+ */
+public record EarthDataValue(double value, String source, boolean fallback, Instant fetchedAt, boolean stale) {
+    
+    public EarthDataValue(double value, String source, boolean fallback) {
+        this(value, source, fallback, Instant.now(), false);
+    }
+    
+    public EarthDataValue asStale() {
+        return new EarthDataValue(value, source, fallback, fetchedAt, true);
+    }
+    
+    public Duration age() {
+        return Duration.between(fetchedAt, Instant.now());
+    }
+}
\ No newline at end of file
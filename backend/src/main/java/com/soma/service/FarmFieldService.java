@@ -0,0 +1,223 @@
+package com.soma.service;
+
+import com.soma.dto.EarthDataResponse;
+import com.soma.dto.FarmFieldDto;
+import com.soma.dto.IrrigationPlanDto;
+import com.soma.dto.NearbyFarmDto;
+import com.soma.dto.SeasonToDateDto;
+import com.soma.event.FieldChangedEvent;
+import com.soma.exception.InvalidRequestException;
+import com.soma.exception.ResourceNotFoundException;
+import com.soma.model.FarmField;
+import com.soma.model.FieldObservation;
+import com.soma.model.User;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldObservationRepository;
+import com.soma.repository.UserRepository;
+import com.soma.util.SpatialIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class FarmFieldService {
+    
+    private static final double MAX_RADIUS_KM = 1000;
+    private static final int MAX_NEAREST_FARMS = 100;
+    
+    private final FarmFieldRepository fieldRepository;
+    private final FieldObservationRepository observationRepository;
+    private final UserRepository userRepository;
+    private final EarthDataService earthDataService;
+    private final FieldLocationIndex locationIndex;
+    private final FieldSeasonService seasonService;
+    private final IrrigationScheduleService irrigationService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    public FarmField registerField(String email, FarmFieldDto fieldDto) {
+        FarmField field = new FarmField();
+        field.setUserId(userId(email));
+        field.setName(fieldDto.getName());
+        field.setLatitude(fieldDto.getLatitude());
+        field.setLongitude(fieldDto.getLongitude());
+        FarmField savedField = fieldRepository.save(field);
+        eventPublisher.publishEvent(new FieldChangedEvent(savedField.getId(), savedField.getUserId(),
+                FieldChangedEvent.Type.CREATED));
+        return savedField;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<FarmField> getFields(String email) {
+        return fieldRepository.findByUserIdOrderByCreatedAtAsc(userId(email));
+    }
+    
+    public void deleteField(String email, Long fieldId) {
+        FarmField field = ownedField(email, fieldId);
+        observationRepository.deleteByFieldId(field.getId());
+        fieldRepository.delete(field);
+        eventPublisher.publishEvent(new FieldChangedEvent(field.getId(), field.getUserId(),
+                FieldChangedEvent.Type.DELETED));
+    }
+    
+    /**
+     * The user's fields within the distance of a point, nearest first. The lookup walks every
+     * user's fields in the circle before keeping the user's own; see {@link #ownFields}.
+     */
+    @Transactional(readOnly = true)
+    public List<FarmField> getFieldsWithin(String email, double latitude, double longitude, double radiusKm) {
+        if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) {
+            throw new InvalidRequestException("Radius must be between 0 and " + MAX_RADIUS_KM + " km");
+        }
+        checkCoordinates(latitude, longitude);
+        return ownFields(email, locationIndex.within(latitude, longitude, radiusKm * 1000));
+    }
+    
+    /**
+     * The user's fields inside a box; a west edge east of the east edge crosses the antimeridian.
+     * Like {@link #getFieldsWithin}, it filters the shared index's hits down to the user's own.
+     */
+    @Transactional(readOnly = true)
+    public List<FarmField> getFieldsInBox(String email, double south, double west, double north, double east) {
+        checkCoordinates(south, west);
+        checkCoordinates(north, east);
+        if (south > north) {
+            throw new InvalidRequestException("South edge must not be north of the north edge");
+        }
+        return ownFields(email, locationIndex.inBox(south, west, north, east));
+    }
+    
+    /**
+     * The farms nearest to a point, each with its field nearest to the point.
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyFarmDto> getNearestFarms(double latitude, double longitude, int limit) {
+        if (limit < 1 || limit > MAX_NEAREST_FARMS) {
+            throw new InvalidRequestException("Limit must be between 1 and " + MAX_NEAREST_FARMS);
+        }
+        checkCoordinates(latitude, longitude);
+        List<SpatialIndex.Hit<Long>> hits = locationIndex.nearestFarms(latitude, longitude, limit);
+        Map<Long, FarmField> fields = fieldsById(hits.stream().map(SpatialIndex.Hit::id).toList());
+        return hits.stream()
+                .filter(hit -> fields.containsKey(hit.id()))
+                .map(hit -> new NearbyFarmDto(hit.value(), hit.id(), fields.get(hit.id()).getName(),
+                        hit.latitude(), hit.longitude(), Math.round(hit.distanceMeters()) / 1000.0))
+                .toList();
+    }
+    
+    @Transactional(readOnly = true)
+    public List<FieldObservation> getHistory(String email, Long fieldId, LocalDate from, LocalDate to) {
+        FarmField field = ownedField(email, fieldId);
+        return observationRepository.findByFieldIdAndCompositeDateBetweenOrderByCompositeDateAsc(field.getId(), from, to);
+    }
+    
+    /**
+     * Returns the field's EarthData for the current composites from the time-series store, where
+     * the prefetcher has normally put it; if any product is not stored yet it is looked up live.
+     */
+    @Transactional(readOnly = true)
+    public EarthDataResponse getLatest(String email, Long fieldId) {
+        FarmField field = ownedField(email, fieldId);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Map<EarthDataProduct, FieldObservation> current = new EnumMap<>(EarthDataProduct.class);
+        for (EarthDataProduct product : EarthDataProduct.values()) {
+            Optional<FieldObservation> stored = observationRepository.findByFieldIdAndProductAndCompositeDate(
+                    field.getId(), product, product.latestComposite(today));
+            if (stored.isEmpty()) {
+                return earthDataService.getEarthData(field.getLatitude(), field.getLongitude());
+            }
+            current.put(product, stored.get());
+        }
+        
+        FieldObservation ndvi = current.get(EarthDataProduct.NDVI);
+        EarthDataResponse response = new EarthDataResponse(field.getLatitude(), field.getLongitude());
+        response.setNdvi(ndvi.getValue());
+        response.setLandSurfaceTemperature(current.get(EarthDataProduct.LAND_SURFACE_TEMPERATURE).getValue());
+        response.setEvapotranspiration(current.get(EarthDataProduct.EVAPOTRANSPIRATION).getValue());
+        response.setDataSource(ndvi.getSource());
+        response.setSources(Map.of(
+                "ndvi", ndvi.getSource(),
+                "landSurfaceTemperature", current.get(EarthDataProduct.LAND_SURFACE_TEMPERATURE).getSource(),
+                "evapotranspiration", current.get(EarthDataProduct.EVAPOTRANSPIRATION).getSource()));
+        current.values().stream()
+                .map(FieldObservation::getFetchedAt)
+                .max(Comparator.naturalOrder())
+                .ifPresent(response::setTimestamp);
+        // Stored values belong to the current composites, so they are fresh however long ago they were fetched
+        response.setFreshness(EarthDataService.FRESH);
+        current.values().stream()
+                .map(FieldObservation::getFetchedAt)
+                .min(Comparator.naturalOrder())
+                .ifPresent(oldest -> response.setDataAgeSeconds(
+                        Math.max(0, Duration.between(oldest, LocalDateTime.now(ZoneOffset.UTC)).toSeconds())));
+        return response;
+    }
+    
+    /**
+     * The field's growing degree days and soil water balance from the daily season run.
+     */
+    @Transactional(readOnly = true)
+    public SeasonToDateDto getSeasonToDate(String email, Long fieldId) {
+        FarmField field = ownedField(email, fieldId);
+        return seasonService.getSeasonToDate(field.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("No season data yet for field with id: " + fieldId));
+    }
+    
+    public IrrigationPlanDto getIrrigationPlan(String email, Long fieldId) {
+        FarmField field = ownedField(email, fieldId);
+        return irrigationService.getPlan(field.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("No irrigation plan yet for field with id: " + fieldId));
+    }
+    
+    /**
+     * Keeps the user's own fields from hits in the global location index. The index is shared by
+     * all users, so a query costs time in proportion to every field in the area, not the user's:
+     * a 1000 km radius over a dense region walks all of its fields to return a handful. One index
+     * also serves the nearest-farm queries across users; if per-user queries over large areas
+     * become hot, the index should be partitioned by user.
+     */
+    private List<FarmField> ownFields(String email, List<SpatialIndex.Hit<Long>> hits) {
+        Long userId = userId(email);
+        List<Long> ids = hits.stream().filter(hit -> userId.equals(hit.value())).map(SpatialIndex.Hit::id).toList();
+        Map<Long, FarmField> fields = fieldsById(ids);
+        // Keep the index's order; a field deleted since the lookup is skipped
+        return ids.stream().map(fields::get).filter(Objects::nonNull).toList();
+    }
+    
+    private Map<Long, FarmField> fieldsById(List<Long> ids) {
+        return fieldRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(FarmField::getId, Function.identity()));
+    }
+    
+    private static void checkCoordinates(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new InvalidRequestException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+    }
+    
+    private Long userId(String email) {
+        return userRepository.findByEmail(email)
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
+    }
+    
+    private FarmField ownedField(String email, Long fieldId) {
+        return fieldRepository.findByIdAndUserId(fieldId, userId(email))
+                .orElseThrow(() -> new ResourceNotFoundException("Field not found with id: " + fieldId));
+    }
+}
\ No newline at end of file
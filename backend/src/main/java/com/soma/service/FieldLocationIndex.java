@@ -0,0 +1,66 @@
+package com.soma.service;
+
+import com.soma.event.FieldChangedEvent;
+import com.soma.model.FarmField;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.util.SpatialIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Every registered field's location in a {@link SpatialIndex}, valued by the owning user's id.
+ * Loaded at startup and updated from {@link FieldChangedEvent}s once their transaction commits.
+ */
+@Service
+public class FieldLocationIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FieldLocationIndex.class);
+    
+    private final FarmFieldRepository fieldRepository;
+    private final SpatialIndex<Long> index = new SpatialIndex<>();
+    
+    public FieldLocationIndex(FarmFieldRepository fieldRepository) {
+        this.fieldRepository = fieldRepository;
+    }
+    
+    public List<SpatialIndex.Hit<Long>> within(double latitude, double longitude, double radiusMeters) {
+        return index.withinRadius(latitude, longitude, radiusMeters);
+    }
+    
+    public List<SpatialIndex.Hit<Long>> inBox(double south, double west, double north, double east) {
+        return index.withinBox(south, west, north, east);
+    }
+    
+    /**
+     * The nearest field of each of the nearest farms, a farm being all fields of one user.
+     */
+    public List<SpatialIndex.Hit<Long>> nearestFarms(double latitude, double longitude, int limit) {
+        return index.nearest(latitude, longitude, limit, SpatialIndex.Hit::value);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexAll() {
+        List<FarmField> fields = fieldRepository.findAll();
+        fields.forEach(this::index);
+        logger.info("Indexed {} field locations", fields.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFieldChanged(FieldChangedEvent event) {
+        if (event.type() == FieldChangedEvent.Type.DELETED) {
+            index.remove(event.fieldId());
+        } else {
+            fieldRepository.findById(event.fieldId()).ifPresent(this::index);
+        }
+    }
+    
+    void index(FarmField field) {
+        index.put(field.getId(), field.getLatitude(), field.getLongitude(), field.getUserId());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.soma.service;
+
+import com.soma.dto.EarthDataResponse;
+import com.soma.model.FarmField;
+import com.soma.model.FieldObservation;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldObservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prefetches EarthData for registered fields into the time-series store, so morning reads and
+ * seasonal history need no upstream call. Composites roll over at midnight UTC; each field then
+ * becomes due at a fixed minute within the spread window, derived from its id, so a night's
+ * prefetching is spread out instead of arriving at once. Each run takes at most a fixed number of
+ * due fields and fetches them in parallel on the prefetch pool, which bounds the upstream rate.
+ */
+@Component
+public class FieldPrefetchScheduler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FieldPrefetchScheduler.class);
+    
+    // Kept in step with FarmFieldRepository.findDue, which derives the same minute in the query
+    private static final long SPREAD_MULTIPLIER = 40503;
+    private static final long SPREAD_HASH_RANGE = 65536;
+    
+    private static final Map<EarthDataProduct, String> RESPONSE_FIELDS = Map.of(
+            EarthDataProduct.NDVI, "ndvi",
+            EarthDataProduct.LAND_SURFACE_TEMPERATURE, "landSurfaceTemperature",
+            EarthDataProduct.EVAPOTRANSPIRATION, "evapotranspiration");
+    
+    @Value("${soma.earthdata.prefetch.enabled:true}")
+    private boolean enabled = true;
+    
+    @Value("${soma.earthdata.prefetch.max-fields-per-run:30}")
+    private int maxFieldsPerRun = 30;
+    
+    @Value("${soma.earthdata.prefetch.spread-minutes:360}")
+    private int spreadMinutes = 360;
+    
+    @Value("${soma.earthdata.prefetch.fallback-retry-minutes:360}")
+    private long fallbackRetryMinutes = 360;
+    
+    private final FarmFieldRepository fieldRepository;
+    private final FieldObservationRepository observationRepository;
+    private final EarthDataService earthDataService;
+    private final Executor prefetchExecutor;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder prefetched = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    
+    public FieldPrefetchScheduler(FarmFieldRepository fieldRepository, FieldObservationRepository observationRepository,
+                                  EarthDataService earthDataService,
+                                  @Qualifier("fieldPrefetchExecutor") Executor prefetchExecutor) {
+        this.fieldRepository = fieldRepository;
+        this.observationRepository = observationRepository;
+        this.earthDataService = earthDataService;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+    
+    @Scheduled(fixedDelayString = "${soma.earthdata.prefetch.interval-ms:60000}",
+            initialDelayString = "${soma.earthdata.prefetch.initial-delay-ms:30000}")
+    public void prefetchDueFields() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<FarmField> batch = dueFields(now);
+        runs.increment();
+        lastRunAt = now;
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        CompletableFuture.allOf(batch.stream()
+                .map(field -> CompletableFuture.runAsync(() -> prefetch(field, now.toLocalDate()), prefetchExecutor))
+                .toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+        logger.info("Prefetched EarthData for {} fields in {} ms", batch.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("runCount", runs.sum());
+        stats.put("prefetchedCount", prefetched.sum());
+        stats.put("failureCount", failures.sum());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+    
+    /**
+     * Fields missing a current composite of any product, or holding only a model value older than
+     * the retry interval, whose minute in the spread window has come. The minute is checked in the
+     * query, so fields not yet due never take the place of due ones in a page.
+     */
+    List<FarmField> dueFields(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        int minuteOfDay = now.getHour() * 60 + now.getMinute();
+        long spreadLimit = (minuteOfDay + 1L) * SPREAD_HASH_RANGE;
+        PageRequest candidates = PageRequest.of(0, maxFieldsPerRun);
+        Map<Long, FarmField> due = new LinkedHashMap<>();
+        for (EarthDataProduct product : EarthDataProduct.values()) {
+            for (FarmField field : fieldRepository.findDue(product, product.latestComposite(today),
+                    now.minusMinutes(fallbackRetryMinutes), Math.max(0, spreadMinutes), spreadLimit, candidates)) {
+                due.putIfAbsent(field.getId(), field);
+            }
+        }
+        return due.values().stream().limit(maxFieldsPerRun).toList();
+    }
+    
+    /**
+     * The field's minute in the spread window, as {@link FarmFieldRepository#findDue} computes it.
+     */
+    int spreadOffset(FarmField field) {
+        // Multiplying by an odd constant scatters consecutive ids evenly over the low 16 bits
+        long hash = (field.getId() * SPREAD_MULTIPLIER) & (SPREAD_HASH_RANGE - 1);
+        return (int) (hash * Math.max(0, spreadMinutes) / SPREAD_HASH_RANGE);
+    }
+    
+    private void prefetch(FarmField field, LocalDate today) {
+        try {
+            EarthDataResponse response = earthDataService.getEarthData(field.getLatitude(), field.getLongitude());
+            if (EarthDataService.STALE.equals(response.getFreshness())) {
+                // A stale value may belong to the previous composite; the field stays due until refreshed
+                return;
+            }
+            store(field, EarthDataProduct.NDVI, response.getNdvi(), response, today);
+            store(field, EarthDataProduct.LAND_SURFACE_TEMPERATURE, response.getLandSurfaceTemperature(), response, today);
+            store(field, EarthDataProduct.EVAPOTRANSPIRATION, response.getEvapotranspiration(), response, today);
+            // Updated by id: saving the field loaded for the batch would insert it again if deleted meanwhile
+            if (fieldRepository.markPrefetched(field.getId(), LocalDateTime.now(ZoneOffset.UTC)) == 0) {
+                // Deleted while its values were fetched, perhaps after its observations were removed
+                observationRepository.deleteByFieldId(field.getId());
+                return;
+            }
+            prefetched.increment();
+        } catch (RuntimeException e) {
+            failures.increment();
+            logger.warn("Failed to prefetch EarthData for field {}", field.getId(), e);
+        }
+    }
+    
+    /**
+     * Upserts the product's value for its current composite, keeping a stored satellite value
+     * over a newer model one.
+     */
+    private void store(FarmField field, EarthDataProduct product, Double value, EarthDataResponse response,
+                       LocalDate today) {
+        if (value == null) {
+            return;
+        }
+        String source = response.getSources() != null ? response.getSources().get(RESPONSE_FIELDS.get(product)) : null;
+        if (source == null) {
+            source = response.getDataSource();
+        }
+        boolean fallback = !product.satelliteSource().equals(source);
+        LocalDate composite = product.latestComposite(today);
+        FieldObservation observation = observationRepository
+                .findByFieldIdAndProductAndCompositeDate(field.getId(), product, composite)
+                .orElseGet(() -> {
+                    FieldObservation created = new FieldObservation();
+                    created.setFieldId(field.getId());
+                    created.setProduct(product);
+                    created.setCompositeDate(composite);
+                    return created;
+                });
+        if (observation.getId() != null && !observation.isFallback() && fallback) {
+            return;
+        }
+        observation.setValue(value);
+        observation.setSource(source);
+        observation.setFallback(fallback);
+        observation.setFetchedAt(LocalDateTime.now(ZoneOffset.UTC));
+        observationRepository.save(observation);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.soma.service;
+
+import com.soma.dto.SeasonToDateDto;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldLocation;
+import com.soma.util.FieldSeasonTable;
+import com.soma.util.ForecastGrid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Season-to-date growing degree days and soil water balance for every registered field. Once a
+ * day a batch run advances all fields by that day in a {@link FieldSeasonTable}, in parallel
+ * chunks: temperatures and rainfall come from the latest forecast run's hours of the day, and
+ * evapotranspiration from {@link EarthDataService}. The new table is swapped in and written to
+ * disk, where the next start picks it up, so no request ever recomputes a season.
+ *
+ * <p>Seasons start on a configured day in the northern hemisphere and six months later in the
+ * southern one.
+ */
+@Service
+public class FieldSeasonService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FieldSeasonService.class);
+    
+    @Value("${soma.weather.season.enabled:true}")
+    private boolean enabled = true;
+    
+    @Value("${soma.weather.season.chunk-size:10000}")
+    private int chunkSize = 10_000;
+    
+    private final FarmFieldRepository fieldRepository;
+    private final ForecastGridStore forecastStore;
+    private final EarthDataService earthDataService;
+    private final Executor seasonExecutor;
+    private final FieldSeasonTable.Settings settings;
+    private final MonthDay northernSeasonStart;
+    private final Path snapshot;
+    private final LongAdder runs = new LongAdder();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile FieldSeasonTable table = FieldSeasonTable.empty();
+    private volatile Map<String, Object> lastRun = Map.of();
+    
+    public FieldSeasonService(
+            FarmFieldRepository fieldRepository,
+            ForecastGridStore forecastStore,
+            EarthDataService earthDataService,
+            @Qualifier("fieldSeasonExecutor") Executor seasonExecutor,
+            @Value("${soma.weather.season.start:--03-01}") String seasonStart,
+            @Value("${soma.weather.season.gdd-base-celsius:10}") double gddBase,
+            @Value("${soma.weather.season.gdd-cap-celsius:30}") double gddCap,
+            @Value("${soma.weather.season.soil-capacity-mm:150}") double soilCapacityMm,
+            @Value("${soma.weather.season.initial-soil-fraction:0.5}") double initialSoilFraction,
+            @Value("${soma.weather.season.snapshot:./data/field-seasons.bin}") String snapshot) {
+        this.fieldRepository = fieldRepository;
+        this.forecastStore = forecastStore;
+        this.earthDataService = earthDataService;
+        this.seasonExecutor = seasonExecutor;
+        this.northernSeasonStart = MonthDay.parse(seasonStart);
+        this.settings = new FieldSeasonTable.Settings(gddBase, gddCap, soilCapacityMm, initialSoilFraction);
+        this.snapshot = snapshot == null || snapshot.isBlank() ? null : Path.of(snapshot);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        if (snapshot == null || Files.notExists(snapshot)) {
+            return;
+        }
+        try {
+            table = FieldSeasonTable.read(snapshot);
+            generation.incrementAndGet();
+            logger.info("Restored season state of {} fields from {}", table.size(), snapshot);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Failed to restore season state from {}, starting empty", snapshot, e);
+        }
+    }
+    
+    /**
+     * Accumulates the current UTC day late in the day, from the latest forecast run and the runs
+     * retained before it.
+     */
+    @Scheduled(cron = "${soma.weather.season.cron:0 50 23 * * *}", zone = "UTC")
+    public void runDaily() {
+        if (enabled) {
+            run(LocalDate.now(ZoneOffset.UTC));
+        }
+    }
+    
+    /**
+     * Advances every field by the day and swaps the result in. Running a day again replaces its
+     * contribution. Returns the run's statistics.
+     */
+    public synchronized Map<String, Object> run(LocalDate day) {
+        long started = System.nanoTime();
+        List<FieldLocation> fields = fieldRepository.findAllLocations();
+        long[] ids = new long[fields.size()];
+        double[] latitudes = new double[fields.size()];
+        double[] longitudes = new double[fields.size()];
+        for (int i = 0; i < ids.length; i++) {
+            FieldLocation field = fields.get(i);
+            ids[i] = field.getId();
+            latitudes[i] = field.getLatitude();
+            longitudes[i] = field.getLongitude();
+        }
+        long loaded = System.nanoTime();
+        
+        List<ForecastGrid> forecasts = forecastStore.recent();
+        FieldSeasonTable.Inputs inputs = forecasts.isEmpty() ? index -> null
+                : index -> dayOf(forecasts, latitudes[index], longitudes[index], day);
+        FieldSeasonTable.Run result = table.advance(ids, (int) day.toEpochDay(), inputs, settings, seasonExecutor,
+                chunkSize);
+        table = result.table();
+        generation.incrementAndGet();
+        long advanced = System.nanoTime();
+        
+        if (snapshot != null) {
+            try {
+                Files.createDirectories(snapshot.toAbsolutePath().getParent());
+                result.table().write(snapshot);
+            } catch (IOException e) {
+                logger.error("Failed to write season state to {}", snapshot, e);
+            }
+        }
+        runs.increment();
+        
+        double advanceSeconds = (advanced - loaded) / 1e9;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("day", day.toString());
+        stats.put("fields", ids.length);
+        stats.put("updated", result.updated());
+        stats.put("missingInput", result.missingInput());
+        stats.put("loadMillis", (loaded - started) / 1_000_000);
+        stats.put("advanceMillis", (advanced - loaded) / 1_000_000);
+        stats.put("totalMillis", (System.nanoTime() - started) / 1_000_000);
+        stats.put("fieldsPerSecond", advanceSeconds > 0 ? Math.round(ids.length / advanceSeconds) : 0);
+        stats.put("finishedAt", LocalDateTime.now(ZoneOffset.UTC).toString());
+        lastRun = stats;
+        logger.info("Accumulated {} for {} fields ({} without weather) in {} ms", day, ids.length,
+                result.missingInput(), stats.get("totalMillis"));
+        return stats;
+    }
+    
+    /**
+     * The field's season to date, or empty if no run has accumulated weather for it yet.
+     */
+    public Optional<SeasonToDateDto> getSeasonToDate(long fieldId) {
+        FieldSeasonTable.Season season = table.get(fieldId);
+        if (season == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new SeasonToDateDto(
+                fieldId,
+                LocalDate.ofEpochDay(season.seasonStart()),
+                LocalDate.ofEpochDay(season.lastDay()),
+                round(season.growingDegreeDays()),
+                round(season.rainfallMm()),
+                round(season.evapotranspirationMm()),
+                round(season.soilWaterMm()),
+                round(season.soilWaterMm() / settings.soilCapacityMm() * 100)));
+    }
+    
+    /**
+     * The field's raw season state as of its last accumulated day, or empty if it has none yet.
+     */
+    public Optional<FieldSeasonTable.Season> getSeason(long fieldId) {
+        return Optional.ofNullable(table.get(fieldId));
+    }
+    
+    public FieldSeasonTable.Settings getSettings() {
+        return settings;
+    }
+    
+    /**
+     * Changes whenever a new table is swapped in, so consumers can tell the season state changed.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("runCount", runs.sum());
+        stats.put("fields", table.size());
+        stats.put("sizeBytes", table.sizeBytes());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+    
+    /**
+     * The day's weather at the point, each hour from the newest forecast run covering it, or null
+     * if no run has any hour of the day there. Rainfall over a partly covered day, as right after
+     * the first run is loaded, is scaled up to 24 hours.
+     */
+    private FieldSeasonTable.Day dayOf(List<ForecastGrid> forecasts, double latitude, double longitude,
+                                       LocalDate day) {
+        Instant start = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double rainfall = 0;
+        int hours = 0;
+        for (Instant hour = start; hour.isBefore(start.plus(1, ChronoUnit.DAYS)); hour = hour.plus(1, ChronoUnit.HOURS)) {
+            ForecastGrid forecast = ForecastGridStore.covering(forecasts, latitude, longitude, hour);
+            if (forecast == null) {
+                continue;
+            }
+            double temperature = forecast.value(ForecastGridStore.TEMPERATURE, hour, latitude, longitude);
+            double precipitation = forecast.value(ForecastGridStore.PRECIPITATION, hour, latitude, longitude);
+            if (Double.isNaN(temperature) || Double.isNaN(precipitation)) {
+                continue;
+            }
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            rainfall += precipitation;
+            hours++;
+        }
+        if (hours == 0) {
+            return null;
+        }
+        return new FieldSeasonTable.Day(min, max, rainfall * 24 / hours,
+                earthDataService.evapotranspiration(latitude, longitude, day), seasonStart(latitude, day));
+    }
+    
+    int seasonStart(double latitude, LocalDate day) {
+        MonthDay start = latitude >= 0 ? northernSeasonStart
+                : MonthDay.from(northernSeasonStart.atYear(2001).plusMonths(6));
+        LocalDate thisYear = start.atYear(day.getYear());
+        return (int) (thisYear.isAfter(day) ? thisYear.minusYears(1) : thisYear).toEpochDay();
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 10.0) / 10.0; // Round to 1 decimal
+    }
+}
\ No newline at end of file
@@ -0,0 +1,284 @@
+package com.soma.service;
+
+import com.soma.util.ForecastGrid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the latest gridded forecast run, memory-mapped from the forecast directory. A scheduled
+ * job picks up the run with the latest run time whenever a newer one lands there and swaps it in
+ * atomically: lookups in flight finish on the old run and the next ones see the new run. Writers
+ * should move files into place atomically, as {@link ForecastGrid#write} does.
+ *
+ * <p>Runs from the retention window before the latest one stay mapped as well, so the hours a
+ * newer run starts after are still answered by the run before it. This is what lets a whole day
+ * be read late in the day, when the latest run starts only hours before midnight.
+ *
+ * <p>With the stub enabled, as in the {@code dev} profile, and no recent run in the directory, the
+ * job first writes one made up from latitude, time of day and smooth weather patterns, so the app
+ * works offline. The stub covers the whole globe, so it must stay off wherever real weather is
+ * wanted.
+ */
+@Component
+public class ForecastGridStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ForecastGridStore.class);
+    
+    static final int TEMPERATURE = 0;
+    static final int HUMIDITY = 1;
+    static final int PRECIPITATION = 2;
+    static final int WIND_SPEED = 3;
+    static final int CLOUD_COVER = 4;
+    static final int UV_INDEX = 5;
+    static final int VISIBILITY = 6;
+    static final int SOIL_MOISTURE = 7;
+    static final int BANDS = 8;
+    
+    static final String EXTENSION = ".sfc";
+    
+    // Degrees Celsius, percent, mm/h, km/h, percent, UV index, km and percent, all in hundredths
+    private static final double[] SCALES = {0.01, 0.01, 0.01, 0.01, 0.01, 0.01, 0.01, 0.01};
+    private static final double[] OFFSETS = {0, 0, 0, 0, 0, 0, 0, 0};
+    
+    private record LoadedRun(ForecastGrid grid, Path file, Instant loadedAt) {
+    }
+    
+    @Value("${soma.weather.forecast.retention-hours:30}")
+    private long retentionHours = 30;
+    
+    private final Path directory;
+    private final boolean stubEnabled;
+    private final double stubGridDegrees;
+    private final int stubHours;
+    private final Duration stubRunInterval;
+    private final LongAdder ingestedRuns = new LongAdder();
+    private final LongAdder failedRuns = new LongAdder();
+    // Newest first; replaced as a whole on each change
+    private volatile List<LoadedRun> runs = List.of();
+    
+    public ForecastGridStore(
+            @Value("${soma.weather.forecast.directory:./data/forecast}") String directory,
+            @Value("${soma.weather.forecast.stub.enabled:false}") boolean stubEnabled,
+            @Value("${soma.weather.forecast.stub.grid-degrees:1.0}") double stubGridDegrees,
+            @Value("${soma.weather.forecast.stub.hours:48}") int stubHours,
+            @Value("${soma.weather.forecast.stub.run-interval-hours:6}") long stubRunIntervalHours) {
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.stubEnabled = stubEnabled;
+        this.stubGridDegrees = stubGridDegrees;
+        this.stubHours = stubHours;
+        this.stubRunInterval = Duration.ofHours(stubRunIntervalHours);
+    }
+    
+    /**
+     * The latest run, if one has been loaded.
+     */
+    public Optional<ForecastGrid> current() {
+        List<LoadedRun> loaded = runs;
+        return loaded.isEmpty() ? Optional.empty() : Optional.of(loaded.get(0).grid());
+    }
+    
+    /**
+     * The latest run and the runs retained before it, newest first. For any hour, the first run
+     * covering it holds the most recent forecast of that hour.
+     */
+    public List<ForecastGrid> recent() {
+        return runs.stream().map(LoadedRun::grid).toList();
+    }
+    
+    /**
+     * The first of the runs, newest first as from {@link #recent()}, that covers the hour at the
+     * point, or null if none does.
+     */
+    static ForecastGrid covering(List<ForecastGrid> runs, double latitude, double longitude, Instant hour) {
+        for (ForecastGrid run : runs) {
+            if (run.covers(latitude, longitude, hour)) {
+                return run;
+            }
+        }
+        return null;
+    }
+    
+    @Scheduled(fixedDelayString = "${soma.weather.forecast.poll-interval-ms:60000}",
+            initialDelayString = "${soma.weather.forecast.initial-delay-ms:0}")
+    public void ingestLatestRun() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Map<Path, Instant> files = runFiles();
+            Instant now = Instant.now();
+            Optional<Instant> latest = files.values().stream().max(Comparator.naturalOrder());
+            if (stubEnabled && (latest.isEmpty() || latest.get().isBefore(now.minus(stubRunInterval)))) {
+                Path stub = writeStubRun(now);
+                files = runFiles();
+                latest = Optional.ofNullable(files.get(stub));
+            }
+            // Oldest first, so each run is either retained or swapped in as it is loaded
+            Instant oldest = latest.map(this::retainedSince).orElse(Instant.MIN);
+            files.entrySet().stream()
+                    .filter(file -> !file.getValue().isBefore(oldest))
+                    .sorted(Map.Entry.comparingByValue())
+                    .forEach(file -> ingest(file.getKey()));
+        } catch (IOException e) {
+            logger.error("Failed to scan forecast directory {}", directory, e);
+        }
+    }
+    
+    /**
+     * Loads the run in the file, swapping it in if it is newer than the current run and retaining
+     * it behind the current run otherwise. Runs already loaded or older than the retention window
+     * are skipped. Returns whether it was loaded.
+     */
+    synchronized boolean ingest(Path file) {
+        List<LoadedRun> previous = runs;
+        try {
+            Instant runTime = ForecastGrid.readRunTime(file);
+            if (previous.stream().anyMatch(run -> run.grid().runTime().equals(runTime))
+                    || (!previous.isEmpty() && runTime.isBefore(retainedSince(previous.get(0).grid().runTime())))) {
+                return false;
+            }
+            ForecastGrid grid = ForecastGrid.open(file);
+            if (grid.bands() < BANDS) {
+                throw new IllegalArgumentException("Expected " + BANDS + " forecast bands, found " + grid.bands());
+            }
+            List<LoadedRun> loaded = new ArrayList<>(previous);
+            loaded.add(new LoadedRun(grid, file, Instant.now()));
+            loaded.sort(Comparator.comparing((LoadedRun run) -> run.grid().runTime()).reversed());
+            // A dropped run stays readable through its mapping for lookups already holding it
+            Instant since = retainedSince(loaded.get(0).grid().runTime());
+            loaded.removeIf(run -> run.grid().runTime().isBefore(since));
+            runs = List.copyOf(loaded);
+            ingestedRuns.increment();
+            logger.info("Loaded forecast run {} ({} hours, {} bytes) from {}",
+                    grid.runTime(), grid.hours(), grid.sizeBytes(), file);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            failedRuns.increment();
+            logger.error("Failed to load forecast run {}, keeping the current run", file, e);
+            return false;
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        List<LoadedRun> loaded = runs;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("directory", directory == null ? "" : directory.toString());
+        stats.put("ingestedRuns", ingestedRuns.sum());
+        stats.put("failedRuns", failedRuns.sum());
+        stats.put("retainedRuns", loaded.size());
+        stats.put("retentionHours", retentionHours);
+        if (!loaded.isEmpty()) {
+            LoadedRun run = loaded.get(0);
+            stats.put("file", run.file().toString());
+            stats.put("runTime", run.grid().runTime().toString());
+            stats.put("endTime", run.grid().endTime().toString());
+            stats.put("loadedAt", run.loadedAt().toString());
+            stats.put("sizeBytes", run.grid().sizeBytes());
+        }
+        return stats;
+    }
+    
+    private Instant retainedSince(Instant latestRunTime) {
+        return latestRunTime.minus(Duration.ofHours(retentionHours));
+    }
+    
+    /**
+     * The run time of each readable run file in the directory.
+     */
+    private Map<Path, Instant> runFiles() throws IOException {
+        Map<Path, Instant> runTimes = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    runTimes.put(file, ForecastGrid.readRunTime(file));
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.warn("Skipping unreadable forecast file {}", file, e);
+                }
+            }
+        }
+        return runTimes;
+    }
+    
+    private Path writeStubRun(Instant now) throws IOException {
+        Instant runTime = now.truncatedTo(ChronoUnit.HOURS);
+        Path file = directory.resolve("stub-" + runTime.getEpochSecond() + EXTENSION);
+        logger.info("Generating stub forecast run {} at {} degrees into {}", runTime, stubGridDegrees, file);
+        ForecastGrid.write(file, generate(runTime, stubHours, stubGridDegrees));
+        // Stub runs past the retention window are dropped; a loaded one stays readable through its mapping
+        Instant since = retainedSince(runTime);
+        try (DirectoryStream<Path> stubs = Files.newDirectoryStream(directory, "stub-*" + EXTENSION)) {
+            for (Path stub : stubs) {
+                try {
+                    if (ForecastGrid.readRunTime(stub).isBefore(since)) {
+                        Files.deleteIfExists(stub);
+                    }
+                } catch (IOException | IllegalArgumentException e) {
+                    Files.deleteIfExists(stub);
+                }
+            }
+        }
+        return file;
+    }
+    
+    /**
+     * A global run of made-up weather: temperature falling with latitude and following the sun,
+     * rain bands and cloud drifting east, and wind, UV and visibility following from them.
+     */
+    static byte[] generate(Instant runTime, int hours, double gridDegrees) {
+        int rows = (int) Math.round(180 / gridDegrees) + 1;
+        int columns = (int) Math.round(360 / gridDegrees);
+        long firstHour = runTime.getEpochSecond() / 3600;
+        return ForecastGrid.encode(runTime, hours, -90, -180, gridDegrees, rows, columns, SCALES, OFFSETS,
+                (band, hour, latitude, longitude) -> stubValue(band, firstHour + hour, latitude, longitude));
+    }
+    
+    private static double stubValue(int band, long epochHour, double latitude, double longitude) {
+        // Local solar hour; the sun is highest at 12 and it is warmest around 15
+        double solarHour = ((epochHour % 24) + longitude / 15 + 48) % 24;
+        double sun = Math.max(0, Math.cos((solarHour - 12) / 24 * 2 * Math.PI)) * Math.cos(Math.toRadians(latitude));
+        // Weather systems drift east at about 10 degrees a day
+        double drift = longitude - epochHour * 10 / 24.0;
+        double wetness = Math.sin(Math.toRadians(drift * 3)) * Math.cos(Math.toRadians(latitude * 4));
+        double precipitation = Math.max(0, wetness - 0.4) * 8;
+        double cloudCover = Math.max(0, Math.min(100, 50 + 60 * wetness));
+        switch (band) {
+            case TEMPERATURE:
+                return 30 - Math.abs(latitude) * 0.6 + 6 * Math.cos((solarHour - 15) / 24 * 2 * Math.PI);
+            case HUMIDITY:
+                return Math.max(20, Math.min(100, 60 + 30 * wetness - 10 * sun));
+            case PRECIPITATION:
+                return precipitation;
+            case WIND_SPEED:
+                return 5 + 15 * Math.abs(Math.sin(Math.toRadians(drift * 2 + latitude * 3)));
+            case CLOUD_COVER:
+                return cloudCover;
+            case UV_INDEX:
+                return 11 * sun * (1 - cloudCover / 150);
+            case VISIBILITY:
+                return Math.max(2, 20 - precipitation * 2);
+            case SOIL_MOISTURE:
+                return Math.max(10, Math.min(60, 35 + 20 * Math.sin(Math.toRadians(longitude * 2 + latitude))));
+            default:
+                throw new IllegalArgumentException("Unknown forecast band " + band);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.soma.service;
+
+import java.util.Optional;
+
+/**
+ * Resolves a free-text location, e.g. a place name or "lat,lon", to coordinates.
+ */
+public interface Geocoder {
+    
+    record Location(double latitude, double longitude) {
+    }
+    
+    String name();
+    
+    /**
+     * Returns the location's coordinates, or empty if it is unknown.
+     */
+    Optional<Location> geocode(String location);
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.soma.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.soma.util.TileRaster;
+import com.soma.util.UpstreamHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads NDVI from NASA GIBS WMTS tiles in the EPSG:4326 tiling: the point is mapped to a tile
+ * row and column and a pixel within it, the tile PNG is fetched and decoded once, and the pixel's
+ * palette index is scaled to NDVI. Decoded tiles are cached by (layer, date, matrix, row, col), so
+ * all points on one tile share a download and a decode.
+ */
+@Component
+public class GibsNdviClient {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GibsNdviClient.class);
+    
+    // EPSG:4326 tile matrices start at 0.5625 degrees per pixel and halve with each level
+    private static final double LEVEL_ZERO_DEGREES_PER_PIXEL = 0.5625;
+    private static final int TILE_SIZE = 512;
+    
+    public record TileKey(String layer, LocalDate date, int matrix, int row, int col) {
+    }
+    
+    private final UpstreamHttpClient http;
+    private final boolean enabled;
+    private final String baseUrl;
+    private final String layer;
+    private final String matrixSet;
+    private final int matrix;
+    private final double valueScale;
+    private final double valueOffset;
+    private final int firstNoDataValue;
+    private final AsyncCache<TileKey, TileRaster> tiles;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder downloads = new LongAdder();
+    
+    public GibsNdviClient(
+            UpstreamHttpClient http,
+            @Value("${soma.earthdata.gibs.enabled:false}") boolean enabled,
+            @Value("${soma.earthdata.gibs.base-url:https://gibs.earthdata.nasa.gov/wmts/epsg4326/best}") String baseUrl,
+            @Value("${soma.earthdata.gibs.layer:MODIS_Terra_NDVI_8Day}") String layer,
+            @Value("${soma.earthdata.gibs.matrix-set:250m}") String matrixSet,
+            @Value("${soma.earthdata.gibs.matrix:8}") int matrix,
+            @Value("${soma.earthdata.gibs.value-scale:0.004}") double valueScale,
+            @Value("${soma.earthdata.gibs.value-offset:0.0}") double valueOffset,
+            @Value("${soma.earthdata.gibs.first-no-data-value:251}") int firstNoDataValue,
+            @Value("${soma.earthdata.gibs.tile-cache-bytes:67108864}") long tileCacheBytes) {
+        this.http = http;
+        this.enabled = enabled;
+        this.baseUrl = baseUrl;
+        this.layer = layer;
+        this.matrixSet = matrixSet;
+        this.matrix = matrix;
+        this.valueScale = valueScale;
+        this.valueOffset = valueOffset;
+        this.firstNoDataValue = firstNoDataValue;
+        this.tiles = Caffeine.newBuilder()
+                .maximumWeight(tileCacheBytes)
+                // Missing tiles are cached too, so weigh them as a small object rather than nothing
+                .weigher((TileKey key, TileRaster tile) -> Math.max(64, tile.sizeBytes()))
+                .recordStats()
+                .buildAsync();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Returns whether GIBS is currently considered unhealthy, i.e. tile downloads would be refused
+     * by the circuit breaker without trying the network.
+     */
+    public boolean isCircuitOpen() {
+        return http.isOpen(URI.create(baseUrl));
+    }
+    
+    /**
+     * Returns the NDVI of the pixel containing the point in the composite starting on the date,
+     * or null if the tile has no data there (clouds, water, outside the product's coverage).
+     */
+    public Double fetchNdvi(double latitude, double longitude, LocalDate date) {
+        long[] pixel = pixel(latitude, longitude);
+        TileRaster tile = tile(tileKey(pixel, date));
+        int sample = tile.sample((int) (pixel[0] % TILE_SIZE), (int) (pixel[1] % TILE_SIZE));
+        if (sample <= 0 || sample >= firstNoDataValue) {
+            return null;
+        }
+        return valueOffset + sample * valueScale;
+    }
+    
+    /**
+     * Returns the key of the tile holding the point, i.e. the download a lookup there would share.
+     */
+    public TileKey tileKey(double latitude, double longitude, LocalDate date) {
+        return tileKey(pixel(latitude, longitude), date);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tiles", tiles.synchronous().estimatedSize());
+        stats.put("tileBytes", tiles.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        stats.put("tileHitCount", hits.sum());
+        stats.put("tileDownloadCount", downloads.sum());
+        stats.put("upstream", http.getStats());
+        return stats;
+    }
+    
+    /**
+     * Returns the global pixel column and row of the point in the configured tile matrix.
+     */
+    private long[] pixel(double latitude, double longitude) {
+        double degreesPerPixel = LEVEL_ZERO_DEGREES_PER_PIXEL / (1 << matrix);
+        long x = (long) Math.floor((longitude + 180) / degreesPerPixel);
+        long y = (long) Math.floor((90 - latitude) / degreesPerPixel);
+        // Points on the antimeridian or the south pole belong to the last pixel
+        x = Math.max(0, Math.min(x, Math.round(360 / degreesPerPixel) - 1));
+        y = Math.max(0, Math.min(y, Math.round(180 / degreesPerPixel) - 1));
+        return new long[] {x, y};
+    }
+    
+    private TileKey tileKey(long[] pixel, LocalDate date) {
+        return new TileKey(layer, date, matrix, (int) (pixel[1] / TILE_SIZE), (int) (pixel[0] / TILE_SIZE));
+    }
+    
+    /**
+     * Returns the decoded tile, downloading it on the calling thread on a miss. Concurrent
+     * lookups of one tile wait on a single download; a failed download is not cached.
+     */
+    private TileRaster tile(TileKey key) {
+        CompletableFuture<TileRaster> pending = new CompletableFuture<>();
+        CompletableFuture<TileRaster> existing = tiles.asMap().putIfAbsent(key, pending);
+        if (existing != null) {
+            hits.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        try {
+            TileRaster tile = download(key);
+            pending.complete(tile);
+            return tile;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private TileRaster download(TileKey key) {
+        String url = String.format("%s/%s/default/%s/%s/%d/%d/%d.png",
+                baseUrl, key.layer(), key.date(), matrixSet, key.matrix(), key.row(), key.col());
+        downloads.increment();
+        UpstreamHttpClient.Response response = http.get(URI.create(url));
+        if (response.status() == 404) {
+            // GIBS has no tile where the layer has no coverage
+            logger.debug("No GIBS tile at {}", url);
+            return TileRaster.EMPTY;
+        }
+        if (response.status() != 200) {
+            throw new IllegalStateException("GIBS returned HTTP " + response.status() + " for " + url);
+        }
+        try {
+            byte[] png = response.body();
+            return png == null || png.length == 0 ? TileRaster.EMPTY : TileRaster.decode(png);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode GIBS tile " + url, e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.soma.service;
+
+/**
+ * A node of a regular latitude/longitude grid; every location in the node's cell maps to it.
+ */
+public record GridPoint(double latitude, double longitude) {
+    
+    /**
+     * The centre of the grid cell containing the location.
+     */
+    public static GridPoint snap(double latitude, double longitude, double gridDegrees) {
+        double row = Math.floor(latitude / gridDegrees);
+        double column = Math.floor(longitude / gridDegrees);
+        // Rounding keeps keys free of binary fractions such as 41.550000000000004
+        return new GridPoint(round((row + 0.5) * gridDegrees), round((column + 0.5) * gridDegrees));
+    }
+    
+    private static double round(double degrees) {
+        return Math.round(degrees * 1e6) / 1e6;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.soma.service;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Local embedder using signed feature hashing of words and word pairs. Needs no model or
+ * vocabulary, so it works offline and embeds new tips without retraining.
+ */
+public class HashingTipEmbedder implements TipEmbedder {
+    
+    private static final Set<String> STOPWORDS = Set.of(
+            "the", "and", "for", "with", "that", "this", "from", "your", "you", "are", "can",
+            "how", "what", "which", "should", "into", "about", "will", "have", "has", "use");
+    
+    private final int dimensions;
+    
+    public HashingTipEmbedder(int dimensions) {
+        this.dimensions = dimensions;
+    }
+    
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+    
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        String previous = null;
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            String token = stem(raw);
+            if (token.length() < 3 || STOPWORDS.contains(token)) {
+                continue;
+            }
+            add(vector, token, 1.0f);
+            if (previous != null) {
+                add(vector, previous + ' ' + token, 0.5f);
+            }
+            previous = token;
+        }
+        
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+    
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        // The sign bit spreads collisions so they cancel out on average instead of piling up
+        vector[Math.floorMod(hash >>> 1, dimensions)] += (hash & 1) == 0 ? weight : -weight;
+    }
+    
+    private static String stem(String token) {
+        if (token.length() > 4 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+    
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+package com.soma.service;
+
+import com.soma.dto.IrrigationDayDto;
+import com.soma.dto.IrrigationPlanDto;
+import com.soma.event.FieldChangedEvent;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldLocation;
+import com.soma.util.FieldSeasonTable;
+import com.soma.util.ForecastGrid;
+import com.soma.util.IrrigationPlanTable;
+import com.soma.util.IrrigationPlanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-day irrigation plans for every registered field, computed in batch and served from memory.
+ * A plan starts from the field's soil water in {@link FieldSeasonService}, takes daily rainfall
+ * from the recent forecast runs, each hour from the newest run covering it, and evapotranspiration
+ * from {@link EarthDataService}, and is laid out by {@link IrrigationPlanner}.
+ *
+ * <p>Recomputation is incremental at two levels. The scheduled run does nothing while the forecast
+ * runs, the season state and the day are all unchanged since the last run. Otherwise it gathers
+ * every field's inputs and fingerprints them, and only fields whose fingerprint changed are
+ * planned again. Registered and removed fields are handled as their events arrive.
+ */
+@Service
+public class IrrigationScheduleService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IrrigationScheduleService.class);
+    
+    private static final long FINGERPRINT_SEED = 0xCBF29CE484222325L;
+    
+    /**
+     * What the whole run depends on besides each field's own inputs.
+     */
+    private record RunInputs(List<Instant> forecastRunTimes, long seasonGeneration, LocalDate day) {
+    }
+    
+    @Value("${soma.weather.irrigation.enabled:true}")
+    private boolean enabled = true;
+    
+    @Value("${soma.weather.irrigation.chunk-size:10000}")
+    private int chunkSize = 10_000;
+    
+    private final FarmFieldRepository fieldRepository;
+    private final ForecastGridStore forecastStore;
+    private final EarthDataService earthDataService;
+    private final FieldSeasonService seasonService;
+    private final Executor irrigationExecutor;
+    private final int horizonDays;
+    private final IrrigationPlanner.Settings settings;
+    private final IrrigationPlanTable plans;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder skippedRuns = new LongAdder();
+    private final LongAdder recomputed = new LongAdder();
+    private final LongAdder eventRecomputes = new LongAdder();
+    private volatile RunInputs lastInputs;
+    private volatile Map<String, Object> lastRun = Map.of();
+    
+    public IrrigationScheduleService(
+            FarmFieldRepository fieldRepository,
+            ForecastGridStore forecastStore,
+            EarthDataService earthDataService,
+            FieldSeasonService seasonService,
+            @Qualifier("irrigationExecutor") Executor irrigationExecutor,
+            @Value("${soma.weather.irrigation.horizon-days:7}") int horizonDays,
+            @Value("${soma.weather.irrigation.allowed-depletion:0.5}") double allowedDepletion,
+            @Value("${soma.weather.irrigation.refill-fraction:0.9}") double refillFraction,
+            @Value("${soma.weather.irrigation.max-application-mm:40}") double maxApplicationMm) {
+        if (horizonDays < 1) {
+            throw new IllegalArgumentException("Irrigation horizon must be at least one day");
+        }
+        this.fieldRepository = fieldRepository;
+        this.forecastStore = forecastStore;
+        this.earthDataService = earthDataService;
+        this.seasonService = seasonService;
+        this.irrigationExecutor = irrigationExecutor;
+        this.horizonDays = horizonDays;
+        this.plans = new IrrigationPlanTable(horizonDays);
+        this.settings = new IrrigationPlanner.Settings(seasonService.getSettings().soilCapacityMm(),
+                allowedDepletion, refillFraction, maxApplicationMm);
+    }
+    
+    /**
+     * Plans again when a new forecast run has landed, the season state has moved on or the day has
+     * changed; otherwise does nothing.
+     */
+    @Scheduled(fixedDelayString = "${soma.weather.irrigation.interval-ms:600000}",
+            initialDelayString = "${soma.weather.irrigation.initial-delay-ms:30000}")
+    public void runIfInputsChanged() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (currentInputs(forecastStore.recent(), today).equals(lastInputs)) {
+            skippedRuns.increment();
+            return;
+        }
+        run(today);
+    }
+    
+    /**
+     * Gathers every field's inputs as of the day and plans again the fields whose inputs changed;
+     * plans of fields no longer registered are dropped. Returns the run's statistics.
+     */
+    public synchronized Map<String, Object> run(LocalDate today) {
+        long started = System.nanoTime();
+        long startedAt = System.currentTimeMillis();
+        List<ForecastGrid> forecasts = forecastStore.recent();
+        RunInputs inputs = currentInputs(forecasts, today);
+        List<FieldLocation> fields = fieldRepository.findAllLocations();
+        long loaded = System.nanoTime();
+        
+        AtomicInteger changed = new AtomicInteger();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < fields.size(); from += chunkSize) {
+            List<FieldLocation> chunk = fields.subList(from, Math.min(fields.size(), from + chunkSize));
+            chunks.add(CompletableFuture.runAsync(() -> {
+                int chunkChanged = 0;
+                for (FieldLocation field : chunk) {
+                    if (update(field.getId(), field.getLatitude(), field.getLongitude(), forecasts, today)) {
+                        chunkChanged++;
+                    }
+                }
+                changed.addAndGet(chunkChanged);
+            }, irrigationExecutor));
+        }
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        
+        // Locations come ordered by id; fields registered since they were loaded are planned later
+        long[] ids = fields.stream().mapToLong(FieldLocation::getId).toArray();
+        int removed = plans.removeAbsent(ids, startedAt);
+        long planned = System.nanoTime();
+        lastInputs = inputs;
+        runs.increment();
+        recomputed.add(changed.get());
+        
+        double planSeconds = (planned - loaded) / 1e9;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("day", today.toString());
+        stats.put("forecastRunTime", forecasts.isEmpty() ? "" : forecasts.get(0).runTime().toString());
+        stats.put("forecastRuns", forecasts.size());
+        stats.put("fields", fields.size());
+        stats.put("recomputed", changed.get());
+        stats.put("unchanged", fields.size() - changed.get());
+        stats.put("removed", removed);
+        stats.put("loadMillis", (loaded - started) / 1_000_000);
+        stats.put("planMillis", (planned - loaded) / 1_000_000);
+        stats.put("totalMillis", (System.nanoTime() - started) / 1_000_000);
+        stats.put("fieldsPerSecond", planSeconds > 0 ? Math.round(fields.size() / planSeconds) : 0);
+        stats.put("recomputedPerSecond", planSeconds > 0 ? Math.round(changed.get() / planSeconds) : 0);
+        stats.put("finishedAt", LocalDateTime.now(ZoneOffset.UTC).toString());
+        lastRun = stats;
+        logger.info("Irrigation plans for {} fields: {} recomputed, {} unchanged, {} removed in {} ms", fields.size(),
+                changed.get(), fields.size() - changed.get(), removed, stats.get("totalMillis"));
+        return stats;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFieldChanged(FieldChangedEvent event) {
+        if (event.type() == FieldChangedEvent.Type.DELETED) {
+            plans.remove(event.fieldId());
+            return;
+        }
+        fieldRepository.findById(event.fieldId()).ifPresent(field -> {
+            update(field.getId(), field.getLatitude(), field.getLongitude(), forecastStore.recent(),
+                    LocalDate.now(ZoneOffset.UTC));
+            eventRecomputes.increment();
+        });
+    }
+    
+    /**
+     * The field's precomputed plan, or empty if none has been computed yet.
+     */
+    public Optional<IrrigationPlanDto> getPlan(long fieldId) {
+        IrrigationPlanTable.Plan plan = plans.get(fieldId);
+        if (plan == null) {
+            return Optional.empty();
+        }
+        List<IrrigationDayDto> days = new ArrayList<>(plan.irrigationMm().length);
+        for (int day = 0; day < plan.irrigationMm().length; day++) {
+            days.add(new IrrigationDayDto(
+                    LocalDate.ofEpochDay(plan.startDay() + day),
+                    day < plan.forecastDays(),
+                    round(plan.rainfallMm()[day]),
+                    round(plan.evapotranspirationMm()[day]),
+                    round(plan.irrigationMm()[day]),
+                    round(plan.soilWaterEndMm()[day])));
+        }
+        return Optional.of(new IrrigationPlanDto(
+                fieldId,
+                LocalDate.ofEpochDay(plan.startDay()),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(plan.computedAtMillis()), ZoneOffset.UTC),
+                round(plan.soilWaterMm()),
+                round(settings.soilCapacityMm()),
+                round(settings.thresholdMm()),
+                plan.forecastDays(),
+                round(plan.totalIrrigationMm()),
+                days));
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("horizonDays", horizonDays);
+        stats.put("plans", plans.size());
+        stats.put("sizeBytes", plans.sizeBytes());
+        stats.put("runCount", runs.sum());
+        stats.put("skippedRuns", skippedRuns.sum());
+        stats.put("recomputedTotal", recomputed.sum());
+        stats.put("eventRecomputes", eventRecomputes.sum());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+    
+    /**
+     * Gathers the field's inputs and plans it again if they differ from those of its stored plan.
+     * Returns whether it was planned again.
+     */
+    private boolean update(long fieldId, double latitude, double longitude, List<ForecastGrid> forecasts,
+                           LocalDate today) {
+        Optional<FieldSeasonTable.Season> season = seasonService.getSeason(fieldId);
+        // A season accumulated through today leaves today out of the plan
+        LocalDate start = season.isPresent() && season.get().lastDay() >= today.toEpochDay()
+                ? LocalDate.ofEpochDay(season.get().lastDay() + 1) : today;
+        FieldSeasonTable.Settings seasonSettings = seasonService.getSettings();
+        double soilWater = season.isPresent() && season.get().seasonStart() == seasonService.seasonStart(latitude, start)
+                ? season.get().soilWaterMm() : seasonSettings.soilCapacityMm() * seasonSettings.initialSoilFraction();
+        
+        float[] rainfall = new float[horizonDays];
+        float[] evapotranspiration = new float[horizonDays];
+        int forecastDays = 0;
+        long fingerprint = mix(mix(FINGERPRINT_SEED, start.toEpochDay()), tenths(soilWater));
+        for (int day = 0; day < horizonDays; day++) {
+            LocalDate date = start.plusDays(day);
+            double dayRainfall = rainfallOf(forecasts, latitude, longitude, date);
+            if (!Double.isNaN(dayRainfall)) {
+                rainfall[day] = (float) dayRainfall;
+                forecastDays = day + 1;
+            }
+            evapotranspiration[day] = (float) Math.max(0, earthDataService.evapotranspiration(latitude, longitude, date));
+            fingerprint = mix(mix(fingerprint, tenths(rainfall[day])), tenths(evapotranspiration[day]));
+        }
+        
+        if (plans.hasFingerprint(fieldId, fingerprint)) {
+            return false;
+        }
+        float[] irrigation = new float[horizonDays];
+        float[] soilWaterEnd = new float[horizonDays];
+        double total = IrrigationPlanner.plan(soilWater, rainfall, evapotranspiration, settings, irrigation,
+                soilWaterEnd);
+        plans.put(new IrrigationPlanTable.Plan(fieldId, fingerprint, (int) start.toEpochDay(), forecastDays,
+                (float) soilWater, rainfall, evapotranspiration, irrigation, soilWaterEnd, (float) total,
+                System.currentTimeMillis()));
+        return true;
+    }
+    
+    /**
+     * The day's rainfall at the point, each hour from the newest forecast run covering it, scaled
+     * up to 24 hours over a partly covered day, or NaN if no run has any hour of the day there.
+     */
+    private static double rainfallOf(List<ForecastGrid> forecasts, double latitude, double longitude, LocalDate day) {
+        Instant start = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        if (forecasts.stream().allMatch(forecast -> start.isAfter(forecast.endTime()))) {
+            return Double.NaN;
+        }
+        double rainfall = 0;
+        int hours = 0;
+        for (Instant hour = start; hour.isBefore(start.plus(1, ChronoUnit.DAYS)); hour = hour.plus(1, ChronoUnit.HOURS)) {
+            ForecastGrid forecast = ForecastGridStore.covering(forecasts, latitude, longitude, hour);
+            if (forecast == null) {
+                continue;
+            }
+            double precipitation = forecast.value(ForecastGridStore.PRECIPITATION, hour, latitude, longitude);
+            if (!Double.isNaN(precipitation)) {
+                rainfall += Math.max(0, precipitation);
+                hours++;
+            }
+        }
+        return hours == 0 ? Double.NaN : rainfall * 24 / hours;
+    }
+    
+    private RunInputs currentInputs(List<ForecastGrid> forecasts, LocalDate today) {
+        return new RunInputs(forecasts.stream().map(ForecastGrid::runTime).toList(), seasonService.getGeneration(),
+                today);
+    }
+    
+    // Inputs are compared to a tenth of a millimetre, so float noise does not trigger a recompute
+    private static long tenths(double millimetres) {
+        return Math.round(millimetres * 10);
+    }
+    
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * 0x100000001B3L;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 10.0) / 10.0; // Round to 1 decimal
+    }
+}
\ No newline at end of file
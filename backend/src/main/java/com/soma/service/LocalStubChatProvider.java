@@ -0,0 +1,103 @@
+package com.soma.service;
+
+import com.soma.dto.TipCitationDto;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Offline provider that answers from the {@link ChatKnowledgeBase}, cites the retrieved tips, and
+ * emits the answer word by word with a configurable first-token and per-token latency, imitating
+ * a hosted model. A batch costs one first-token latency and is generated in parallel, as on a
+ * batching inference server. A question without a topic of its own is taken as a follow-up to the most
+ * recent topic in the conversation.
+ */
+public class LocalStubChatProvider implements ChatProvider {
+    
+    private final ChatKnowledgeBase knowledgeBase;
+    private final long firstTokenLatencyMs;
+    private final long tokenLatencyMs;
+    
+    public LocalStubChatProvider(ChatKnowledgeBase knowledgeBase, long firstTokenLatencyMs, long tokenLatencyMs) {
+        this.knowledgeBase = knowledgeBase;
+        this.firstTokenLatencyMs = firstTokenLatencyMs;
+        this.tokenLatencyMs = tokenLatencyMs;
+    }
+    
+    @Override
+    public String name() {
+        return "local-stub";
+    }
+    
+    @Override
+    public String complete(ChatPrompt prompt) {
+        return stream(prompt, token -> { });
+    }
+    
+    @Override
+    public String stream(ChatPrompt prompt, Consumer<String> onToken) {
+        String answer = compose(prompt);
+        pause(firstTokenLatencyMs);
+        String[] tokens = tokenize(answer);
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                pause(tokenLatencyMs);
+            }
+            onToken.accept(tokens[i]);
+        }
+        return answer;
+    }
+    
+    @Override
+    public List<String> completeBatch(List<ChatPrompt> prompts) {
+        List<String> answers = prompts.stream().map(this::compose).toList();
+        int longest = answers.stream().mapToInt(answer -> tokenize(answer).length).max().orElse(0);
+        pause(firstTokenLatencyMs);
+        pause(tokenLatencyMs * Math.max(0, longest - 1));
+        return answers;
+    }
+    
+    private String compose(ChatPrompt prompt) {
+        return knowledgeBase.match(prompt.question())
+                .or(() -> recall(prompt.history()))
+                .orElseGet(() -> knowledgeBase.answer(prompt.question())) + cite(prompt.tips());
+    }
+    
+    private static String[] tokenize(String answer) {
+        // Split after each space so the tokens concatenate back to the exact answer
+        return answer.split("(?<= )");
+    }
+    
+    private Optional<String> recall(Conversation history) {
+        for (int i = history.turns().size() - 1; i >= 0; i--) {
+            Optional<String> topic = knowledgeBase.match(history.turns().get(i).question());
+            if (topic.isPresent()) {
+                return topic;
+            }
+        }
+        return knowledgeBase.match(history.summary());
+    }
+    
+    private static String cite(List<TipCitationDto> tips) {
+        if (tips.isEmpty()) {
+            return "";
+        }
+        return tips.stream()
+                .map(tip -> "\"" + tip.getTitle() + "\"")
+                .collect(Collectors.joining(", ", " Related tips from our agronomists: ", "."));
+    }
+    
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Chat generation interrupted", e);
+        }
+    }
+}
\ No newline at end of file
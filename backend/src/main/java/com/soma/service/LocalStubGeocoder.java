@@ -0,0 +1,45 @@
+package com.soma.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Offline geocoder: "lat,lon" text resolves to those coordinates, and any other name to a fixed
+ * point between 60S and 60N derived from a hash of the name, so the stub weather provider can
+ * serve every location consistently until a real geocoding service is configured.
+ */
+public class LocalStubGeocoder implements Geocoder {
+    
+    private static final Pattern COORDINATES = Pattern.compile("\\s*(-?\\d+(?:\\.\\d+)?)\\s*,\\s*(-?\\d+(?:\\.\\d+)?)\\s*");
+    
+    @Override
+    public String name() {
+        return "local-stub";
+    }
+    
+    @Override
+    public Optional<Location> geocode(String location) {
+        if (location == null || location.isBlank()) {
+            return Optional.empty();
+        }
+        Matcher matcher = COORDINATES.matcher(location);
+        if (matcher.matches()) {
+            double latitude = Double.parseDouble(matcher.group(1));
+            double longitude = Double.parseDouble(matcher.group(2));
+            if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                return Optional.empty();
+            }
+            return Optional.of(new Location(latitude, longitude));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(location.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+        double latitude = (hash & 0xFFFF) / 65535.0 * 120 - 60;
+        double longitude = (hash >>> 16) / 65535.0 * 360 - 180;
+        return Optional.of(new Location(latitude, longitude));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.soma.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Offline provider that makes up plausible weather. Values are derived from the grid point and
+ * the current update period, so every lookup of a point within one period sees the same weather,
+ * as it would from a real provider.
+ */
+public class LocalStubWeatherProvider implements WeatherProvider {
+    
+    private static final String[] CONDITIONS = {"Sunny", "Partly Cloudy", "Cloudy", "Rainy", "Overcast"};
+    
+    private final double gridDegrees;
+    private final Duration updateInterval;
+    
+    public LocalStubWeatherProvider(double gridDegrees, Duration updateInterval) {
+        this.gridDegrees = gridDegrees;
+        this.updateInterval = updateInterval;
+    }
+    
+    @Override
+    public String name() {
+        return "local-stub";
+    }
+    
+    @Override
+    public double gridDegrees() {
+        return gridDegrees;
+    }
+    
+    @Override
+    public Duration updateInterval() {
+        return updateInterval;
+    }
+    
+    @Override
+    public WeatherObservation current(GridPoint point) {
+        long period = Instant.now().toEpochMilli() / updateInterval.toMillis();
+        SplittableRandom random = new SplittableRandom(
+                Double.hashCode(point.latitude()) * 31L + Double.hashCode(point.longitude()) + period * 1_000_003L);
+        return new WeatherObservation(
+                20 + random.nextInt(15), // 20-35°C
+                40 + random.nextInt(40), // 40-80%
+                random.nextDouble() * 10, // 0-10mm
+                5 + random.nextInt(15), // 5-20 km/h
+                CONDITIONS[random.nextInt(CONDITIONS.length)],
+                random.nextInt(11), // 0-10
+                5 + random.nextInt(15), // 5-20 km
+                30 + random.nextInt(40), // 30-70%
+                10 + random.nextInt(20), // 10-30
+                Instant.ofEpochMilli(period * updateInterval.toMillis()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.soma.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.soma.exception.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves free-text locations to points of the weather provider's grid. Geocoder answers,
+ * including "not found", are cached by the normalized text, so spelling variants of a place and
+ * every place in one grid cell end up on the same point without asking the geocoder again.
+ */
+@Component
+public class LocationResolver {
+    
+    private final Geocoder geocoder;
+    private final double gridDegrees;
+    private final Cache<String, Optional<Geocoder.Location>> locations;
+    
+    public LocationResolver(
+            Geocoder geocoder,
+            WeatherProvider weatherProvider,
+            @Value("${soma.weather.geocoder.cache.max-entries:50000}") long maxEntries,
+            @Value("${soma.weather.geocoder.cache.ttl-hours:24}") long ttlHours) {
+        this.geocoder = geocoder;
+        this.gridDegrees = weatherProvider.gridDegrees();
+        this.locations = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+    }
+    
+    public GridPoint resolve(String location) {
+        return snap(locate(location));
+    }
+    
+    /**
+     * The location's coordinates as geocoded, before snapping to the grid.
+     */
+    public Geocoder.Location locate(String location) {
+        return locations.get(normalize(location), geocoder::geocode)
+                .orElseThrow(() -> new ResourceNotFoundException("Unknown location: " + location));
+    }
+    
+    public GridPoint snap(Geocoder.Location location) {
+        return GridPoint.snap(location.latitude(), location.longitude(), gridDegrees);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("geocoder", geocoder.name());
+        stats.put("size", locations.estimatedSize());
+        stats.put("hitCount", locations.stats().hitCount());
+        stats.put("missCount", locations.stats().missCount());
+        return stats;
+    }
+    
+    static String normalize(String location) {
+        return location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
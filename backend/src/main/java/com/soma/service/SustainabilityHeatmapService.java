@@ -0,0 +1,214 @@
+package com.soma.service;
+
+import com.soma.dto.HeatmapCellDto;
+import com.soma.dto.HeatmapDto;
+import com.soma.event.FieldChangedEvent;
+import com.soma.event.MetricsSubmittedEvent;
+import com.soma.exception.InvalidRequestException;
+import com.soma.model.FarmField;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.SustainabilityMetricsRepository;
+import com.soma.repository.UserMetricsAggregate;
+import com.soma.util.Geohash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Average carbon and water usage per geohash cell, at every precision up to
+ * {@link #MAX_PRECISION}, for the regional heatmap. A user's metrics count towards the cells of
+ * their farm, located at their first registered field; users without fields are left out.
+ * Totals are kept per user and per cell and updated as metrics are submitted and fields change,
+ * so a heatmap query only reads the cells in its viewport, however many metrics there are.
+ */
+@Service
+public class SustainabilityHeatmapService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SustainabilityHeatmapService.class);
+    
+    // Precision 6 cells are about 1.2 x 0.6 km, finer than any farm needs to be placed
+    static final int MAX_PRECISION = 6;
+    
+    private final SustainabilityMetricsRepository metricsRepository;
+    private final FarmFieldRepository fieldRepository;
+    private final int maxCells;
+    private final Map<Long, Totals> totalsByUser = new HashMap<>();
+    // Finest-precision cell of each located user's farm; coarser cells are its prefixes
+    private final Map<Long, String> cellByUser = new HashMap<>();
+    private final List<Map<String, Totals>> cellsByPrecision = new ArrayList<>();
+    
+    public SustainabilityHeatmapService(
+            SustainabilityMetricsRepository metricsRepository,
+            FarmFieldRepository fieldRepository,
+            @Value("${soma.metrics.heatmap.max-cells:1024}") int maxCells) {
+        this.metricsRepository = metricsRepository;
+        this.fieldRepository = fieldRepository;
+        this.maxCells = maxCells;
+        for (int precision = 1; precision <= MAX_PRECISION; precision++) {
+            cellsByPrecision.add(new HashMap<>());
+        }
+    }
+    
+    /**
+     * Cells inside the viewport at the finest precision that keeps their number within the
+     * configured maximum, or at the given precision if one is requested. Only cells with metrics
+     * are returned.
+     */
+    public synchronized HeatmapDto getHeatmap(double south, double west, double north, double east, Integer precision) {
+        if (!(south >= -90 && north <= 90 && south <= north && west >= -180 && west <= 180 && east >= -180 && east <= 180)) {
+            throw new InvalidRequestException("Invalid viewport");
+        }
+        int level = precision != null ? precision : precisionFor(south, west, north, east);
+        if (level < 1 || level > MAX_PRECISION || Geohash.coveringSize(south, west, north, east, level) > maxCells) {
+            throw new InvalidRequestException("Precision " + level + " is out of range for the viewport");
+        }
+        
+        Map<String, Totals> cells = cellsByPrecision.get(level - 1);
+        List<HeatmapCellDto> result = new ArrayList<>();
+        for (String geohash : Geohash.covering(south, west, north, east, level)) {
+            Totals totals = cells.get(geohash);
+            if (totals != null && totals.records > 0) {
+                Geohash.Box box = Geohash.decode(geohash);
+                result.add(new HeatmapCellDto(geohash, box.centerLatitude(), box.centerLongitude(), totals.farms,
+                        totals.records, totals.averageCarbon(), totals.averageWater()));
+            }
+        }
+        result.sort(Comparator.comparing(HeatmapCellDto::getGeohash));
+        return new HeatmapDto(level, result);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        totalsByUser.clear();
+        cellByUser.clear();
+        cellsByPrecision.forEach(Map::clear);
+        
+        for (UserMetricsAggregate aggregate : metricsRepository.summarizeByUser()) {
+            Totals totals = new Totals();
+            totals.records = aggregate.getRecordCount();
+            totals.carbonSum = aggregate.getCarbonSum() != null ? aggregate.getCarbonSum() : 0.0;
+            totals.carbonCount = aggregate.getCarbonCount();
+            totals.waterSum = aggregate.getWaterSum() != null ? aggregate.getWaterSum() : 0.0;
+            totals.waterCount = aggregate.getWaterCount();
+            totalsByUser.put(aggregate.getUserId(), totals);
+        }
+        Map<Long, FarmField> firstFields = new HashMap<>();
+        for (FarmField field : fieldRepository.findAll()) {
+            firstFields.merge(field.getUserId(), field, (a, b) -> isBefore(b, a) ? b : a);
+        }
+        firstFields.forEach(this::locate);
+        logger.info("Aggregated sustainability metrics of {} users into heatmap cells, {} of them located",
+                totalsByUser.size(), cellByUser.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMetricsSubmitted(MetricsSubmittedEvent event) {
+        Totals delta = new Totals();
+        delta.records = 1;
+        if (event.carbonUsage() != null) {
+            delta.carbonSum = event.carbonUsage();
+            delta.carbonCount = 1;
+        }
+        if (event.waterUsage() != null) {
+            delta.waterSum = event.waterUsage();
+            delta.waterCount = 1;
+        }
+        totalsByUser.computeIfAbsent(event.userId(), id -> new Totals()).add(delta, 1);
+        String cell = cellByUser.get(event.userId());
+        if (cell != null) {
+            for (int level = 1; level <= MAX_PRECISION; level++) {
+                cellsByPrecision.get(level - 1).get(cell.substring(0, level)).add(delta, 1);
+            }
+        }
+    }
+    
+    /**
+     * A user's farm moves when their first field is registered or removed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onFieldChanged(FieldChangedEvent event) {
+        List<FarmField> fields = fieldRepository.findByUserIdOrderByCreatedAtAsc(event.userId());
+        locate(event.userId(), fields.isEmpty() ? null : fields.get(0));
+    }
+    
+    /**
+     * Moves the user's totals from their current cells to those of the field, or out of the
+     * heatmap if there is none.
+     */
+    private void locate(Long userId, FarmField field) {
+        String cell = field != null ? Geohash.encode(field.getLatitude(), field.getLongitude(), MAX_PRECISION) : null;
+        String previous = cell != null ? cellByUser.put(userId, cell) : cellByUser.remove(userId);
+        if (cell != null && cell.equals(previous)) {
+            return;
+        }
+        Totals totals = totalsByUser.getOrDefault(userId, new Totals());
+        for (int level = 1; level <= MAX_PRECISION; level++) {
+            Map<String, Totals> cells = cellsByPrecision.get(level - 1);
+            if (previous != null) {
+                String key = previous.substring(0, level);
+                Totals old = cells.get(key);
+                old.add(totals, -1);
+                old.farms--;
+                if (old.farms == 0) {
+                    cells.remove(key);
+                }
+            }
+            if (cell != null) {
+                Totals current = cells.computeIfAbsent(cell.substring(0, level), key -> new Totals());
+                current.add(totals, 1);
+                current.farms++;
+            }
+        }
+    }
+    
+    private int precisionFor(double south, double west, double north, double east) {
+        for (int level = MAX_PRECISION; level > 1; level--) {
+            if (Geohash.coveringSize(south, west, north, east, level) <= maxCells) {
+                return level;
+            }
+        }
+        return 1;
+    }
+    
+    private static boolean isBefore(FarmField a, FarmField b) {
+        if (a.getCreatedAt() != null && b.getCreatedAt() != null && !a.getCreatedAt().equals(b.getCreatedAt())) {
+            return a.getCreatedAt().isBefore(b.getCreatedAt());
+        }
+        return a.getId() < b.getId();
+    }
+    
+    private static final class Totals {
+        int farms;
+        long records;
+        double carbonSum;
+        long carbonCount;
+        double waterSum;
+        long waterCount;
+        
+        void add(Totals other, int sign) {
+            records += sign * other.records;
+            carbonSum += sign * other.carbonSum;
+            carbonCount += sign * other.carbonCount;
+            waterSum += sign * other.waterSum;
+            waterCount += sign * other.waterCount;
+        }
+        
+        Double averageCarbon() {
+            return carbonCount == 0 ? null : carbonSum / carbonCount;
+        }
+        
+        Double averageWater() {
+            return waterCount == 0 ? null : waterSum / waterCount;
+        }
+    }
+}
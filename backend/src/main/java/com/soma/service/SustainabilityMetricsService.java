@@ -1,11 +1,13 @@
 package com.soma.service;
 
 import com.soma.dto.SustainabilityMetricsDto;
+import com.soma.event.MetricsSubmittedEvent;
 import com.soma.exception.ResourceNotFoundException;
 import com.soma.model.SustainabilityMetrics;
 import com.soma.repository.SustainabilityMetricsRepository;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,10 +23,13 @@ public class SustainabilityMetricsService {
     
     private final SustainabilityMetricsRepository metricsRepository;
     private final ModelMapper modelMapper;
+    private final ApplicationEventPublisher eventPublisher;
     
     public SustainabilityMetrics submitMetrics(SustainabilityMetricsDto metricsDto) {
         SustainabilityMetrics metrics = modelMapper.map(metricsDto, SustainabilityMetrics.class);
-        return metricsRepository.save(metrics);
+        SustainabilityMetrics savedMetrics = metricsRepository.save(metrics);
+        eventPublisher.publishEvent(new MetricsSubmittedEvent(savedMetrics));
+        return savedMetrics;
     }
     
     @Transactional(readOnly = true)
@@ -50,7 +55,7 @@ public class SustainabilityMetricsService {
                     .mapToDouble(SustainabilityMetrics::getCarbonUsage)
                     .average()
                     .orElse(0.0);
-                    
+            
             double avgWaterUsage = allMetrics.stream()
                     .filter(m -> m.getWaterUsage() != null)
                     .mapToDouble(SustainabilityMetrics::getWaterUsage)
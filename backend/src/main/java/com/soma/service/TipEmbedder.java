@@ -0,0 +1,11 @@
+package com.soma.service;
+
+/**
+ * Turns text into a fixed-length unit vector so related tips and questions land close together.
+ */
+public interface TipEmbedder {
+    
+    int dimensions();
+    
+    float[] embed(String text);
+}
\ No newline at end of file
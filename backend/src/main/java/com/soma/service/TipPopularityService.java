@@ -0,0 +1,193 @@
+package com.soma.service;
+
+import com.soma.dto.PopularTipDto;
+import com.soma.event.TipChangedEvent;
+import com.soma.exception.ResourceNotFoundException;
+import com.soma.model.Tip;
+import com.soma.model.TipStats;
+import com.soma.repository.TipRepository;
+import com.soma.repository.TipStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks tip views and likes in striped in-memory counters so the read path never writes
+ * to the database. Deltas are flushed to {@code tip_stats} in one batch on a fixed delay,
+ * which bounds what a crash can lose to a single flush interval. The most popular tips are
+ * kept as an immutable snapshot rebuilt on every flush and served straight from memory.
+ */
+@Service
+@RequiredArgsConstructor
+public class TipPopularityService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TipPopularityService.class);
+    
+    private final TipRepository tipRepository;
+    private final TipStatsRepository tipStatsRepository;
+    private final TipStatsWriter tipStatsWriter;
+    
+    @Value("${soma.tips.popularity.top-k:50}")
+    private int topK;
+    
+    @Value("${soma.tips.popularity.like-weight:5.0}")
+    private double likeWeight;
+    
+    private final Map<Long, TipCounter> counters = new ConcurrentHashMap<>();
+    private volatile List<PopularTipDto> popularTips = List.of();
+    
+    public void recordView(Long tipId) {
+        counter(tipId).pendingViews.increment();
+    }
+    
+    public void recordLike(Long tipId) {
+        if (!counters.containsKey(tipId) && !tipRepository.existsById(tipId)) {
+            throw new ResourceNotFoundException("Tip not found with id: " + tipId);
+        }
+        counter(tipId).pendingLikes.increment();
+    }
+    
+    public List<PopularTipDto> getPopularTips(int limit) {
+        List<PopularTipDto> snapshot = popularTips;
+        return snapshot.subList(0, Math.min(Math.max(limit, 0), snapshot.size()));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void restore() {
+        List<TipStats> stored = tipStatsRepository.findAll();
+        for (TipStats stats : stored) {
+            TipCounter counter = counter(stats.getTipId());
+            counter.persistedViews = stats.getViewCount();
+            counter.persistedLikes = stats.getLikeCount();
+        }
+        rebuildPopularTips();
+        logger.info("Restored popularity counters for {} tips", stored.size());
+    }
+    
+    @Scheduled(fixedDelayString = "${soma.tips.popularity.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        Map<TipCounter, TipStatsWriter.Delta> drained = new HashMap<>();
+        Map<Long, TipStatsWriter.Delta> deltas = new HashMap<>();
+        
+        counters.forEach((tipId, counter) -> {
+            long views = counter.pendingViews.sumThenReset();
+            long likes = counter.pendingLikes.sumThenReset();
+            if (views != 0 || likes != 0) {
+                // Move the drained amounts into the persisted totals right away so readers never undercount
+                counter.persistedViews += views;
+                counter.persistedLikes += likes;
+                TipStatsWriter.Delta delta = new TipStatsWriter.Delta(views, likes);
+                drained.put(counter, delta);
+                deltas.put(tipId, delta);
+            }
+        });
+        
+        if (!deltas.isEmpty()) {
+            try {
+                tipStatsWriter.applyDeltas(deltas);
+                logger.debug("Flushed popularity deltas for {} tips", deltas.size());
+            } catch (Exception e) {
+                logger.warn("Failed to flush popularity deltas, retrying on next flush", e);
+                drained.forEach((counter, delta) -> {
+                    counter.persistedViews -= delta.views();
+                    counter.persistedLikes -= delta.likes();
+                    counter.pendingViews.add(delta.views());
+                    counter.pendingLikes.add(delta.likes());
+                });
+            }
+        }
+        
+        rebuildPopularTips();
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+    
+    /**
+     * Drops a deleted tip's counter and stored stats, whether or not it has been counted since
+     * startup. Holds the flush lock, so a flush in progress cannot write the tip's drained deltas
+     * back after its row is gone.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTipChanged(TipChangedEvent event) {
+        if (event.type() == TipChangedEvent.Type.DELETED) {
+            counters.remove(event.tipId());
+            tipStatsWriter.deleteStats(event.tipId());
+            popularTips = popularTips.stream()
+                    .filter(tip -> !tip.getId().equals(event.tipId()))
+                    .toList();
+        }
+    }
+    
+    private TipCounter counter(Long tipId) {
+        return counters.computeIfAbsent(tipId, id -> new TipCounter());
+    }
+    
+    private void rebuildPopularTips() {
+        Comparator<Scored> byScore = Comparator.comparingDouble(Scored::score)
+                .thenComparing(Scored::tipId, Comparator.reverseOrder());
+        PriorityQueue<Scored> top = new PriorityQueue<>(byScore);
+        
+        counters.forEach((tipId, counter) -> {
+            long views = counter.views();
+            long likes = counter.likes();
+            if (views == 0 && likes == 0) {
+                return;
+            }
+            top.offer(new Scored(tipId, views, likes, views + likes * likeWeight));
+            if (top.size() > topK) {
+                top.poll();
+            }
+        });
+        
+        List<Scored> ranked = new ArrayList<>(top);
+        ranked.sort(byScore.reversed());
+        
+        Map<Long, Tip> tips = tipRepository.findAllById(ranked.stream().map(Scored::tipId).toList()).stream()
+                .collect(Collectors.toMap(Tip::getId, Function.identity()));
+        
+        popularTips = ranked.stream()
+                .filter(scored -> tips.containsKey(scored.tipId()))
+                .map(scored -> new PopularTipDto(scored.tipId(), tips.get(scored.tipId()).getTitle(),
+                        scored.views(), scored.likes(), scored.score()))
+                .toList();
+    }
+    
+    private record Scored(Long tipId, long views, long likes, double score) {
+    }
+    
+    private static final class TipCounter {
+        private final LongAdder pendingViews = new LongAdder();
+        private final LongAdder pendingLikes = new LongAdder();
+        private volatile long persistedViews;
+        private volatile long persistedLikes;
+        
+        long views() {
+            return persistedViews + pendingViews.sum();
+        }
+        
+        long likes() {
+            return persistedLikes + pendingLikes.sum();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,328 @@
+package com.soma.service;
+
+import com.soma.dto.TipRecommendationDto;
+import com.soma.event.MetricsSubmittedEvent;
+import com.soma.event.TipChangedEvent;
+import com.soma.model.SustainabilityMetrics;
+import com.soma.model.Tip;
+import com.soma.repository.SustainabilityMetricsRepository;
+import com.soma.repository.TipRepository;
+import com.soma.repository.UserMetricsAggregate;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputes each user's top-N tips by scoring tip feature vectors against the user's metric
+ * profile. Feature vectors are derived once per tip edit and profiles are maintained from running
+ * totals, so metric submissions and tip edits only rescore what they touch, and reads are a
+ * single map lookup.
+ */
+@Service
+@RequiredArgsConstructor
+public class TipRecommendationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TipRecommendationService.class);
+    
+    private static final int WATER = 0;
+    private static final int CARBON = 1;
+    private static final int SOIL = 2;
+    
+    // Keyword stems that map tip content onto the dimensions of a user's metric profile
+    private static final String[][] FEATURE_KEYWORDS = {
+        {"water", "irrigat", "drip", "moisture", "mulch", "rainwater", "drought"},
+        {"carbon", "emission", "till", "fertilizer", "fuel", "sequest", "agroforestry"},
+        {"soil", "compost", "cover crop", "rotation", "organic matter", "erosion"}
+    };
+    
+    private static final String[] REASONS = {
+        "Addresses your water usage",
+        "Helps lower your carbon footprint",
+        "Builds long-term soil health"
+    };
+    
+    // Soil health has no metric of its own, so every profile carries a fixed baseline interest in it
+    private static final double SOIL_BASELINE = 0.5;
+    
+    private static final Comparator<TipRecommendationDto> RANKING =
+            Comparator.comparingDouble(TipRecommendationDto::getScore).reversed()
+                    .thenComparing(TipRecommendationDto::getTipId);
+    
+    private final TipRepository tipRepository;
+    private final SustainabilityMetricsRepository metricsRepository;
+    
+    @Value("${soma.recommendations.top-n:5}")
+    private int topN;
+    
+    @Value("${soma.recommendations.reference-carbon-usage:100.0}")
+    private double referenceCarbonUsage;
+    
+    @Value("${soma.recommendations.reference-water-usage:500.0}")
+    private double referenceWaterUsage;
+    
+    private final Map<Long, TipFeatures> tipFeatures = new ConcurrentHashMap<>();
+    private final Map<Long, UserProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<Long, UserRecommendations> recommendations = new ConcurrentHashMap<>();
+    private volatile List<TipRecommendationDto> defaultRecommendations = List.of();
+    
+    /**
+     * The user's metrics summary, with the same keys as
+     * {@link SustainabilityMetricsService#getUserMetricsSummary}, and the user's precomputed tips
+     * under {@code recommendations}. Both come from the in-memory profile.
+     */
+    public Map<String, Object> getRecommendations(Long userId) {
+        UserRecommendations precomputed = recommendations.get(userId);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("userId", userId);
+        if (precomputed != null) {
+            result.put("totalRecords", (int) precomputed.totalRecords());
+            result.put("averageCarbonUsage", precomputed.averageCarbonUsage());
+            result.put("averageWaterUsage", precomputed.averageWaterUsage());
+            result.put("latestMetrics", precomputed.latestMetrics());
+            result.put("recommendations", precomputed.tips());
+        } else {
+            result.put("totalRecords", 0);
+            result.put("averageCarbonUsage", 0.0);
+            result.put("averageWaterUsage", 0.0);
+            result.put("latestMetrics", null);
+            result.put("recommendations", defaultRecommendations);
+        }
+        return result;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        tipFeatures.clear();
+        profiles.clear();
+        recommendations.clear();
+        
+        for (Tip tip : tipRepository.findAll()) {
+            tipFeatures.put(tip.getId(), TipFeatures.of(tip));
+        }
+        for (UserMetricsAggregate aggregate : metricsRepository.summarizeByUser()) {
+            UserProfile profile = new UserProfile();
+            profile.recordCount = aggregate.getRecordCount();
+            profile.carbonSum = aggregate.getCarbonSum() != null ? aggregate.getCarbonSum() : 0.0;
+            profile.carbonCount = aggregate.getCarbonCount();
+            profile.waterSum = aggregate.getWaterSum() != null ? aggregate.getWaterSum() : 0.0;
+            profile.waterCount = aggregate.getWaterCount();
+            profiles.put(aggregate.getUserId(), profile);
+        }
+        for (SustainabilityMetrics latest : metricsRepository.findLatestByUser()) {
+            UserProfile profile = profiles.get(latest.getUserId());
+            if (profile != null) {
+                profile.latestMetrics = latest;
+            }
+        }
+        
+        profiles.forEach((userId, profile) -> recommendations.put(userId, profile.with(rank(profileVector(profile)))));
+        defaultRecommendations = rank(defaultVector());
+        logger.info("Precomputed tip recommendations for {} users over {} tips", profiles.size(), tipFeatures.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMetricsSubmitted(MetricsSubmittedEvent event) {
+        UserProfile profile = profiles.computeIfAbsent(event.userId(), id -> new UserProfile());
+        profile.recordCount++;
+        // Records of the same date are ordered by when they were saved, as in findLatestByUser
+        if (profile.latestMetrics == null || !event.date().isBefore(profile.latestMetrics.getDate())) {
+            profile.latestMetrics = event.metrics();
+        }
+        if (event.carbonUsage() != null) {
+            profile.carbonSum += event.carbonUsage();
+            profile.carbonCount++;
+        }
+        if (event.waterUsage() != null) {
+            profile.waterSum += event.waterUsage();
+            profile.waterCount++;
+        }
+        recommendations.put(event.userId(), profile.with(rank(profileVector(profile))));
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTipChanged(TipChangedEvent event) {
+        if (event.type() == TipChangedEvent.Type.DELETED) {
+            tipFeatures.remove(event.tipId());
+            profiles.forEach((userId, profile) -> {
+                UserRecommendations current = recommendations.get(userId);
+                if (current != null && contains(current.tips(), event.tipId())) {
+                    recommendations.put(userId, profile.with(rank(profileVector(profile))));
+                }
+            });
+            if (contains(defaultRecommendations, event.tipId())) {
+                defaultRecommendations = rank(defaultVector());
+            }
+            return;
+        }
+        
+        Tip tip = tipRepository.findById(event.tipId()).orElse(null);
+        if (tip == null) {
+            return;
+        }
+        TipFeatures features = TipFeatures.of(tip);
+        tipFeatures.put(tip.getId(), features);
+        
+        profiles.forEach((userId, profile) -> {
+            double[] vector = profileVector(profile);
+            UserRecommendations current = recommendations.get(userId);
+            List<TipRecommendationDto> merged = current != null ? merge(current.tips(), features, vector) : null;
+            recommendations.put(userId, profile.with(merged != null ? merged : rank(vector)));
+        });
+        List<TipRecommendationDto> merged = merge(defaultRecommendations, features, defaultVector());
+        defaultRecommendations = merged != null ? merged : rank(defaultVector());
+    }
+    
+    /**
+     * Folds a single changed tip into an existing top-N list. Returns null when the list can no
+     * longer be trusted, i.e. a tip already in it dropped in score and something outside the list
+     * might now outrank it.
+     */
+    private List<TipRecommendationDto> merge(List<TipRecommendationDto> current, TipFeatures features, double[] vector) {
+        if (current == null) {
+            return null;
+        }
+        TipRecommendationDto candidate = score(features, vector);
+        TipRecommendationDto previous = current.stream()
+                .filter(rec -> rec.getTipId().equals(features.tipId()))
+                .findFirst()
+                .orElse(null);
+        
+        if (previous != null && current.size() >= topN
+                && (candidate == null || candidate.getScore() < previous.getScore())) {
+            return null;
+        }
+        
+        List<TipRecommendationDto> merged = new ArrayList<>(current);
+        merged.remove(previous);
+        if (candidate != null) {
+            merged.add(candidate);
+        }
+        merged.sort(RANKING);
+        return List.copyOf(merged.subList(0, Math.min(topN, merged.size())));
+    }
+    
+    private List<TipRecommendationDto> rank(double[] vector) {
+        PriorityQueue<TipRecommendationDto> top = new PriorityQueue<>(RANKING.reversed());
+        for (TipFeatures features : tipFeatures.values()) {
+            TipRecommendationDto candidate = score(features, vector);
+            if (candidate == null) {
+                continue;
+            }
+            top.offer(candidate);
+            if (top.size() > topN) {
+                top.poll();
+            }
+        }
+        List<TipRecommendationDto> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        return List.copyOf(ranked);
+    }
+    
+    private TipRecommendationDto score(TipFeatures features, double[] vector) {
+        double score = 0.0;
+        int dominant = SOIL;
+        double dominantContribution = 0.0;
+        for (int i = 0; i < vector.length; i++) {
+            double contribution = vector[i] * features.vector()[i];
+            score += contribution;
+            if (contribution > dominantContribution) {
+                dominantContribution = contribution;
+                dominant = i;
+            }
+        }
+        if (score <= 0.0) {
+            return null;
+        }
+        return new TipRecommendationDto(features.tipId(), features.title(),
+                Math.round(score * 1000.0) / 1000.0, REASONS[dominant]);
+    }
+    
+    private double[] profileVector(UserProfile profile) {
+        double[] vector = new double[3];
+        vector[WATER] = profile.waterCount > 0 ? profile.averageWaterUsage() / referenceWaterUsage : 0.0;
+        vector[CARBON] = profile.carbonCount > 0 ? profile.averageCarbonUsage() / referenceCarbonUsage : 0.0;
+        vector[SOIL] = SOIL_BASELINE;
+        return vector;
+    }
+    
+    private double[] defaultVector() {
+        return new double[] {1.0, 1.0, SOIL_BASELINE};
+    }
+    
+    private static boolean contains(List<TipRecommendationDto> list, Long tipId) {
+        return list != null && list.stream().anyMatch(rec -> rec.getTipId().equals(tipId));
+    }
+    
+    private record TipFeatures(Long tipId, String title, double[] vector) {
+        
+        static TipFeatures of(Tip tip) {
+            String title = tip.getTitle().toLowerCase(Locale.ROOT);
+            String description = tip.getDescription().toLowerCase(Locale.ROOT);
+            
+            double[] vector = new double[FEATURE_KEYWORDS.length];
+            double norm = 0.0;
+            for (int i = 0; i < FEATURE_KEYWORDS.length; i++) {
+                for (String keyword : FEATURE_KEYWORDS[i]) {
+                    // Title mentions weigh double: they say what the tip is about, not just what it touches
+                    vector[i] += 2 * occurrences(title, keyword) + occurrences(description, keyword);
+                }
+                norm += vector[i] * vector[i];
+            }
+            if (norm > 0) {
+                norm = Math.sqrt(norm);
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] /= norm;
+                }
+            }
+            return new TipFeatures(tip.getId(), tip.getTitle(), vector);
+        }
+        
+        private static int occurrences(String text, String keyword) {
+            int count = 0;
+            for (int index = text.indexOf(keyword); index >= 0; index = text.indexOf(keyword, index + keyword.length())) {
+                count++;
+            }
+            return count;
+        }
+    }
+    
+    private record UserRecommendations(long totalRecords, double averageCarbonUsage, double averageWaterUsage,
+                                       SustainabilityMetrics latestMetrics, List<TipRecommendationDto> tips) {
+    }
+    
+    private static final class UserProfile {
+        private long recordCount;
+        private double carbonSum;
+        private long carbonCount;
+        private double waterSum;
+        private long waterCount;
+        private SustainabilityMetrics latestMetrics;
+        
+        double averageCarbonUsage() {
+            return carbonCount > 0 ? carbonSum / carbonCount : 0.0;
+        }
+        
+        double averageWaterUsage() {
+            return waterCount > 0 ? waterSum / waterCount : 0.0;
+        }
+        
+        UserRecommendations with(List<TipRecommendationDto> tips) {
+            return new UserRecommendations(recordCount, averageCarbonUsage(), averageWaterUsage(), latestMetrics, tips);
+        }
+    }
+}
\ No newline at end of file
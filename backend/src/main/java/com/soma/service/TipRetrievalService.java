@@ -0,0 +1,86 @@
+package com.soma.service;
+
+import com.soma.dto.TipCitationDto;
+import com.soma.event.TipChangedEvent;
+import com.soma.model.Tip;
+import com.soma.repository.TipRepository;
+import com.soma.util.VectorIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retrieves the catalog tips most relevant to a chat question so answers can draw on and cite
+ * the agronomists' content. Tips are embedded once and kept in an in-memory {@link VectorIndex};
+ * writes through {@link TipService} update the index incrementally.
+ */
+@Service
+public class TipRetrievalService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TipRetrievalService.class);
+    
+    private final TipRepository tipRepository;
+    private final TipEmbedder tipEmbedder;
+    private final ChatResponseCache responseCache;
+    private final int topK;
+    private final double minScore;
+    private final VectorIndex index;
+    private final Map<Long, String> titles = new ConcurrentHashMap<>();
+    
+    public TipRetrievalService(
+            TipRepository tipRepository,
+            TipEmbedder tipEmbedder,
+            ChatResponseCache responseCache,
+            @Value("${soma.ai.retrieval.top-k:3}") int topK,
+            @Value("${soma.ai.retrieval.min-score:0.2}") double minScore) {
+        this.tipRepository = tipRepository;
+        this.tipEmbedder = tipEmbedder;
+        this.responseCache = responseCache;
+        this.topK = topK;
+        this.minScore = minScore;
+        this.index = new VectorIndex(tipEmbedder.dimensions(), 1024);
+    }
+    
+    public List<TipCitationDto> retrieve(String question) {
+        if (index.size() == 0) {
+            return List.of();
+        }
+        return index.search(tipEmbedder.embed(question), topK).stream()
+                .filter(hit -> hit.score() >= minScore && titles.containsKey(hit.id()))
+                .map(hit -> new TipCitationDto(hit.id(), titles.get(hit.id()), Math.round(hit.score() * 1000.0) / 1000.0))
+                .toList();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexAll() {
+        List<Tip> tips = tipRepository.findAll();
+        tips.forEach(this::index);
+        logger.info("Indexed {} tips for chat retrieval", tips.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTipChanged(TipChangedEvent event) {
+        if (event.type() == TipChangedEvent.Type.DELETED) {
+            index.remove(event.tipId());
+            titles.remove(event.tipId());
+        } else {
+            tipRepository.findById(event.tipId()).ifPresent(this::index);
+        }
+        // Cached answers cite tips, so they are stale once the catalog changes
+        responseCache.invalidateAll();
+    }
+    
+    void index(Tip tip) {
+        // Repeating the title weights it above the description, since it names the tip's topic
+        index.upsert(tip.getId(), tipEmbedder.embed(tip.getTitle() + " " + tip.getTitle() + " " + tip.getDescription()));
+        titles.put(tip.getId(), tip.getTitle());
+    }
+}
\ No newline at end of file
@@ -1,11 +1,13 @@
 package com.soma.service;
 
 import com.soma.dto.TipDto;
+import com.soma.event.TipChangedEvent;
 import com.soma.exception.ResourceNotFoundException;
 import com.soma.model.Tip;
 import com.soma.repository.TipRepository;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,10 +20,13 @@ public class TipService {
     
     private final TipRepository tipRepository;
     private final ModelMapper modelMapper;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Tip createTip(TipDto tipDto) {
         Tip tip = modelMapper.map(tipDto, Tip.class);
-        return tipRepository.save(tip);
+        Tip savedTip = tipRepository.save(tip);
+        eventPublisher.publishEvent(new TipChangedEvent(savedTip.getId(), TipChangedEvent.Type.CREATED));
+        return savedTip;
     }
     
     @Transactional(readOnly = true)
@@ -39,7 +44,9 @@ public class TipService {
         Tip existingTip = getTipById(id);
         existingTip.setTitle(tipDto.getTitle());
         existingTip.setDescription(tipDto.getDescription());
-        return tipRepository.save(existingTip);
+        Tip savedTip = tipRepository.save(existingTip);
+        eventPublisher.publishEvent(new TipChangedEvent(id, TipChangedEvent.Type.UPDATED));
+        return savedTip;
     }
     
     public void deleteTip(Long id) {
@@ -47,5 +54,6 @@ public class TipService {
             throw new ResourceNotFoundException("Tip not found with id: " + id);
         }
         tipRepository.deleteById(id);
+        eventPublisher.publishEvent(new TipChangedEvent(id, TipChangedEvent.Type.DELETED));
     }
 }
\ No newline at end of file
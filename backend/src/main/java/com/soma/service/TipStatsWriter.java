@@ -0,0 +1,57 @@
+package com.soma.service;
+
+import com.soma.model.TipStats;
+import com.soma.repository.TipStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persists accumulated tip view/like deltas. Kept separate from {@link TipPopularityService}
+ * so the whole batch runs in one transaction and a failed commit can be retried by the caller.
+ */
+@Component
+@RequiredArgsConstructor
+public class TipStatsWriter {
+    
+    private final TipStatsRepository tipStatsRepository;
+    
+    @Transactional
+    public void applyDeltas(Map<Long, Delta> deltas) {
+        Map<Long, TipStats> existing = tipStatsRepository.findAllById(deltas.keySet()).stream()
+                .collect(Collectors.toMap(TipStats::getTipId, Function.identity()));
+        
+        List<TipStats> created = new ArrayList<>();
+        deltas.forEach((tipId, delta) -> {
+            TipStats stats = existing.get(tipId);
+            if (stats == null) {
+                stats = new TipStats(tipId);
+                created.add(stats);
+            }
+            stats.setViewCount(stats.getViewCount() + delta.views());
+            stats.setLikeCount(stats.getLikeCount() + delta.likes());
+        });
+        
+        // Managed rows are flushed by dirty checking; only new rows need an explicit save
+        tipStatsRepository.saveAll(created);
+    }
+    
+    /**
+     * Deletes a tip's stored stats, if it has any. Runs in a transaction of its own, since the
+     * deletion is announced after the tip's transaction has already committed.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void deleteStats(Long tipId) {
+        tipStatsRepository.deleteById(tipId);
+    }
+    
+    public record Delta(long views, long likes) {
+    }
+}
\ No newline at end of file
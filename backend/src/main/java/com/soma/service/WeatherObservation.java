@@ -0,0 +1,28 @@
+package com.soma.service;
+
+import java.time.Instant;
+
+/**
+ * Current conditions at one grid point, as published by a {@link WeatherProvider}.
+ *
+ * @param temperature        air temperature in degrees Celsius
+ * @param humidity           relative humidity in percent
+ * @param precipitation      precipitation over the last hour in mm
+ * @param windSpeed          wind speed in km/h
+ * @param uvIndex            UV index, 0-11+
+ * @param visibility         visibility in km
+ * @param soilMoisture       volumetric soil moisture in percent
+ * @param growingDegreeDays  growing degree days accumulated today
+ */
+public record WeatherObservation(
+        double temperature,
+        int humidity,
+        double precipitation,
+        double windSpeed,
+        String condition,
+        int uvIndex,
+        int visibility,
+        int soilMoisture,
+        int growingDegreeDays,
+        Instant observedAt) {
+}
\ No newline at end of file
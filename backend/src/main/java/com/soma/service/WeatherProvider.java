@@ -0,0 +1,25 @@
+package com.soma.service;
+
+import java.time.Duration;
+
+/**
+ * A source of weather observations on its own grid, e.g. a national weather service or the local
+ * stub. Lookups are cached per grid point for the provider's update interval, so a provider is
+ * asked about each grid point at most once per update.
+ */
+public interface WeatherProvider {
+    
+    String name();
+    
+    /**
+     * Spacing of the provider's grid in degrees; locations are snapped to it before lookup.
+     */
+    double gridDegrees();
+    
+    /**
+     * How often the provider publishes new observations.
+     */
+    Duration updateInterval();
+    
+    WeatherObservation current(GridPoint point);
+}
\ No newline at end of file
@@ -1,52 +1,241 @@
 package com.soma.service;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.soma.dto.CurrentWeatherDto;
+import com.soma.dto.ForecastDto;
+import com.soma.dto.ForecastHourDto;
+import com.soma.exception.InvalidRequestException;
+import com.soma.exception.ResourceNotFoundException;
+import com.soma.util.ForecastGrid;
+import com.soma.util.StaleWhileRevalidateCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 
 @Service
 public class WeatherService {
     
-    private final Random random = new Random();
+    static final int MAX_FORECAST_HOURS = 240;
+    private static final double GDD_BASE_TEMPERATURE = 10;
     
-    public Map<String, Object> getCurrentWeather(String location) {
-        // Mock weather data - in production this would call OpenWeatherMap API
-        Map<String, Object> weather = new HashMap<>();
-        
-        weather.put("location", location);
-        weather.put("temperature", 20 + random.nextInt(15)); // 20-35°C
-        weather.put("humidity", 40 + random.nextInt(40)); // 40-80%
-        weather.put("precipitation", random.nextDouble() * 10); // 0-10mm
-        weather.put("windSpeed", 5 + random.nextInt(15)); // 5-20 km/h
-        weather.put("condition", getRandomCondition());
-        weather.put("uvIndex", random.nextInt(11)); // 0-10
-        weather.put("visibility", 5 + random.nextInt(15)); // 5-20 km
+    private final WeatherProvider provider;
+    private final LocationResolver locationResolver;
+    private final ForecastGridStore forecastStore;
+    private final Clock clock;
+    private final StaleWhileRevalidateCache<GridPoint, WeatherObservation> cache;
+    
+    @Autowired
+    public WeatherService(
+            WeatherProvider provider,
+            LocationResolver locationResolver,
+            ForecastGridStore forecastStore,
+            @Value("${soma.weather.cache.max-entries:10000}") long maxEntries,
+            @Value("${soma.weather.cache.hard-ttl-minutes:60}") long hardTtlMinutes,
+            @Qualifier("weatherRefreshExecutor") Executor refreshExecutor) {
+        this(provider, locationResolver, forecastStore, maxEntries, Duration.ofMinutes(hardTtlMinutes), refreshExecutor,
+                Clock.systemUTC(), Ticker.systemTicker());
+    }
+    
+    WeatherService(WeatherProvider provider, LocationResolver locationResolver, ForecastGridStore forecastStore,
+                   long maxEntries, Duration hardTtl, Executor refreshExecutor, Clock clock, Ticker ticker) {
+        this.provider = provider;
+        this.locationResolver = locationResolver;
+        this.forecastStore = forecastStore;
+        this.clock = clock;
+        this.cache = new StaleWhileRevalidateCache<>(maxEntries, this::untilNextUpdate, hardTtl, refreshExecutor, ticker);
+    }
+    
+    /**
+     * Returns the current weather at the location. Where the latest forecast run covers it, the
+     * weather is interpolated from the run for the location and time; its age is that of the run.
+     * Elsewhere it comes from the provider at the grid point the location falls in, cached per
+     * grid point until the provider publishes its next update and then refreshed in the
+     * background, so every location in a cell shares one provider call per update.
+     */
+    public CurrentWeatherDto getCurrentWeather(String location) {
+        return currentWeather(location, locationResolver.locate(location));
+    }
+    
+    /**
+     * Returns the current weather at the coordinates, as {@link #getCurrentWeather(String)} does
+     * but without going through the geocoder.
+     */
+    public CurrentWeatherDto getCurrentWeather(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new InvalidRequestException("Coordinates out of range: " + latitude + ", " + longitude);
+        }
+        return currentWeather(String.format(Locale.ROOT, "%.5f,%.5f", latitude, longitude),
+                new Geocoder.Location(latitude, longitude));
+    }
+    
+    private CurrentWeatherDto currentWeather(String location, Geocoder.Location place) {
+        Instant now = clock.instant();
+        Optional<WeatherObservation> forecast = forecastRun(place, now)
+                .flatMap(run -> observe(run, place, now));
+        if (forecast.isPresent()) {
+            Duration age = Duration.between(forecast.get().observedAt(), now);
+            return toDto(location, place.latitude(), place.longitude(), forecast.get(), "fresh", age);
+        }
         
-        // Agricultural specific data
-        weather.put("soilMoisture", 30 + random.nextInt(40)); // 30-70%
-        weather.put("growingDegreeDays", 10 + random.nextInt(20)); // 10-30
-        weather.put("recommendation", generateRecommendation(weather));
+        GridPoint point = locationResolver.snap(place);
+        StaleWhileRevalidateCache.Lookup<WeatherObservation> lookup = cache.get(point, provider::current);
+        return toDto(location, point.latitude(), point.longitude(), lookup.value(),
+                lookup.freshness() == StaleWhileRevalidateCache.Freshness.STALE ? "stale" : "fresh", lookup.age());
+    }
+    
+    /**
+     * Returns the next hours of the latest forecast run at the location, starting with the current
+     * hour and ending early where the run does.
+     */
+    public ForecastDto getForecast(String location, int hours) {
+        if (hours < 1 || hours > MAX_FORECAST_HOURS) {
+            throw new InvalidRequestException("Forecast hours must be between 1 and " + MAX_FORECAST_HOURS);
+        }
+        Geocoder.Location place = locationResolver.locate(location);
+        Instant now = clock.instant();
+        ForecastGrid run = forecastRun(place, now)
+                .orElseThrow(() -> new ResourceNotFoundException("No forecast covers " + location));
         
-        return weather;
+        List<ForecastHourDto> forecastHours = new ArrayList<>();
+        Instant time = now.truncatedTo(ChronoUnit.HOURS);
+        if (time.isBefore(run.runTime())) {
+            time = run.runTime();
+        }
+        for (; forecastHours.size() < hours && !time.isAfter(run.endTime()); time = time.plus(1, ChronoUnit.HOURS)) {
+            double precipitation = band(run, ForecastGridStore.PRECIPITATION, time, place);
+            double cloudCover = band(run, ForecastGridStore.CLOUD_COVER, time, place);
+            forecastHours.add(new ForecastHourDto(
+                    LocalDateTime.ofInstant(time, ZoneOffset.UTC),
+                    round(band(run, ForecastGridStore.TEMPERATURE, time, place)),
+                    round(band(run, ForecastGridStore.HUMIDITY, time, place)),
+                    round(precipitation),
+                    round(band(run, ForecastGridStore.WIND_SPEED, time, place)),
+                    round(cloudCover),
+                    round(band(run, ForecastGridStore.UV_INDEX, time, place)),
+                    condition(precipitation, cloudCover)));
+        }
+        return new ForecastDto(location, place.latitude(), place.longitude(),
+                LocalDateTime.ofInstant(run.runTime(), ZoneOffset.UTC), forecastHours);
     }
     
-    private String getRandomCondition() {
-        String[] conditions = {"Sunny", "Partly Cloudy", "Cloudy", "Rainy", "Overcast"};
-        return conditions[random.nextInt(conditions.length)];
+    private CurrentWeatherDto toDto(String location, double latitude, double longitude, WeatherObservation weather,
+                                    String freshness, Duration age) {
+        return new CurrentWeatherDto(
+                location,
+                latitude,
+                longitude,
+                weather.temperature(),
+                weather.humidity(),
+                weather.precipitation(),
+                weather.windSpeed(),
+                weather.condition(),
+                weather.uvIndex(),
+                weather.visibility(),
+                weather.soilMoisture(),
+                weather.growingDegreeDays(),
+                generateRecommendation(weather),
+                freshness,
+                age.toSeconds());
     }
     
-    private String generateRecommendation(Map<String, Object> weather) {
-        int temperature = (Integer) weather.get("temperature");
-        int humidity = (Integer) weather.get("humidity");
-        String condition = (String) weather.get("condition");
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>(cache.getStats());
+        stats.put("provider", provider.name());
+        stats.put("gridDegrees", provider.gridDegrees());
+        stats.put("updateIntervalSeconds", provider.updateInterval().toSeconds());
+        stats.put("locations", locationResolver.getStats());
+        stats.put("forecast", forecastStore.getStats());
+        return stats;
+    }
+    
+    private Optional<ForecastGrid> forecastRun(Geocoder.Location place, Instant time) {
+        return forecastStore.current().filter(run -> run.covers(place.latitude(), place.longitude(), time));
+    }
+    
+    /**
+     * The run's conditions at the place and time, or empty where the run has no values. Growing
+     * degree days are those of the UTC day so far, from the run's hourly temperatures.
+     */
+    private Optional<WeatherObservation> observe(ForecastGrid run, Geocoder.Location place, Instant time) {
+        double temperature = band(run, ForecastGridStore.TEMPERATURE, time, place);
+        if (Double.isNaN(temperature)) {
+            return Optional.empty();
+        }
+        double precipitation = band(run, ForecastGridStore.PRECIPITATION, time, place);
+        double cloudCover = band(run, ForecastGridStore.CLOUD_COVER, time, place);
         
-        if (temperature > 30 && humidity < 50) {
+        Instant dayStart = time.truncatedTo(ChronoUnit.DAYS);
+        Instant hour = dayStart.isBefore(run.runTime()) ? run.runTime() : dayStart;
+        double degreeHours = 0;
+        for (; !hour.isAfter(time); hour = hour.plus(1, ChronoUnit.HOURS)) {
+            degreeHours += Math.max(0, band(run, ForecastGridStore.TEMPERATURE, hour, place) - GDD_BASE_TEMPERATURE);
+        }
+        int growingDegreeDays = (int) Math.round(degreeHours / 24);
+        
+        return Optional.of(new WeatherObservation(
+                round(temperature),
+                (int) Math.round(band(run, ForecastGridStore.HUMIDITY, time, place)),
+                round(precipitation),
+                round(band(run, ForecastGridStore.WIND_SPEED, time, place)),
+                condition(precipitation, cloudCover),
+                (int) Math.round(band(run, ForecastGridStore.UV_INDEX, time, place)),
+                (int) Math.round(band(run, ForecastGridStore.VISIBILITY, time, place)),
+                (int) Math.round(band(run, ForecastGridStore.SOIL_MOISTURE, time, place)),
+                growingDegreeDays,
+                run.runTime()));
+    }
+    
+    private static double band(ForecastGrid run, int band, Instant time, Geocoder.Location place) {
+        return run.value(band, time, place.latitude(), place.longitude());
+    }
+    
+    private static String condition(double precipitation, double cloudCover) {
+        if (precipitation >= 0.5) {
+            return "Rainy";
+        } else if (cloudCover >= 85) {
+            return "Overcast";
+        } else if (cloudCover >= 60) {
+            return "Cloudy";
+        } else if (cloudCover >= 25) {
+            return "Partly Cloudy";
+        }
+        return "Sunny";
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 10.0) / 10.0; // Round to 1 decimal
+    }
+    
+    /**
+     * An observation is fresh until the provider's next update is due, however late in its
+     * interval it was fetched.
+     */
+    private Duration untilNextUpdate(WeatherObservation observation) {
+        Duration untilNext = Duration.between(clock.instant(), observation.observedAt().plus(provider.updateInterval()));
+        return untilNext.isNegative() ? Duration.ZERO : untilNext;
+    }
+    
+    private String generateRecommendation(WeatherObservation weather) {
+        if (weather.temperature() > 30 && weather.humidity() < 50) {
             return "High temperature and low humidity detected. Consider increasing irrigation frequency.";
-        } else if ("Rainy".equals(condition)) {
+        } else if ("Rainy".equals(weather.condition())) {
             return "Rainfall expected. Good time to reduce irrigation and check for proper drainage.";
-        } else if (temperature < 15) {
+        } else if (weather.temperature() < 15) {
             return "Cool temperatures detected. Consider protecting sensitive crops and adjusting planting schedules.";
         } else {
             return "Weather conditions are favorable for most farming activities.";
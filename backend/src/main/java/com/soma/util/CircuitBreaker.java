@@ -0,0 +1,127 @@
+package com.soma.util;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker. After the failure threshold the circuit opens and calls
+ * are refused without touching the upstream; once the open period has passed a single probe is
+ * let through, whose outcome closes the circuit again or reopens it for another period.
+ *
+ * <p>Each admitted call holds a permit naming the state it was admitted in, and outcomes of
+ * calls admitted before the last state change are ignored: a slow call that started before the
+ * circuit opened cannot close it while the probe is still out.
+ */
+public final class CircuitBreaker {
+    
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    /**
+     * Returned by {@link #acquire} when the call is refused.
+     */
+    public static final long REFUSED = -1;
+    
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+    private long openCount;
+    // Advanced on every state change; permits carry the value they were admitted under
+    private long generation;
+    
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+    
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+    
+    /**
+     * Returns a permit if a call may go ahead, or {@link #REFUSED}. While half-open only the first
+     * caller is admitted, as the probe; every admitted call must report back with its permit
+     * through {@link #onSuccess} or {@link #onFailure}.
+     */
+    public synchronized long acquire() {
+        switch (state()) {
+            case CLOSED:
+                return generation;
+            case HALF_OPEN:
+                if (probing) {
+                    return REFUSED;
+                }
+                probing = true;
+                return generation;
+            default:
+                return REFUSED;
+        }
+    }
+    
+    /**
+     * Records a success. Only the probe's success closes a half-open circuit.
+     */
+    public synchronized void onSuccess(long permit) {
+        State current = state();
+        if (permit != generation) {
+            return;
+        }
+        consecutiveFailures = 0;
+        if (current == State.HALF_OPEN) {
+            transition(State.CLOSED);
+        }
+    }
+    
+    /**
+     * Records a failure. A failed probe reopens the circuit; late failures of calls admitted
+     * before the last state change neither count nor extend the open period.
+     */
+    public synchronized void onFailure(long permit) {
+        State current = state();
+        if (permit != generation) {
+            return;
+        }
+        consecutiveFailures++;
+        if (current == State.HALF_OPEN || (current == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            transition(State.OPEN);
+            openedAt = nanoClock.getAsLong();
+            openCount++;
+        }
+    }
+    
+    /**
+     * Returns the current state; an open circuit whose open period has passed reports half-open.
+     */
+    public synchronized State state() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            transition(State.HALF_OPEN);
+        }
+        return state;
+    }
+    
+    /**
+     * Returns whether calls are currently refused outright. A half-open circuit counts as
+     * available, since the next call may be its probe.
+     */
+    public boolean isOpen() {
+        return state() == State.OPEN;
+    }
+    
+    public synchronized long openCount() {
+        return openCount;
+    }
+    
+    private void transition(State next) {
+        state = next;
+        probing = false;
+        generation++;
+    }
+}
\ No newline at end of file
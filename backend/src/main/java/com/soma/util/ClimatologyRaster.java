@@ -0,0 +1,239 @@
+package com.soma.util;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Global monthly climatology on an equirectangular grid: for every cell and calendar month, one
+ * 16-bit fixed-point value per band. Opened files are memory-mapped, and a lookup is a single
+ * index computation and read, so the raster stays off the heap whatever its resolution.
+ *
+ * <pre>
+ * int   magic ("SCL1")
+ * int   columns (cells per 360 degrees of longitude)
+ * int   rows    (cells per 180 degrees of latitude, north to south)
+ * int   months
+ * int   bands
+ * bands x (double scale, double offset)    value = offset + stored * scale
+ * short[months][rows][columns][bands]      Short.MIN_VALUE where there is no value
+ * </pre>
+ *
+ * <p>Run {@code main} to convert a CSV of {@code month,lat,lon,band0,band1,...} rows into the
+ * binary format.
+ */
+public final class ClimatologyRaster {
+    
+    private static final int MAGIC = 0x53434C31;
+    private static final int FIXED_HEADER_BYTES = 20;
+    private static final int BAND_HEADER_BYTES = 16;
+    private static final short NO_VALUE = Short.MIN_VALUE;
+    
+    /**
+     * Produces the value of a band for a month (1-12) at the centre of a cell.
+     */
+    @FunctionalInterface
+    public interface Sampler {
+        double sample(int band, int month, double latitude, double longitude);
+    }
+    
+    private final ByteBuffer buffer;
+    private final int columns;
+    private final int rows;
+    private final int months;
+    private final int bands;
+    private final double[] divisors;
+    private final double[] offsets;
+    private final int dataStart;
+    
+    private ClimatologyRaster(ByteBuffer buffer) {
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a climatology raster");
+            }
+            this.columns = buffer.getInt(4);
+            this.rows = buffer.getInt(8);
+            this.months = buffer.getInt(12);
+            this.bands = buffer.getInt(16);
+            if (columns < 1 || rows < 1 || months < 1 || bands < 1) {
+                throw new IllegalArgumentException("Corrupt climatology raster header");
+            }
+            this.offsets = new double[bands];
+            this.divisors = new double[bands];
+            for (int band = 0; band < bands; band++) {
+                // Dividing by 1/scale keeps decimal scales exact: 4200 / 10000.0 is 0.42, 4200 * 0.0001 is not
+                divisors[band] = 1 / buffer.getDouble(FIXED_HEADER_BYTES + band * BAND_HEADER_BYTES);
+                offsets[band] = buffer.getDouble(FIXED_HEADER_BYTES + band * BAND_HEADER_BYTES + 8);
+            }
+            this.dataStart = FIXED_HEADER_BYTES + bands * BAND_HEADER_BYTES;
+            if (dataStart + 2L * months * rows * columns * bands != buffer.limit()) {
+                throw new IllegalArgumentException("Climatology raster size does not match its header");
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated climatology raster", e);
+        }
+    }
+    
+    /**
+     * Maps the file read-only.
+     */
+    public static ClimatologyRaster open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ClimatologyRaster(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    public static ClimatologyRaster wrap(byte[] bytes) {
+        return new ClimatologyRaster(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+    
+    /**
+     * Writes the file next to its destination and moves it into place atomically.
+     */
+    public static void write(Path path, byte[] raster) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, raster);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Encodes a twelve-month raster of the given cell size by sampling every cell centre. Each
+     * band's scale must fit its value range into 16 bits around its offset; a NaN sample is
+     * stored as no value.
+     */
+    public static byte[] encode(double cellDegrees, double[] scales, double[] offsets, Sampler sampler) {
+        int columns = (int) Math.round(360 / cellDegrees);
+        int rows = (int) Math.round(180 / cellDegrees);
+        ByteBuffer out = header(columns, rows, 12, scales, offsets);
+        for (int month = 1; month <= 12; month++) {
+            for (int row = 0; row < rows; row++) {
+                double latitude = 90 - (row + 0.5) * 180.0 / rows;
+                for (int col = 0; col < columns; col++) {
+                    double longitude = -180 + (col + 0.5) * 360.0 / columns;
+                    for (int band = 0; band < scales.length; band++) {
+                        out.putShort(quantize(sampler.sample(band, month, latitude, longitude),
+                                scales[band], offsets[band]));
+                    }
+                }
+            }
+        }
+        return out.array();
+    }
+    
+    public int columns() {
+        return columns;
+    }
+    
+    public int rows() {
+        return rows;
+    }
+    
+    public int bands() {
+        return bands;
+    }
+    
+    public long sizeBytes() {
+        return buffer.limit();
+    }
+    
+    /**
+     * Returns the band's value for the month (1-12) in the cell containing the point, or NaN if
+     * the raster has no value there.
+     */
+    public double value(int band, int month, double latitude, double longitude) {
+        short stored = buffer.getShort(offset(band, month, latitude, longitude));
+        return stored == NO_VALUE ? Double.NaN : offsets[band] + stored / divisors[band];
+    }
+    
+    private int offset(int band, int month, double latitude, double longitude) {
+        if (band < 0 || band >= bands || month < 1 || month > months) {
+            throw new IllegalArgumentException("No band " + band + " for month " + month);
+        }
+        int col = (int) Math.floor((longitude + 180) / 360 * columns);
+        int row = (int) Math.floor((90 - latitude) / 180 * rows);
+        // The antimeridian and the south pole belong to the last column and row
+        col = Math.max(0, Math.min(col, columns - 1));
+        row = Math.max(0, Math.min(row, rows - 1));
+        long index = (((long) (month - 1) * rows + row) * columns + col) * bands + band;
+        return (int) (dataStart + index * 2);
+    }
+    
+    private static ByteBuffer header(int columns, int rows, int months, double[] scales, double[] offsets) {
+        if (scales.length == 0 || scales.length != offsets.length) {
+            throw new IllegalArgumentException("Every band needs a scale and an offset");
+        }
+        long size = FIXED_HEADER_BYTES + (long) scales.length * BAND_HEADER_BYTES + 2L * months * rows * columns * scales.length;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Climatology raster too large: " + size + " bytes");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putInt(columns).putInt(rows).putInt(months).putInt(scales.length);
+        for (int band = 0; band < scales.length; band++) {
+            out.putDouble(scales[band]).putDouble(offsets[band]);
+        }
+        return out;
+    }
+    
+    private static short quantize(double value, double scale, double offset) {
+        if (Double.isNaN(value)) {
+            return NO_VALUE;
+        }
+        long stored = Math.round((value - offset) / scale);
+        return (short) Math.max(NO_VALUE + 1, Math.min(Short.MAX_VALUE, stored));
+    }
+    
+    /**
+     * Converts a CSV of monthly cell values into the binary format:
+     * {@code <source.csv> <target.scl> <cellDegrees> <scale:offset>...}, one scale and offset per
+     * band. Cells missing from the source have no value.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: ClimatologyRaster <source.csv> <target.scl> <cellDegrees> <scale:offset>...");
+            System.exit(2);
+        }
+        double cellDegrees = Double.parseDouble(args[2]);
+        int bands = args.length - 3;
+        double[] scales = new double[bands];
+        double[] offsets = new double[bands];
+        for (int band = 0; band < bands; band++) {
+            String[] scaleOffset = args[3 + band].split(":");
+            scales[band] = Double.parseDouble(scaleOffset[0]);
+            offsets[band] = scaleOffset.length > 1 ? Double.parseDouble(scaleOffset[1]) : 0;
+        }
+        byte[] raster = encode(cellDegrees, scales, offsets, (band, month, lat, lon) -> Double.NaN);
+        ClimatologyRaster layout = wrap(raster);
+        ByteBuffer out = ByteBuffer.wrap(raster);
+        int lines = 0;
+        for (String line : Files.readAllLines(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#") || line.startsWith("month")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 3 + bands) {
+                throw new IllegalArgumentException("Expected month,lat,lon and " + bands + " band values: " + line);
+            }
+            int month = Integer.parseInt(fields[0].trim());
+            double latitude = Double.parseDouble(fields[1].trim());
+            double longitude = Double.parseDouble(fields[2].trim());
+            for (int band = 0; band < bands; band++) {
+                out.putShort(layout.offset(band, month, latitude, longitude),
+                        quantize(Double.parseDouble(fields[3 + band].trim()), scales[band], offsets[band]));
+            }
+            lines++;
+        }
+        write(Path.of(args[1]), raster);
+        System.out.println("Wrote " + lines + " cell months to " + args[1]);
+    }
+}
\ No newline at end of file
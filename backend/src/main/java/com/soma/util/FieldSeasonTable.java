@@ -0,0 +1,302 @@
+package com.soma.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Season-to-date growing degree days and soil water balance for every field, as primitive
+ * columns of about 48 bytes per field. A table is never changed once built: each daily run
+ * {@link #advance advances} every field by one day into a new table, in parallel chunks, and the
+ * caller swaps it in, so readers always see one consistent day. Looking a field up goes through
+ * an open-addressing hash of the field ids and costs O(1).
+ *
+ * <p>Running the same day again replaces that day's contribution instead of adding it twice: each
+ * field keeps its last day's increments and its soil water at the start of that day.
+ */
+public final class FieldSeasonTable {
+    
+    private static final int MAGIC = 0x53465331;
+    private static final int NEVER = Integer.MIN_VALUE;
+    private static final int BYTES_PER_FIELD = 8 + 4 + 4 + 8 * 4;
+    
+    /**
+     * How fields accumulate: growing degree days between a base and a cap temperature (degrees
+     * Celsius), and a single-bucket soil water balance of the given capacity (mm) that a new
+     * season starts at the given fraction of.
+     */
+    public record Settings(double baseTemperature, double capTemperature, double soilCapacityMm,
+                           double initialSoilFraction) {
+    }
+    
+    /**
+     * One field's weather for the day, and the first day (epoch day) of the season it belongs to.
+     */
+    public record Day(double minTemperature, double maxTemperature, double rainfallMm,
+                      double evapotranspirationMm, int seasonStart) {
+    }
+    
+    /**
+     * Supplies the day's weather for the field at an index of the run, or null if there is none.
+     * Called concurrently from the chunks of a run.
+     */
+    @FunctionalInterface
+    public interface Inputs {
+        Day day(int index);
+    }
+    
+    public record Season(long fieldId, int seasonStart, int lastDay, double growingDegreeDays, double rainfallMm,
+                         double evapotranspirationMm, double soilWaterMm) {
+    }
+    
+    public record Run(FieldSeasonTable table, int updated, int missingInput) {
+    }
+    
+    private final long[] fieldIds;
+    private final int[] seasonStarts;
+    private final int[] lastDays;
+    private final float[] gdd;
+    private final float[] rain;
+    private final float[] et;
+    private final float[] soilWater;
+    // The last day's increments and starting soil water, so the day can be run again
+    private final float[] dayGdd;
+    private final float[] dayRain;
+    private final float[] dayEt;
+    private final float[] dayStartSoilWater;
+    private long[] indexKeys;
+    private int[] indexSlots;
+    
+    private FieldSeasonTable(int size) {
+        fieldIds = new long[size];
+        seasonStarts = new int[size];
+        lastDays = new int[size];
+        gdd = new float[size];
+        rain = new float[size];
+        et = new float[size];
+        soilWater = new float[size];
+        dayGdd = new float[size];
+        dayRain = new float[size];
+        dayEt = new float[size];
+        dayStartSoilWater = new float[size];
+    }
+    
+    public static FieldSeasonTable empty() {
+        FieldSeasonTable table = new FieldSeasonTable(0);
+        table.buildIndex();
+        return table;
+    }
+    
+    public int size() {
+        return fieldIds.length;
+    }
+    
+    public long sizeBytes() {
+        return (long) size() * BYTES_PER_FIELD;
+    }
+    
+    /**
+     * The field's season to date, or null if it is not in the table or has never had weather.
+     */
+    public Season get(long fieldId) {
+        int slot = slot(fieldId);
+        if (slot < 0 || lastDays[slot] == NEVER) {
+            return null;
+        }
+        return new Season(fieldId, seasonStarts[slot], lastDays[slot], gdd[slot], rain[slot], et[slot], soilWater[slot]);
+    }
+    
+    /**
+     * Builds the table for the given fields as of the end of the day, advancing each field's state
+     * in this table by the day's inputs. Fields not in this table start a season; fields in it but
+     * not given are dropped; a field without inputs for the day, or already past it, is copied.
+     */
+    public Run advance(long[] fields, int day, Inputs inputs, Settings settings, Executor executor, int chunkSize) {
+        FieldSeasonTable next = new FieldSeasonTable(fields.length);
+        AtomicInteger updated = new AtomicInteger();
+        AtomicInteger missing = new AtomicInteger();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < fields.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(fields.length, from + chunkSize);
+            chunks.add(CompletableFuture.runAsync(() -> {
+                int chunkUpdated = 0;
+                int chunkMissing = 0;
+                for (int i = start; i < end; i++) {
+                    int previous = slot(fields[i]);
+                    if (previous >= 0 && lastDays[previous] > day) {
+                        next.copy(i, this, previous);
+                        continue;
+                    }
+                    Day input = inputs.day(i);
+                    if (input == null) {
+                        chunkMissing++;
+                        if (previous >= 0) {
+                            next.copy(i, this, previous);
+                        } else {
+                            next.fieldIds[i] = fields[i];
+                            next.lastDays[i] = NEVER;
+                        }
+                        continue;
+                    }
+                    next.accumulate(i, fields[i], day, input, settings, this, previous);
+                    chunkUpdated++;
+                }
+                updated.addAndGet(chunkUpdated);
+                missing.addAndGet(chunkMissing);
+            }, executor));
+        }
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        next.buildIndex();
+        return new Run(next, updated.get(), missing.get());
+    }
+    
+    private void accumulate(int i, long fieldId, int day, Day input, Settings settings,
+                            FieldSeasonTable previous, int slot) {
+        double gddSoFar = 0;
+        double rainSoFar = 0;
+        double etSoFar = 0;
+        double soilAtStart = settings.soilCapacityMm() * settings.initialSoilFraction();
+        if (slot >= 0 && previous.lastDays[slot] != NEVER && previous.seasonStarts[slot] == input.seasonStart()) {
+            boolean rerun = previous.lastDays[slot] == day;
+            gddSoFar = previous.gdd[slot] - (rerun ? previous.dayGdd[slot] : 0);
+            rainSoFar = previous.rain[slot] - (rerun ? previous.dayRain[slot] : 0);
+            etSoFar = previous.et[slot] - (rerun ? previous.dayEt[slot] : 0);
+            soilAtStart = rerun ? previous.dayStartSoilWater[slot] : previous.soilWater[slot];
+        }
+        
+        // Both temperatures are clamped to [base, cap] before averaging, as in the 86/50 method
+        double min = Math.max(settings.baseTemperature(), Math.min(settings.capTemperature(), input.minTemperature()));
+        double max = Math.max(settings.baseTemperature(), Math.min(settings.capTemperature(), input.maxTemperature()));
+        double degreeDays = (min + max) / 2 - settings.baseTemperature();
+        double rainfall = Math.max(0, input.rainfallMm());
+        double evapotranspiration = Math.max(0, input.evapotranspirationMm());
+        // Water above capacity drains away; the bucket cannot go below empty
+        double soil = Math.max(0, Math.min(settings.soilCapacityMm(), soilAtStart + rainfall - evapotranspiration));
+        
+        fieldIds[i] = fieldId;
+        seasonStarts[i] = input.seasonStart();
+        lastDays[i] = day;
+        gdd[i] = (float) (gddSoFar + degreeDays);
+        rain[i] = (float) (rainSoFar + rainfall);
+        et[i] = (float) (etSoFar + evapotranspiration);
+        soilWater[i] = (float) soil;
+        dayGdd[i] = (float) degreeDays;
+        dayRain[i] = (float) rainfall;
+        dayEt[i] = (float) evapotranspiration;
+        dayStartSoilWater[i] = (float) soilAtStart;
+    }
+    
+    private void copy(int i, FieldSeasonTable from, int slot) {
+        fieldIds[i] = from.fieldIds[slot];
+        seasonStarts[i] = from.seasonStarts[slot];
+        lastDays[i] = from.lastDays[slot];
+        gdd[i] = from.gdd[slot];
+        rain[i] = from.rain[slot];
+        et[i] = from.et[slot];
+        soilWater[i] = from.soilWater[slot];
+        dayGdd[i] = from.dayGdd[slot];
+        dayRain[i] = from.dayRain[slot];
+        dayEt[i] = from.dayEt[slot];
+        dayStartSoilWater[i] = from.dayStartSoilWater[slot];
+    }
+    
+    /**
+     * Writes the table next to its destination and moves it into place atomically.
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(8 + size() * BYTES_PER_FIELD);
+        out.putInt(MAGIC).putInt(size());
+        out.asLongBuffer().put(fieldIds);
+        out.position(out.position() + size() * 8);
+        for (int[] column : new int[][] {seasonStarts, lastDays}) {
+            out.asIntBuffer().put(column);
+            out.position(out.position() + size() * 4);
+        }
+        for (float[] column : floatColumns()) {
+            out.asFloatBuffer().put(column);
+            out.position(out.position() + size() * 4);
+        }
+        out.flip();
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    public static FieldSeasonTable read(Path path) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a field season table: " + path);
+        }
+        int size = in.getInt();
+        if (size < 0 || in.remaining() != (long) size * BYTES_PER_FIELD) {
+            throw new IllegalArgumentException("Field season table size does not match its header: " + path);
+        }
+        FieldSeasonTable table = new FieldSeasonTable(size);
+        in.asLongBuffer().get(table.fieldIds);
+        in.position(in.position() + size * 8);
+        for (int[] column : new int[][] {table.seasonStarts, table.lastDays}) {
+            in.asIntBuffer().get(column);
+            in.position(in.position() + size * 4);
+        }
+        for (float[] column : table.floatColumns()) {
+            in.asFloatBuffer().get(column);
+            in.position(in.position() + size * 4);
+        }
+        table.buildIndex();
+        return table;
+    }
+    
+    private float[][] floatColumns() {
+        return new float[][] {gdd, rain, et, soilWater, dayGdd, dayRain, dayEt, dayStartSoilWater};
+    }
+    
+    private void buildIndex() {
+        // At most half full, so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(2, fieldIds.length) * 2 - 1) << 1;
+        indexKeys = new long[capacity];
+        indexSlots = new int[capacity];
+        Arrays.fill(indexSlots, -1);
+        for (int slot = 0; slot < fieldIds.length; slot++) {
+            int bucket = bucket(fieldIds[slot], capacity);
+            while (indexSlots[bucket] >= 0) {
+                bucket = (bucket + 1) & (capacity - 1);
+            }
+            indexKeys[bucket] = fieldIds[slot];
+            indexSlots[bucket] = slot;
+        }
+    }
+    
+    private int slot(long fieldId) {
+        int capacity = indexKeys.length;
+        for (int bucket = bucket(fieldId, capacity); indexSlots[bucket] >= 0; bucket = (bucket + 1) & (capacity - 1)) {
+            if (indexKeys[bucket] == fieldId) {
+                return indexSlots[bucket];
+            }
+        }
+        return -1;
+    }
+    
+    private static int bucket(long key, int capacity) {
+        // Fibonacci hashing spreads sequential ids over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (capacity - 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.soma.util;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * One run of a gridded hourly forecast: for every hour of the run and every node of a regular
+ * latitude/longitude grid, one 16-bit fixed-point value per band. Opened files are memory-mapped;
+ * a lookup interpolates bilinearly between the four nodes around the point and linearly between
+ * the two hours around the time, so it reads sixteen values and allocates nothing.
+ *
+ * <pre>
+ * int    magic ("SFC1")
+ * long   run time (epoch seconds of hour 0)
+ * int    hours
+ * double south, west (degrees of node [0][0])
+ * double node spacing in degrees
+ * int    rows    (nodes from south to north)
+ * int    columns (nodes from west to east; a grid spanning 360 degrees wraps around)
+ * int    bands
+ * bands x (double scale, double offset)    value = offset + stored * scale
+ * short[hours][rows][columns][bands]      Short.MIN_VALUE where there is no value
+ * </pre>
+ */
+public final class ForecastGrid {
+    
+    private static final int MAGIC = 0x53464331;
+    private static final int FIXED_HEADER_BYTES = 52;
+    private static final int BAND_HEADER_BYTES = 16;
+    private static final short NO_VALUE = Short.MIN_VALUE;
+    private static final long SECONDS_PER_HOUR = 3600;
+    
+    /**
+     * Produces the value of a band for an hour of the run at a grid node.
+     */
+    @FunctionalInterface
+    public interface Sampler {
+        double sample(int band, int hour, double latitude, double longitude);
+    }
+    
+    private final ByteBuffer buffer;
+    private final long runTime;
+    private final int hours;
+    private final double south;
+    private final double west;
+    private final double spacing;
+    private final int rows;
+    private final int columns;
+    private final int bands;
+    private final boolean wraps;
+    private final double[] divisors;
+    private final double[] offsets;
+    private final int dataStart;
+    
+    private ForecastGrid(ByteBuffer buffer) {
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a forecast grid");
+            }
+            this.runTime = buffer.getLong(4);
+            this.hours = buffer.getInt(12);
+            this.south = buffer.getDouble(16);
+            this.west = buffer.getDouble(24);
+            this.spacing = buffer.getDouble(32);
+            this.rows = buffer.getInt(40);
+            this.columns = buffer.getInt(44);
+            this.bands = buffer.getInt(48);
+            if (hours < 1 || rows < 2 || columns < 2 || bands < 1 || !(spacing > 0)) {
+                throw new IllegalArgumentException("Corrupt forecast grid header");
+            }
+            this.wraps = columns * spacing >= 360 - 1e-9;
+            this.divisors = new double[bands];
+            this.offsets = new double[bands];
+            for (int band = 0; band < bands; band++) {
+                // As in ClimatologyRaster, dividing by 1/scale keeps decimal scales exact
+                divisors[band] = 1 / buffer.getDouble(FIXED_HEADER_BYTES + band * BAND_HEADER_BYTES);
+                offsets[band] = buffer.getDouble(FIXED_HEADER_BYTES + band * BAND_HEADER_BYTES + 8);
+            }
+            this.dataStart = FIXED_HEADER_BYTES + bands * BAND_HEADER_BYTES;
+            if (dataStart + 2L * hours * rows * columns * bands != buffer.limit()) {
+                throw new IllegalArgumentException("Forecast grid size does not match its header");
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated forecast grid", e);
+        }
+    }
+    
+    /**
+     * Maps the file read-only.
+     */
+    public static ForecastGrid open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ForecastGrid(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    public static ForecastGrid wrap(byte[] bytes) {
+        return new ForecastGrid(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+    
+    /**
+     * Reads only the run time from a file's header, e.g. to pick the latest of several runs.
+     */
+    public static Instant readRunTime(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            channel.read(header, 0);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a forecast grid: " + path);
+            }
+            return Instant.ofEpochSecond(header.getLong(4));
+        }
+    }
+    
+    /**
+     * Writes the file next to its destination and moves it into place atomically, so a reader
+     * never sees a partial run.
+     */
+    public static void write(Path path, byte[] grid) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, grid);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Encodes a run by sampling every node for every hour. Each band's scale must fit its value
+     * range into 16 bits around its offset; a NaN sample is stored as no value.
+     */
+    public static byte[] encode(Instant runTime, int hours, double south, double west, double spacing,
+                                int rows, int columns, double[] scales, double[] offsets, Sampler sampler) {
+        if (scales.length == 0 || scales.length != offsets.length) {
+            throw new IllegalArgumentException("Every band needs a scale and an offset");
+        }
+        int bands = scales.length;
+        long size = FIXED_HEADER_BYTES + (long) bands * BAND_HEADER_BYTES + 2L * hours * rows * columns * bands;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Forecast grid too large: " + size + " bytes");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC).putLong(runTime.getEpochSecond()).putInt(hours)
+                .putDouble(south).putDouble(west).putDouble(spacing)
+                .putInt(rows).putInt(columns).putInt(bands);
+        for (int band = 0; band < bands; band++) {
+            out.putDouble(scales[band]).putDouble(offsets[band]);
+        }
+        for (int hour = 0; hour < hours; hour++) {
+            for (int row = 0; row < rows; row++) {
+                double latitude = south + row * spacing;
+                for (int col = 0; col < columns; col++) {
+                    double longitude = west + col * spacing;
+                    for (int band = 0; band < bands; band++) {
+                        out.putShort(quantize(sampler.sample(band, hour, latitude, longitude), scales[band], offsets[band]));
+                    }
+                }
+            }
+        }
+        return out.array();
+    }
+    
+    public Instant runTime() {
+        return Instant.ofEpochSecond(runTime);
+    }
+    
+    public int hours() {
+        return hours;
+    }
+    
+    /**
+     * The last hour of the run; later times are not covered.
+     */
+    public Instant endTime() {
+        return Instant.ofEpochSecond(runTime + (hours - 1) * SECONDS_PER_HOUR);
+    }
+    
+    public int bands() {
+        return bands;
+    }
+    
+    public long sizeBytes() {
+        return buffer.limit();
+    }
+    
+    public boolean covers(double latitude, double longitude, Instant time) {
+        long seconds = time.getEpochSecond();
+        return seconds >= runTime && seconds <= runTime + (hours - 1) * SECONDS_PER_HOUR
+                && latitude >= south && latitude <= south + (rows - 1) * spacing
+                && (wraps || (longitude >= west && longitude <= west + (columns - 1) * spacing));
+    }
+    
+    /**
+     * Returns the band's value at the point and time, interpolated from the surrounding nodes and
+     * hours, or NaN if any of them has no value.
+     */
+    public double value(int band, Instant time, double latitude, double longitude) {
+        if (band < 0 || band >= bands) {
+            throw new IllegalArgumentException("No band " + band);
+        }
+        if (!covers(latitude, longitude, time)) {
+            throw new IllegalArgumentException("Forecast run does not cover " + latitude + ", " + longitude + " at " + time);
+        }
+        double hour = (time.getEpochSecond() + time.getNano() / 1e9 - runTime) / SECONDS_PER_HOUR;
+        int h0 = Math.min((int) hour, hours - 1);
+        int h1 = Math.min(h0 + 1, hours - 1);
+        double dt = hour - h0;
+        
+        double y = (latitude - south) / spacing;
+        int r0 = Math.min((int) y, rows - 2);
+        double dy = y - r0;
+        double x = (longitude - west) / spacing;
+        if (wraps) {
+            x = ((x % columns) + columns) % columns;
+        }
+        int c0 = Math.min((int) x, wraps ? columns - 1 : columns - 2);
+        int c1 = wraps ? (c0 + 1) % columns : c0 + 1;
+        double dx = x - c0;
+        
+        double atH0 = bilinear(band, h0, r0, c0, c1, dx, dy);
+        double atH1 = dt == 0 ? atH0 : bilinear(band, h1, r0, c0, c1, dx, dy);
+        return atH0 + (atH1 - atH0) * dt;
+    }
+    
+    private double bilinear(int band, int hour, int r0, int c0, int c1, double dx, double dy) {
+        double south0 = stored(band, hour, r0, c0);
+        double south1 = stored(band, hour, r0, c1);
+        double north0 = stored(band, hour, r0 + 1, c0);
+        double north1 = stored(band, hour, r0 + 1, c1);
+        double southEdge = south0 + (south1 - south0) * dx;
+        double northEdge = north0 + (north1 - north0) * dx;
+        return southEdge + (northEdge - southEdge) * dy;
+    }
+    
+    private double stored(int band, int hour, int row, int col) {
+        long index = (((long) hour * rows + row) * columns + col) * bands + band;
+        short stored = buffer.getShort((int) (dataStart + index * 2));
+        return stored == NO_VALUE ? Double.NaN : offsets[band] + stored / divisors[band];
+    }
+    
+    private static short quantize(double value, double scale, double offset) {
+        if (Double.isNaN(value)) {
+            return NO_VALUE;
+        }
+        long stored = Math.round((value - offset) / scale);
+        return (short) Math.max(NO_VALUE + 1, Math.min(Short.MAX_VALUE, stored));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.soma.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standard base-32 geohashes. A hash of precision {@code p} names a cell of {@code 5p} bits,
+ * alternating longitude and latitude bits starting with longitude, so it has
+ * {@code ceil(5p / 2)} longitude and {@code floor(5p / 2)} latitude bits and every cell's hash
+ * is a prefix of the hashes of the cells inside it.
+ */
+public final class Geohash {
+    
+    public static final int MAX_PRECISION = 12;
+    
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    
+    public record Box(double south, double west, double north, double east) {
+        
+        public double centerLatitude() {
+            return (south + north) / 2;
+        }
+        
+        public double centerLongitude() {
+            return (west + east) / 2;
+        }
+    }
+    
+    private Geohash() {
+    }
+    
+    public static String encode(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        return hash(cellIndex(longitude, -180, 360, lonBits(precision)),
+                cellIndex(latitude, -90, 180, latBits(precision)), precision);
+    }
+    
+    public static Box decode(String geohash) {
+        int precision = geohash.length();
+        checkPrecision(precision);
+        long x = 0;
+        long y = 0;
+        int bit = 0;
+        for (char c : geohash.toCharArray()) {
+            int value = indexOf(c);
+            for (int i = 4; i >= 0; i--, bit++) {
+                if (bit % 2 == 0) {
+                    x = (x << 1) | ((value >> i) & 1);
+                } else {
+                    y = (y << 1) | ((value >> i) & 1);
+                }
+            }
+        }
+        double width = 360.0 / (1L << lonBits(precision));
+        double height = 180.0 / (1L << latBits(precision));
+        return new Box(-90 + y * height, -180 + x * width, -90 + (y + 1) * height, -180 + (x + 1) * width);
+    }
+    
+    /**
+     * Number of cells of the precision that {@link #covering} returns for the box.
+     */
+    public static long coveringSize(double south, double west, double north, double east, int precision) {
+        checkPrecision(precision);
+        long columns = columns(west, east, lonBits(precision));
+        long rows = cellIndex(north, -90, 180, latBits(precision)) - cellIndex(south, -90, 180, latBits(precision)) + 1;
+        return columns * Math.max(0, rows);
+    }
+    
+    /**
+     * Hashes of the cells of the precision that intersect the box. A box whose west edge is east of
+     * its east edge crosses the antimeridian.
+     */
+    public static List<String> covering(double south, double west, double north, double east, int precision) {
+        checkPrecision(precision);
+        int lonBits = lonBits(precision);
+        int latBits = latBits(precision);
+        long x0 = cellIndex(west, -180, 360, lonBits);
+        long columns = columns(west, east, lonBits);
+        long y0 = cellIndex(south, -90, 180, latBits);
+        long y1 = cellIndex(north, -90, 180, latBits);
+        long xCells = 1L << lonBits;
+        List<String> hashes = new ArrayList<>();
+        for (long column = 0; column < columns; column++) {
+            long x = (x0 + column) % xCells;
+            for (long y = y0; y <= y1; y++) {
+                hashes.add(hash(x, y, precision));
+            }
+        }
+        return hashes;
+    }
+    
+    private static long columns(double west, double east, int lonBits) {
+        long x0 = cellIndex(west, -180, 360, lonBits);
+        long x1 = cellIndex(east, -180, 360, lonBits);
+        return west <= east ? x1 - x0 + 1 : (1L << lonBits) - x0 + x1 + 1;
+    }
+    
+    private static String hash(long x, long y, int precision) {
+        int lonBits = lonBits(precision);
+        int latBits = latBits(precision);
+        char[] chars = new char[precision];
+        int value = 0;
+        for (int bit = 0; bit < 5 * precision; bit++) {
+            // Even bits come from longitude and odd bits from latitude, most significant first
+            long source = bit % 2 == 0 ? x >> (lonBits - 1 - bit / 2) : y >> (latBits - 1 - bit / 2);
+            value = (value << 1) | (int) (source & 1);
+            if (bit % 5 == 4) {
+                chars[bit / 5] = BASE32[value];
+                value = 0;
+            }
+        }
+        return new String(chars);
+    }
+    
+    private static long cellIndex(double degrees, double origin, double range, int bits) {
+        long cells = 1L << bits;
+        long index = (long) Math.floor((degrees - origin) / range * cells);
+        return Math.max(0, Math.min(cells - 1, index));
+    }
+    
+    private static int lonBits(int precision) {
+        return (5 * precision + 1) / 2;
+    }
+    
+    private static int latBits(int precision) {
+        return 5 * precision / 2;
+    }
+    
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid geohash character '" + c + "'");
+    }
+    
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+    }
+}
\ No newline at end of file
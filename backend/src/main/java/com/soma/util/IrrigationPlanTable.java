@@ -0,0 +1,253 @@
+package com.soma.util;
+
+import java.util.Arrays;
+
+/**
+ * Irrigation plans for every field as primitive columns: 40 bytes per field plus 16 bytes per
+ * planned day, and 24 to 48 bytes of index. At a seven-day horizon that is about 190 bytes a
+ * field, against some 300 as one object graph per plan.
+ *
+ * <p>Unlike {@link FieldSeasonTable}, plans change one field at a time as their inputs do, so the
+ * table is updated in place: fields are found through an open-addressing hash of their ids, and
+ * removing a field moves the last one into its slot so the columns stay dense.
+ *
+ * <p>Every method synchronizes on the table. Each call costs O(horizon), so writers from the
+ * chunks of a run hold the lock only briefly.
+ */
+public final class IrrigationPlanTable {
+    
+    private static final int BYTES_PER_FIELD = 8 + 8 + 4 + 4 + 4 + 4 + 8;
+    private static final int BYTES_PER_DAY = 4 * 4;
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /**
+     * One field's plan over the table's horizon, and the fingerprint of the inputs it came from.
+     */
+    public record Plan(long fieldId, long fingerprint, int startDay, int forecastDays, float soilWaterMm,
+                       float[] rainfallMm, float[] evapotranspirationMm, float[] irrigationMm,
+                       float[] soilWaterEndMm, float totalIrrigationMm, long computedAtMillis) {
+    }
+    
+    private final int horizon;
+    private int size;
+    private long[] fieldIds;
+    private long[] fingerprints;
+    private int[] startDays;
+    private int[] forecastDays;
+    private float[] soilWater;
+    private float[] totalIrrigation;
+    private long[] computedAt;
+    // horizon values per slot, slot after slot
+    private float[] rainfall;
+    private float[] evapotranspiration;
+    private float[] irrigation;
+    private float[] soilWaterEnd;
+    private long[] indexKeys;
+    private int[] indexSlots;
+    
+    public IrrigationPlanTable(int horizon) {
+        if (horizon < 1) {
+            throw new IllegalArgumentException("Plan horizon must be at least one day");
+        }
+        this.horizon = horizon;
+        allocate(INITIAL_CAPACITY);
+        rebuildIndex(INITIAL_CAPACITY * 2);
+    }
+    
+    public int horizon() {
+        return horizon;
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Bytes held by the columns and the index, including capacity not yet used.
+     */
+    public synchronized long sizeBytes() {
+        return (long) fieldIds.length * (BYTES_PER_FIELD + (long) horizon * BYTES_PER_DAY)
+                + (long) indexKeys.length * (8 + 4);
+    }
+    
+    /**
+     * Whether the field has a plan computed from inputs with the fingerprint.
+     */
+    public synchronized boolean hasFingerprint(long fieldId, long fingerprint) {
+        int slot = slot(fieldId);
+        return slot >= 0 && fingerprints[slot] == fingerprint;
+    }
+    
+    /**
+     * The field's plan, copied out of the table, or null if it has none.
+     */
+    public synchronized Plan get(long fieldId) {
+        int slot = slot(fieldId);
+        if (slot < 0) {
+            return null;
+        }
+        int from = slot * horizon;
+        return new Plan(fieldId, fingerprints[slot], startDays[slot], forecastDays[slot], soilWater[slot],
+                Arrays.copyOfRange(rainfall, from, from + horizon),
+                Arrays.copyOfRange(evapotranspiration, from, from + horizon),
+                Arrays.copyOfRange(irrigation, from, from + horizon),
+                Arrays.copyOfRange(soilWaterEnd, from, from + horizon),
+                totalIrrigation[slot], computedAt[slot]);
+    }
+    
+    /**
+     * Stores the plan, replacing any the field had. Its day arrays must cover the horizon.
+     */
+    public synchronized void put(Plan plan) {
+        if (plan.rainfallMm().length != horizon || plan.evapotranspirationMm().length != horizon
+                || plan.irrigationMm().length != horizon || plan.soilWaterEndMm().length != horizon) {
+            throw new IllegalArgumentException("Plan days must cover the " + horizon + "-day horizon");
+        }
+        int slot = slot(plan.fieldId());
+        if (slot < 0) {
+            if (size == fieldIds.length) {
+                allocate(size * 2);
+            }
+            if ((size + 1) * 2 > indexKeys.length) {
+                rebuildIndex(indexKeys.length * 2);
+            }
+            slot = size++;
+            fieldIds[slot] = plan.fieldId();
+            insert(plan.fieldId(), slot);
+        }
+        fingerprints[slot] = plan.fingerprint();
+        startDays[slot] = plan.startDay();
+        forecastDays[slot] = plan.forecastDays();
+        soilWater[slot] = plan.soilWaterMm();
+        totalIrrigation[slot] = plan.totalIrrigationMm();
+        computedAt[slot] = plan.computedAtMillis();
+        int from = slot * horizon;
+        System.arraycopy(plan.rainfallMm(), 0, rainfall, from, horizon);
+        System.arraycopy(plan.evapotranspirationMm(), 0, evapotranspiration, from, horizon);
+        System.arraycopy(plan.irrigationMm(), 0, irrigation, from, horizon);
+        System.arraycopy(plan.soilWaterEndMm(), 0, soilWaterEnd, from, horizon);
+    }
+    
+    /**
+     * Drops the field's plan. Returns whether it had one.
+     */
+    public synchronized boolean remove(long fieldId) {
+        int bucket = bucketOf(fieldId);
+        if (bucket < 0) {
+            return false;
+        }
+        int slot = indexSlots[bucket];
+        delete(bucket);
+        int last = --size;
+        if (slot != last) {
+            // The last field moves into the freed slot
+            moveSlot(last, slot);
+            indexSlots[bucketOf(fieldIds[slot])] = slot;
+        }
+        return true;
+    }
+    
+    /**
+     * Drops the plans of fields not among the ids, sorted ascending, that were computed before
+     * the time. Returns how many were dropped.
+     */
+    public synchronized int removeAbsent(long[] sortedFieldIds, long computedBeforeMillis) {
+        int removed = 0;
+        // From the end, so the field moved into a freed slot has already been looked at
+        for (int slot = size - 1; slot >= 0; slot--) {
+            if (computedAt[slot] < computedBeforeMillis && Arrays.binarySearch(sortedFieldIds, fieldIds[slot]) < 0) {
+                remove(fieldIds[slot]);
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    private void allocate(int capacity) {
+        fieldIds = fieldIds == null ? new long[capacity] : Arrays.copyOf(fieldIds, capacity);
+        fingerprints = fingerprints == null ? new long[capacity] : Arrays.copyOf(fingerprints, capacity);
+        startDays = startDays == null ? new int[capacity] : Arrays.copyOf(startDays, capacity);
+        forecastDays = forecastDays == null ? new int[capacity] : Arrays.copyOf(forecastDays, capacity);
+        soilWater = soilWater == null ? new float[capacity] : Arrays.copyOf(soilWater, capacity);
+        totalIrrigation = totalIrrigation == null ? new float[capacity] : Arrays.copyOf(totalIrrigation, capacity);
+        computedAt = computedAt == null ? new long[capacity] : Arrays.copyOf(computedAt, capacity);
+        int days = capacity * horizon;
+        rainfall = rainfall == null ? new float[days] : Arrays.copyOf(rainfall, days);
+        evapotranspiration = evapotranspiration == null ? new float[days] : Arrays.copyOf(evapotranspiration, days);
+        irrigation = irrigation == null ? new float[days] : Arrays.copyOf(irrigation, days);
+        soilWaterEnd = soilWaterEnd == null ? new float[days] : Arrays.copyOf(soilWaterEnd, days);
+    }
+    
+    private void moveSlot(int from, int to) {
+        fieldIds[to] = fieldIds[from];
+        fingerprints[to] = fingerprints[from];
+        startDays[to] = startDays[from];
+        forecastDays[to] = forecastDays[from];
+        soilWater[to] = soilWater[from];
+        totalIrrigation[to] = totalIrrigation[from];
+        computedAt[to] = computedAt[from];
+        System.arraycopy(rainfall, from * horizon, rainfall, to * horizon, horizon);
+        System.arraycopy(evapotranspiration, from * horizon, evapotranspiration, to * horizon, horizon);
+        System.arraycopy(irrigation, from * horizon, irrigation, to * horizon, horizon);
+        System.arraycopy(soilWaterEnd, from * horizon, soilWaterEnd, to * horizon, horizon);
+    }
+    
+    private void rebuildIndex(int capacity) {
+        // At most half full, so probe sequences stay short
+        indexKeys = new long[capacity];
+        indexSlots = new int[capacity];
+        Arrays.fill(indexSlots, -1);
+        for (int slot = 0; slot < size; slot++) {
+            insert(fieldIds[slot], slot);
+        }
+    }
+    
+    private void insert(long fieldId, int slot) {
+        int mask = indexKeys.length - 1;
+        int bucket = bucket(fieldId, indexKeys.length);
+        while (indexSlots[bucket] >= 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        indexKeys[bucket] = fieldId;
+        indexSlots[bucket] = slot;
+    }
+    
+    /**
+     * Empties the bucket and shifts later entries of its probe run back, so lookups never stop
+     * early at the gap.
+     */
+    private void delete(int bucket) {
+        int mask = indexKeys.length - 1;
+        int gap = bucket;
+        for (int next = (gap + 1) & mask; indexSlots[next] >= 0; next = (next + 1) & mask) {
+            int home = bucket(indexKeys[next], indexKeys.length);
+            // The entry may fill the gap unless its home lies cyclically after the gap
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                indexKeys[gap] = indexKeys[next];
+                indexSlots[gap] = indexSlots[next];
+                gap = next;
+            }
+        }
+        indexSlots[gap] = -1;
+    }
+    
+    private int slot(long fieldId) {
+        int bucket = bucketOf(fieldId);
+        return bucket < 0 ? -1 : indexSlots[bucket];
+    }
+    
+    private int bucketOf(long fieldId) {
+        int capacity = indexKeys.length;
+        for (int bucket = bucket(fieldId, capacity); indexSlots[bucket] >= 0; bucket = (bucket + 1) & (capacity - 1)) {
+            if (indexKeys[bucket] == fieldId) {
+                return bucket;
+            }
+        }
+        return -1;
+    }
+    
+    private static int bucket(long key, int capacity) {
+        // Fibonacci hashing spreads sequential ids over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (capacity - 1);
+    }
+}
\ No newline at end of file
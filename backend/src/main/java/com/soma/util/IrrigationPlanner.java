@@ -0,0 +1,60 @@
+package com.soma.util;
+
+/**
+ * Plans irrigation over the next days with the single-bucket soil water balance of
+ * {@link FieldSeasonTable}: each day the soil gains the forecast rain and loses the day's
+ * evapotranspiration, and when it would fall below the allowed depletion it is refilled towards
+ * the refill level, at most one application's worth a day. Irrigation is deferred by a day when
+ * the next day's rain alone would bring the soil back above the threshold.
+ */
+public final class IrrigationPlanner {
+    
+    /**
+     * Bucket capacity in mm; the fraction of it that may be used up before irrigating; the
+     * fraction of it an application refills to; and the largest application in mm.
+     */
+    public record Settings(double soilCapacityMm, double allowedDepletion, double refillFraction,
+                           double maxApplicationMm) {
+        
+        public double thresholdMm() {
+            return soilCapacityMm * (1 - allowedDepletion);
+        }
+    }
+    
+    private IrrigationPlanner() {
+    }
+    
+    /**
+     * Plans the days of the rain and evapotranspiration arrays, writing each day's irrigation and
+     * end-of-day soil water into the output arrays. Returns the total irrigation.
+     */
+    public static double plan(double soilWaterMm, float[] rainfallMm, float[] evapotranspirationMm, Settings settings,
+                              float[] irrigationMm, float[] soilWaterOutMm) {
+        double soil = soilWaterMm;
+        double total = 0;
+        int days = rainfallMm.length;
+        for (int day = 0; day < days; day++) {
+            soil = clamp(soil + rainfallMm[day] - evapotranspirationMm[day], settings);
+            double irrigation = 0;
+            if (soil < settings.thresholdMm() && !rainRecovers(soil, day + 1, rainfallMm, evapotranspirationMm, settings)) {
+                irrigation = Math.min(settings.maxApplicationMm(),
+                        settings.soilCapacityMm() * settings.refillFraction() - soil);
+                soil = clamp(soil + irrigation, settings);
+                total += irrigation;
+            }
+            irrigationMm[day] = (float) irrigation;
+            soilWaterOutMm[day] = (float) soil;
+        }
+        return total;
+    }
+    
+    private static boolean rainRecovers(double soil, int nextDay, float[] rainfallMm, float[] evapotranspirationMm,
+                                        Settings settings) {
+        return nextDay < rainfallMm.length && rainfallMm[nextDay] > 0
+                && soil + rainfallMm[nextDay] - evapotranspirationMm[nextDay] >= settings.thresholdMm();
+    }
+    
+    private static double clamp(double soil, Settings settings) {
+        return Math.max(0, Math.min(settings.soilCapacityMm(), soil));
+    }
+}
\ No newline at end of file
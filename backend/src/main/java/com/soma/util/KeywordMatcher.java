@@ -0,0 +1,207 @@
+package com.soma.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords. Built once, then finds every keyword
+ * occurring in a text in a single left-to-right pass, independent of how many keywords there
+ * are. Matching is case-insensitive.
+ *
+ * <p>The automaton is immutable after construction and safe to share between threads.
+ * Transitions are stored as sorted per-state label arrays so thousands of keywords stay compact.
+ *
+ * @param <T> payload attached to each keyword
+ */
+public final class KeywordMatcher<T> {
+    
+    /**
+     * Orders matches from most to least relevant: higher priority first, then the more specific
+     * (longer) keyword, then the earlier occurrence, then the keyword itself so ties are stable.
+     */
+    private static final Comparator<Match<?>> RELEVANCE = Comparator
+            .comparingInt((Match<?> match) -> match.priority()).reversed()
+            .thenComparing(Comparator.comparingInt((Match<?> match) -> match.keyword().length()).reversed())
+            .thenComparingInt(Match::start)
+            .thenComparing(Match::keyword);
+    
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] failure;
+    private final int[] outputLink;
+    private final int[] keywordAt;
+    private final Entry<T>[] entries;
+    
+    private KeywordMatcher(char[][] labels, int[][] targets, int[] failure, int[] outputLink,
+                           int[] keywordAt, Entry<T>[] entries) {
+        this.labels = labels;
+        this.targets = targets;
+        this.failure = failure;
+        this.outputLink = outputLink;
+        this.keywordAt = keywordAt;
+        this.entries = entries;
+    }
+    
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+    
+    public int size() {
+        return entries.length;
+    }
+    
+    /**
+     * Returns every keyword occurrence in the text, in order of their end position.
+     */
+    public List<Match<T>> findAll(String text) {
+        List<Match<T>> matches = new ArrayList<>();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, Character.toLowerCase(text.charAt(i)));
+            for (int s = keywordAt[state] >= 0 ? state : outputLink[state]; s > 0; s = outputLink[s]) {
+                Entry<T> entry = entries[keywordAt[s]];
+                matches.add(new Match<>(entry.keyword(), entry.payload(), entry.priority(),
+                        i - entry.keyword().length() + 1));
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Returns the most relevant keyword occurrence in the text, if any.
+     */
+    public Optional<Match<T>> findBest(String text) {
+        Match<T> best = null;
+        for (Match<T> match : findAll(text)) {
+            if (best == null || RELEVANCE.compare(match, best) < 0) {
+                best = match;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+    
+    private int next(int state, char c) {
+        while (true) {
+            int index = Arrays.binarySearch(labels[state], c);
+            if (index >= 0) {
+                return targets[state][index];
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+    
+    public record Match<T>(String keyword, T payload, int priority, int start) {
+    }
+    
+    private record Entry<T>(String keyword, T payload, int priority) {
+    }
+    
+    public static final class Builder<T> {
+        
+        private final Map<String, Entry<T>> entries = new TreeMap<>();
+        
+        private Builder() {
+        }
+        
+        /**
+         * Adds a keyword with default priority. Adding the same keyword twice keeps the last payload.
+         */
+        public Builder<T> add(String keyword, T payload) {
+            return add(keyword, payload, 0);
+        }
+        
+        public Builder<T> add(String keyword, T payload, int priority) {
+            String normalized = lowerCase(keyword);
+            if (normalized.isEmpty()) {
+                throw new IllegalArgumentException("Keyword must not be empty");
+            }
+            entries.put(normalized, new Entry<>(normalized, payload, priority));
+            return this;
+        }
+        
+        // Lower-cases char by char, exactly as the text is folded while matching
+        private static String lowerCase(String keyword) {
+            char[] chars = keyword.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+            return new String(chars);
+        }
+        
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public KeywordMatcher<T> build() {
+            // Build the trie with sorted child maps, then freeze it into parallel arrays
+            List<TreeMap<Character, Integer>> children = new ArrayList<>();
+            List<Integer> keywordIndex = new ArrayList<>();
+            children.add(new TreeMap<>());
+            keywordIndex.add(-1);
+            
+            Entry<T>[] frozenEntries = entries.values().toArray(new Entry[0]);
+            for (int k = 0; k < frozenEntries.length; k++) {
+                int state = 0;
+                for (char c : frozenEntries[k].keyword().toCharArray()) {
+                    Integer child = children.get(state).get(c);
+                    if (child == null) {
+                        child = children.size();
+                        children.get(state).put(c, child);
+                        children.add(new TreeMap<>());
+                        keywordIndex.add(-1);
+                    }
+                    state = child;
+                }
+                keywordIndex.set(state, k);
+            }
+            
+            int stateCount = children.size();
+            char[][] labels = new char[stateCount][];
+            int[][] targets = new int[stateCount][];
+            int[] keywordAt = new int[stateCount];
+            for (int s = 0; s < stateCount; s++) {
+                TreeMap<Character, Integer> edges = children.get(s);
+                labels[s] = new char[edges.size()];
+                targets[s] = new int[edges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    labels[s][i] = edge.getKey();
+                    targets[s][i] = edge.getValue();
+                    i++;
+                }
+                keywordAt[s] = keywordIndex.get(s);
+            }
+            
+            // Breadth-first pass computes failure links and links to the nearest keyword-ending suffix
+            int[] failure = new int[stateCount];
+            int[] outputLink = new int[stateCount];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int i = 0; i < labels[state].length; i++) {
+                    char c = labels[state][i];
+                    int child = targets[state][i];
+                    int fallback = failure[state];
+                    int index;
+                    while ((index = Arrays.binarySearch(labels[fallback], c)) < 0 && fallback != 0) {
+                        fallback = failure[fallback];
+                    }
+                    failure[child] = index >= 0 ? targets[fallback][index] : 0;
+                    outputLink[child] = keywordAt[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+                    queue.add(child);
+                }
+            }
+            
+            return new KeywordMatcher<>(labels, targets, failure, outputLink, keywordAt, frozenEntries);
+        }
+    }
+}
\ No newline at end of file
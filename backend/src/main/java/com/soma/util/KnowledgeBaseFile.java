@@ -0,0 +1,218 @@
+package com.soma.util;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary chat knowledge base: a fixed-width index of topics and default answers followed
+ * by a blob of UTF-8 text. Opened files are memory-mapped and answers are decoded on demand, so
+ * only the index is read at load time and answer text stays off the heap.
+ *
+ * <pre>
+ * int   magic ("SKB1")
+ * int   topicCount
+ * int   defaultCount
+ * topicCount   x (int keywordOffset, int keywordLength, int answerOffset, int answerLength, int priority)
+ * defaultCount x (int answerOffset, int answerLength)
+ * byte[] UTF-8 text, addressed by absolute offsets
+ * </pre>
+ *
+ * <p>Run {@code main} to convert a tab-separated source file with lines of
+ * {@code keyword<TAB>priority<TAB>answer} (or {@code *<TAB><TAB>answer} for a default answer).
+ */
+public final class KnowledgeBaseFile {
+    
+    private static final int MAGIC = 0x534B4231;
+    private static final int HEADER_BYTES = 12;
+    private static final int TOPIC_BYTES = 20;
+    private static final int DEFAULT_BYTES = 8;
+    
+    private final ByteBuffer buffer;
+    private final int topicCount;
+    private final int defaultCount;
+    
+    private KnowledgeBaseFile(ByteBuffer buffer) {
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a knowledge base file");
+            }
+            this.topicCount = buffer.getInt(4);
+            this.defaultCount = buffer.getInt(8);
+            long indexEnd = HEADER_BYTES + (long) topicCount * TOPIC_BYTES + (long) defaultCount * DEFAULT_BYTES;
+            if (topicCount < 0 || defaultCount < 1 || indexEnd > buffer.limit()) {
+                throw new IllegalArgumentException("Corrupt knowledge base index");
+            }
+            // Every entry is checked now, so a corrupt file is rejected at load rather than on a lookup
+            for (int topic = 0; topic < topicCount; topic++) {
+                int entry = topicEntry(topic);
+                checkText(buffer.getInt(entry), buffer.getInt(entry + 4), indexEnd, "keyword of topic " + topic);
+                checkText(buffer.getInt(entry + 8), buffer.getInt(entry + 12), indexEnd, "answer of topic " + topic);
+            }
+            for (int index = 0; index < defaultCount; index++) {
+                int entry = (int) (HEADER_BYTES + (long) topicCount * TOPIC_BYTES + (long) index * DEFAULT_BYTES);
+                checkText(buffer.getInt(entry), buffer.getInt(entry + 4), indexEnd, "default answer " + index);
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated knowledge base file", e);
+        }
+    }
+    
+    public record Topic(String keyword, String answer, int priority) {
+    }
+    
+    /**
+     * Maps the file read-only. The mapping stays valid after the file is replaced, so readers of
+     * a previous version are unaffected by a reload.
+     */
+    public static KnowledgeBaseFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new KnowledgeBaseFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    public static KnowledgeBaseFile wrap(byte[] bytes) {
+        return new KnowledgeBaseFile(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+    
+    /**
+     * Writes the file next to its destination and moves it into place atomically, so a reader
+     * polling the path never maps a partially written file.
+     */
+    public static void write(Path path, List<Topic> topics, List<String> defaultAnswers) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, encode(topics, defaultAnswers));
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    public static byte[] encode(List<Topic> topics, List<String> defaultAnswers) {
+        if (defaultAnswers.isEmpty()) {
+            throw new IllegalArgumentException("A knowledge base needs at least one default answer");
+        }
+        List<byte[]> texts = new ArrayList<>();
+        int textBytes = 0;
+        for (Topic topic : topics) {
+            textBytes += add(texts, topic.keyword()) + add(texts, topic.answer());
+        }
+        for (String answer : defaultAnswers) {
+            textBytes += add(texts, answer);
+        }
+        
+        int indexBytes = HEADER_BYTES + topics.size() * TOPIC_BYTES + defaultAnswers.size() * DEFAULT_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(indexBytes + textBytes);
+        out.putInt(MAGIC).putInt(topics.size()).putInt(defaultAnswers.size());
+        int offset = indexBytes;
+        int text = 0;
+        for (Topic topic : topics) {
+            int keywordLength = texts.get(text++).length;
+            int answerLength = texts.get(text++).length;
+            out.putInt(offset).putInt(keywordLength).putInt(offset + keywordLength).putInt(answerLength)
+                    .putInt(topic.priority());
+            offset += keywordLength + answerLength;
+        }
+        for (int i = 0; i < defaultAnswers.size(); i++) {
+            int answerLength = texts.get(text++).length;
+            out.putInt(offset).putInt(answerLength);
+            offset += answerLength;
+        }
+        texts.forEach(out::put);
+        return out.array();
+    }
+    
+    public int topicCount() {
+        return topicCount;
+    }
+    
+    public int defaultCount() {
+        return defaultCount;
+    }
+    
+    public long sizeBytes() {
+        return buffer.limit();
+    }
+    
+    public String keyword(int topic) {
+        int entry = topicEntry(topic);
+        return text(buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+    
+    public String answer(int topic) {
+        int entry = topicEntry(topic);
+        return text(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+    }
+    
+    public int priority(int topic) {
+        return buffer.getInt(topicEntry(topic) + 16);
+    }
+    
+    public String defaultAnswer(int index) {
+        int entry = HEADER_BYTES + topicCount * TOPIC_BYTES + index * DEFAULT_BYTES;
+        return text(buffer.getInt(entry), buffer.getInt(entry + 4));
+    }
+    
+    private int topicEntry(int topic) {
+        return HEADER_BYTES + topic * TOPIC_BYTES;
+    }
+    
+    private void checkText(int offset, int length, long textStart, String entry) {
+        if (offset < textStart || length < 0 || (long) offset + length > buffer.limit()) {
+            throw new IllegalArgumentException("Corrupt knowledge base entry: " + entry + " at " + offset
+                    + " with " + length + " bytes lies outside the text");
+        }
+    }
+    
+    private String text(int offset, int length) {
+        // Absolute bulk get leaves the shared buffer's position alone, so concurrent reads are safe
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static int add(List<byte[]> texts, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        texts.add(bytes);
+        return bytes.length;
+    }
+    
+    /**
+     * Converts a tab-separated source file into the binary format: {@code <source.tsv> <target.kb>}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: KnowledgeBaseFile <source.tsv> <target.kb>");
+            System.exit(2);
+        }
+        List<Topic> topics = new ArrayList<>();
+        List<String> defaults = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", 3);
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Expected keyword<TAB>priority<TAB>answer: " + line);
+            }
+            if (fields[0].equals("*")) {
+                defaults.add(fields[2]);
+            } else {
+                int priority = fields[1].isBlank() ? 0 : Integer.parseInt(fields[1].trim());
+                topics.add(new Topic(fields[0], fields[2], priority));
+            }
+        }
+        write(Path.of(args[1]), topics, defaults);
+        System.out.println("Wrote " + topics.size() + " topics and " + defaults.size() + " default answers to " + args[1]);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.soma.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalDouble;
+
+/**
+ * Fixed-capacity open-addressing hash table from grid cell to value, stored in a memory-mapped
+ * file so it survives restarts and stays off the heap. Slots are 16 bytes (cell + 1, value); the
+ * file is sparse until written. Once the table is three quarters full further inserts are refused.
+ * A closed table is empty and refuses inserts.
+ */
+public final class MappedCellTable implements AutoCloseable {
+    
+    private static final int MAGIC = 0x43454C31;
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 16;
+    
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    private int size;
+    private boolean closed;
+    
+    private MappedCellTable(MappedByteBuffer buffer, int capacity, int size) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.size = size;
+    }
+    
+    /**
+     * Opens the table at the path, creating it with the given capacity (rounded up to a power of
+     * two) if it does not exist yet.
+     */
+    public static MappedCellTable open(Path path, int capacity) throws IOException {
+        int slots = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            if (!created) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException("Not a cell table: " + path);
+                }
+                slots = header.getInt(4);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) slots * SLOT_BYTES);
+            if (created) {
+                buffer.putInt(0, MAGIC).putInt(4, slots).putInt(8, 0);
+            }
+            return new MappedCellTable(buffer, slots, buffer.getInt(8));
+        }
+    }
+    
+    public synchronized OptionalDouble get(long cell) {
+        if (closed) {
+            return OptionalDouble.empty();
+        }
+        int slot = find(cell);
+        if (slot < 0 || buffer.getLong(offset(slot)) == 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(buffer.getDouble(offset(slot) + 8));
+    }
+    
+    /**
+     * Stores the value for the cell, returning false if the table is full.
+     */
+    public synchronized boolean put(long cell, double value) {
+        if (closed) {
+            return false;
+        }
+        int slot = find(cell);
+        if (slot < 0) {
+            return false;
+        }
+        int offset = offset(slot);
+        if (buffer.getLong(offset) == 0) {
+            if (size >= capacity - (capacity >> 2)) {
+                return false;
+            }
+            size++;
+            buffer.putInt(8, size);
+        }
+        buffer.putDouble(offset + 8, value);
+        buffer.putLong(offset, cell + 1);
+        return true;
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    public int capacity() {
+        return capacity;
+    }
+    
+    /**
+     * Writes the table back to its file and stops serving it. The mapping itself is released
+     * when the buffer is collected.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            buffer.force();
+        }
+    }
+    
+    /**
+     * Returns the slot holding the cell, or the empty slot where it belongs.
+     */
+    private int find(long cell) {
+        long key = cell + 1;
+        int slot = (int) mix(key) & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            long stored = buffer.getLong(offset(slot));
+            if (stored == key || stored == 0) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+    
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.soma.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Merges concurrent calls for the same key into one: the first caller starts the call and every
+ * caller arriving while it is in flight shares its result. Completed calls are forgotten, so this
+ * deduplicates work without caching it.
+ *
+ * @param <K> key identifying identical calls
+ * @param <V> call result
+ */
+public final class SingleFlight<K, V> {
+    
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    
+    /**
+     * Returns the in-flight call for the key, or starts one. A call that throws is reported
+     * through the returned future.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            shared.increment();
+            return existing;
+        }
+        
+        calls.increment();
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            // Forget the call before completing it, so a caller that sees the result and retries starts afresh
+            inFlight.remove(key, result);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+    
+    public int inFlight() {
+        return inFlight.size();
+    }
+    
+    public long calls() {
+        return calls.sum();
+    }
+    
+    public long shared() {
+        return shared.sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,252 @@
+package com.soma.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * In-memory index of points on the globe for bounding-box, radius and nearest-neighbour queries.
+ * Points are ordered by a 62-bit geohash (latitude and longitude quantized to 31 bits each and
+ * bit-interleaved), so every geohash cell is one contiguous range of the ordering. A query covers
+ * its box with at most 4 x 4 cells of the finest level that fits and scans each range, which costs
+ * a logarithmic seek per cell plus the points in the cells; the exact bounds are then checked.
+ *
+ * <p>Queries run concurrently with each other; updates take an exclusive lock.
+ *
+ * @param <T> value stored with each point
+ */
+public final class SpatialIndex<T> {
+    
+    public static final double EARTH_RADIUS_M = 6371008.8;
+    
+    private static final int BITS = 31;
+    private static final long MAX_CELL = (1L << BITS) - 1;
+    // The box of a query is covered by at most this many cells per axis
+    private static final int CELLS_PER_AXIS = 4;
+    private static final double FIRST_NEAREST_RADIUS_M = 1000;
+    
+    public record Hit<T>(long id, double latitude, double longitude, T value, double distanceMeters) {
+    }
+    
+    private record Entry<T>(long code, long id, double latitude, double longitude, T value) {
+    }
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry<T>> byId = new HashMap<>();
+    private final NavigableSet<Entry<T>> byCode = new TreeSet<>(
+            Comparator.<Entry<T>>comparingLong(Entry::code).thenComparingLong(Entry::id));
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void put(long id, double latitude, double longitude, T value) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Invalid coordinates " + latitude + ", " + longitude);
+        }
+        Entry<T> entry = new Entry<>(code(latitude, longitude), id, latitude, longitude, value);
+        lock.writeLock().lock();
+        try {
+            Entry<T> previous = byId.put(id, entry);
+            if (previous != null) {
+                byCode.remove(previous);
+            }
+            byCode.add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry<T> previous = byId.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            byCode.remove(previous);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Points inside the box, edges included. A box whose west edge is east of its east edge
+     * crosses the antimeridian.
+     */
+    public List<Hit<T>> withinBox(double south, double west, double north, double east) {
+        List<Hit<T>> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Consumer<Entry<T>> collect = entry -> hits.add(hit(entry, Double.NaN));
+            if (west <= east) {
+                scan(south, west, north, east, collect);
+            } else {
+                scan(south, west, north, 180, collect);
+                scan(south, -180, north, east, collect);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hits;
+    }
+    
+    /**
+     * Points within the great-circle distance of the given point, nearest first.
+     */
+    public List<Hit<T>> withinRadius(double latitude, double longitude, double radiusMeters) {
+        List<Hit<T>> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            scanRadius(latitude, longitude, radiusMeters, hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceMeters));
+        return hits;
+    }
+    
+    public List<Hit<T>> nearest(double latitude, double longitude, int limit) {
+        return nearest(latitude, longitude, limit, Hit::id);
+    }
+    
+    /**
+     * The nearest point of each of the {@code limit} nearest groups, nearest first. Searches a
+     * radius that grows fourfold until it holds enough groups; all points within a radius are
+     * found, so the groups found first are the nearest ones.
+     */
+    public List<Hit<T>> nearest(double latitude, double longitude, int limit, Function<? super Hit<T>, ?> groupBy) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            for (double radius = FIRST_NEAREST_RADIUS_M; ; radius *= 4) {
+                List<Hit<T>> hits = new ArrayList<>();
+                scanRadius(latitude, longitude, radius, hits);
+                hits.sort(Comparator.comparingDouble(Hit::distanceMeters));
+                List<Hit<T>> nearest = new ArrayList<>();
+                Set<Object> groups = new HashSet<>();
+                for (Hit<T> hit : hits) {
+                    if (groups.add(groupBy.apply(hit)) && nearest.add(hit) && nearest.size() == limit) {
+                        return nearest;
+                    }
+                }
+                if (radius >= Math.PI * EARTH_RADIUS_M || hits.size() == byId.size()) {
+                    return nearest;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+    
+    private void scanRadius(double latitude, double longitude, double radiusMeters, List<Hit<T>> hits) {
+        Consumer<Entry<T>> collect = entry -> {
+            double distance = distanceMeters(latitude, longitude, entry.latitude(), entry.longitude());
+            if (distance <= radiusMeters) {
+                hits.add(hit(entry, distance));
+            }
+        };
+        double angle = radiusMeters / EARTH_RADIUS_M;
+        double south = latitude - Math.toDegrees(angle);
+        double north = latitude + Math.toDegrees(angle);
+        // Near the poles, or for radii past a quarter of the globe, every longitude is in range
+        double lonSpan = angle >= Math.PI / 2 ? Double.NaN
+                : Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+        if (south <= -90 || north >= 90 || Double.isNaN(lonSpan)) {
+            scan(Math.max(-90, south), -180, Math.min(90, north), 180, collect);
+        } else if (longitude - lonSpan < -180) {
+            scan(south, longitude - lonSpan + 360, north, 180, collect);
+            scan(south, -180, north, longitude + lonSpan, collect);
+        } else if (longitude + lonSpan > 180) {
+            scan(south, longitude - lonSpan, north, 180, collect);
+            scan(south, -180, north, longitude + lonSpan - 360, collect);
+        } else {
+            scan(south, longitude - lonSpan, north, longitude + lonSpan, collect);
+        }
+    }
+    
+    /**
+     * Visits the points inside a box that does not cross the antimeridian. Callers hold the read
+     * lock.
+     */
+    private void scan(double south, double west, double north, double east, Consumer<Entry<T>> visitor) {
+        long x0 = quantize(west, -180, 360);
+        long x1 = quantize(east, -180, 360);
+        long y0 = quantize(south, -90, 180);
+        long y1 = quantize(north, -90, 180);
+        int shift = 0;
+        while ((x1 >>> shift) - (x0 >>> shift) >= CELLS_PER_AXIS || (y1 >>> shift) - (y0 >>> shift) >= CELLS_PER_AXIS) {
+            shift++;
+        }
+        for (long cx = x0 >>> shift; cx <= x1 >>> shift; cx++) {
+            for (long cy = y0 >>> shift; cy <= y1 >>> shift; cy++) {
+                long from = interleave(cx << shift, cy << shift);
+                long to = from + (1L << (2 * shift));
+                for (Entry<T> entry : byCode.subSet(probe(from), true, probe(to), false)) {
+                    if (entry.latitude() >= south && entry.latitude() <= north
+                            && entry.longitude() >= west && entry.longitude() <= east) {
+                        visitor.accept(entry);
+                    }
+                }
+            }
+        }
+    }
+    
+    private Entry<T> probe(long code) {
+        return new Entry<>(code, Long.MIN_VALUE, 0, 0, null);
+    }
+    
+    private Hit<T> hit(Entry<T> entry, double distance) {
+        return new Hit<>(entry.id(), entry.latitude(), entry.longitude(), entry.value(), distance);
+    }
+    
+    static long code(double latitude, double longitude) {
+        return interleave(quantize(longitude, -180, 360), quantize(latitude, -90, 180));
+    }
+    
+    private static long quantize(double degrees, double origin, double range) {
+        long cell = (long) Math.floor((degrees - origin) / range * (1L << BITS));
+        return Math.max(0, Math.min(MAX_CELL, cell));
+    }
+    
+    // Longitude takes the higher bit of each pair, as in a geohash
+    private static long interleave(long x, long y) {
+        return (spread(x) << 1) | spread(y);
+    }
+    
+    private static long spread(long value) {
+        long v = value & MAX_CELL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+}
\ No newline at end of file
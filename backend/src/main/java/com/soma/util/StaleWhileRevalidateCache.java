@@ -0,0 +1,133 @@
+package com.soma.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache that keeps upstream calls off the request path once a value has been loaded. Until the
+ * soft TTL a value is served as fresh; between the soft and hard TTL it is still served at once,
+ * marked stale, while one background refresh per key replaces it; past the hard TTL it is gone and
+ * the next lookup loads on the caller's thread, with concurrent lookups of the key waiting on a
+ * single load. A failed refresh leaves the stale value in place until the hard TTL. The soft TTL
+ * may depend on the value, e.g. to end when its source publishes the next update.
+ *
+ * @param <K> cache key
+ * @param <V> cached value
+ */
+public final class StaleWhileRevalidateCache<K, V> {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StaleWhileRevalidateCache.class);
+    
+    public enum Freshness { FRESH, STALE, MISS }
+    
+    public record Lookup<V>(V value, Freshness freshness, Duration age) {
+    }
+    
+    private record Entry<V>(V value, long loadedAt, long freshUntil) {
+    }
+    
+    private final Cache<K, Entry<V>> entries;
+    private final SingleFlight<K, V> refreshes = new SingleFlight<>();
+    private final Executor refreshExecutor;
+    private final Ticker ticker;
+    private final Function<? super V, Duration> softTtl;
+    private final LongAdder fresh = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    
+    public StaleWhileRevalidateCache(long maxEntries, Duration softTtl, Duration hardTtl, Executor refreshExecutor) {
+        this(maxEntries, softTtl, hardTtl, refreshExecutor, Ticker.systemTicker());
+    }
+    
+    public StaleWhileRevalidateCache(long maxEntries, Duration softTtl, Duration hardTtl, Executor refreshExecutor,
+                                     Ticker ticker) {
+        this(maxEntries, value -> softTtl, hardTtl, refreshExecutor, ticker);
+        if (hardTtl.compareTo(softTtl) < 0) {
+            throw new IllegalArgumentException("Hard TTL must not be shorter than the soft TTL");
+        }
+    }
+    
+    /**
+     * Uses a soft TTL computed from each value as it is loaded; the hard TTL still bounds it.
+     */
+    public StaleWhileRevalidateCache(long maxEntries, Function<? super V, Duration> softTtl, Duration hardTtl,
+                                     Executor refreshExecutor, Ticker ticker) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(hardTtl)
+                .ticker(ticker)
+                .build();
+        this.refreshExecutor = refreshExecutor;
+        this.ticker = ticker;
+        this.softTtl = softTtl;
+    }
+    
+    public Lookup<V> get(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> entry = entries.getIfPresent(key);
+        if (entry != null) {
+            long now = ticker.read();
+            long age = now - entry.loadedAt();
+            if (now < entry.freshUntil()) {
+                fresh.increment();
+                return new Lookup<>(entry.value(), Freshness.FRESH, Duration.ofNanos(age));
+            }
+            stale.increment();
+            refresh(key, loader);
+            return new Lookup<>(entry.value(), Freshness.STALE, Duration.ofNanos(age));
+        }
+        
+        misses.increment();
+        Entry<V> loaded = entries.get(key, k -> entry(loader.apply(k)));
+        return new Lookup<>(loaded.value(), Freshness.MISS, Duration.ofNanos(Math.max(0, ticker.read() - loaded.loadedAt())));
+    }
+    
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.estimatedSize());
+        stats.put("freshHitCount", fresh.sum());
+        stats.put("staleHitCount", stale.sum());
+        stats.put("missCount", misses.sum());
+        stats.put("refreshCount", refreshes.calls());
+        stats.put("refreshFailureCount", refreshFailures.sum());
+        stats.put("refreshesInFlight", refreshes.inFlight());
+        return stats;
+    }
+    
+    private Entry<V> entry(V value) {
+        long now = ticker.read();
+        return new Entry<>(value, now, now + Math.max(0, softTtl.apply(value).toNanos()));
+    }
+    
+    /**
+     * Starts a background refresh of the key unless one is already running.
+     */
+    private void refresh(K key, Function<? super K, ? extends V> loader) {
+        refreshes.execute(key, () -> CompletableFuture.supplyAsync(() -> {
+            try {
+                V value = loader.apply(key);
+                entries.put(key, entry(value));
+                return value;
+            } catch (RuntimeException e) {
+                refreshFailures.increment();
+                logger.warn("Refresh of {} failed, serving the stale value until it expires", key, e);
+                throw e;
+            }
+        }, refreshExecutor));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.soma.util;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * A decoded map tile as one byte per pixel: the palette index of a paletted PNG, or the first
+ * band of any other image. Kept as a flat primitive array so a cached tile costs its pixel count
+ * in bytes rather than an image object graph.
+ */
+public final class TileRaster {
+    
+    public static final TileRaster EMPTY = new TileRaster(0, 0, new byte[0]);
+    
+    private final int width;
+    private final int height;
+    private final byte[] samples;
+    
+    private TileRaster(int width, int height, byte[] samples) {
+        this.width = width;
+        this.height = height;
+        this.samples = samples;
+    }
+    
+    public static TileRaster decode(byte[] png) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            throw new IOException("Unsupported tile image format");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        
+        // 8-bit paletted and grayscale tiles: adopt the decoder's pixel array without copying
+        if (raster.getNumBands() == 1 && raster.getDataBuffer() instanceof DataBufferByte buffer
+                && buffer.getNumBanks() == 1 && buffer.getOffset() == 0 && buffer.getSize() == width * height
+                && raster.getSampleModel().getSampleSize(0) == 8 && raster.getParent() == null) {
+            return new TileRaster(width, height, buffer.getData());
+        }
+        
+        // Packed or multi-band pixels: unpack band 0 a row at a time through one reused buffer
+        byte[] samples = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            for (int x = 0; x < width; x++) {
+                samples[y * width + x] = (byte) row[x];
+            }
+        }
+        return new TileRaster(width, height, samples);
+    }
+    
+    public boolean isEmpty() {
+        return samples.length == 0;
+    }
+    
+    public int width() {
+        return width;
+    }
+    
+    public int height() {
+        return height;
+    }
+    
+    /**
+     * Returns the unsigned sample at the pixel, or -1 outside the tile.
+     */
+    public int sample(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        return samples[y * width + x] & 0xFF;
+    }
+    
+    public int sizeBytes() {
+        return samples.length;
+    }
+}
\ No newline at end of file
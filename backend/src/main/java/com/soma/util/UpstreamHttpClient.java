@@ -0,0 +1,286 @@
+package com.soma.util;
+
+import com.soma.exception.UpstreamUnavailableException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound HTTP for upstream data sources: one pooled, keep-alive HTTP/2 client (falling back to
+ * HTTP/1.1 where the server does not offer it) with connect, per-attempt and overall timeouts, a
+ * circuit breaker per host, and hedging: when an attempt is slower than the host's recent 95th
+ * percentile, a duplicate is sent and whichever answers first wins. Only use it for idempotent
+ * GETs. Latency and failures are recorded per host.
+ */
+public final class UpstreamHttpClient {
+    
+    // Hedge delays fall back to the configured minimum until a host has this many samples
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    
+    public record Response(int status, byte[] body) {
+    }
+    
+    private final HttpClient http;
+    private final Duration attemptTimeout;
+    private final long requestTimeoutMs;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMs;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+    
+    public UpstreamHttpClient(Duration connectTimeout, Duration attemptTimeout, Duration requestTimeout,
+                              boolean hedgingEnabled, Duration minHedgeDelay,
+                              int failureThreshold, Duration openDuration) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.attemptTimeout = attemptTimeout;
+        this.requestTimeoutMs = requestTimeout.toMillis();
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMs = minHedgeDelay.toMillis();
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+    
+    /**
+     * Fetches the URI, waiting at most the request timeout across all attempts. Client errors
+     * (4xx) are returned like successes; server errors, timeouts and connection failures count
+     * against the host's circuit and are thrown as {@link UncheckedIOException}.
+     *
+     * @throws UpstreamUnavailableException if the host's circuit is open
+     */
+    public Response get(URI uri) {
+        // Built before taking a permit, since a URI the builder rejects would leave the permit unreported
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(attemptTimeout).GET().build();
+        Host host = host(uri);
+        long permit = host.breaker.acquire();
+        if (permit == CircuitBreaker.REFUSED) {
+            host.rejected.increment();
+            throw new UpstreamUnavailableException("Upstream " + host.name + " is unavailable, circuit open");
+        }
+        
+        CompletableFuture<Response> call = hedged(host, request);
+        try {
+            Response response = call.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+            host.breaker.onSuccess(permit);
+            return response;
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            host.breaker.onFailure(permit);
+            throw new UncheckedIOException(new HttpTimeoutException("No response from " + host.name
+                    + " within " + requestTimeoutMs + " ms"));
+        } catch (ExecutionException e) {
+            host.breaker.onFailure(permit);
+            throw e.getCause() instanceof IOException cause
+                    ? new UncheckedIOException(cause)
+                    : new UncheckedIOException(new IOException("Request to " + host.name + " failed", e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            host.breaker.onFailure(permit);
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for " + host.name));
+        }
+    }
+    
+    /**
+     * Returns whether calls to the URI's host are currently refused by its circuit breaker.
+     */
+    public boolean isOpen(URI uri) {
+        Host host = hosts.get(uri.getAuthority());
+        return host != null && host.breaker.isOpen();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        hosts.forEach((name, host) -> stats.put(name, host.stats()));
+        return stats;
+    }
+    
+    private Host host(URI uri) {
+        return hosts.computeIfAbsent(uri.getAuthority(),
+                name -> new Host(name, new CircuitBreaker(failureThreshold, openDuration)));
+    }
+    
+    /**
+     * Starts the request and, if it is still outstanding after the hedge delay, a duplicate. The
+     * first success completes the call and cancels the other attempt; the call fails only when
+     * every attempt started has failed.
+     */
+    private CompletableFuture<Response> hedged(Host host, HttpRequest request) {
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicBoolean settled = new AtomicBoolean();
+        attempt(host, request, result, outstanding, settled, false);
+        
+        if (hedgingEnabled) {
+            Executor delayed = CompletableFuture.delayedExecutor(host.hedgeDelayMs(minHedgeDelayMs), TimeUnit.MILLISECONDS);
+            delayed.execute(() -> {
+                // Zero outstanding means every earlier attempt already failed the call
+                if (result.isDone() || outstanding.getAndIncrement() == 0) {
+                    return;
+                }
+                host.hedges.increment();
+                attempt(host, request, result, outstanding, settled, true);
+            });
+        }
+        return result;
+    }
+    
+    private void attempt(Host host, HttpRequest request, CompletableFuture<Response> result,
+                         AtomicInteger outstanding, AtomicBoolean settled, boolean hedge) {
+        long start = System.nanoTime();
+        host.requests.increment();
+        CompletableFuture<HttpResponse<byte[]>> exchange = send(request);
+        // Cancelling the exchange aborts the request, so the losing attempt frees its connection
+        result.whenComplete((response, error) -> exchange.cancel(true));
+        exchange.whenComplete((response, error) -> {
+            Throwable failure = unwrap(error);
+            if (failure instanceof CancellationException) {
+                return;
+            }
+            if (failure == null && response.statusCode() >= 500) {
+                failure = new IOException("HTTP " + response.statusCode() + " from " + host.name);
+            }
+            if (failure == null) {
+                host.latency.record(System.nanoTime() - start);
+                // Count the win before completing, so a caller woken by the result sees it
+                if (settled.compareAndSet(false, true)) {
+                    if (hedge) {
+                        host.hedgeWins.increment();
+                    }
+                    result.complete(new Response(response.statusCode(), response.body()));
+                }
+                return;
+            }
+            host.failures.increment();
+            if (failure instanceof HttpTimeoutException) {
+                host.timeouts.increment();
+            }
+            if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(failure);
+            }
+        });
+    }
+    
+    /**
+     * Starts the exchange. A client that throws instead of returning a future fails the attempt
+     * like any other error, so the call still completes and its permit is reported.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request) {
+        try {
+            return http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private static final class Host {
+        
+        private final String name;
+        private final CircuitBreaker breaker;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        
+        private Host(String name, CircuitBreaker breaker) {
+            this.name = name;
+            this.breaker = breaker;
+        }
+        
+        private long hedgeDelayMs(long minimumMs) {
+            if (latency.count() < MIN_HEDGE_SAMPLES) {
+                return minimumMs;
+            }
+            return Math.max(minimumMs, TimeUnit.NANOSECONDS.toMillis(latency.percentile(0.95)));
+        }
+        
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("circuit", breaker.state().name());
+            stats.put("circuitOpenCount", breaker.openCount());
+            stats.put("requestCount", requests.sum());
+            stats.put("failureCount", failures.sum());
+            stats.put("timeoutCount", timeouts.sum());
+            stats.put("rejectedCount", rejected.sum());
+            stats.put("hedgeCount", hedges.sum());
+            stats.put("hedgeWinCount", hedgeWins.sum());
+            stats.put("latencyP50Ms", latency.percentile(0.50) / 1e6);
+            stats.put("latencyP95Ms", latency.percentile(0.95) / 1e6);
+            stats.put("latencyP99Ms", latency.percentile(0.99) / 1e6);
+            return stats;
+        }
+    }
+    
+    /**
+     * Lock-free latency histogram with buckets a quarter of a power of two wide (about 19%),
+     * from 1 microsecond up. Percentiles report the upper bound of their bucket.
+     */
+    static final class LatencyHistogram {
+        
+        private static final int BUCKETS_PER_DOUBLING = 4;
+        private static final int BUCKETS = 40 * BUCKETS_PER_DOUBLING;
+        
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        
+        void record(long nanos) {
+            double micros = Math.max(1.0, nanos / 1000.0);
+            int bucket = (int) (Math.log(micros) / Math.log(2) * BUCKETS_PER_DOUBLING);
+            counts.incrementAndGet(Math.min(BUCKETS - 1, bucket));
+            total.increment();
+        }
+        
+        long count() {
+            return total.sum();
+        }
+        
+        long percentile(double quantile) {
+            long count = total.sum();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return (long) (Math.pow(2, (double) (i + 1) / BUCKETS_PER_DOUBLING) * 1000);
+                }
+            }
+            return (long) (Math.pow(2, (double) BUCKETS / BUCKETS_PER_DOUBLING) * 1000);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.soma.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact nearest-neighbour index over unit-length vectors, scored by dot product (cosine
+ * similarity). Vectors live back to back in one float array so a search is a single linear,
+ * cache-friendly sweep; removal moves the last vector into the freed slot to keep it dense.
+ *
+ * <p>Searches run concurrently with each other; updates take an exclusive lock.
+ */
+public final class VectorIndex {
+    
+    private final int dimensions;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private float[] vectors;
+    private long[] ids;
+    private int size;
+    
+    public VectorIndex(int dimensions, int initialCapacity) {
+        this.dimensions = dimensions;
+        int capacity = Math.max(initialCapacity, 16);
+        this.vectors = new float[capacity * dimensions];
+        this.ids = new long[capacity];
+    }
+    
+    public int dimensions() {
+        return dimensions;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public void upsert(long id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(id);
+            if (slot == null) {
+                if (size == ids.length) {
+                    int capacity = ids.length * 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    vectors = Arrays.copyOf(vectors, capacity * dimensions);
+                }
+                slot = size++;
+                ids[slot] = id;
+                slotById.put(id, slot);
+            }
+            System.arraycopy(vector, 0, vectors, slot * dimensions, dimensions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return false;
+            }
+            int last = --size;
+            if (slot != last) {
+                ids[slot] = ids[last];
+                System.arraycopy(vectors, last * dimensions, vectors, slot * dimensions, dimensions);
+                slotById.put(ids[slot], slot);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Returns up to {@code k} vectors most similar to the query, best first.
+     */
+    public List<Hit> search(float[] query, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        Comparator<Hit> byScore = Comparator.comparingDouble(Hit::score);
+        PriorityQueue<Hit> top = new PriorityQueue<>(byScore);
+        
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < size; slot++) {
+                float score = dot(query, vectors, slot * dimensions);
+                if (top.size() < k) {
+                    top.offer(new Hit(ids[slot], score));
+                } else if (score > top.peek().score()) {
+                    top.poll();
+                    top.offer(new Hit(ids[slot], score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(byScore.reversed());
+        return hits;
+    }
+    
+    private float dot(float[] query, float[] data, int offset) {
+        // Four independent accumulators let the CPU overlap the multiply-adds
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimensions; i += 4) {
+            s0 += query[i] * data[offset + i];
+            s1 += query[i + 1] * data[offset + i + 1];
+            s2 += query[i + 2] * data[offset + i + 2];
+            s3 += query[i + 3] * data[offset + i + 3];
+        }
+        for (; i < dimensions; i++) {
+            s0 += query[i] * data[offset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+    
+    public record Hit(long id, float score) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.soma.benchmark;
+
+import com.soma.util.FieldSeasonTable;
+import com.soma.util.ForecastGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One daily season run over a million fields: each field reads its day's 24 hourly temperatures
+ * and precipitation from a global forecast grid, as the service does, and is advanced in parallel
+ * chunks of 10,000 into a new {@link FieldSeasonTable}.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=FieldSeasonTableBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FieldSeasonTableBenchmark {
+    
+    private static final LocalDate DAY = LocalDate.of(2026, 6, 1);
+    private static final FieldSeasonTable.Settings SETTINGS = new FieldSeasonTable.Settings(10, 30, 150, 0.5);
+    
+    @Param({"1000000"})
+    private int fields;
+    
+    @Param({"1", "8"})
+    private int threads;
+    
+    private long[] ids;
+    private double[] latitudes;
+    private double[] longitudes;
+    private ForecastGrid forecast;
+    private FieldSeasonTable previous;
+    private ExecutorService executor;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        ids = new long[fields];
+        latitudes = new double[fields];
+        longitudes = new double[fields];
+        for (int i = 0; i < fields; i++) {
+            ids[i] = i + 1;
+            latitudes[i] = random.nextDouble() * 120 - 55;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        double[] scales = new double[8];
+        Arrays.fill(scales, 0.01);
+        Instant start = DAY.atStartOfDay(ZoneOffset.UTC).toInstant();
+        forecast = ForecastGrid.wrap(ForecastGrid.encode(start, 48, -90, -180, 1, 181, 360, scales, new double[8],
+                (band, hour, latitude, longitude) -> band == 0 ? 30 - Math.abs(latitude) * 0.6 + hour % 24 / 4.0
+                        : band == 2 ? (hour + (int) longitude) % 7 == 0 ? 1.5 : 0 : 0));
+        executor = Executors.newFixedThreadPool(threads);
+        previous = FieldSeasonTable.empty().advance(ids, (int) DAY.toEpochDay(), this::day, SETTINGS, executor, 10_000)
+                .table();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+    
+    @Benchmark
+    public FieldSeasonTable.Run dailyRun() {
+        return previous.advance(ids, (int) DAY.plusDays(1).toEpochDay(), this::nextDay, SETTINGS, executor, 10_000);
+    }
+    
+    private FieldSeasonTable.Day day(int index) {
+        return dayOf(index, DAY);
+    }
+    
+    private FieldSeasonTable.Day nextDay(int index) {
+        return dayOf(index, DAY.plusDays(1));
+    }
+    
+    private FieldSeasonTable.Day dayOf(int index, LocalDate day) {
+        Instant start = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double rainfall = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            Instant time = start.plusSeconds(hour * 3600L);
+            double temperature = forecast.value(0, time, latitudes[index], longitudes[index]);
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            rainfall += forecast.value(2, time, latitudes[index], longitudes[index]);
+        }
+        return new FieldSeasonTable.Day(min, max, rainfall, 4.0, (int) LocalDate.of(2026, 3, 1).toEpochDay());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.soma.benchmark;
+
+import com.soma.util.KeywordMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled keyword automaton used by {@code AiChatService} against the previous
+ * approach of calling {@code contains} for every knowledge-base key.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=KeywordMatchingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordMatchingBenchmark {
+    
+    @Param({"10", "1000", "5000"})
+    private int topics;
+    
+    private Map<String, String> responses;
+    private KeywordMatcher<String> matcher;
+    private String[] questions;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        responses = new HashMap<>();
+        KeywordMatcher.Builder<String> builder = KeywordMatcher.builder();
+        for (int i = 0; i < topics; i++) {
+            String keyword = word(random) + (random.nextBoolean() ? " " + word(random) : "");
+            responses.put(keyword, "answer " + i);
+            builder.add(keyword, "answer " + i);
+        }
+        matcher = builder.build();
+        
+        String[] keywords = responses.keySet().toArray(new String[0]);
+        questions = new String[256];
+        for (int i = 0; i < questions.length; i++) {
+            questions[i] = "how should i manage " + keywords[random.nextInt(keywords.length)]
+                    + " on my farm this season given " + word(random) + " conditions?";
+        }
+    }
+    
+    @Benchmark
+    public String containsLoop() {
+        String question = nextQuestion();
+        for (Map.Entry<String, String> entry : responses.entrySet()) {
+            if (question.contains(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+    
+    @Benchmark
+    public String automaton() {
+        return matcher.findBest(nextQuestion()).map(KeywordMatcher.Match::payload).orElse(null);
+    }
+    
+    private String nextQuestion() {
+        next = (next + 1) & (questions.length - 1);
+        return questions[next];
+    }
+    
+    private static String word(Random random) {
+        char[] chars = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
\ No newline at end of file
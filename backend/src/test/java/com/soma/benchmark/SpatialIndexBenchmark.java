@@ -0,0 +1,118 @@
+package com.soma.benchmark;
+
+import com.soma.util.SpatialIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Field location queries against the geohash {@link SpatialIndex} and against a linear scan of
+ * the same points, at up to one million fields spread over the farmed latitudes.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=SpatialIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SpatialIndexBenchmark {
+    
+    @Param({"10000", "1000000"})
+    private int size;
+    
+    private SpatialIndex<Integer> index;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[][] queries;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        index = new SpatialIndex<>();
+        latitudes = new double[size];
+        longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = random.nextDouble() * 120 - 55;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+            index.put(i, latitudes[i], longitudes[i], i);
+        }
+        queries = new double[64][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[] {random.nextDouble() * 120 - 55, random.nextDouble() * 360 - 180};
+        }
+    }
+    
+    @Benchmark
+    public List<SpatialIndex.Hit<Integer>> indexWithin25Km() {
+        double[] query = nextQuery();
+        return index.withinRadius(query[0], query[1], 25_000);
+    }
+    
+    @Benchmark
+    public List<Integer> scanWithin25Km() {
+        double[] query = nextQuery();
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (SpatialIndex.distanceMeters(query[0], query[1], latitudes[i], longitudes[i]) <= 25_000) {
+                hits.add(i);
+            }
+        }
+        return hits;
+    }
+    
+    @Benchmark
+    public List<SpatialIndex.Hit<Integer>> indexInBox() {
+        double[] query = nextQuery();
+        return index.withinBox(query[0], query[1], query[0] + 0.5, Math.min(180, query[1] + 0.5));
+    }
+    
+    @Benchmark
+    public List<Integer> scanInBox() {
+        double[] query = nextQuery();
+        double north = query[0] + 0.5;
+        double east = Math.min(180, query[1] + 0.5);
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (latitudes[i] >= query[0] && latitudes[i] <= north && longitudes[i] >= query[1] && longitudes[i] <= east) {
+                hits.add(i);
+            }
+        }
+        return hits;
+    }
+    
+    @Benchmark
+    public List<SpatialIndex.Hit<Integer>> indexNearest5() {
+        double[] query = nextQuery();
+        return index.nearest(query[0], query[1], 5);
+    }
+    
+    @Benchmark
+    public PriorityQueue<double[]> scanNearest5() {
+        double[] query = nextQuery();
+        // Max-heap of {distance, id} holding the five nearest seen so far
+        PriorityQueue<double[]> nearest = new PriorityQueue<>(Comparator.comparingDouble((double[] hit) -> hit[0]).reversed());
+        for (int i = 0; i < size; i++) {
+            double distance = SpatialIndex.distanceMeters(query[0], query[1], latitudes[i], longitudes[i]);
+            if (nearest.size() < 5) {
+                nearest.add(new double[] {distance, i});
+            } else if (distance < nearest.peek()[0]) {
+                nearest.poll();
+                nearest.add(new double[] {distance, i});
+            }
+        }
+        return nearest;
+    }
+    
+    private double[] nextQuery() {
+        next = (next + 1) & (queries.length - 1);
+        return queries[next];
+    }
+}
@@ -0,0 +1,65 @@
+package com.soma.benchmark;
+
+import com.soma.util.VectorIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-k search latency of the tip {@link VectorIndex} from catalog size up to one million vectors.
+ *
+ * <p>Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=VectorIndexBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VectorIndexBenchmark {
+    
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+    
+    @Param({"256"})
+    private int dimensions;
+    
+    private VectorIndex index;
+    private float[][] queries;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        index = new VectorIndex(dimensions, size);
+        for (int i = 0; i < size; i++) {
+            index.upsert(i, randomUnitVector(random));
+        }
+        queries = new float[64][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomUnitVector(random);
+        }
+    }
+    
+    @Benchmark
+    public List<VectorIndex.Hit> searchTop3() {
+        next = (next + 1) & (queries.length - 1);
+        return index.search(queries[next], 3);
+    }
+    
+    private float[] randomUnitVector(Random random) {
+        float[] vector = new float[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
\ No newline at end of file
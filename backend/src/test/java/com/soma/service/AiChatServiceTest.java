@@ -2,18 +2,29 @@ package com.soma.service;
 
 import com.soma.dto.AiChatRequestDto;
 import com.soma.dto.AiChatResponseDto;
+import com.soma.exception.ProviderBusyException;
+import com.soma.repository.TipRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.Mockito.*;
 
 class AiChatServiceTest {
     
     private AiChatService aiChatService;
+    private TipRetrievalService tipRetrievalService;
     
     @BeforeEach
     void setUp() {
-        aiChatService = new AiChatService();
+        ChatResponseCache responseCache = new ChatResponseCache(100, 60);
+        tipRetrievalService = spy(new TipRetrievalService(
+                mock(TipRepository.class), new HashingTipEmbedder(256), responseCache, 3, 0.2));
+        ChatKnowledgeBase knowledgeBase = new ChatKnowledgeBase();
+        aiChatService = new AiChatService(new LocalStubChatProvider(knowledgeBase, 0, 0), knowledgeBase,
+                responseCache, tipRetrievalService, new ConversationStore(2048, 1 << 20, 30), Runnable::run);
     }
     
     @Test
@@ -61,8 +72,105 @@ class AiChatServiceTest {
         assertNotNull(response);
         assertNotNull(response.getResponse());
         assertNotNull(response.getTimestamp());
-        assertTrue(response.getResponse().contains("agricultural") || 
+        assertTrue(response.getResponse().contains("agricultural") ||
                   response.getResponse().contains("farming") ||
                   response.getResponse().contains("sustainable"));
     }
+    
+    @Test
+    void testGetChatResponsePrefersMostSpecificTopic() {
+        // Arrange
+        AiChatRequestDto request = new AiChatRequestDto();
+        request.setQuestion("Is crop rotation good for soil?");
+        
+        // Act
+        AiChatResponseDto response = aiChatService.getChatResponse(request);
+        
+        // Assert
+        assertTrue(response.getResponse().startsWith("Crop rotation is essential"));
+    }
+    
+    @Test
+    void testFollowUpQuestionIsAnsweredInSessionContext() {
+        // Arrange
+        AiChatRequestDto first = new AiChatRequestDto();
+        first.setQuestion("How should I handle pests?");
+        first.setSessionId("field-7");
+        AiChatRequestDto followUp = new AiChatRequestDto();
+        followUp.setQuestion("And for corn?");
+        followUp.setSessionId("field-7");
+        AiChatRequestDto otherUser = new AiChatRequestDto();
+        otherUser.setQuestion("And for corn?");
+        otherUser.setSessionId("field-7");
+        
+        // Act
+        aiChatService.getChatResponse(first, "alice");
+        AiChatResponseDto response = aiChatService.getChatResponse(followUp, "alice");
+        AiChatResponseDto unrelated = aiChatService.getChatResponse(otherUser, "bob");
+        
+        // Assert
+        assertTrue(response.getResponse().startsWith("Integrated Pest Management"));
+        assertFalse(unrelated.getResponse().startsWith("Integrated Pest Management"));
+    }
+    
+    @Test
+    void testFollowUpQuestionIsRetrievedOnce() {
+        // Arrange
+        AiChatRequestDto first = new AiChatRequestDto();
+        first.setQuestion("How should I handle pests?");
+        first.setSessionId("field-7");
+        AiChatRequestDto followUp = new AiChatRequestDto();
+        followUp.setQuestion("And for corn?");
+        followUp.setSessionId("field-7");
+        aiChatService.getChatResponse(first, "alice");
+        
+        // Act
+        aiChatService.getChatResponse(followUp, "alice");
+        
+        // Assert
+        // Once to tell it is a follow-up, reused for the answer; then once with the conversation's topics
+        verify(tipRetrievalService, times(1)).retrieve("and for corn?");
+        verify(tipRetrievalService, times(1)).retrieve(endsWith(" and for corn?"));
+    }
+    
+    @Test
+    void testSelfContainedQuestionsShareTheCacheAcrossConversations() {
+        // Arrange
+        AiChatRequestDto opener = new AiChatRequestDto();
+        opener.setQuestion("How should I handle pests?");
+        opener.setSessionId("field-7");
+        AiChatRequestDto inSession = new AiChatRequestDto();
+        inSession.setQuestion("How can I improve my soil health?");
+        inSession.setSessionId("field-7");
+        AiChatRequestDto withoutSession = new AiChatRequestDto();
+        withoutSession.setQuestion("How can I improve my soil health?");
+        
+        // Act
+        aiChatService.getChatResponse(opener, "alice");
+        aiChatService.getChatResponse(inSession, "alice");
+        aiChatService.getChatResponse(withoutSession, "bob");
+        aiChatService.getChatResponse(withoutSession, "bob");
+        
+        // Assert
+        // The soil question has a topic of its own, so alice's history stays out of its key
+        assertEquals(2L, aiChatService.getCacheStats().get("hitCount"));
+        // Requests without a session keep no conversation
+        assertEquals(1L, aiChatService.getConversationStats().get("sessions"));
+    }
+    
+    @Test
+    void testStreamIsRefusedAsBusyWhenTheExecutorIsFull() {
+        // Arrange
+        ChatKnowledgeBase knowledgeBase = new ChatKnowledgeBase();
+        ChatResponseCache responseCache = new ChatResponseCache(100, 60);
+        AiChatService busyService = new AiChatService(new LocalStubChatProvider(knowledgeBase, 0, 0), knowledgeBase,
+                responseCache, mock(TipRetrievalService.class), new ConversationStore(2048, 1 << 20, 30), task -> {
+                    throw new TaskRejectedException("queue full");
+                });
+        AiChatRequestDto request = new AiChatRequestDto();
+        request.setQuestion("How can I improve my soil health?");
+        
+        // Act & Assert
+        assertThrows(ProviderBusyException.class, () -> busyService.streamChatResponse(request, "alice"));
+    }
 }
\ No newline at end of file
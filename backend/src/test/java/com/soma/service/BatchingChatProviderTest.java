@@ -0,0 +1,159 @@
+package com.soma.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingChatProviderTest {
+    
+    @Test
+    void testBurstIsCoalescedAndBatched() throws Exception {
+        // Arrange
+        CountingProvider upstream = new CountingProvider(new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0));
+        String[] topics = {"soil", "water", "carbon", "pest", "fertilizer", "yield", "organic", "climate"};
+        ExecutorService farmers = Executors.newFixedThreadPool(64);
+        CountDownLatch go = new CountDownLatch(1);
+        
+        try (BatchingChatProvider provider = new BatchingChatProvider(upstream, 8, 200, 2)) {
+            // Answers wait until every farmer has asked, so the burst overlaps however the threads are scheduled
+            upstream.ready = () -> (Long) provider.getStats().get("requestCount") >= 64;
+            
+            // Act
+            List<CompletableFuture<String>> answers = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                ChatPrompt prompt = ChatPrompt.of("what about " + topics[i % topics.length] + "?");
+                answers.add(CompletableFuture.supplyAsync(() -> {
+                    await(go);
+                    return provider.complete(prompt);
+                }, farmers));
+            }
+            go.countDown();
+            
+            // Assert
+            for (int i = 0; i < answers.size(); i++) {
+                String expected = new ChatKnowledgeBase().answer(topics[i % topics.length]);
+                assertEquals(expected, answers.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertTrue(upstream.calls.get() < 8, "64 requests took " + upstream.calls.get() + " upstream calls");
+            assertEquals(64L, provider.getStats().get("requestCount"));
+            assertTrue((Long) provider.getStats().get("coalescedCount") >= 56);
+        } finally {
+            farmers.shutdownNow();
+        }
+    }
+    
+    @Test
+    void testBatchFailureReachesEveryCaller() {
+        // Arrange
+        ChatProvider failing = new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0) {
+            @Override
+            public List<String> completeBatch(List<ChatPrompt> prompts) {
+                throw new IllegalStateException("upstream down");
+            }
+        };
+        
+        try (BatchingChatProvider provider = new BatchingChatProvider(failing, 4, 1, 1)) {
+            // Act & Assert
+            IllegalStateException error = assertThrows(IllegalStateException.class,
+                    () -> provider.complete(ChatPrompt.of("soil")));
+            assertEquals("upstream down", error.getMessage());
+            assertEquals(0, provider.getStats().get("queued"));
+        }
+    }
+    
+    @Test
+    void testErrorInBatchReachesEveryCaller() {
+        // Arrange
+        ChatProvider failing = new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0) {
+            @Override
+            public List<String> completeBatch(List<ChatPrompt> prompts) {
+                throw new StackOverflowError();
+            }
+        };
+        
+        try (BatchingChatProvider provider = new BatchingChatProvider(failing, 4, 1, 1)) {
+            // Act & Assert
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> provider.complete(ChatPrompt.of("soil")));
+            assertInstanceOf(StackOverflowError.class, error.getCause());
+        }
+    }
+    
+    @Test
+    void testPromptBeingBatchedFailsWhenTheProviderCloses() throws Exception {
+        // Arrange
+        BatchingChatProvider provider = new BatchingChatProvider(
+                new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0), 8, 60_000, 1);
+        CompletableFuture<String> answer = CompletableFuture.supplyAsync(() -> provider.complete(ChatPrompt.of("soil")));
+        while (!provider.getStats().get("requestCount").equals(1L) || !provider.getStats().get("queued").equals(0)) {
+            // Until the dispatcher has taken the prompt and waits a minute for more
+            Thread.sleep(5);
+        }
+        
+        // Act
+        provider.close();
+        
+        // Assert
+        ExecutionException error = assertThrows(ExecutionException.class, () -> answer.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static class CountingProvider implements ChatProvider {
+        
+        private final ChatProvider delegate;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile BooleanSupplier ready = () -> true;
+        
+        CountingProvider(ChatProvider delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public String name() {
+            return "counting";
+        }
+        
+        @Override
+        public String complete(ChatPrompt prompt) {
+            calls.incrementAndGet();
+            return delegate.complete(prompt);
+        }
+        
+        @Override
+        public String stream(ChatPrompt prompt, Consumer<String> onToken) {
+            calls.incrementAndGet();
+            return delegate.stream(prompt, onToken);
+        }
+        
+        @Override
+        public List<String> completeBatch(List<ChatPrompt> prompts) {
+            calls.incrementAndGet();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!ready.getAsBoolean() && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            return delegate.completeBatch(prompts);
+        }
+    }
+}
\ No newline at end of file
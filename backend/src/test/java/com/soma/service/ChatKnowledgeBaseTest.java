@@ -0,0 +1,91 @@
+package com.soma.service;
+
+import com.soma.util.KnowledgeBaseFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatKnowledgeBaseTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testLoadsTopicsFromFile() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("chat.kb");
+        KnowledgeBaseFile.write(path, List.of(
+                new KnowledgeBaseFile.Topic("maïs", "Le maïs a besoin d'un sol bien drainé.", 0),
+                new KnowledgeBaseFile.Topic("soil", "Test your soil every season.", 0)), List.of("Ask an agronomist."));
+        
+        // Act
+        ChatKnowledgeBase knowledgeBase = new ChatKnowledgeBase(path.toString(), null);
+        
+        // Assert
+        assertEquals(Optional.of("Le maïs a besoin d'un sol bien drainé."), knowledgeBase.match("et pour le MAÏS ?"));
+        assertEquals("Ask an agronomist.", knowledgeBase.answer("quantum physics"));
+        assertEquals(2, knowledgeBase.getStats().get("topics"));
+    }
+    
+    @Test
+    void testChangedFileIsSwappedInAndCacheInvalidated() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("chat.kb");
+        KnowledgeBaseFile.write(path, List.of(new KnowledgeBaseFile.Topic("soil", "Version one.", 0)), List.of("Default."));
+        ChatResponseCache responseCache = new ChatResponseCache(100, 60);
+        ChatKnowledgeBase knowledgeBase = new ChatKnowledgeBase(path.toString(), responseCache);
+        responseCache.put("soil", new ChatAnswer("Version one.", List.of()));
+        
+        // Act
+        KnowledgeBaseFile.write(path, List.of(new KnowledgeBaseFile.Topic("soil", "Version two.", 0)), List.of("Default."));
+        knowledgeBase.reloadIfChanged();
+        
+        // Assert
+        assertEquals(Optional.of("Version two."), knowledgeBase.match("soil"));
+        assertTrue(responseCache.getIfPresent("soil").isEmpty());
+    }
+    
+    @Test
+    void testCorruptFileKeepsCurrentContent() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("chat.kb");
+        ChatKnowledgeBase knowledgeBase = new ChatKnowledgeBase(path.toString(), null);
+        
+        // Act
+        Files.write(path, new byte[] {1, 2, 3});
+        knowledgeBase.reloadIfChanged();
+        
+        // Assert
+        assertEquals("built-in", knowledgeBase.getStats().get("source"));
+        assertTrue(knowledgeBase.match("water").isPresent());
+    }
+    
+    @Test
+    void testFileWithEntryOutsideTheTextKeepsCurrentContent() throws Exception {
+        // Arrange
+        Path path = tempDir.resolve("chat.kb");
+        KnowledgeBaseFile.write(path, List.of(new KnowledgeBaseFile.Topic("soil", "Version one.", 0)), List.of("Default."));
+        ChatKnowledgeBase knowledgeBase = new ChatKnowledgeBase(path.toString(), null);
+        byte[] corrupt = KnowledgeBaseFile.encode(List.of(new KnowledgeBaseFile.Topic("soil", "Version two.", 0)),
+                List.of("Default."));
+        // The first topic's answer length, past the end of the file
+        ByteBuffer.wrap(corrupt).putInt(24, corrupt.length);
+        
+        // Act
+        // Moved into place as a writer would, so the mapped version one is left intact
+        Path temp = Files.write(tempDir.resolve("chat.kb.tmp"), corrupt);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        knowledgeBase.reloadIfChanged();
+        
+        // Assert
+        assertEquals(Optional.of("Version one."), knowledgeBase.match("soil"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.soma.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatResponseCacheTest {
+    
+    @Test
+    void testNormalizeFoldsCasePunctuationAndStopwords() {
+        assertEquals("save water", ChatResponseCache.normalize("How to save water?"));
+        assertEquals("save water", ChatResponseCache.normalize("  how TO save   water "));
+        assertEquals("how are you", ChatResponseCache.normalize("How are you?"));
+    }
+    
+    @Test
+    void testEquivalentQuestionsShareOneEntry() {
+        // Arrange
+        ChatResponseCache cache = new ChatResponseCache(100, 60);
+        AtomicInteger loads = new AtomicInteger();
+        
+        // Act
+        ChatAnswer first = cache.get("How to save water?", () -> answer("answer " + loads.incrementAndGet()));
+        ChatAnswer second = cache.get("how to save water", () -> answer("answer " + loads.incrementAndGet()));
+        
+        // Assert
+        assertEquals("answer 1", first.text());
+        assertEquals("answer 1", second.text());
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hitCount"));
+        assertEquals(1L, stats.get("missCount"));
+        assertEquals(0.5, stats.get("hitRatio"));
+    }
+    
+    @Test
+    void testConcurrentMissesComputeOnce() throws Exception {
+        // Arrange
+        ChatResponseCache cache = new ChatResponseCache(100, 60);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        
+        // Act
+        List<Future<ChatAnswer>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.get("pest control", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return answer("ipm");
+        })));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> cache.get("Pest control?", () -> answer("ipm " + loads.incrementAndGet()))));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        
+        // Assert
+        for (Future<ChatAnswer> result : results) {
+            assertEquals("ipm", result.get(5, TimeUnit.SECONDS).text());
+        }
+        assertEquals(1, loads.get());
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void testFailedLoadIsNotCached() {
+        // Arrange
+        ChatResponseCache cache = new ChatResponseCache(100, 60);
+        
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cache.get("soil", () -> {
+            throw new IllegalStateException("model unavailable");
+        }));
+        assertEquals("healthy soil", cache.get("soil", () -> answer("healthy soil")).text());
+    }
+    
+    @Test
+    void testLoadFailingWithAnErrorIsNotCached() {
+        // Arrange
+        ChatResponseCache cache = new ChatResponseCache(100, 60);
+        
+        // Act & Assert
+        assertThrows(StackOverflowError.class, () -> cache.get("soil", () -> {
+            throw new StackOverflowError();
+        }));
+        assertTrue(cache.getIfPresent("soil").isEmpty());
+        assertEquals("healthy soil", cache.get("soil", () -> answer("healthy soil")).text());
+    }
+    
+    @Test
+    void testBypassSkipsCache() {
+        // Arrange
+        ChatResponseCache cache = new ChatResponseCache(100, 60);
+        cache.get("carbon", () -> answer("cached"));
+        
+        // Act
+        ChatAnswer answer = cache.bypass(() -> answer("fresh"));
+        
+        // Assert
+        assertEquals("fresh", answer.text());
+        assertEquals("cached", cache.get("carbon", () -> answer("unused")).text());
+        assertEquals(1L, cache.getStats().get("bypassCount"));
+    }
+    
+    private static ChatAnswer answer(String text) {
+        return new ChatAnswer(text, List.of());
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.soma.service;
+
+import com.soma.exception.ProviderBusyException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitedChatProviderTest {
+    
+    @Test
+    void testCallsBeyondLimitAreRejectedAfterTimeout() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ConcurrencyLimitedChatProvider provider = new ConcurrencyLimitedChatProvider(
+                new BlockingProvider(started, release), 1, 20);
+        
+        // Act
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> provider.complete(ChatPrompt.of("soil")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        
+        // Assert
+        assertThrows(ProviderBusyException.class, () -> provider.complete(ChatPrompt.of("water")));
+        assertEquals(1, provider.getStats().get("inFlight"));
+        assertEquals(1L, provider.getStats().get("rejectedCount"));
+        
+        release.countDown();
+        assertEquals("answer", first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, provider.getStats().get("inFlight"));
+    }
+    
+    @Test
+    void testPermitIsReleasedWhenStreamConsumerFails() {
+        // Arrange
+        ConcurrencyLimitedChatProvider provider = new ConcurrencyLimitedChatProvider(
+                new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0), 1, 20);
+        
+        // Act
+        assertThrows(IllegalStateException.class, () -> provider.stream(ChatPrompt.of("soil"), token -> {
+            throw new IllegalStateException("client disconnected");
+        }));
+        
+        // Assert
+        assertNotNull(provider.complete(ChatPrompt.of("soil")));
+    }
+    
+    private record BlockingProvider(CountDownLatch started, CountDownLatch release) implements ChatProvider {
+        
+        @Override
+        public String name() {
+            return "blocking";
+        }
+        
+        @Override
+        public String complete(ChatPrompt prompt) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "answer";
+        }
+        
+        @Override
+        public String stream(ChatPrompt prompt, Consumer<String> onToken) {
+            return complete(prompt);
+        }
+    }
+}
\ No newline at end of file
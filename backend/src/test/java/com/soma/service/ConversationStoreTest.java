@@ -0,0 +1,75 @@
+package com.soma.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationStoreTest {
+    
+    @Test
+    void testEncodingRoundTrips() {
+        // Arrange
+        List<Conversation.Turn> turns = List.of(
+                new Conversation.Turn("how do i save water?", "Use drip irrigation."),
+                new Conversation.Turn("und für mais?", "x".repeat(300)));
+        
+        // Act
+        Conversation decoded = ConversationStore.decode(ConversationStore.encode("soil compost", turns));
+        
+        // Assert
+        assertEquals(new Conversation("soil compost", turns), decoded);
+    }
+    
+    @Test
+    void testOldTurnsAreCompactedIntoSummary() {
+        // Arrange
+        ConversationStore store = new ConversationStore(512, 1 << 20, 30);
+        
+        // Act
+        store.append("alice", "how can i improve soil health?", "a".repeat(200));
+        store.append("alice", "what about water use?", "b".repeat(200));
+        store.append("alice", "and for corn?", "c".repeat(200));
+        Conversation conversation = store.get("alice");
+        
+        // Assert
+        assertEquals("improve soil health", conversation.summary());
+        assertEquals(List.of("what about water use?", "and for corn?"),
+                conversation.turns().stream().map(Conversation.Turn::question).toList());
+        assertTrue(ConversationStore.encode(conversation.summary(), conversation.turns()).length <= 512);
+        assertEquals(1L, store.getStats().get("compactionCount"));
+    }
+    
+    @Test
+    void testOversizedTurnIsTruncatedToBudget() {
+        // Arrange
+        ConversationStore store = new ConversationStore(256, 1 << 20, 30);
+        
+        // Act
+        store.append("alice", "soil?", "é".repeat(1000));
+        Conversation conversation = store.get("alice");
+        
+        // Assert
+        assertEquals("soil?", conversation.turns().get(0).question());
+        assertTrue(ConversationStore.encode(conversation.summary(), conversation.turns()).length <= 256);
+    }
+    
+    @Test
+    void testStatsReportMemoryUse() {
+        // Arrange
+        ConversationStore store = new ConversationStore(2048, 1 << 20, 30);
+        store.append("alice", "soil?", "Compost.");
+        store.append("bob", "water?", "Mulch.");
+        
+        // Act
+        Map<String, Object> stats = store.getStats();
+        
+        // Assert
+        assertEquals(2L, stats.get("sessions"));
+        assertTrue((Long) stats.get("usedBytes") > 2L * ConversationStore.ENTRY_OVERHEAD_BYTES);
+        assertEquals(1L << 20, stats.get("maxTotalBytes"));
+        assertEquals(Conversation.EMPTY, store.get("carol"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.soma.service;
+
+import com.soma.dto.CurrentWeatherDto;
+import com.soma.dto.DashboardDto;
+import com.soma.dto.EarthDataResponse;
+import com.soma.dto.UserProfileDto;
+import com.soma.exception.InvalidRequestException;
+import com.soma.model.Tip;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+    
+    private static final String EMAIL = "farmer@example.com";
+    
+    @Mock
+    private UserService userService;
+    
+    @Mock
+    private SustainabilityMetricsService metricsService;
+    
+    @Mock
+    private WeatherService weatherService;
+    
+    @Mock
+    private EarthDataService earthDataService;
+    
+    @Mock
+    private TipService tipService;
+    
+    private ExecutorService executor;
+    private DashboardService dashboardService;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(5);
+        dashboardService = new DashboardService(userService, metricsService, weatherService, earthDataService,
+                tipService, executor);
+        UserProfileDto profile = new UserProfileDto();
+        profile.setId(7L);
+        profile.setEmail(EMAIL);
+        lenient().when(userService.getUserProfile(EMAIL)).thenReturn(profile);
+        lenient().when(metricsService.getUserMetricsSummary(7L)).thenReturn(Map.of("totalRecords", 3));
+        lenient().when(earthDataService.getEarthData(41.5, -93.5)).thenReturn(new EarthDataResponse(41.5, -93.5));
+        lenient().when(tipService.getAllTips()).thenReturn(List.of(new Tip()));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void testAllSectionsAreReturned() {
+        // Arrange
+        when(weatherService.getCurrentWeather(41.5, -93.5)).thenReturn(mock(CurrentWeatherDto.class));
+        
+        // Act
+        DashboardDto dashboard = dashboardService.getDashboard(EMAIL, 41.5, -93.5);
+        
+        // Assert
+        assertTrue(dashboard.isComplete());
+        assertEquals(7L, dashboard.getProfile().getId());
+        assertEquals(3, dashboard.getMetrics().get("totalRecords"));
+        assertNotNull(dashboard.getWeather());
+        assertNotNull(dashboard.getEarthData());
+        assertEquals(1, dashboard.getTips().size());
+        assertEquals(Map.of("profile", "ok", "metrics", "ok", "weather", "ok", "earthData", "ok", "tips", "ok"),
+                dashboard.getSections());
+    }
+    
+    @Test
+    void testSlowSectionIsLeftOutAtItsDeadline() {
+        // Arrange
+        ReflectionTestUtils.setField(dashboardService, "weatherDeadlineMs", 200L);
+        when(weatherService.getCurrentWeather(anyDouble(), anyDouble())).thenAnswer(invocation -> {
+            Thread.sleep(2000);
+            return mock(CurrentWeatherDto.class);
+        });
+        when(earthDataService.getEarthData(41.5, -93.5)).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return new EarthDataResponse(41.5, -93.5);
+        });
+        
+        // Act
+        DashboardDto dashboard = dashboardService.getDashboard(EMAIL, 41.5, -93.5);
+        
+        // Assert
+        assertFalse(dashboard.isComplete());
+        assertNull(dashboard.getWeather());
+        assertEquals("timeout", dashboard.getSections().get("weather"));
+        // Sections ran concurrently: the slow EarthData section overlapped the weather deadline
+        assertNotNull(dashboard.getEarthData());
+        assertEquals("ok", dashboard.getSections().get("earthData"));
+        assertTrue(dashboard.getElapsedMs() < 1000, "took " + dashboard.getElapsedMs() + " ms");
+        assertEquals(Map.of("weather", 1L), dashboardService.getStats().get("timeouts"));
+    }
+    
+    @Test
+    void testFailedSectionIsReportedAndOthersAreKept() {
+        // Arrange
+        when(weatherService.getCurrentWeather(anyDouble(), anyDouble())).thenReturn(mock(CurrentWeatherDto.class));
+        when(tipService.getAllTips()).thenThrow(new IllegalStateException("database unavailable"));
+        
+        // Act
+        DashboardDto dashboard = dashboardService.getDashboard(EMAIL, 41.5, -93.5);
+        
+        // Assert
+        assertNull(dashboard.getTips());
+        assertEquals("error", dashboard.getSections().get("tips"));
+        assertNotNull(dashboard.getProfile());
+        assertEquals(1L, dashboardService.getStats().get("partialResponses"));
+    }
+    
+    @Test
+    void testOutOfRangeCoordinatesAreRejected() {
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> dashboardService.getDashboard(EMAIL, 91, 0));
+        verifyNoInteractions(userService, weatherService, earthDataService);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.soma.service;
+
+import com.soma.dto.EarthDataBatchRequest;
+import com.soma.dto.EarthDataRequest;
+import com.soma.dto.EarthDataResponse;
+import com.soma.exception.InvalidRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EarthDataBatchServiceTest {
+    
+    @Mock
+    private EarthDataService earthDataService;
+    
+    private EarthDataBatchService batchService;
+    
+    @BeforeEach
+    void setUp() {
+        GibsNdviClient gibsNdviClient = new GibsNdviClient(null, false, "http://localhost", "MODIS_Terra_NDVI_8Day",
+                "250m", 8, 0.004, 0.0, 251, 1 << 20);
+        batchService = new EarthDataBatchService(earthDataService, gibsNdviClient, Executors.newFixedThreadPool(4));
+    }
+    
+    @Test
+    void testPointsAreGroupedByTileAndCell() {
+        // Arrange
+        List<EarthDataRequest> points = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Within ~2 m of one another: one NDVI cell
+            points.add(new EarthDataRequest(41.5868 + i * 0.000001, -93.6250));
+            // A second cell on the same tile, and a third on the next tile east
+            points.add(new EarthDataRequest(41.5600 + i * 0.000001, -93.6250));
+            points.add(new EarthDataRequest(41.5868 + i * 0.000001, -93.2000));
+        }
+        
+        // Act
+        EarthDataBatchService.Plan plan = batchService.plan(new EarthDataBatchRequest(points));
+        
+        // Assert
+        assertEquals(60, plan.pointCount());
+        assertEquals(3, plan.cellCount());
+        assertEquals(2, plan.tileCount());
+    }
+    
+    @Test
+    void testEachCellIsComputedOnceAndEveryPointIsStreamed() {
+        // Arrange
+        List<EarthDataRequest> points = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            points.add(new EarthDataRequest(i < 20 ? 41.5868 : 41.5500, -93.6250 + (i % 20) * 0.00001));
+        }
+        when(earthDataService.getEarthData(anyDouble(), anyDouble())).thenAnswer(invocation -> {
+            EarthDataResponse response = new EarthDataResponse(invocation.getArgument(0), invocation.getArgument(1));
+            response.setNdvi(0.6);
+            return response;
+        });
+        
+        // Act
+        List<EarthDataResponse> streamed = new ArrayList<>();
+        batchService.stream(batchService.plan(new EarthDataBatchRequest(points)), streamed::add);
+        
+        // Assert
+        verify(earthDataService, times(2)).getEarthData(anyDouble(), anyDouble());
+        assertEquals(40, streamed.size());
+        assertTrue(streamed.stream().allMatch(response -> response.getNdvi() == 0.6));
+        assertEquals(points.stream().map(EarthDataRequest::getLon).sorted().toList(),
+                streamed.stream().map(EarthDataResponse::getLongitude).sorted().toList());
+    }
+    
+    @Test
+    void testFailedCellIsStreamedAsUnavailable() {
+        // Arrange
+        List<EarthDataRequest> points = List.of(new EarthDataRequest(41.5868, -93.6250),
+                new EarthDataRequest(41.5500, -93.6250));
+        when(earthDataService.getEarthData(anyDouble(), anyDouble())).thenAnswer(invocation -> {
+            if ((double) invocation.getArgument(0) > 41.56) {
+                throw new IllegalStateException("climatology missing");
+            }
+            return new EarthDataResponse(invocation.getArgument(0), invocation.getArgument(1));
+        });
+        
+        // Act
+        List<EarthDataResponse> streamed = new ArrayList<>();
+        batchService.stream(batchService.plan(new EarthDataBatchRequest(points)), streamed::add);
+        
+        // Assert
+        assertEquals(2, streamed.size());
+        assertEquals(1, streamed.stream()
+                .filter(response -> EarthDataBatchService.UNAVAILABLE_SOURCE.equals(response.getDataSource())).count());
+    }
+    
+    @Test
+    void testQueuedGroupsAreCancelledWhenTheClientGoes() {
+        // Arrange
+        // The first tile group runs at once, the other two wait in the queue
+        List<Runnable> queued = new ArrayList<>();
+        EarthDataBatchService queueingService = new EarthDataBatchService(earthDataService, new GibsNdviClient(null,
+                false, "http://localhost", "MODIS_Terra_NDVI_8Day", "250m", 8, 0.004, 0.0, 251, 1 << 20), task -> {
+                    if (queued.isEmpty()) {
+                        queued.add(null);
+                        task.run();
+                    } else {
+                        queued.add(task);
+                    }
+                });
+        List<EarthDataRequest> points = List.of(new EarthDataRequest(41.5868, -93.6250),
+                new EarthDataRequest(41.5868, -93.2000), new EarthDataRequest(41.5868, -91.0000));
+        when(earthDataService.getEarthData(anyDouble(), anyDouble())).thenAnswer(invocation ->
+                new EarthDataResponse(invocation.getArgument(0), invocation.getArgument(1)));
+        EarthDataBatchService.Plan plan = queueingService.plan(new EarthDataBatchRequest(points));
+        
+        // Act
+        assertThrows(UncheckedIOException.class, () -> queueingService.stream(plan, response -> {
+            throw new UncheckedIOException(new IOException("Broken pipe"));
+        }));
+        queued.stream().skip(1).forEach(Runnable::run);
+        
+        // Assert
+        assertEquals(3, plan.tileCount());
+        verify(earthDataService, times(1)).getEarthData(anyDouble(), anyDouble());
+    }
+    
+    @Test
+    void testPolygonIsSampledOnGrid() {
+        // Arrange: a ~1 km x 1 km field
+        EarthDataBatchRequest request = new EarthDataBatchRequest();
+        request.setPolygon(List.of(
+                new EarthDataRequest(41.580, -93.630),
+                new EarthDataRequest(41.580, -93.618),
+                new EarthDataRequest(41.589, -93.618),
+                new EarthDataRequest(41.589, -93.630)));
+        request.setSpacingMeters(250.0);
+        
+        // Act
+        EarthDataBatchService.Plan plan = batchService.plan(request);
+        
+        // Assert
+        assertEquals(16, plan.pointCount());
+        assertTrue(plan.cellCount() >= 9 && plan.cellCount() <= 25, "cells: " + plan.cellCount());
+    }
+    
+    @Test
+    void testOversizedPolygonIsRejectedBeforeSampling() {
+        // Arrange: a degree square sampled at 1 m would be ~10^10 points; spacing is widened to a cell
+        EarthDataBatchRequest request = new EarthDataBatchRequest();
+        request.setPolygon(List.of(
+                new EarthDataRequest(41.0, -94.0),
+                new EarthDataRequest(41.0, -93.0),
+                new EarthDataRequest(42.0, -93.0),
+                new EarthDataRequest(42.0, -94.0)));
+        request.setSpacingMeters(1.0);
+        
+        // Act & Assert
+        InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> batchService.plan(request));
+        assertTrue(e.getMessage().contains("232 m"), e.getMessage());
+    }
+    
+    @Test
+    void testOversizedBatchIsRejected() {
+        // Arrange
+        List<EarthDataRequest> points = new ArrayList<>();
+        for (int i = 0; i < 5001; i++) {
+            points.add(new EarthDataRequest(40.0, -90.0));
+        }
+        
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> batchService.plan(new EarthDataBatchRequest(points)));
+        assertThrows(InvalidRequestException.class, () -> batchService.plan(new EarthDataBatchRequest()));
+    }
+}
\ No newline at end of file
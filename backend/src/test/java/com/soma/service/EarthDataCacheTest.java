@@ -0,0 +1,153 @@
+package com.soma.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EarthDataCacheTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testPointsInOneGridCellShareAnUpstreamCall() {
+        // Arrange
+        EarthDataCache cache = new EarthDataCache(1000, 30, 360, false, "", 1024, Runnable::run);
+        AtomicInteger calls = new AtomicInteger();
+        
+        // Act
+        // ~50 m apart: same 250 m NDVI cell; ~5 km away: a different one
+        EarthDataValue first = cache.get(EarthDataProduct.NDVI, 41.5868, -93.6250,
+                () -> new EarthDataValue(0.61 + calls.getAndIncrement(), "upstream", false));
+        EarthDataValue nearby = cache.get(EarthDataProduct.NDVI, 41.5872, -93.6248,
+                () -> new EarthDataValue(0.61 + calls.getAndIncrement(), "upstream", false));
+        EarthDataValue distant = cache.get(EarthDataProduct.NDVI, 41.6300, -93.6250,
+                () -> new EarthDataValue(0.61 + calls.getAndIncrement(), "upstream", false));
+        
+        // Assert
+        assertSame(first, nearby);
+        assertNotEquals(first.value(), distant.value());
+        assertEquals(2, calls.get());
+        assertEquals(2L, cache.getStats().get("upstreamCallCount"));
+        assertEquals(1.0 / 3, (Double) cache.getStats().get("hitRatio"), 1e-9);
+    }
+    
+    @Test
+    void testExpiredFallbackIsServedStaleWhileOneRefreshRuns() throws InterruptedException {
+        // Arrange
+        ExecutorService refreshExecutor = Executors.newCachedThreadPool();
+        // A zero fallback TTL makes every cached model value due for refresh
+        EarthDataCache cache = new EarthDataCache(1000, 0, 360, false, "", 1024, refreshExecutor);
+        CountDownLatch upstreamSlow = new CountDownLatch(1);
+        AtomicInteger refreshes = new AtomicInteger();
+        Supplier<EarthDataValue> slowUpstream = () -> {
+            refreshes.incrementAndGet();
+            try {
+                upstreamSlow.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new EarthDataValue(0.66, "upstream", false);
+        };
+        cache.get(EarthDataProduct.NDVI, 41.59, -93.62, () -> new EarthDataValue(0.5, "model", true));
+        
+        // Act
+        long start = System.nanoTime();
+        EarthDataValue stale = cache.get(EarthDataProduct.NDVI, 41.59, -93.62, slowUpstream);
+        EarthDataValue stillStale = cache.get(EarthDataProduct.NDVI, 41.59, -93.62, slowUpstream);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        upstreamSlow.countDown();
+        refreshExecutor.shutdown();
+        assertTrue(refreshExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        EarthDataValue refreshed = cache.get(EarthDataProduct.NDVI, 41.59, -93.62, () -> fail("should be cached"));
+        
+        // Assert
+        assertTrue(elapsedMs < 100, "took " + elapsedMs + " ms");
+        assertEquals(0.5, stale.value());
+        assertTrue(stale.stale());
+        assertTrue(stillStale.stale());
+        assertEquals(1, refreshes.get());
+        assertEquals(0.66, refreshed.value());
+        assertFalse(refreshed.stale());
+        assertEquals(2L, cache.getStats().get("staleHitCount"));
+        assertEquals(1L, cache.getStats().get("refreshCount"));
+    }
+    
+    @Test
+    void testCompositeCadence() {
+        // Assert
+        assertEquals(LocalDate.of(2024, 6, 9), EarthDataProduct.NDVI.compositeStart(LocalDate.of(2024, 6, 20)));
+        assertEquals(LocalDate.of(2024, 5, 24), EarthDataProduct.NDVI.latestComposite(LocalDate.of(2024, 6, 20)));
+        assertEquals(LocalDate.of(2024, 6, 25), EarthDataProduct.NDVI.nextRefresh(LocalDate.of(2024, 5, 24)));
+        // The last composite of a year is short; the next one starts on January 1st
+        assertEquals(LocalDate.of(2024, 12, 18), EarthDataProduct.NDVI.latestComposite(LocalDate.of(2025, 1, 5)));
+        assertEquals(LocalDate.of(2025, 1, 17), EarthDataProduct.NDVI.nextRefresh(LocalDate.of(2024, 12, 18)));
+        assertEquals(LocalDate.of(2024, 12, 18), EarthDataProduct.NDVI.previousComposite(LocalDate.of(2025, 1, 1)));
+    }
+    
+    @Test
+    void testDiskTierServesSatelliteValuesAfterRestart() {
+        // Arrange
+        EarthDataCache before = new EarthDataCache(1000, 30, 360, true, tempDir.toString(), 1024, Runnable::run);
+        before.get(EarthDataProduct.EVAPOTRANSPIRATION, 36.77, -119.41, () -> new EarthDataValue(4.2, "upstream", false));
+        before.get(EarthDataProduct.NDVI, 36.77, -119.41, () -> new EarthDataValue(0.4, "model", true));
+        
+        // Act
+        EarthDataCache after = new EarthDataCache(1000, 30, 360, true, tempDir.toString(), 1024, Runnable::run);
+        EarthDataValue et = after.get(EarthDataProduct.EVAPOTRANSPIRATION, 36.77, -119.41,
+                () -> fail("should be served from disk"));
+        EarthDataValue ndvi = after.get(EarthDataProduct.NDVI, 36.77, -119.41, () -> new EarthDataValue(0.5, "model", true));
+        
+        // Assert
+        assertEquals(4.2, et.value());
+        assertFalse(et.fallback());
+        assertEquals(0.5, ndvi.value());
+        assertEquals(1L, after.getStats().get("diskHitCount"));
+    }
+    
+    @Test
+    void testLoadFailingWithAnErrorIsNotLeftPending() {
+        // Arrange
+        EarthDataCache cache = new EarthDataCache(1000, 30, 360, false, "", 1024, Runnable::run);
+        
+        // Act
+        assertThrows(StackOverflowError.class, () -> cache.get(EarthDataProduct.NDVI, 41.5868, -93.6250, () -> {
+            throw new StackOverflowError();
+        }));
+        EarthDataValue retried = cache.get(EarthDataProduct.NDVI, 41.5868, -93.6250,
+                () -> new EarthDataValue(0.61, "upstream", false));
+        
+        // Assert
+        assertEquals(0.61, retried.value());
+        assertEquals(2L, cache.getStats().get("missCount"));
+    }
+    
+    @Test
+    void testOlderCompositeTablesAreDeleted() throws IOException {
+        // Arrange
+        Path older = Files.createFile(tempDir.resolve("MOD13Q1-2000-01-01.cells"));
+        Path otherProduct = Files.createFile(tempDir.resolve("MOD11A2-2000-01-01.cells"));
+        EarthDataCache cache = new EarthDataCache(1000, 30, 360, true, tempDir.toString(), 1024, Runnable::run);
+        
+        // Act
+        cache.get(EarthDataProduct.NDVI, 36.77, -119.41, () -> new EarthDataValue(0.4, "upstream", false));
+        cache.closeDiskTables();
+        
+        // Assert
+        assertFalse(Files.exists(older));
+        assertTrue(Files.exists(otherProduct));
+        assertEquals(0L, cache.getStats().get("diskCells"));
+    }
+}
\ No newline at end of file
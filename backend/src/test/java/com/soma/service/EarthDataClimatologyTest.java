@@ -0,0 +1,72 @@
+package com.soma.service;
+
+import com.soma.util.ClimatologyRaster;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EarthDataClimatologyTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testValuesAreDeterministicAndConsistent() {
+        // Arrange
+        EarthDataClimatology climatology = new EarthDataClimatology("", 1.0);
+        
+        // Act
+        double ndvi = climatology.ndvi(41.59, -93.62, 7);
+        double lst = climatology.landSurfaceTemperature(41.59, -93.62, 7);
+        double et = climatology.evapotranspiration(41.59, -93.62, 7);
+        
+        // Assert
+        assertEquals(ndvi, climatology.ndvi(41.59, -93.62, 7));
+        assertEquals(0.72, ndvi, 1e-4);
+        assertEquals(lst * 0.15 + ndvi * 4, et, 0.01);
+        // Southern hemisphere seasons are the other way round
+        assertTrue(climatology.ndvi(-33.9, 18.4, 1) > climatology.ndvi(-33.9, 18.4, 7));
+    }
+    
+    @Test
+    void testMissingFileIsGeneratedOnceAndMapped() throws IOException {
+        // Arrange
+        Path file = directory.resolve("nested/climatology.scl");
+        
+        // Act
+        EarthDataClimatology first = new EarthDataClimatology(file.toString(), 2.0);
+        long written = Files.getLastModifiedTime(file).toMillis();
+        EarthDataClimatology second = new EarthDataClimatology(file.toString(), 2.0);
+        
+        // Assert
+        assertEquals(written, Files.getLastModifiedTime(file).toMillis());
+        assertEquals(file.toString(), second.getStats().get("source"));
+        assertEquals(180, second.getStats().get("columns"));
+        assertEquals(first.landSurfaceTemperature(60.2, 24.9, 1), second.landSurfaceTemperature(60.2, 24.9, 1));
+    }
+    
+    @Test
+    void testCellsMissingFromConvertedFileFallBackToModel() throws IOException {
+        // Arrange
+        Path source = directory.resolve("means.csv");
+        Files.writeString(source, "month,lat,lon,ndvi,lst,et\n7,41.59,-93.62,0.81,27.25,5.5\n");
+        Path file = directory.resolve("means.scl");
+        ClimatologyRaster.main(new String[] {source.toString(), file.toString(), "1.0",
+                "0.0001:0", "0.01:0", "0.001:0"});
+        
+        // Act
+        EarthDataClimatology climatology = new EarthDataClimatology(file.toString(), 1.0);
+        
+        // Assert
+        assertEquals(0.81, climatology.ndvi(41.59, -93.62, 7), 1e-4);
+        assertEquals(27.25, climatology.landSurfaceTemperature(41.59, -93.62, 7), 1e-2);
+        assertEquals(5.5, climatology.evapotranspiration(41.59, -93.62, 7), 1e-3);
+        assertEquals(EarthDataClimatology.baseline(EarthDataClimatology.NDVI, 8, 41.59),
+                climatology.ndvi(41.59, -93.62, 8), 1e-9);
+    }
+}
\ No newline at end of file
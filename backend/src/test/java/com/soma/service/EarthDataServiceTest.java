@@ -0,0 +1,193 @@
+package com.soma.service;
+
+import com.soma.dto.EarthDataResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EarthDataServiceTest {
+    
+    @Mock
+    private EarthDataCache earthDataCache;
+    
+    @Mock
+    private GibsNdviClient gibsNdviClient;
+    
+    private ExecutorService executor;
+    private EarthDataService earthDataService;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        earthDataService = new EarthDataService(earthDataCache, gibsNdviClient, executor, new EarthDataClimatology("", 1.0));
+        ReflectionTestUtils.setField(earthDataService, "ndviDeadlineMs", 1000L);
+        ReflectionTestUtils.setField(earthDataService, "lstDeadlineMs", 100L);
+        ReflectionTestUtils.setField(earthDataService, "etDeadlineMs", 1000L);
+        ReflectionTestUtils.setField(earthDataService, "budgetMs", 2000L);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void testSourcesAreFetchedConcurrently() {
+        // Arrange
+        stubSource(EarthDataProduct.NDVI, 0.72, 300);
+        stubSource(EarthDataProduct.LAND_SURFACE_TEMPERATURE, 24.5, 50);
+        stubSource(EarthDataProduct.EVAPOTRANSPIRATION, 4.1, 300);
+        
+        // Act
+        long start = System.nanoTime();
+        EarthDataResponse response = earthDataService.getEarthData(41.59, -93.62);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        // Assert
+        assertTrue(elapsedMs < 550, "took " + elapsedMs + " ms");
+        assertEquals(0.72, response.getNdvi());
+        assertEquals(24.5, response.getLandSurfaceTemperature());
+        assertEquals(4.1, response.getEvapotranspiration());
+        assertEquals("upstream NDVI", response.getSources().get("ndvi"));
+        assertEquals("upstream NDVI", response.getDataSource());
+        assertEquals(EarthDataService.FRESH, response.getFreshness());
+    }
+    
+    @Test
+    void testSlowSourceDegradesToModelAtItsDeadline() {
+        // Arrange
+        stubSource(EarthDataProduct.NDVI, 0.72, 0);
+        stubSource(EarthDataProduct.LAND_SURFACE_TEMPERATURE, 24.5, 1500);
+        stubSource(EarthDataProduct.EVAPOTRANSPIRATION, 4.1, 0);
+        
+        // Act
+        long start = System.nanoTime();
+        EarthDataResponse response = earthDataService.getEarthData(41.59, -93.62);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        // Assert
+        assertTrue(elapsedMs < 1000, "took " + elapsedMs + " ms");
+        assertEquals(0.72, response.getNdvi());
+        assertEquals(4.1, response.getEvapotranspiration());
+        assertNotNull(response.getLandSurfaceTemperature());
+        assertTrue(response.getSources().get("landSurfaceTemperature").contains("deadline exceeded"));
+        assertEquals("upstream EVAPOTRANSPIRATION", response.getSources().get("evapotranspiration"));
+    }
+    
+    @Test
+    void testOpenCircuitAnswersFromModelWithoutFetching() {
+        // Arrange
+        when(gibsNdviClient.isEnabled()).thenReturn(true);
+        when(gibsNdviClient.isCircuitOpen()).thenReturn(true);
+        
+        // Act
+        EarthDataResponse response = earthDataService.getEarthData(41.59, -93.62);
+        EarthDataResponse again = earthDataService.getEarthData(41.59, -93.62);
+        
+        // Assert
+        assertNotNull(response.getNdvi());
+        assertEquals(response.getNdvi(), again.getNdvi());
+        assertEquals(response.getEvapotranspiration(), again.getEvapotranspiration());
+        assertEquals("NASA MODIS Agricultural Model", response.getDataSource());
+        verifyNoInteractions(earthDataCache);
+    }
+    
+    @Test
+    void testConcurrentRequestsInOneCellShareAComputation() throws Exception {
+        // Arrange
+        stubSource(EarthDataProduct.NDVI, 0.72, 300);
+        stubSource(EarthDataProduct.LAND_SURFACE_TEMPERATURE, 24.5, 0);
+        stubSource(EarthDataProduct.EVAPOTRANSPIRATION, 4.1, 0);
+        ExecutorService clients = Executors.newFixedThreadPool(10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EarthDataResponse>> responses = new ArrayList<>();
+        
+        // Act
+        for (int i = 0; i < 10; i++) {
+            // Within a few metres of one another: one NDVI cell
+            double latitude = 41.5868 + i * 0.000001;
+            responses.add(clients.submit(() -> {
+                start.await();
+                return earthDataService.getEarthData(latitude, -93.6250);
+            }));
+        }
+        start.countDown();
+        
+        // Assert
+        for (int i = 0; i < 10; i++) {
+            EarthDataResponse response = responses.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(0.72, response.getNdvi());
+            assertEquals(41.5868 + i * 0.000001, response.getLatitude());
+        }
+        clients.shutdown();
+        verify(earthDataCache, times(1)).get(eq(EarthDataProduct.NDVI), anyDouble(), anyDouble(), any());
+        Map<?, ?> singleFlight = (Map<?, ?>) earthDataService.getCacheStats().get("singleFlight");
+        assertEquals(1L, singleFlight.get("calls"));
+        assertEquals(9L, singleFlight.get("collapsed"));
+        assertEquals(0, singleFlight.get("inFlight"));
+    }
+    
+    @Test
+    void testCompletedComputationIsNotReused() {
+        // Arrange
+        stubSource(EarthDataProduct.NDVI, 0.72, 0);
+        stubSource(EarthDataProduct.LAND_SURFACE_TEMPERATURE, 24.5, 0);
+        stubSource(EarthDataProduct.EVAPOTRANSPIRATION, 4.1, 0);
+        
+        // Act
+        earthDataService.getEarthData(41.5868, -93.6250);
+        earthDataService.getEarthData(41.5868, -93.6250);
+        
+        // Assert
+        verify(earthDataCache, times(2)).get(eq(EarthDataProduct.NDVI), anyDouble(), anyDouble(), any());
+    }
+    
+    @Test
+    void testStaleCachedValueMarksResponseStale() {
+        // Arrange
+        stubSource(EarthDataProduct.NDVI, 0.72, 0);
+        stubSource(EarthDataProduct.EVAPOTRANSPIRATION, 4.1, 0);
+        EarthDataValue previousComposite = new EarthDataValue(23.0, "upstream LST", false,
+                Instant.now().minus(Duration.ofDays(8)), false);
+        when(earthDataCache.get(eq(EarthDataProduct.LAND_SURFACE_TEMPERATURE), anyDouble(), anyDouble(), any()))
+                .thenReturn(previousComposite.asStale());
+        
+        // Act
+        EarthDataResponse response = earthDataService.getEarthData(41.59, -93.62);
+        
+        // Assert
+        assertEquals(23.0, response.getLandSurfaceTemperature());
+        assertEquals(EarthDataService.STALE, response.getFreshness());
+        assertTrue(response.getDataAgeSeconds() >= Duration.ofDays(8).toSeconds());
+    }
+    
+    private void stubSource(EarthDataProduct product, double value, long latencyMs) {
+        when(earthDataCache.get(eq(product), anyDouble(), anyDouble(), any())).thenAnswer(invocation -> {
+            Thread.sleep(latencyMs);
+            return new EarthDataValue(value, "upstream " + product.name(), false);
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.soma.service;
+
+import com.soma.dto.EarthDataResponse;
+import com.soma.model.FarmField;
+import com.soma.model.FieldObservation;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldObservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FieldPrefetchSchedulerTest {
+    
+    @Mock
+    private FarmFieldRepository fieldRepository;
+    
+    @Mock
+    private FieldObservationRepository observationRepository;
+    
+    @Mock
+    private EarthDataService earthDataService;
+    
+    private FieldPrefetchScheduler scheduler;
+    
+    @BeforeEach
+    void setUp() {
+        scheduler = new FieldPrefetchScheduler(fieldRepository, observationRepository, earthDataService, Runnable::run);
+    }
+    
+    @Test
+    void testFieldsAreSpreadOverTheWindowAndCappedPerRun() {
+        // Arrange
+        ReflectionTestUtils.setField(scheduler, "maxFieldsPerRun", 5);
+        List<FarmField> fields = LongStream.rangeClosed(1, 40).mapToObj(id -> field(id)).toList();
+        // As the query does, keep the fields whose minute has come
+        when(fieldRepository.findDue(any(), any(), any(), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long spreadMinutes = invocation.getArgument(3);
+            long spreadLimit = invocation.getArgument(4);
+            return fields.stream()
+                    .filter(field -> Math.floorMod(field.getId() * 40503, 65536) * spreadMinutes < spreadLimit)
+                    .limit(((PageRequest) invocation.getArgument(5)).getPageSize())
+                    .toList();
+        });
+        
+        // Act
+        List<FarmField> atTwo = scheduler.dueFields(LocalDateTime.of(2024, 6, 20, 2, 0));
+        List<FarmField> afterWindow = scheduler.dueFields(LocalDateTime.of(2024, 6, 20, 7, 0));
+        
+        // Assert
+        // The query and spreadOffset agree on every field's minute
+        List<FarmField> dueAtTwo = fields.stream().filter(field -> scheduler.spreadOffset(field) <= 120).toList();
+        assertEquals(dueAtTwo.stream().limit(5).toList(), atTwo);
+        assertEquals(5, afterWindow.size());
+        assertTrue(fields.stream().mapToInt(scheduler::spreadOffset).distinct().count() > 30);
+        assertTrue(fields.stream().allMatch(field -> scheduler.spreadOffset(field) < 360));
+        verify(fieldRepository, times(EarthDataProduct.values().length))
+                .findDue(any(), any(), any(), eq(360L), eq(121L * 65536), eq(PageRequest.of(0, 5)));
+    }
+    
+    @Test
+    void testPrefetchStoresEachProductForItsComposite() {
+        // Arrange
+        ReflectionTestUtils.setField(scheduler, "spreadMinutes", 0);
+        FarmField field = field(7L);
+        when(fieldRepository.findDue(any(), any(), any(), anyLong(), anyLong(), any())).thenReturn(List.of(field));
+        when(earthDataService.getEarthData(41.59, -93.62)).thenReturn(response());
+        when(observationRepository.findByFieldIdAndProductAndCompositeDate(eq(7L), any(), any()))
+                .thenReturn(Optional.empty());
+        when(fieldRepository.markPrefetched(eq(7L), any())).thenReturn(1);
+        
+        // Act
+        scheduler.prefetchDueFields();
+        
+        // Assert
+        ArgumentCaptor<FieldObservation> saved = ArgumentCaptor.forClass(FieldObservation.class);
+        verify(observationRepository, times(3)).save(saved.capture());
+        FieldObservation ndvi = saved.getAllValues().get(0);
+        assertEquals(EarthDataProduct.NDVI, ndvi.getProduct());
+        assertEquals(EarthDataProduct.NDVI.latestComposite(LocalDate.now(ZoneOffset.UTC)), ndvi.getCompositeDate());
+        assertEquals(0.72, ndvi.getValue());
+        assertFalse(ndvi.isFallback());
+        assertTrue(saved.getAllValues().get(1).isFallback());
+        verify(fieldRepository, never()).save(any());
+        assertEquals(1L, scheduler.getStats().get("prefetchedCount"));
+    }
+    
+    @Test
+    void testFieldDeletedDuringPrefetchLeavesNoObservations() {
+        // Arrange
+        ReflectionTestUtils.setField(scheduler, "spreadMinutes", 0);
+        when(fieldRepository.findDue(any(), any(), any(), anyLong(), anyLong(), any())).thenReturn(List.of(field(7L)));
+        when(earthDataService.getEarthData(41.59, -93.62)).thenReturn(response());
+        when(observationRepository.findByFieldIdAndProductAndCompositeDate(eq(7L), any(), any()))
+                .thenReturn(Optional.empty());
+        when(fieldRepository.markPrefetched(eq(7L), any())).thenReturn(0);
+        
+        // Act
+        scheduler.prefetchDueFields();
+        
+        // Assert
+        verify(observationRepository).deleteByFieldId(7L);
+        verify(fieldRepository, never()).save(any());
+        assertEquals(0L, scheduler.getStats().get("prefetchedCount"));
+    }
+    
+    @Test
+    void testStoredSatelliteValueIsNotReplacedByModel() {
+        // Arrange
+        ReflectionTestUtils.setField(scheduler, "spreadMinutes", 0);
+        FarmField field = field(7L);
+        when(fieldRepository.findDue(any(), any(), any(), anyLong(), anyLong(), any())).thenReturn(List.of(field));
+        EarthDataResponse modelOnly = response();
+        modelOnly.setSources(Map.of("ndvi", "NASA MODIS Agricultural Model",
+                "landSurfaceTemperature", "NASA MODIS Agricultural Model",
+                "evapotranspiration", "NASA MODIS Agricultural Model"));
+        when(earthDataService.getEarthData(41.59, -93.62)).thenReturn(modelOnly);
+        FieldObservation satellite = new FieldObservation(1L, 7L, EarthDataProduct.NDVI, LocalDate.of(2024, 6, 9),
+                0.8, EarthDataProduct.NDVI.satelliteSource(), false, LocalDateTime.now());
+        when(observationRepository.findByFieldIdAndProductAndCompositeDate(eq(7L), any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(1) == EarthDataProduct.NDVI
+                        ? Optional.of(satellite) : Optional.empty());
+        when(fieldRepository.markPrefetched(eq(7L), any())).thenReturn(1);
+        
+        // Act
+        scheduler.prefetchDueFields();
+        
+        // Assert
+        verify(observationRepository, never()).save(satellite);
+        assertEquals(0.8, satellite.getValue());
+        verify(observationRepository, times(2)).save(any());
+    }
+    
+    private static FarmField field(long id) {
+        FarmField field = new FarmField();
+        field.setId(id);
+        field.setUserId(1L);
+        field.setName("Field " + id);
+        field.setLatitude(41.59);
+        field.setLongitude(-93.62);
+        return field;
+    }
+    
+    private static EarthDataResponse response() {
+        EarthDataResponse response = new EarthDataResponse(41.59, -93.62);
+        response.setNdvi(0.72);
+        response.setLandSurfaceTemperature(24.5);
+        response.setEvapotranspiration(4.1);
+        response.setSources(Map.of(
+                "ndvi", EarthDataProduct.NDVI.satelliteSource(),
+                "landSurfaceTemperature", "NASA MODIS Agricultural Model",
+                "evapotranspiration", "NASA MODIS Agricultural Model"));
+        return response;
+    }
+}
\ No newline at end of file
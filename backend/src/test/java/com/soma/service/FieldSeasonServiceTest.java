@@ -0,0 +1,165 @@
+package com.soma.service;
+
+import com.soma.dto.SeasonToDateDto;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldLocation;
+import com.soma.util.ForecastGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FieldSeasonServiceTest {
+    
+    private static final LocalDate DAY = LocalDate.of(2026, 6, 1);
+    
+    @TempDir
+    Path directory;
+    
+    @Mock
+    private FarmFieldRepository fieldRepository;
+    
+    @Mock
+    private EarthDataService earthDataService;
+    
+    private ForecastGridStore forecastStore;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        // Two days over 30-50N, 100-80W: temperature 10 + hour of day, and 2 mm of rain at noon
+        double[] scales = new double[ForecastGridStore.BANDS];
+        Arrays.fill(scales, 0.01);
+        byte[] run = ForecastGrid.encode(DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), 48, 30, -100, 1, 21, 21,
+                scales, new double[ForecastGridStore.BANDS], (band, hour, latitude, longitude) -> switch (band) {
+                    case ForecastGridStore.TEMPERATURE -> 10 + hour % 24;
+                    case ForecastGridStore.PRECIPITATION -> hour % 24 == 12 ? 2 : 0;
+                    default -> 0;
+                });
+        ForecastGrid.write(directory.resolve("run.sfc"), run);
+        forecastStore = new ForecastGridStore(directory.toString(), false, 1.0, 48, 6);
+        forecastStore.ingestLatestRun();
+        lenient().when(earthDataService.evapotranspiration(anyDouble(), anyDouble(), any())).thenReturn(5.0);
+        lenient().when(fieldRepository.findAllLocations())
+                .thenReturn(List.of(location(1L, 41.5, -93.5), location(2L, 10.0, 10.0)));
+    }
+    
+    @Test
+    void testDaysAccumulateAndRerunningADayReplacesIt() {
+        // Arrange
+        FieldSeasonService service = service("");
+        
+        // Act
+        service.run(DAY);
+        Map<String, Object> rerun = service.run(DAY);
+        service.run(DAY.plusDays(1));
+        SeasonToDateDto season = service.getSeasonToDate(1L).orElseThrow();
+        
+        // Assert
+        // Each day: GDD (10 + 30) / 2 - 10 with the maximum capped at 30; soil 75 + 2 - 5, then 72 + 2 - 5
+        assertEquals(20.0, season.getGrowingDegreeDays());
+        assertEquals(4.0, season.getRainfallMm());
+        assertEquals(10.0, season.getEvapotranspirationMm());
+        assertEquals(69.0, season.getSoilWaterMm());
+        assertEquals(46.0, season.getSoilMoisturePercent());
+        assertEquals(LocalDate.of(2026, 3, 1), season.getSeasonStart());
+        assertEquals(DAY.plusDays(1), season.getThroughDate());
+        assertEquals(1, rerun.get("updated"));
+        // Field 2 lies outside the forecast run
+        assertEquals(1, rerun.get("missingInput"));
+        assertTrue(service.getSeasonToDate(2L).isEmpty());
+    }
+    
+    @Test
+    void testDayIsReadFromEveryRunCoveringIt() throws IOException {
+        // Arrange
+        // The latest run starts at 18:00, with the same temperatures and 1 mm of rain at 20:00
+        double[] scales = new double[ForecastGridStore.BANDS];
+        Arrays.fill(scales, 0.01);
+        byte[] lateRun = ForecastGrid.encode(DAY.atStartOfDay(ZoneOffset.UTC).plusHours(18).toInstant(), 12, 30, -100,
+                1, 21, 21, scales, new double[ForecastGridStore.BANDS], (band, hour, latitude, longitude) -> switch (band) {
+                    case ForecastGridStore.TEMPERATURE -> 10 + (18 + hour) % 24;
+                    case ForecastGridStore.PRECIPITATION -> hour == 2 ? 1 : 0;
+                    default -> 0;
+                });
+        ForecastGrid.write(directory.resolve("late.sfc"), lateRun);
+        forecastStore.ingestLatestRun();
+        FieldSeasonService service = service("");
+        
+        // Act
+        service.run(DAY);
+        SeasonToDateDto season = service.getSeasonToDate(1L).orElseThrow();
+        
+        // Assert
+        // Hours before 18:00 come from the earlier run: the minimum of 10 at midnight and its rain at noon
+        assertEquals(2, forecastStore.recent().size());
+        assertEquals(10.0, season.getGrowingDegreeDays());
+        assertEquals(3.0, season.getRainfallMm());
+    }
+    
+    @Test
+    void testStateIsRestoredFromTheSnapshot() {
+        // Arrange
+        String snapshot = directory.resolve("state/seasons.bin").toString();
+        service(snapshot).run(DAY);
+        FieldSeasonService restarted = service(snapshot);
+        
+        // Act
+        restarted.restore();
+        
+        // Assert
+        SeasonToDateDto season = restarted.getSeasonToDate(1L).orElseThrow();
+        assertEquals(10.0, season.getGrowingDegreeDays());
+        assertEquals(72.0, season.getSoilWaterMm());
+        assertEquals(2, restarted.getStats().get("fields"));
+    }
+    
+    @Test
+    void testSouthernSeasonsStartSixMonthsLater() {
+        // Arrange
+        FieldSeasonService service = service("");
+        
+        // Act & Assert
+        assertEquals(LocalDate.of(2026, 3, 1).toEpochDay(), service.seasonStart(41.5, DAY));
+        assertEquals(LocalDate.of(2025, 3, 1).toEpochDay(), service.seasonStart(41.5, LocalDate.of(2026, 2, 28)));
+        assertEquals(LocalDate.of(2025, 9, 1).toEpochDay(), service.seasonStart(-33.9, DAY));
+    }
+    
+    private FieldSeasonService service(String snapshot) {
+        return new FieldSeasonService(fieldRepository, forecastStore, earthDataService, Runnable::run,
+                "--03-01", 10, 30, 150, 0.5, snapshot);
+    }
+    
+    private static FieldLocation location(Long id, Double latitude, Double longitude) {
+        return new FieldLocation() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+            
+            @Override
+            public Double getLatitude() {
+                return latitude;
+            }
+            
+            @Override
+            public Double getLongitude() {
+                return longitude;
+            }
+        };
+    }
+}
\ No newline at end of file
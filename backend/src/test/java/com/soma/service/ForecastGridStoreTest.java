@@ -0,0 +1,98 @@
+package com.soma.service;
+
+import com.soma.util.ForecastGrid;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastGridStoreTest {
+    
+    static final Instant RUN = Instant.parse("2026-06-01T12:00:00Z");
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testLatestRunIsLoadedAndInterpolated() throws IOException {
+        // Arrange
+        ForecastGrid.write(directory.resolve("older.sfc"), run(RUN.minusSeconds(6 * 3600), 0));
+        ForecastGrid.write(directory.resolve("latest.sfc"), run(RUN, 0));
+        ForecastGridStore store = new ForecastGridStore(directory.toString(), false, 1.0, 48, 6);
+        
+        // Act
+        store.ingestLatestRun();
+        ForecastGrid grid = store.current().orElseThrow();
+        
+        // Assert
+        assertEquals(RUN, grid.runTime());
+        // The older run is retained behind it
+        assertEquals(List.of(RUN, RUN.minusSeconds(6 * 3600)),
+                store.recent().stream().map(ForecastGrid::runTime).toList());
+        // Halfway between nodes and hours: 40.5 degrees, -94.25 degrees and 90 minutes into the run
+        assertEquals(12.375, grid.value(ForecastGridStore.TEMPERATURE, RUN.plusSeconds(5400), 40.5, -94.25), 1e-9);
+        assertTrue(grid.covers(42, -93, RUN.plusSeconds(2 * 3600)));
+        assertFalse(grid.covers(42, -93, RUN.plusSeconds(3 * 3600)));
+        assertFalse(grid.covers(42.1, -93, RUN));
+    }
+    
+    @Test
+    void testNewerRunIsSwappedInAndCorruptRunIsSkipped() throws IOException {
+        // Arrange
+        ForecastGridStore store = new ForecastGridStore(directory.toString(), false, 1.0, 48, 6);
+        ForecastGrid.write(directory.resolve("first.sfc"), run(RUN, 0));
+        store.ingestLatestRun();
+        ForecastGrid first = store.current().orElseThrow();
+        ForecastGrid.write(directory.resolve("second.sfc"), run(RUN.plusSeconds(3600), 5));
+        Files.write(directory.resolve("partial.sfc"), new byte[]{0x53, 0x46});
+        
+        // Act
+        store.ingestLatestRun();
+        ForecastGrid second = store.current().orElseThrow();
+        boolean olderRunSwapped = store.ingest(directory.resolve("first.sfc"));
+        
+        // Assert
+        assertEquals(RUN.plusSeconds(3600), second.runTime());
+        assertEquals(15, second.value(ForecastGridStore.TEMPERATURE, RUN.plusSeconds(3600), 40, -95), 1e-9);
+        // The run swapped out stays readable for lookups already holding it
+        assertEquals(10, first.value(ForecastGridStore.TEMPERATURE, RUN, 40, -95), 1e-9);
+        assertFalse(olderRunSwapped);
+        assertEquals(2L, store.getStats().get("ingestedRuns"));
+    }
+    
+    @Test
+    void testStubRunIsGeneratedWhenDirectoryIsEmpty() {
+        // Arrange
+        ForecastGridStore store = new ForecastGridStore(directory.toString(), true, 10.0, 6, 6);
+        
+        // Act
+        store.ingestLatestRun();
+        
+        // Assert
+        ForecastGrid grid = store.current().orElseThrow();
+        Instant now = Instant.now();
+        assertTrue(grid.covers(-60, 179.5, now));
+        double tropics = grid.value(ForecastGridStore.TEMPERATURE, now, 0, 10);
+        double arctic = grid.value(ForecastGridStore.TEMPERATURE, now, 75, 10);
+        assertTrue(tropics > arctic);
+    }
+    
+    /**
+     * A three-hour run on nodes 40-42N, 95-93W whose values rise linearly with band, hour,
+     * latitude and longitude, so interpolated values are exact.
+     */
+    static byte[] run(Instant runTime, double base) {
+        double[] scales = new double[ForecastGridStore.BANDS];
+        double[] offsets = new double[ForecastGridStore.BANDS];
+        Arrays.fill(scales, 0.01);
+        return ForecastGrid.encode(runTime, 3, 40, -95, 1, 3, 3, scales, offsets,
+                (band, hour, latitude, longitude) -> base + 10 + band * 10 + hour + (latitude - 40) + (longitude + 95) * 0.5);
+    }
+}
\ No newline at end of file
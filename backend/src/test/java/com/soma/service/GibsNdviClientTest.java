@@ -0,0 +1,114 @@
+package com.soma.service;
+
+import com.soma.util.UpstreamHttpClient;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GibsNdviClientTest {
+    
+    private static final LocalDate COMPOSITE = LocalDate.of(2024, 6, 9);
+    
+    private HttpServer tileServer;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private GibsNdviClient client;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        // Stand-in for GIBS: one fixture tile at matrix 8, row 43, col 76 (central Iowa)
+        byte[] fixture = fixtureTile();
+        tileServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        tileServer.createContext("/wmts", exchange -> {
+            requests.add(exchange.getRequestURI().getPath());
+            boolean known = exchange.getRequestURI().getPath()
+                    .equals("/wmts/MODIS_Terra_NDVI_8Day/default/2024-06-09/250m/8/43/76.png");
+            exchange.sendResponseHeaders(known ? 200 : 404, known ? fixture.length : -1);
+            if (known) {
+                exchange.getResponseBody().write(fixture);
+            }
+            exchange.close();
+        });
+        tileServer.start();
+        UpstreamHttpClient http = new UpstreamHttpClient(Duration.ofSeconds(1), Duration.ofSeconds(2),
+                Duration.ofSeconds(3), false, Duration.ofMillis(100), 5, Duration.ofSeconds(30));
+        client = new GibsNdviClient(http, true, "http://127.0.0.1:" + tileServer.getAddress().getPort() + "/wmts",
+                "MODIS_Terra_NDVI_8Day", "250m", 8, 0.004, 0.0, 251, 1 << 20);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        tileServer.stop(0);
+    }
+    
+    @Test
+    void testPixelIsScaledToNdvi() {
+        // Act
+        // Pixel (398, 17) of the tile: palette index 200
+        Double ndvi = client.fetchNdvi(41.5868, -93.6250, COMPOSITE);
+        
+        // Assert
+        assertEquals(0.8, ndvi, 1e-9);
+    }
+    
+    @Test
+    void testNearbyPointsShareOneTileDownload() {
+        // Act
+        Double left = client.fetchNdvi(41.5868, -93.6250, COMPOSITE);
+        Double right = client.fetchNdvi(41.5868, -93.4500, COMPOSITE);
+        Double noData = client.fetchNdvi(40.7000, -93.6250, COMPOSITE);
+        
+        // Assert
+        assertEquals(0.8, left, 1e-9);
+        assertEquals(0.2, right, 1e-9);
+        assertNull(noData);
+        assertEquals(1, requests.size());
+        assertEquals(2L, client.getStats().get("tileHitCount"));
+    }
+    
+    @Test
+    void testMissingTileMeansNoData() {
+        // Act
+        Double ndvi = client.fetchNdvi(-33.9, 18.4, COMPOSITE);
+        Double again = client.fetchNdvi(-33.9, 18.4, COMPOSITE);
+        
+        // Assert
+        assertNull(ndvi);
+        assertNull(again);
+        assertEquals(1, requests.size());
+    }
+    
+    /**
+     * A 512x512 paletted tile: index 200 left of column 450, 50 right of it, and the no-data
+     * index 255 from row 400 down.
+     */
+    private static byte[] fixtureTile() throws IOException {
+        byte[] gray = new byte[256];
+        for (int i = 0; i < gray.length; i++) {
+            gray[i] = (byte) i;
+        }
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_BYTE_INDEXED,
+                new IndexColorModel(8, 256, gray, gray, gray));
+        for (int y = 0; y < 512; y++) {
+            for (int x = 0; x < 512; x++) {
+                image.getRaster().setSample(x, y, 0, y >= 400 ? 255 : x < 450 ? 200 : 50);
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+}
\ No newline at end of file
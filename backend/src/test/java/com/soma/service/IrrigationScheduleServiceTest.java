@@ -0,0 +1,188 @@
+package com.soma.service;
+
+import com.soma.dto.IrrigationPlanDto;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.FieldLocation;
+import com.soma.util.FieldSeasonTable;
+import com.soma.util.ForecastGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IrrigationScheduleServiceTest {
+    
+    private static final LocalDate DAY = LocalDate.of(2026, 6, 1);
+    private static final int SEASON_START = (int) LocalDate.of(2026, 3, 1).toEpochDay();
+    
+    @TempDir
+    Path directory;
+    
+    @Mock
+    private FarmFieldRepository fieldRepository;
+    
+    @Mock
+    private EarthDataService earthDataService;
+    
+    @Mock
+    private FieldSeasonService seasonService;
+    
+    private ForecastGridStore forecastStore;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        // Two days over 30-50N, 100-80W with 2 mm of rain at noon
+        double[] scales = new double[ForecastGridStore.BANDS];
+        Arrays.fill(scales, 0.01);
+        byte[] run = ForecastGrid.encode(DAY.atStartOfDay(ZoneOffset.UTC).toInstant(), 48, 30, -100, 1, 21, 21,
+                scales, new double[ForecastGridStore.BANDS], (band, hour, latitude, longitude) ->
+                        band == ForecastGridStore.PRECIPITATION && hour % 24 == 12 ? 2 : 0);
+        ForecastGrid.write(directory.resolve("run.sfc"), run);
+        forecastStore = new ForecastGridStore(directory.toString(), false, 1.0, 48, 6);
+        forecastStore.ingestLatestRun();
+        lenient().when(earthDataService.evapotranspiration(anyDouble(), anyDouble(), any())).thenReturn(5.0);
+        lenient().when(seasonService.getSettings()).thenReturn(new FieldSeasonTable.Settings(10, 30, 150, 0.5));
+        lenient().when(seasonService.getSeason(anyLong())).thenReturn(Optional.empty());
+        lenient().when(seasonService.seasonStart(anyDouble(), any())).thenReturn(SEASON_START);
+        lenient().when(fieldRepository.findAllLocations())
+                .thenReturn(List.of(location(1L, 41.5, -93.5), location(2L, 45.0, -90.0)));
+    }
+    
+    @Test
+    void testFieldIsIrrigatedWhenSoilWouldFallBelowTheThreshold() {
+        // Arrange
+        when(seasonService.getSeason(1L)).thenReturn(Optional.of(season(1L, 80)));
+        IrrigationScheduleService service = service();
+        
+        // Act
+        service.run(DAY);
+        IrrigationPlanDto plan = service.getPlan(1L).orElseThrow();
+        
+        // Assert
+        // 80 + 2 - 5 = 77, then 74 is below 75 with no rain forecast after it: refill by at most 40
+        assertEquals(DAY, plan.getStartDate());
+        assertEquals(80.0, plan.getSoilWaterMm());
+        assertEquals(2, plan.getForecastDays());
+        assertEquals(7, plan.getDays().size());
+        assertEquals(0.0, plan.getDays().get(0).getIrrigationMm());
+        assertEquals(77.0, plan.getDays().get(0).getSoilWaterMm());
+        assertEquals(40.0, plan.getDays().get(1).getIrrigationMm());
+        assertEquals(114.0, plan.getDays().get(1).getSoilWaterMm());
+        assertEquals(89.0, plan.getDays().get(6).getSoilWaterMm());
+        assertEquals(40.0, plan.getTotalIrrigationMm());
+        assertTrue(plan.getDays().get(1).isForecast());
+        assertFalse(plan.getDays().get(2).isForecast());
+        assertEquals(0.0, plan.getDays().get(2).getRainfallMm());
+    }
+    
+    @Test
+    void testOnlyFieldsWhoseInputsChangedAreRecomputed() {
+        // Arrange
+        IrrigationScheduleService service = service();
+        service.run(DAY);
+        
+        // Act
+        Map<String, Object> unchanged = service.run(DAY);
+        when(seasonService.getSeason(1L)).thenReturn(Optional.of(season(1L, 120)));
+        Map<String, Object> oneChanged = service.run(DAY);
+        when(fieldRepository.findAllLocations()).thenReturn(List.of(location(1L, 41.5, -93.5)));
+        Map<String, Object> oneRemoved = service.run(DAY);
+        
+        // Assert
+        assertEquals(0, unchanged.get("recomputed"));
+        assertEquals(2, unchanged.get("unchanged"));
+        assertEquals(1, oneChanged.get("recomputed"));
+        assertEquals(120.0, service.getPlan(1L).orElseThrow().getSoilWaterMm());
+        assertEquals(1, oneRemoved.get("removed"));
+        assertTrue(service.getPlan(2L).isEmpty());
+        assertEquals(3L, service.getStats().get("recomputedTotal"));
+    }
+    
+    @Test
+    void testScheduledRunIsSkippedUntilTheSeasonStateChanges() {
+        // Arrange
+        IrrigationScheduleService service = service();
+        
+        // Act
+        service.runIfInputsChanged();
+        service.runIfInputsChanged();
+        when(seasonService.getGeneration()).thenReturn(1L);
+        service.runIfInputsChanged();
+        
+        // Assert
+        Map<String, Object> stats = service.getStats();
+        assertEquals(2L, stats.get("runCount"));
+        assertEquals(1L, stats.get("skippedRuns"));
+        assertEquals(2, stats.get("plans"));
+    }
+    
+    @Test
+    void testRainfallIsReadFromEveryRunCoveringTheDay() throws IOException {
+        // Arrange
+        // The latest run covers 18:00 to 06:00, with 1 mm of rain at 20:00
+        double[] scales = new double[ForecastGridStore.BANDS];
+        Arrays.fill(scales, 0.01);
+        byte[] lateRun = ForecastGrid.encode(DAY.atStartOfDay(ZoneOffset.UTC).plusHours(18).toInstant(), 12, 30, -100,
+                1, 21, 21, scales, new double[ForecastGridStore.BANDS], (band, hour, latitude, longitude) ->
+                        band == ForecastGridStore.PRECIPITATION && hour == 2 ? 1 : 0);
+        ForecastGrid.write(directory.resolve("late.sfc"), lateRun);
+        forecastStore.ingestLatestRun();
+        IrrigationScheduleService service = service();
+        
+        // Act
+        Map<String, Object> stats = service.run(DAY);
+        IrrigationPlanDto plan = service.getPlan(1L).orElseThrow();
+        
+        // Assert
+        assertEquals(2, stats.get("forecastRuns"));
+        // Hours before 18:00 come from the earlier run and its rain at noon, rather than 1 mm scaled up from six hours
+        assertEquals(3.0, plan.getDays().get(0).getRainfallMm());
+        // Past 06:00 the next day, hours again come from the earlier run
+        assertEquals(2.0, plan.getDays().get(1).getRainfallMm());
+    }
+    
+    private IrrigationScheduleService service() {
+        return new IrrigationScheduleService(fieldRepository, forecastStore, earthDataService, seasonService,
+                Runnable::run, 7, 0.5, 0.9, 40);
+    }
+    
+    private static FieldSeasonTable.Season season(long fieldId, double soilWaterMm) {
+        int yesterday = (int) DAY.minusDays(1).toEpochDay();
+        return new FieldSeasonTable.Season(fieldId, SEASON_START, yesterday, 0, 0, 0, soilWaterMm);
+    }
+    
+    private static FieldLocation location(Long id, Double latitude, Double longitude) {
+        return new FieldLocation() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+            
+            @Override
+            public Double getLatitude() {
+                return latitude;
+            }
+            
+            @Override
+            public Double getLongitude() {
+                return longitude;
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.soma.service;
+
+import com.soma.dto.TipCitationDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStubChatProviderTest {
+    
+    @Test
+    void testStreamEmitsTokensThatRebuildTheAnswer() {
+        // Arrange
+        LocalStubChatProvider provider = new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0);
+        List<String> tokens = new ArrayList<>();
+        
+        // Act
+        String answer = provider.stream(ChatPrompt.of("how do i manage pests?"), tokens::add);
+        
+        // Assert
+        assertTrue(tokens.size() > 10);
+        assertEquals(answer, String.join("", tokens));
+        assertTrue(answer.startsWith("Integrated Pest Management"));
+        assertEquals(answer, provider.complete(ChatPrompt.of("how do i manage pests?")));
+    }
+    
+    @Test
+    void testFirstTokenLatencyIsApplied() {
+        // Arrange
+        LocalStubChatProvider provider = new LocalStubChatProvider(new ChatKnowledgeBase(), 50, 0);
+        long start = System.nanoTime();
+        long[] firstTokenAt = new long[1];
+        
+        // Act
+        provider.stream(ChatPrompt.of("soil"), token -> {
+            if (firstTokenAt[0] == 0) {
+                firstTokenAt[0] = System.nanoTime();
+            }
+        });
+        
+        // Assert
+        assertTrue(firstTokenAt[0] - start >= 50_000_000L);
+    }
+    
+    @Test
+    void testAnswerCitesRetrievedTips() {
+        // Arrange
+        LocalStubChatProvider provider = new LocalStubChatProvider(new ChatKnowledgeBase(), 0, 0);
+        ChatPrompt prompt = new ChatPrompt("soil", List.of(new TipCitationDto(4L, "Compost basics", 0.8)));
+        
+        // Act
+        String answer = provider.complete(prompt);
+        
+        // Assert
+        assertTrue(answer.endsWith("Related tips from our agronomists: \"Compost basics\"."));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.soma.service;
+
+import com.soma.dto.HeatmapCellDto;
+import com.soma.dto.HeatmapDto;
+import com.soma.event.FieldChangedEvent;
+import com.soma.event.MetricsSubmittedEvent;
+import com.soma.exception.InvalidRequestException;
+import com.soma.model.FarmField;
+import com.soma.model.SustainabilityMetrics;
+import com.soma.repository.FarmFieldRepository;
+import com.soma.repository.SustainabilityMetricsRepository;
+import com.soma.util.Geohash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SustainabilityHeatmapServiceTest {
+    
+    @Mock
+    private SustainabilityMetricsRepository metricsRepository;
+    
+    @Mock
+    private FarmFieldRepository fieldRepository;
+    
+    private SustainabilityHeatmapService heatmapService;
+    
+    @BeforeEach
+    void setUp() {
+        heatmapService = new SustainabilityHeatmapService(metricsRepository, fieldRepository, 1024);
+        when(metricsRepository.summarizeByUser()).thenReturn(List.of());
+        // Two farms a few km apart near Ames, Iowa, and one in Cape Town
+        when(fieldRepository.findAll()).thenReturn(List.of(
+                field(1L, 1L, 42.03, -93.62), field(2L, 2L, 42.05, -93.58), field(3L, 3L, -33.9, 18.4)));
+        heatmapService.rebuild();
+    }
+    
+    @Test
+    void testSubmittedMetricsAreAveragedPerCell() {
+        // Act
+        heatmapService.onMetricsSubmitted(submitted(1L, 100.0, 400.0));
+        heatmapService.onMetricsSubmitted(submitted(2L, 300.0, null));
+        heatmapService.onMetricsSubmitted(submitted(3L, 50.0, 50.0));
+        heatmapService.onMetricsSubmitted(submitted(4L, 999.0, 999.0));
+        HeatmapDto iowa = heatmapService.getHeatmap(41.5, -94.5, 42.5, -93.0, 3);
+        HeatmapDto world = heatmapService.getHeatmap(-90, -180, 90, 180, null);
+        
+        // Assert
+        assertEquals(1, iowa.getCells().size());
+        HeatmapCellDto cell = iowa.getCells().get(0);
+        assertEquals(Geohash.encode(42.03, -93.62, 3), cell.getGeohash());
+        assertEquals(2, cell.getFarms());
+        assertEquals(2L, cell.getRecords());
+        assertEquals(200.0, cell.getAverageCarbonUsage());
+        assertEquals(400.0, cell.getAverageWaterUsage());
+        // The user without a field is not on the map
+        assertEquals(2, world.getCells().size());
+        assertEquals(2, world.getPrecision());
+        assertEquals(3L, world.getCells().stream().mapToLong(HeatmapCellDto::getRecords).sum());
+    }
+    
+    @Test
+    void testFarmMovesWithItsFirstField() {
+        // Arrange
+        heatmapService.onMetricsSubmitted(submitted(3L, 50.0, 50.0));
+        when(fieldRepository.findByUserIdOrderByCreatedAtAsc(3L)).thenReturn(List.of(field(4L, 3L, 42.04, -93.60)));
+        
+        // Act
+        heatmapService.onFieldChanged(new FieldChangedEvent(3L, 3L, FieldChangedEvent.Type.DELETED));
+        
+        // Assert
+        assertTrue(heatmapService.getHeatmap(-40, 10, -30, 20, 3).getCells().isEmpty());
+        List<HeatmapCellDto> iowa = heatmapService.getHeatmap(41.5, -94.5, 42.5, -93.0, 3).getCells();
+        assertEquals(1, iowa.size());
+        assertEquals(3, iowa.get(0).getFarms());
+        assertEquals(50.0, iowa.get(0).getAverageCarbonUsage());
+    }
+    
+    @Test
+    void testViewportTooLargeForPrecisionIsRejected() {
+        // Assert
+        assertThrows(InvalidRequestException.class, () -> heatmapService.getHeatmap(-90, -180, 90, 180, 6));
+        assertThrows(InvalidRequestException.class, () -> heatmapService.getHeatmap(10, 0, 0, 10, null));
+    }
+    
+    private static MetricsSubmittedEvent submitted(Long userId, Double carbonUsage, Double waterUsage) {
+        SustainabilityMetrics metrics = new SustainabilityMetrics();
+        metrics.setUserId(userId);
+        metrics.setCarbonUsage(carbonUsage);
+        metrics.setWaterUsage(waterUsage);
+        metrics.setDate(LocalDate.now());
+        return new MetricsSubmittedEvent(metrics);
+    }
+    
+    private static FarmField field(Long id, Long userId, double latitude, double longitude) {
+        return new FarmField(id, userId, "Field " + id, latitude, longitude, null, LocalDateTime.of(2024, 1, id.intValue(), 0, 0));
+    }
+}
\ No newline at end of file
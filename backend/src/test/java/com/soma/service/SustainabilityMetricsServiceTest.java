@@ -1,6 +1,7 @@
 package com.soma.service;
 
 import com.soma.dto.SustainabilityMetricsDto;
+import com.soma.event.MetricsSubmittedEvent;
 import com.soma.model.SustainabilityMetrics;
 import com.soma.repository.SustainabilityMetricsRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,6 +11,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -29,6 +31,9 @@ class SustainabilityMetricsServiceTest {
     @Mock
     private ModelMapper modelMapper;
     
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     @InjectMocks
     private SustainabilityMetricsService metricsService;
     
@@ -71,6 +76,7 @@ class SustainabilityMetricsServiceTest {
         
         verify(modelMapper).map(metricsDto, SustainabilityMetrics.class);
         verify(metricsRepository).save(any(SustainabilityMetrics.class));
+        verify(eventPublisher).publishEvent(any(MetricsSubmittedEvent.class));
     }
     
     @Test
@@ -0,0 +1,185 @@
+package com.soma.service;
+
+import com.soma.dto.PopularTipDto;
+import com.soma.event.TipChangedEvent;
+import com.soma.exception.ResourceNotFoundException;
+import com.soma.model.Tip;
+import com.soma.model.TipStats;
+import com.soma.repository.TipRepository;
+import com.soma.repository.TipStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TipPopularityServiceTest {
+    
+    @Mock
+    private TipRepository tipRepository;
+    
+    @Mock
+    private TipStatsRepository tipStatsRepository;
+    
+    @Mock
+    private TipStatsWriter tipStatsWriter;
+    
+    @InjectMocks
+    private TipPopularityService popularityService;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(popularityService, "topK", 2);
+        ReflectionTestUtils.setField(popularityService, "likeWeight", 5.0);
+        lenient().when(tipRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(tip(1L, "Cover crops"), tip(2L, "Drip irrigation"), tip(3L, "No-till")));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushWritesAccumulatedDeltasOnce() {
+        // Arrange
+        popularityService.recordView(1L);
+        popularityService.recordView(1L);
+        popularityService.recordView(2L);
+        
+        // Act
+        popularityService.flush();
+        popularityService.flush();
+        
+        // Assert
+        ArgumentCaptor<Map<Long, TipStatsWriter.Delta>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(tipStatsWriter, times(1)).applyDeltas(captor.capture());
+        assertEquals(new TipStatsWriter.Delta(2, 0), captor.getValue().get(1L));
+        assertEquals(new TipStatsWriter.Delta(1, 0), captor.getValue().get(2L));
+    }
+    
+    @Test
+    void testFailedFlushKeepsCountsForRetry() {
+        // Arrange
+        popularityService.recordView(1L);
+        doThrow(new RuntimeException("database unavailable")).doNothing()
+                .when(tipStatsWriter).applyDeltas(any());
+        
+        // Act
+        popularityService.flush();
+        popularityService.flush();
+        
+        // Assert
+        verify(tipStatsWriter, times(2)).applyDeltas(Map.of(1L, new TipStatsWriter.Delta(1, 0)));
+        assertEquals(1, popularityService.getPopularTips(10).get(0).getViews());
+    }
+    
+    @Test
+    void testPopularTipsAreRankedAndBoundedByTopK() {
+        // Arrange
+        when(tipStatsRepository.findAll()).thenReturn(List.of(
+                new TipStats(1L, 10, 0, LocalDateTime.now()),
+                new TipStats(2L, 3, 2, LocalDateTime.now()),
+                new TipStats(3L, 1, 0, LocalDateTime.now())));
+        
+        // Act
+        popularityService.restore();
+        List<PopularTipDto> popular = popularityService.getPopularTips(10);
+        
+        // Assert
+        assertEquals(2, popular.size());
+        assertEquals(2L, popular.get(0).getId());
+        assertEquals(13.0, popular.get(0).getScore());
+        assertEquals("Cover crops", popular.get(1).getTitle());
+    }
+    
+    @Test
+    void testDeletedTipIsDroppedFromPopularTips() {
+        // Arrange
+        popularityService.recordView(1L);
+        popularityService.flush();
+        
+        // Act
+        popularityService.onTipChanged(new TipChangedEvent(1L, TipChangedEvent.Type.DELETED));
+        
+        // Assert
+        assertTrue(popularityService.getPopularTips(10).isEmpty());
+        verify(tipStatsWriter).deleteStats(1L);
+    }
+    
+    @Test
+    void testDeletedTipWithoutCounterHasItsStatsDeleted() {
+        // Act
+        // As after a restart, before the tip was viewed again
+        popularityService.onTipChanged(new TipChangedEvent(3L, TipChangedEvent.Type.DELETED));
+        
+        // Assert
+        verify(tipStatsWriter).deleteStats(3L);
+    }
+    
+    @Test
+    void testDeletionWaitsForTheFlushInProgress() throws Exception {
+        // Arrange
+        popularityService.recordView(1L);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(tipStatsWriter).applyDeltas(any());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        
+        // Act
+        Future<?> flush = executor.submit(popularityService::flush);
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        Future<?> deletion = executor.submit(() -> popularityService.onTipChanged(
+                new TipChangedEvent(1L, TipChangedEvent.Type.DELETED)));
+        Thread.sleep(100);
+        boolean deletedDuringFlush = deletion.isDone();
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        deletion.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        
+        // Assert
+        // The row the flush wrote is deleted after it, not re-created behind the deletion
+        assertFalse(deletedDuringFlush);
+        InOrder order = inOrder(tipStatsWriter);
+        order.verify(tipStatsWriter).applyDeltas(any());
+        order.verify(tipStatsWriter).deleteStats(1L);
+        assertTrue(popularityService.getPopularTips(10).isEmpty());
+    }
+    
+    @Test
+    void testLikeUnknownTipThrows() {
+        // Arrange
+        when(tipRepository.existsById(99L)).thenReturn(false);
+        
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> popularityService.recordLike(99L));
+    }
+    
+    private Tip tip(Long id, String title) {
+        Tip tip = new Tip();
+        tip.setId(id);
+        tip.setTitle(title);
+        tip.setDescription(title);
+        return tip;
+    }
+}
\ No newline at end of file
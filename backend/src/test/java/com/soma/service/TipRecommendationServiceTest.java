@@ -0,0 +1,129 @@
+package com.soma.service;
+
+import com.soma.dto.TipRecommendationDto;
+import com.soma.event.MetricsSubmittedEvent;
+import com.soma.event.TipChangedEvent;
+import com.soma.model.SustainabilityMetrics;
+import com.soma.model.Tip;
+import com.soma.repository.SustainabilityMetricsRepository;
+import com.soma.repository.TipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TipRecommendationServiceTest {
+    
+    @Mock
+    private TipRepository tipRepository;
+    
+    @Mock
+    private SustainabilityMetricsRepository metricsRepository;
+    
+    @InjectMocks
+    private TipRecommendationService recommendationService;
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(recommendationService, "topN", 2);
+        ReflectionTestUtils.setField(recommendationService, "referenceCarbonUsage", 100.0);
+        ReflectionTestUtils.setField(recommendationService, "referenceWaterUsage", 500.0);
+        
+        when(tipRepository.findAll()).thenReturn(List.of(
+                tip(1L, "Drip irrigation", "Drip irrigation delivers water to the roots and cuts water waste."),
+                tip(2L, "No-till farming", "Skipping tillage keeps carbon in the ground and saves fuel."),
+                tip(3L, "Compost", "Compost feeds soil life.")));
+        when(metricsRepository.summarizeByUser()).thenReturn(List.of());
+        when(metricsRepository.findLatestByUser()).thenReturn(List.of());
+        recommendationService.rebuild();
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHighWaterUsageRanksIrrigationTipsFirst() {
+        // Arrange
+        SustainabilityMetrics latest = metrics(7L, 20.0, 2000.0, LocalDate.now());
+        
+        // Act
+        recommendationService.onMetricsSubmitted(new MetricsSubmittedEvent(
+                metrics(7L, null, 2000.0, LocalDate.now().minusDays(3))));
+        recommendationService.onMetricsSubmitted(new MetricsSubmittedEvent(latest));
+        Map<String, Object> result = recommendationService.getRecommendations(7L);
+        
+        // Assert
+        List<TipRecommendationDto> tips = (List<TipRecommendationDto>) result.get("recommendations");
+        assertEquals(2, tips.size());
+        assertEquals(1L, tips.get(0).getTipId());
+        assertEquals("Addresses your water usage", tips.get(0).getReason());
+        // The metrics summary is served from the profile alongside the tips
+        assertEquals(2000.0, result.get("averageWaterUsage"));
+        assertEquals(20.0, result.get("averageCarbonUsage"));
+        assertEquals(2, result.get("totalRecords"));
+        assertSame(latest, result.get("latestMetrics"));
+        verify(metricsRepository, never()).findByUserIdOrderByDateDesc(any());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEditedTipIsFoldedIntoExistingLists() {
+        // Arrange
+        recommendationService.onMetricsSubmitted(new MetricsSubmittedEvent(metrics(7L, 400.0, 100.0, LocalDate.now())));
+        when(tipRepository.findById(1L)).thenReturn(Optional.of(
+                tip(1L, "Cut fertilizer emissions", "Precision fertilizer use cuts carbon emissions.")));
+        
+        // Act
+        recommendationService.onTipChanged(new TipChangedEvent(1L, TipChangedEvent.Type.UPDATED));
+        
+        // Assert
+        List<TipRecommendationDto> tips = (List<TipRecommendationDto>) recommendationService.getRecommendations(7L)
+                .get("recommendations");
+        assertEquals(List.of(1L, 2L), tips.stream().map(TipRecommendationDto::getTipId).toList());
+        assertEquals("Cut fertilizer emissions", tips.get(0).getTitle());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDeletedTipIsReplaced() {
+        // Arrange
+        recommendationService.onMetricsSubmitted(new MetricsSubmittedEvent(metrics(7L, 20.0, 2000.0, LocalDate.now())));
+        
+        // Act
+        recommendationService.onTipChanged(new TipChangedEvent(1L, TipChangedEvent.Type.DELETED));
+        
+        // Assert
+        List<TipRecommendationDto> tips = (List<TipRecommendationDto>) recommendationService.getRecommendations(7L)
+                .get("recommendations");
+        assertEquals(2, tips.size());
+        assertTrue(tips.stream().noneMatch(rec -> rec.getTipId().equals(1L)));
+    }
+    
+    private SustainabilityMetrics metrics(Long userId, Double carbonUsage, Double waterUsage, LocalDate date) {
+        SustainabilityMetrics metrics = new SustainabilityMetrics();
+        metrics.setUserId(userId);
+        metrics.setCarbonUsage(carbonUsage);
+        metrics.setWaterUsage(waterUsage);
+        metrics.setDate(date);
+        return metrics;
+    }
+    
+    private Tip tip(Long id, String title, String description) {
+        Tip tip = new Tip();
+        tip.setId(id);
+        tip.setTitle(title);
+        tip.setDescription(description);
+        return tip;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.soma.service;
+
+import com.soma.dto.TipCitationDto;
+import com.soma.event.TipChangedEvent;
+import com.soma.model.Tip;
+import com.soma.repository.TipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TipRetrievalServiceTest {
+    
+    @Mock
+    private TipRepository tipRepository;
+    
+    private ChatResponseCache responseCache;
+    private TipRetrievalService retrievalService;
+    
+    @BeforeEach
+    void setUp() {
+        responseCache = new ChatResponseCache(100, 60);
+        retrievalService = new TipRetrievalService(tipRepository, new HashingTipEmbedder(256), responseCache, 2, 0.2);
+        when(tipRepository.findAll()).thenReturn(List.of(
+                tip(1L, "Drip irrigation", "Drip lines deliver water straight to the roots and cut evaporation losses."),
+                tip(2L, "Cover crops", "Cover crops protect bare soil from erosion and add organic matter."),
+                tip(3L, "Integrated pest management", "Scout fields weekly and release beneficial insects before spraying.")));
+        retrievalService.indexAll();
+    }
+    
+    @Test
+    void testRetrieveReturnsMostRelevantTipFirst() {
+        // Act
+        List<TipCitationDto> citations = retrievalService.retrieve("how can drip irrigation save water?");
+        
+        // Assert
+        assertFalse(citations.isEmpty());
+        assertEquals(1L, citations.get(0).getTipId());
+        assertEquals("Drip irrigation", citations.get(0).getTitle());
+    }
+    
+    @Test
+    void testUnrelatedQuestionCitesNothing() {
+        // Act & Assert
+        assertTrue(retrievalService.retrieve("tell me about quantum physics").isEmpty());
+    }
+    
+    @Test
+    void testIndexFollowsTipWrites() {
+        // Arrange
+        when(tipRepository.findById(4L)).thenReturn(Optional.of(
+                tip(4L, "Rotational grazing", "Move livestock between paddocks so pasture can regrow.")));
+        
+        // Act
+        retrievalService.onTipChanged(new TipChangedEvent(4L, TipChangedEvent.Type.CREATED));
+        retrievalService.onTipChanged(new TipChangedEvent(1L, TipChangedEvent.Type.DELETED));
+        
+        // Assert
+        assertEquals(4L, retrievalService.retrieve("rotational grazing for livestock").get(0).getTipId());
+        assertTrue(retrievalService.retrieve("drip irrigation").stream().noneMatch(c -> c.getTipId().equals(1L)));
+    }
+    
+    private Tip tip(Long id, String title, String description) {
+        Tip tip = new Tip();
+        tip.setId(id);
+        tip.setTitle(title);
+        tip.setDescription(description);
+        return tip;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.soma.service;
+
+import com.soma.dto.CurrentWeatherDto;
+import com.soma.dto.ForecastDto;
+import com.soma.exception.InvalidRequestException;
+import com.soma.exception.ResourceNotFoundException;
+import com.soma.util.ForecastGrid;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherServiceTest {
+    
+    private static final Instant UPDATE = Instant.parse("2026-06-01T12:00:00Z");
+    
+    @Mock
+    private WeatherProvider provider;
+    
+    @Mock
+    private Geocoder geocoder;
+    
+    @TempDir
+    Path forecastDirectory;
+    
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Runnable> queuedRefreshes = new ArrayList<>();
+    private ForecastGridStore forecastStore;
+    private WeatherService weatherService;
+    
+    @BeforeEach
+    void setUp() {
+        when(provider.gridDegrees()).thenReturn(0.1);
+        lenient().when(provider.updateInterval()).thenReturn(Duration.ofMinutes(10));
+        lenient().when(provider.current(any())).thenReturn(observation(UPDATE));
+        LocationResolver resolver = new LocationResolver(geocoder, provider, 100, 24);
+        // Fetched four minutes into the provider's ten-minute update interval
+        Clock clock = Clock.fixed(UPDATE.plus(Duration.ofMinutes(4)), ZoneOffset.UTC);
+        forecastStore = new ForecastGridStore(forecastDirectory.toString(), false, 1.0, 48, 6);
+        weatherService = new WeatherService(provider, resolver, forecastStore, 100, Duration.ofMinutes(60),
+                queuedRefreshes::add, clock, nanos::get);
+    }
+    
+    @Test
+    void testLocationsInOneGridCellShareOneProviderCall() {
+        // Arrange
+        when(geocoder.geocode("ames, iowa")).thenReturn(Optional.of(new Geocoder.Location(42.03, -93.62)));
+        when(geocoder.geocode("42.04,-93.61")).thenReturn(Optional.of(new Geocoder.Location(42.04, -93.61)));
+        
+        // Act
+        CurrentWeatherDto first = weatherService.getCurrentWeather("Ames, Iowa");
+        CurrentWeatherDto second = weatherService.getCurrentWeather("  ames,   IOWA ");
+        CurrentWeatherDto nearby = weatherService.getCurrentWeather("42.04,-93.61");
+        
+        // Assert
+        assertEquals(42.05, first.getLatitude());
+        assertEquals(-93.65, first.getLongitude());
+        assertEquals(24.5, nearby.getTemperature());
+        assertEquals("fresh", second.getFreshness());
+        assertEquals("  ames,   IOWA ", second.getLocation());
+        verify(geocoder, times(1)).geocode("ames, iowa");
+        verify(provider, times(1)).current(new GridPoint(42.05, -93.65));
+    }
+    
+    @Test
+    void testReadingTurnsStaleWhenProviderUpdates() {
+        // Arrange
+        when(geocoder.geocode(anyString())).thenReturn(Optional.of(new Geocoder.Location(42.03, -93.62)));
+        weatherService.getCurrentWeather("Ames");
+        
+        // Act
+        nanos.addAndGet(Duration.ofMinutes(5).toNanos());
+        CurrentWeatherDto beforeUpdate = weatherService.getCurrentWeather("Ames");
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        CurrentWeatherDto afterUpdate = weatherService.getCurrentWeather("Ames");
+        
+        // Assert
+        assertEquals("fresh", beforeUpdate.getFreshness());
+        assertEquals("stale", afterUpdate.getFreshness());
+        assertEquals(420, afterUpdate.getAgeSeconds());
+        assertEquals(1, queuedRefreshes.size());
+    }
+    
+    @Test
+    void testCoordinatesAreLookedUpWithoutTheGeocoder() {
+        // Act
+        // Double.toString gives 1.0E-4 here, which the geocoder would take for a place name
+        CurrentWeatherDto current = weatherService.getCurrentWeather(0.0001, 42.04);
+        
+        // Assert
+        assertEquals("0.00010,42.04000", current.getLocation());
+        assertEquals(0.05, current.getLatitude());
+        assertEquals(42.05, current.getLongitude());
+        verifyNoInteractions(geocoder);
+        verify(provider, times(1)).current(new GridPoint(0.05, 42.05));
+    }
+    
+    @Test
+    void testUnknownLocationIsNotFound() {
+        // Arrange
+        when(geocoder.geocode("atlantis")).thenReturn(Optional.empty());
+        
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> weatherService.getCurrentWeather("Atlantis"));
+        assertThrows(ResourceNotFoundException.class, () -> weatherService.getCurrentWeather("atlantis"));
+        verify(geocoder, times(1)).geocode("atlantis");
+        verify(provider, never()).current(any());
+    }
+    
+    @Test
+    void testForecastRunAnswersWhereItCoversTheLocation() throws IOException {
+        // Arrange
+        when(geocoder.geocode("ames")).thenReturn(Optional.of(new Geocoder.Location(41.5, -94.5)));
+        ForecastGrid.write(forecastDirectory.resolve("run.sfc"), ForecastGridStoreTest.run(UPDATE, 0));
+        forecastStore.ingestLatestRun();
+        
+        // Act
+        CurrentWeatherDto current = weatherService.getCurrentWeather("Ames");
+        ForecastDto forecast = weatherService.getForecast("Ames", 24);
+        
+        // Assert
+        // Four minutes into the run at 41.5N, 94.5W: 10 + 1/15 + 1.5 + 0.25
+        assertEquals(11.8, current.getTemperature());
+        assertEquals(41.5, current.getLatitude());
+        assertEquals(240, current.getAgeSeconds());
+        assertEquals(3, forecast.getHours().size());
+        assertEquals(13.8, forecast.getHours().get(2).getTemperature());
+        verify(provider, never()).current(any());
+    }
+    
+    @Test
+    void testForecastOutsideTheRunIsNotFound() {
+        // Arrange
+        when(geocoder.geocode("ames")).thenReturn(Optional.of(new Geocoder.Location(41.5, -94.5)));
+        
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> weatherService.getForecast("Ames", 24));
+        assertThrows(InvalidRequestException.class, () -> weatherService.getForecast("Ames", 0));
+    }
+    
+    private WeatherObservation observation(Instant observedAt) {
+        return new WeatherObservation(24.5, 55, 0.0, 12.0, "Sunny", 6, 15, 40, 18, observedAt);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+    
+    private final AtomicLong nanos = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), nanos::get);
+    
+    @Test
+    void testLateSuccessDoesNotCloseTheCircuitWhileTheProbeIsOut() {
+        // Arrange
+        long slow = breaker.acquire();
+        breaker.onFailure(breaker.acquire());
+        breaker.onFailure(breaker.acquire());
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        long probe = breaker.acquire();
+        
+        // Act
+        breaker.onSuccess(slow);
+        
+        // Assert
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertEquals(CircuitBreaker.REFUSED, breaker.acquire());
+        breaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+    
+    @Test
+    void testFailedProbeReopensAndLateFailuresAreIgnored() {
+        // Arrange
+        long slow = breaker.acquire();
+        breaker.onFailure(breaker.acquire());
+        breaker.onFailure(breaker.acquire());
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        long probe = breaker.acquire();
+        
+        // Act
+        breaker.onFailure(slow);
+        CircuitBreaker.State afterLateFailure = breaker.state();
+        breaker.onFailure(probe);
+        
+        // Assert
+        assertEquals(CircuitBreaker.State.HALF_OPEN, afterLateFailure);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(2, breaker.openCount());
+        assertEquals(CircuitBreaker.REFUSED, breaker.acquire());
+    }
+}
\ No newline at end of file
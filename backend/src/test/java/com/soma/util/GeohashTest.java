@@ -0,0 +1,32 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeohashTest {
+    
+    @Test
+    void testEncodeAndDecodeMatchReferenceHashes() {
+        // Act
+        String hash = Geohash.encode(57.64911, 10.40744, 11);
+        Geohash.Box box = Geohash.decode("u4pruydqqvj");
+        
+        // Assert
+        assertEquals("u4pruydqqvj", hash);
+        assertTrue(box.south() <= 57.64911 && box.north() >= 57.64911);
+        assertTrue(box.west() <= 10.40744 && box.east() >= 10.40744);
+    }
+    
+    @Test
+    void testCoveringWrapsAcrossTheAntimeridian() {
+        // Act
+        List<String> cells = Geohash.covering(-10, 170, 10, -170, 1);
+        
+        // Assert
+        assertEquals(Geohash.coveringSize(-10, 170, 10, -170, 1), cells.size());
+        assertEquals(List.of("2", "8", "r", "x"), cells.stream().sorted().toList());
+    }
+}
@@ -0,0 +1,78 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IrrigationPlanTableTest {
+    
+    @Test
+    void testPlansSurviveGrowthUpdatesAndRemovals() {
+        // Arrange
+        IrrigationPlanTable table = new IrrigationPlanTable(3);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        
+        // Act
+        for (int i = 0; i < 20_000; i++) {
+            long fieldId = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(fieldId) != null, table.remove(fieldId));
+            } else {
+                long fingerprint = random.nextLong();
+                table.put(plan(fieldId, fingerprint, 0));
+                expected.put(fieldId, fingerprint);
+            }
+        }
+        
+        // Assert
+        assertEquals(expected.size(), table.size());
+        for (long fieldId = 0; fieldId < 2_000; fieldId++) {
+            IrrigationPlanTable.Plan plan = table.get(fieldId);
+            Long fingerprint = expected.get(fieldId);
+            if (fingerprint == null) {
+                assertNull(plan);
+            } else {
+                assertTrue(table.hasFingerprint(fieldId, fingerprint));
+                assertEquals(fieldId, plan.fieldId());
+                // Day columns move with their field
+                assertArrayEquals(new float[] {fieldId, fieldId + 1, fieldId + 2}, plan.rainfallMm());
+            }
+        }
+    }
+    
+    @Test
+    void testOnlyAbsentPlansComputedBeforeTheRunAreRemoved() {
+        // Arrange
+        IrrigationPlanTable table = new IrrigationPlanTable(3);
+        for (long fieldId = 1; fieldId <= 5; fieldId++) {
+            table.put(plan(fieldId, fieldId, 100));
+        }
+        // Registered while the run was going on
+        table.put(plan(6, 6, 200));
+        
+        // Act
+        int removed = table.removeAbsent(LongStream.of(2, 4).toArray(), 150);
+        
+        // Assert
+        assertEquals(3, removed);
+        assertEquals(3, table.size());
+        assertNotNull(table.get(2));
+        assertNotNull(table.get(4));
+        assertNotNull(table.get(6));
+        assertNull(table.get(1));
+        assertThrows(IllegalArgumentException.class, () -> table.put(new IrrigationPlanTable.Plan(7, 0, 0, 0, 0,
+                new float[2], new float[2], new float[2], new float[2], 0, 0)));
+    }
+    
+    private static IrrigationPlanTable.Plan plan(long fieldId, long fingerprint, long computedAtMillis) {
+        float[] rainfall = {fieldId, fieldId + 1, fieldId + 2};
+        return new IrrigationPlanTable.Plan(fieldId, fingerprint, 20_000, 2, 75, rainfall, new float[3], new float[3],
+                new float[3], 0, computedAtMillis);
+    }
+}
\ No newline at end of file
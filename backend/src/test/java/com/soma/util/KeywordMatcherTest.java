@@ -0,0 +1,55 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordMatcherTest {
+    
+    @Test
+    void testFindAllReportsOverlappingKeywords() {
+        // Arrange
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("he", "he")
+                .add("she", "she")
+                .add("his", "his")
+                .add("hers", "hers")
+                .build();
+        
+        // Act
+        List<KeywordMatcher.Match<String>> matches = matcher.findAll("ushers");
+        
+        // Assert
+        assertEquals(List.of("she", "he", "hers"), matches.stream().map(KeywordMatcher.Match::keyword).toList());
+        assertEquals(1, matches.get(0).start());
+        assertEquals(2, matches.get(2).start());
+    }
+    
+    @Test
+    void testFindBestPrefersPriorityThenLength() {
+        // Arrange
+        KeywordMatcher<Integer> matcher = KeywordMatcher.<Integer>builder()
+                .add("soil", 1)
+                .add("crop rotation", 2)
+                .add("pest", 3, 10)
+                .build();
+        
+        // Act & Assert
+        assertEquals(2, matcher.findBest("crop rotation for soil").orElseThrow().payload());
+        assertEquals(3, matcher.findBest("Soil pests and crop rotation").orElseThrow().payload());
+        assertTrue(matcher.findBest("quantum physics").isEmpty());
+    }
+    
+    @Test
+    void testMatchingIsCaseInsensitive() {
+        // Arrange
+        KeywordMatcher<String> matcher = KeywordMatcher.<String>builder()
+                .add("Cover Crop", "cover")
+                .build();
+        
+        // Act & Assert
+        assertEquals("cover", matcher.findBest("Which COVER CROPS fix nitrogen?").orElseThrow().payload());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+    
+    private static final int POINTS = 20_000;
+    
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+    private final SpatialIndex<Integer> index = new SpatialIndex<>();
+    
+    SpatialIndexTest() {
+        Random random = new Random(11);
+        for (int i = 0; i < POINTS; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+            index.put(i, latitudes[i], longitudes[i], i % 50);
+        }
+    }
+    
+    @Test
+    void testRadiusAndBoxQueriesMatchLinearScan() {
+        // Arrange
+        double[][] centres = {{41.59, -93.62}, {-33.9, 18.4}, {0.1, 179.9}, {89.5, 10}, {-12, -179.5}};
+        
+        for (double[] centre : centres) {
+            // Act
+            List<Long> within = ids(index.withinRadius(centre[0], centre[1], 500_000));
+            double west = wrap(centre[1] - 5);
+            double east = wrap(centre[1] + 5);
+            List<Long> inBox = ids(index.withinBox(centre[0] - 5, west, centre[0] + 5, east));
+            
+            // Assert
+            List<Long> expectedWithin = IntStream.range(0, POINTS)
+                    .filter(i -> distance(centre, i) <= 500_000)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(i -> distance(centre, i)))
+                    .map(Integer::longValue)
+                    .toList();
+            assertEquals(expectedWithin, within);
+            long expectedInBox = IntStream.range(0, POINTS)
+                    .filter(i -> latitudes[i] >= centre[0] - 5 && latitudes[i] <= centre[0] + 5)
+                    .filter(i -> west <= east ? longitudes[i] >= west && longitudes[i] <= east
+                            : longitudes[i] >= west || longitudes[i] <= east)
+                    .count();
+            assertEquals(expectedInBox, inBox.size());
+        }
+    }
+    
+    @Test
+    void testNearestMatchesLinearScanAndGroups() {
+        // Arrange
+        double[] centre = {46.2, 6.1};
+        
+        // Act
+        List<SpatialIndex.Hit<Integer>> nearest = index.nearest(centre[0], centre[1], 10);
+        List<SpatialIndex.Hit<Integer>> nearestGroups = index.nearest(centre[0], centre[1], 5, SpatialIndex.Hit::value);
+        
+        // Assert
+        List<Long> expected = IntStream.range(0, POINTS)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> distance(centre, i)))
+                .limit(10)
+                .map(Integer::longValue)
+                .toList();
+        assertEquals(expected, ids(nearest));
+        assertEquals(5, nearestGroups.stream().map(SpatialIndex.Hit::value).distinct().count());
+        assertEquals(nearest.get(0).id(), nearestGroups.get(0).id());
+    }
+    
+    @Test
+    void testUpdatesAndRemovalsAreReflected() {
+        // Arrange
+        index.put(1, -41.29, 174.78, 99);
+        
+        // Act
+        boolean removed = index.remove(2);
+        
+        // Assert
+        assertTrue(removed);
+        assertFalse(index.remove(2));
+        assertEquals(POINTS - 1, index.size());
+        assertEquals(1L, index.nearest(-41.29, 174.78, 1).get(0).id());
+        assertEquals(99, index.nearest(-41.29, 174.78, 1).get(0).value());
+        assertTrue(ids(index.withinRadius(latitudes[2], longitudes[2], 1)).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.put(3, 91, 0, 0));
+    }
+    
+    private double distance(double[] centre, int i) {
+        return SpatialIndex.distanceMeters(centre[0], centre[1], latitudes[i], longitudes[i]);
+    }
+    
+    private static double wrap(double longitude) {
+        return longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+    }
+    
+    private static List<Long> ids(List<? extends SpatialIndex.Hit<?>> hits) {
+        return hits.stream().map(SpatialIndex.Hit::id).toList();
+    }
+}
\ No newline at end of file
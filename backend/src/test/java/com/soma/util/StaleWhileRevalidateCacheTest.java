@@ -0,0 +1,77 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaleWhileRevalidateCacheTest {
+    
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Runnable> queuedRefreshes = new ArrayList<>();
+    private final StaleWhileRevalidateCache<String, Integer> cache = new StaleWhileRevalidateCache<>(100,
+            Duration.ofMinutes(10), Duration.ofMinutes(60), queuedRefreshes::add, nanos::get);
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    @Test
+    void testValueIsServedStaleAfterSoftTtlWithOneRefresh() {
+        // Arrange
+        cache.get("ames", key -> loads.incrementAndGet());
+        nanos.addAndGet(Duration.ofMinutes(15).toNanos());
+        
+        // Act
+        StaleWhileRevalidateCache.Lookup<Integer> first = cache.get("ames", key -> loads.incrementAndGet());
+        StaleWhileRevalidateCache.Lookup<Integer> second = cache.get("ames", key -> loads.incrementAndGet());
+        queuedRefreshes.forEach(Runnable::run);
+        StaleWhileRevalidateCache.Lookup<Integer> refreshed = cache.get("ames", key -> loads.incrementAndGet());
+        
+        // Assert
+        assertEquals(1, first.value());
+        assertEquals(StaleWhileRevalidateCache.Freshness.STALE, first.freshness());
+        assertEquals(Duration.ofMinutes(15), first.age());
+        assertEquals(StaleWhileRevalidateCache.Freshness.STALE, second.freshness());
+        assertEquals(1, queuedRefreshes.size());
+        assertEquals(2, refreshed.value());
+        assertEquals(StaleWhileRevalidateCache.Freshness.FRESH, refreshed.freshness());
+        assertEquals(2L, cache.getStats().get("staleHitCount"));
+    }
+    
+    @Test
+    void testValuePastHardTtlIsLoadedOnTheCaller() {
+        // Arrange
+        cache.get("ames", key -> loads.incrementAndGet());
+        nanos.addAndGet(Duration.ofMinutes(61).toNanos());
+        
+        // Act
+        StaleWhileRevalidateCache.Lookup<Integer> lookup = cache.get("ames", key -> loads.incrementAndGet());
+        
+        // Assert
+        assertEquals(2, lookup.value());
+        assertEquals(StaleWhileRevalidateCache.Freshness.MISS, lookup.freshness());
+        assertTrue(queuedRefreshes.isEmpty());
+    }
+    
+    @Test
+    void testFailedRefreshKeepsServingStaleValue() {
+        // Arrange
+        cache.get("ames", key -> loads.incrementAndGet());
+        nanos.addAndGet(Duration.ofMinutes(15).toNanos());
+        
+        // Act
+        cache.get("ames", key -> {
+            throw new IllegalStateException("upstream down");
+        });
+        queuedRefreshes.forEach(Runnable::run);
+        StaleWhileRevalidateCache.Lookup<Integer> lookup = cache.get("ames", key -> loads.incrementAndGet());
+        
+        // Assert
+        assertEquals(1, lookup.value());
+        assertEquals(StaleWhileRevalidateCache.Freshness.STALE, lookup.freshness());
+        assertEquals(1L, cache.getStats().get("refreshFailureCount"));
+    }
+}
\ No newline at end of file
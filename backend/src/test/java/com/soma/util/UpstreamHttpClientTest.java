@@ -0,0 +1,135 @@
+package com.soma.util;
+
+import com.soma.exception.UpstreamUnavailableException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamHttpClientTest {
+    
+    private HttpServer server;
+    private final AtomicInteger slowCalls = new AtomicInteger();
+    private final AtomicInteger failingCalls = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        // The first call stalls well past the hedge delay; any later one answers at once
+        server.createContext("/slow-once", exchange -> {
+            if (slowCalls.getAndIncrement() == 0) {
+                sleep(1500);
+            }
+            respond(exchange, 200, "tile");
+        });
+        server.createContext("/failing", exchange -> {
+            failingCalls.incrementAndGet();
+            respond(exchange, 503, "down");
+        });
+        server.createContext("/missing", exchange -> respond(exchange, 404, ""));
+        server.start();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+    
+    @Test
+    void testHedgedRequestWinsOverStalledAttempt() {
+        // Arrange
+        UpstreamHttpClient client = client(true, 5);
+        
+        // Act
+        long start = System.nanoTime();
+        UpstreamHttpClient.Response response = client.get(uri("/slow-once"));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        
+        // Assert
+        assertEquals(200, response.status());
+        assertEquals("tile", new String(response.body(), StandardCharsets.UTF_8));
+        assertTrue(elapsedMs < 1000, "took " + elapsedMs + " ms");
+        Map<String, Object> host = hostStats(client);
+        assertEquals(1L, host.get("hedgeCount"));
+        assertEquals(1L, host.get("hedgeWinCount"));
+    }
+    
+    @Test
+    void testCircuitOpensAfterConsecutiveFailures() {
+        // Arrange
+        UpstreamHttpClient client = client(false, 3);
+        
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThrows(UncheckedIOException.class, () -> client.get(uri("/failing")));
+        }
+        
+        // Assert
+        assertTrue(client.isOpen(uri("/failing")));
+        assertThrows(UpstreamUnavailableException.class, () -> client.get(uri("/failing")));
+        assertEquals(3, failingCalls.get());
+        Map<String, Object> host = hostStats(client);
+        assertEquals("OPEN", host.get("circuit"));
+        assertEquals(3L, host.get("failureCount"));
+        assertEquals(1L, host.get("rejectedCount"));
+    }
+    
+    @Test
+    void testClientErrorsAreReturnedAndKeepCircuitClosed() {
+        // Arrange
+        UpstreamHttpClient client = client(false, 1);
+        
+        // Act
+        UpstreamHttpClient.Response response = client.get(uri("/missing"));
+        
+        // Assert
+        assertEquals(404, response.status());
+        assertFalse(client.isOpen(uri("/missing")));
+        assertEquals("CLOSED", hostStats(client).get("circuit"));
+    }
+    
+    private UpstreamHttpClient client(boolean hedging, int failureThreshold) {
+        return new UpstreamHttpClient(Duration.ofSeconds(1), Duration.ofSeconds(3), Duration.ofSeconds(3),
+                hedging, Duration.ofMillis(100), failureThreshold, Duration.ofSeconds(30));
+    }
+    
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> hostStats(UpstreamHttpClient client) {
+        return (Map<String, Object>) client.getStats().get("127.0.0.1:" + server.getAddress().getPort());
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
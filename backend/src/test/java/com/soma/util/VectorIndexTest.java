@@ -0,0 +1,54 @@
+package com.soma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorIndexTest {
+    
+    @Test
+    void testSearchRanksByDotProduct() {
+        // Arrange
+        VectorIndex index = new VectorIndex(2, 1);
+        index.upsert(1, new float[] {1, 0});
+        index.upsert(2, new float[] {0, 1});
+        index.upsert(3, new float[] {0.6f, 0.8f});
+        
+        // Act
+        List<VectorIndex.Hit> hits = index.search(new float[] {0, 1}, 2);
+        
+        // Assert
+        assertEquals(List.of(2L, 3L), hits.stream().map(VectorIndex.Hit::id).toList());
+    }
+    
+    @Test
+    void testSearchForNoHitsReturnsEmpty() {
+        // Arrange
+        VectorIndex index = new VectorIndex(2, 1);
+        index.upsert(1, new float[] {1, 0});
+        
+        // Act & Assert
+        assertTrue(index.search(new float[] {1, 0}, 0).isEmpty());
+        assertTrue(index.search(new float[] {1, 0}, -1).isEmpty());
+    }
+    
+    @Test
+    void testRemoveKeepsRemainingVectorsSearchable() {
+        // Arrange
+        VectorIndex index = new VectorIndex(2, 1);
+        index.upsert(1, new float[] {1, 0});
+        index.upsert(2, new float[] {0, 1});
+        index.upsert(3, new float[] {0.6f, 0.8f});
+        
+        // Act
+        assertTrue(index.remove(1));
+        index.upsert(3, new float[] {1, 0});
+        
+        // Assert
+        assertEquals(2, index.size());
+        assertFalse(index.remove(1));
+        assertEquals(3L, index.search(new float[] {1, 0}, 1).get(0).id());
+    }
+}
\ No newline at end of file